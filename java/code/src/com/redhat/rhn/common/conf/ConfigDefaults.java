@@ -203,6 +203,14 @@ public class ConfigDefaults {
 
     public static final String MESSAGE_QUEUE_THREAD_POOL_SIZE = "java.message_queue_thread_pool_size";
 
+    public static final String SSM_THREAD_POOL_SIZE = "java.ssm_thread_pool_size";
+    public static final String SSM_CHUNK_SIZE = "java.ssm_chunk_size";
+
+    public static final String MINION_CHECKIN_WINDOW = "java.minion_checkin_window";
+    public static final String MINION_CHECKIN_BATCHES = "java.minion_checkin_batches";
+
+    public static final String DOWNLOAD_CACHE_MAX_TOKENS = "java.download_cache_max_tokens";
+
     /**
      * Token lifetime in seconds
      */
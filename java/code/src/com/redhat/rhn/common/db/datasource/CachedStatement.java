@@ -219,6 +219,25 @@ public class CachedStatement implements Serializable {
         sqlStatement = sqlStatement.replace(replaceToken, replacementString);
     }
 
+    /**
+     * Create a copy of this statement whose sql is nested between the given
+     * prefix and suffix, e.g. to use the query as a sub-select. The statement
+     * must not have been executed yet, as execution replaces the named bind
+     * parameters.
+     * @param prefix sql text to put in front of the query
+     * @param suffix sql text to append to the query
+     * @param extraParams named parameters used by prefix and suffix
+     * @return the wrapped statement
+     */
+    CachedStatement wrap(String prefix, String suffix, List<String> extraParams) {
+        CachedStatement cs = new CachedStatement(protoQuery);
+        cs.name = name;
+        cs.params = new ArrayList<String>(params);
+        cs.params.addAll(extraParams);
+        cs.sqlStatement = prefix + sqlStatement + suffix;
+        return cs;
+    }
+
     int executeUpdate(Map<String, ?> parameters) {
         return executeUpdate(parameters, null);
     }
@@ -0,0 +1,141 @@
+/**
+ * Copyright (c) 2021 SUSE LLC
+ *
+ * This software is licensed to you under the GNU General Public License,
+ * version 2 (GPLv2). There is NO WARRANTY for this software, express or
+ * implied, including the implied warranties of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. You should have received a copy of GPLv2
+ * along with this software; if not, see
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.txt.
+ *
+ * Red Hat trademarks are not licensed under GPLv2. No permission is
+ * granted to use or replicate Red Hat trademarks that are incorporated
+ * in this software or its documentation.
+ */
+package com.redhat.rhn.common.db.datasource;
+
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * Describes a single page of a query result: offset and size of the page,
+ * plus optional sort and filter attributes. Attribute names are given in
+ * bean form (e.g. "serverName") and are mapped to the query column
+ * ("server_name") by {@link SelectMode#executePage(java.util.Map, PageRequest)}.
+ */
+public class PageRequest {
+
+    private int offset;
+    private int limit;
+    private boolean lastPage;
+    private String sortAttribute;
+    private boolean ascending = true;
+    private String filterAttribute;
+    private String filterValue;
+
+    /**
+     * Create a page request
+     * @param offsetIn zero based index of the first row of the page
+     * @param limitIn maximum number of rows in the page, zero (0) is unlimited
+     */
+    public PageRequest(int offsetIn, int limitIn) {
+        if (offsetIn < 0 || limitIn < 0) {
+            throw new IllegalArgumentException("offset and limit must be >= 0");
+        }
+        offset = offsetIn;
+        limit = limitIn;
+    }
+
+    /**
+     * @return zero based index of the first row of the page
+     */
+    public int getOffset() {
+        return offset;
+    }
+
+    /**
+     * @return maximum number of rows in the page, zero (0) is unlimited
+     */
+    public int getLimit() {
+        return limit;
+    }
+
+    /**
+     * @return true if the last page is requested, regardless of the offset
+     */
+    public boolean isLastPage() {
+        return lastPage;
+    }
+
+    /**
+     * Request the last page. The offset is then computed from the total number
+     * of rows once it is known.
+     * @param lastPageIn true if the last page is requested
+     */
+    public void setLastPage(boolean lastPageIn) {
+        lastPage = lastPageIn;
+    }
+
+    /**
+     * @return the attribute to sort by, or null for the natural query order
+     */
+    public String getSortAttribute() {
+        return sortAttribute;
+    }
+
+    /**
+     * @return true if sorting ascending
+     */
+    public boolean isAscending() {
+        return ascending;
+    }
+
+    /**
+     * Set the sort order of the page
+     * @param attribute the attribute to sort by
+     * @param ascendingIn true to sort ascending, false to sort descending
+     */
+    public void setSort(String attribute, boolean ascendingIn) {
+        sortAttribute = StringUtils.trimToNull(attribute);
+        ascending = ascendingIn;
+    }
+
+    /**
+     * @return the attribute to filter on, or null if not filtering
+     */
+    public String getFilterAttribute() {
+        return filterAttribute;
+    }
+
+    /**
+     * @return the value to filter with, or null if not filtering
+     */
+    public String getFilterValue() {
+        return filterValue;
+    }
+
+    /**
+     * Restrict the rows to the ones whose attribute contains the given value,
+     * ignoring case.
+     * @param attribute the attribute to filter on
+     * @param value the value to look for
+     */
+    public void setFilter(String attribute, String value) {
+        filterAttribute = StringUtils.trimToNull(attribute);
+        filterValue = StringUtils.trimToNull(value);
+    }
+
+    /**
+     * @return true if both filter attribute and value are set
+     */
+    public boolean hasFilter() {
+        return filterAttribute != null && filterValue != null;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public String toString() {
+        return "PageRequest[offset=" + offset + ", limit=" + limit + ", last=" + lastPage +
+                ", sort=" + sortAttribute + (ascending ? " asc" : " desc") +
+                ", filter=" + filterAttribute + ":" + filterValue + "]";
+    }
+}
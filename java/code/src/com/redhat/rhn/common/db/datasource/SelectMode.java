@@ -14,11 +14,17 @@
  */
 package com.redhat.rhn.common.db.datasource;
 
+import com.redhat.rhn.common.util.StringUtil;
+
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.regex.Pattern;
 
 /**
  * A cached set of query/elaborator strings and the parameterMap hash maps.
@@ -30,6 +36,8 @@ public class SelectMode extends BaseMode implements Serializable {
     private List<CachedStatement> elaborators = new ArrayList<CachedStatement>();
     private int maxRows;
 
+    private static final Pattern COLUMN_NAME = Pattern.compile("[a-z][a-z0-9_]*");
+
     // increase this number on any data change
     private static final long serialVersionUID = 1L;
 
@@ -116,6 +124,87 @@ public class SelectMode extends BaseMode implements Serializable {
         return getQuery().execute(parameters, inClause, this);
     }
 
+    /**
+     * Executes the query and returns only the requested page of it. The query
+     * is used as a sub-select, so filtering, sorting and slicing happen in the
+     * database; a second count query provides the total number of rows
+     * (before and after filtering) which is stored in the returned DataResult.
+     * @param parameters Query parameters.
+     * @param page the page to return
+     * @return DataResult containing the rows of the requested page.
+     */
+    @SuppressWarnings("unchecked")
+    public DataResult executePage(Map<String, ?> parameters, PageRequest page) {
+        Map<String, Object> params = parameters == null ?
+                new HashMap<String, Object>() : new HashMap<String, Object>(parameters);
+
+        String condition = "1 = 1";
+        List<String> filterParams = Collections.emptyList();
+        if (page.hasFilter()) {
+            condition = "UPPER(CAST(page_q." + toColumn(page.getFilterAttribute()) +
+                    " AS VARCHAR)) LIKE UPPER(:page_filter)";
+            filterParams = Collections.singletonList("page_filter");
+            params.put("page_filter", "%" + escapeLike(page.getFilterValue()) + "%");
+        }
+
+        SelectMode countMode = new SelectMode();
+        countMode.setName(getName() + "_count");
+        countMode.setQuery(getQuery().wrap(
+                "SELECT COUNT(*) AS unfiltered_size, " +
+                "COUNT(CASE WHEN " + condition + " THEN 1 END) AS total_size FROM (",
+                ") page_q", filterParams));
+        Map<String, Object> counts = (Map<String, Object>) countMode.execute(params).get(0);
+        int unfilteredSize = ((Number) counts.get("unfiltered_size")).intValue();
+        int totalSize = ((Number) counts.get("total_size")).intValue();
+
+        int offset = page.getOffset();
+        if (page.getLimit() > 0 && (page.isLastPage() || offset >= totalSize)) {
+            offset = totalSize == 0 ? 0 : ((totalSize - 1) / page.getLimit()) * page.getLimit();
+        }
+
+        StringBuilder suffix = new StringBuilder(") page_q WHERE ").append(condition);
+        if (page.getSortAttribute() != null) {
+            suffix.append(" ORDER BY page_q.").append(toColumn(page.getSortAttribute()))
+                  .append(page.isAscending() ? " ASC" : " DESC");
+        }
+        List<String> pageParams = new ArrayList<String>(filterParams);
+        if (page.getLimit() > 0) {
+            suffix.append(" LIMIT :page_limit OFFSET :page_offset");
+            pageParams.addAll(Arrays.asList("page_limit", "page_offset"));
+            params.put("page_limit", page.getLimit());
+            params.put("page_offset", offset);
+        }
+
+        CachedStatement original = getQuery();
+        setQuery(original.wrap("SELECT page_q.* FROM (", suffix.toString(), pageParams));
+        DataResult result;
+        try {
+            result = execute(params);
+        }
+        finally {
+            setQuery(original);
+        }
+        result.setStart(offset + 1);
+        result.setEnd(offset + result.size());
+        result.setTotalSize(totalSize);
+        result.setUnfilteredSize(unfilteredSize);
+        result.setFilter(page.hasFilter());
+        result.setFilterData(page.getFilterValue());
+        return result;
+    }
+
+    private static String toColumn(String attribute) {
+        String column = StringUtil.debeanify(attribute);
+        if (!COLUMN_NAME.matcher(column).matches()) {
+            throw new IllegalArgumentException("Invalid column name: " + attribute);
+        }
+        return column;
+    }
+
+    private static String escapeLike(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+
     /**
      * Elaborates a list by calling the elaboration queries with the given
      * parameters.
@@ -34,6 +34,7 @@ import com.redhat.rhn.common.conf.ConfigDefaults;
 import com.redhat.rhn.common.db.datasource.CallableMode;
 import com.redhat.rhn.common.db.datasource.DataResult;
 import com.redhat.rhn.common.db.datasource.ModeFactory;
+import com.redhat.rhn.common.db.datasource.PageRequest;
 import com.redhat.rhn.common.db.datasource.SelectMode;
 import com.redhat.rhn.common.db.datasource.WriteMode;
 import com.redhat.rhn.common.hibernate.HibernateFactory;
@@ -292,6 +293,39 @@ public class AdvDataSourceTest extends RhnBaseTestCase {
         }
     }
 
+    public void testExecutePage() throws Exception {
+        int startId = 2000;
+        int endId = startId + 25;
+
+        for (int i = startId; i < endId; i++) {
+            insert((i % 2 == 0 ? "pageEven" : "pageOdd") + TestUtils.randomString(), i);
+        }
+        SelectMode m = ModeFactory.getMode("test_queries", "find_all_in_table");
+        PageRequest page = new PageRequest(5, 5);
+        page.setSort("id", false);
+        page.setFilter("foobar", "PAGEEVEN");
+        DataResult<AdvDataSourceDto> dr = m.executePage(Collections.EMPTY_MAP, page);
+        assertEquals(5, dr.size());
+        assertEquals(6, dr.getStart());
+        assertEquals(10, dr.getEnd());
+        assertTrue(dr.getTotalSize() >= 13);
+        assertTrue(dr.getUnfilteredSize() >= 25);
+        long previous = Long.MAX_VALUE;
+        for (AdvDataSourceDto row : dr) {
+            assertTrue(row.getFoobar().startsWith("pageEven"));
+            assertTrue(row.getId() < previous);
+            previous = row.getId();
+        }
+        dr.elaborate();
+        assertNotNull(dr.get(0).getTestColumn());
+
+        page = new PageRequest(0, 10);
+        page.setLastPage(true);
+        dr = m.executePage(Collections.EMPTY_MAP, page);
+        assertEquals(dr.getTotalSize(), dr.getEnd());
+        assertEquals(0, (dr.getStart() - 1) % 10);
+    }
+
     public void testSelectInWithParams() throws Exception {
         SelectMode m = ModeFactory.getMode("test_queries", "select_in_withparams");
         List inclause = new ArrayList();
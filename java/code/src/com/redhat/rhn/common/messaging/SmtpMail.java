@@ -23,6 +23,7 @@ import org.apache.commons.lang3.StringUtils;
 import org.apache.log4j.Logger;
 
 import java.io.IOException;
+import java.util.Date;
 import java.util.Enumeration;
 import java.util.LinkedList;
 import java.util.List;
@@ -46,7 +47,10 @@ import javax.mail.internet.MimeMessage;
 public class SmtpMail implements Mail {
 
     private String smtpHost;
+    private Session session;
     private MimeMessage message;
+    // open connection reused by the following messages, null to open a connection per message
+    private Transport transport;
     private static Logger log = Logger.getLogger(SmtpMail.class);
 
     private static String[] disallowedDomains;
@@ -74,7 +78,7 @@ public class SmtpMail implements Mail {
         props.put("mail.smtp.host", smtpHost);
 
         // Get session
-        Session session = Session.getDefaultInstance(props, null);
+        session = Session.getDefaultInstance(props, null);
         try {
             message = new MimeMessage(session);
             message.setFrom(new InternetAddress(from));
@@ -136,7 +140,18 @@ public class SmtpMail implements Mail {
                         ": No recipients");
                 return;
             }
-            Transport.send(message);
+            // the message is reused for the following mails: date each of them when it is sent
+            message.setSentDate(new Date());
+            if (transport == null) {
+                Transport.send(message);
+            }
+            else {
+                if (!transport.isConnected()) {
+                    transport.connect();
+                }
+                message.saveChanges();
+                transport.sendMessage(message, message.getAllRecipients());
+            }
         }
         catch (MessagingException me) {
             String msg = "MessagingException while trying to send email: " +
@@ -146,6 +161,37 @@ public class SmtpMail implements Mail {
         }
     }
 
+    /**
+     * Opens a connection to the SMTP server which is reused by the following calls to {@link #send()},
+     * instead of connecting for every message, until {@link #close()} is called. If the server cannot be
+     * reached now, a connection is opened per message as usual.
+     */
+    public void openConnection() {
+        try {
+            transport = session.getTransport("smtp");
+            transport.connect();
+        }
+        catch (MessagingException me) {
+            log.warn("Unable to connect to SMTP host " + smtpHost + ": " + me.toString());
+            transport = null;
+        }
+    }
+
+    /**
+     * Closes the connection opened by {@link #openConnection()}, if any.
+     */
+    public void close() {
+        if (transport != null) {
+            try {
+                transport.close();
+            }
+            catch (MessagingException me) {
+                log.warn("Unable to close the connection to SMTP host " + smtpHost + ": " + me.toString());
+            }
+            transport = null;
+        }
+    }
+
     /** {@inheritDoc} */
     public void setRecipient(String recipIn) {
         setRecipients(new String[]{recipIn});
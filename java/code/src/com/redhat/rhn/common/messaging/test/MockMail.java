@@ -128,6 +128,14 @@ public class MockMail implements Mail {
         expectedSendCount = count;
     }
 
+    /**
+    * Get the number of times send() was called
+    * @return the send count
+    */
+    public int getSendCount() {
+        return sendCount;
+    }
+
     /**
     * Get the subject so we can verify against it
     * @return the subject
@@ -450,6 +450,19 @@ public class ChannelFactory extends HibernateFactory {
         return (int)singleton.lookupObjectByNamedQuery("Channel.isAccessibleBy", params) > 0;
     }
 
+    /**
+     * Returns the last modification time of a channel, without loading the channel.
+     *
+     * @param channelLabel the channel label
+     * @return the last modification time or empty if there is no such channel
+     */
+    public static Optional<Date> lookupLastModifiedByLabel(String channelLabel) {
+        Map<String, Object> params = new HashMap<>();
+        params.put("label", channelLabel);
+        return Optional.ofNullable((Date) singleton.lookupObjectByNamedQuery("Channel.findLastModifiedByLabel",
+                params));
+    }
+
     /**
      * Checks if a channel is accessible by a User.
      *
@@ -1291,15 +1304,12 @@ public class ChannelFactory extends HibernateFactory {
      * @param eids List of eids to add mappings for
      * @param cid channel id we're cloning into
      */
-    public static void addErrataToChannel(Set<Long> eids, Long cid) {
+    public static void addErrataToChannel(Collection<Long> eids, Long cid) {
         WriteMode m = ModeFactory.getWriteMode("Channel_queries",
-                "add_cloned_erratum_to_channel");
+                "add_cloned_errata_to_channel");
         Map<String, Object> params = new HashMap<String, Object>();
         params.put("cid", cid);
-        for (Long eid : eids) {
-            params.put("eid", eid);
-            m.executeUpdate(params);
-        }
+        m.executeUpdate(params, new ArrayList<Long>(eids));
     }
 
     /**
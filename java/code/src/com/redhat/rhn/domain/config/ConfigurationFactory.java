@@ -27,6 +27,8 @@ import com.redhat.rhn.domain.org.Org;
 import com.redhat.rhn.domain.server.Server;
 import com.redhat.rhn.domain.user.User;
 
+import org.apache.commons.codec.binary.Hex;
+import org.apache.commons.codec.digest.DigestUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.log4j.Logger;
 import org.hibernate.ObjectNotFoundException;
@@ -39,6 +41,7 @@ import javax.persistence.criteria.CriteriaQuery;
 import javax.persistence.criteria.Root;
 import java.io.IOException;
 import java.io.InputStream;
+import java.security.MessageDigest;
 import java.sql.Types;
 import java.util.Date;
 import java.util.HashMap;
@@ -56,6 +59,8 @@ import java.util.Optional;
 public class ConfigurationFactory extends HibernateFactory {
     private static ConfigurationFactory singleton = new ConfigurationFactory();
     private static Logger log = Logger.getLogger(ConfigurationFactory.class);
+    // size of the chunks in which config contents are read from streams
+    private static final int STREAM_BUFFER_SIZE = 64 * 1024;
 
     private ConfigurationFactory() {
         super();
@@ -919,6 +924,39 @@ public class ConfigurationFactory extends HibernateFactory {
         return foo;
     }
 
+    /**
+     * Computes the checksum of the contents of an input stream, reading it in chunks so
+     * that the contents are never held in memory at once. The stream is reset afterwards,
+     * so that it can be read again.
+     * @param stream input stream
+     * @param size stream size
+     * @param checksumType the checksum type label, "sha256" or "md5"
+     * @return the hex encoded checksum
+     */
+    public static String checksumFromStream(InputStream stream, Long size, String checksumType) {
+        MessageDigest digest = "md5".equals(checksumType) ?
+                DigestUtils.getMd5Digest() : DigestUtils.getSha256Digest();
+        byte[] buffer = new byte[STREAM_BUFFER_SIZE];
+        try {
+            // mark and reset stream, so that stream can be re-read later
+            stream.mark(size.intValue());
+            long remaining = size;
+            int read;
+            while (remaining > 0 &&
+                    (read = stream.read(buffer, 0, (int) Math.min(buffer.length, remaining))) > 0) {
+                digest.update(buffer, 0, read);
+                remaining -= read;
+            }
+            stream.reset();
+        }
+        catch (IOException e) {
+            log.error("IOException while reading config content from input stream!", e);
+            throw new RuntimeException("IOException while reading config content from" +
+                    " input stream!");
+        }
+        return Hex.encodeHexString(digest.digest());
+    }
+
     private static Map getMaxRevisionForFile(ConfigFile file) {
         Map<String, Object> params = new HashMap<String, Object>();
         params.put("cfid", file.getId());
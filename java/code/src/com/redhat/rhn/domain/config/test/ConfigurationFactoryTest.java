@@ -20,6 +20,8 @@ import java.util.Date;
 import org.hibernate.Session;
 
 import com.redhat.rhn.common.hibernate.HibernateFactory;
+import com.redhat.rhn.common.util.MD5Crypt;
+import com.redhat.rhn.common.util.SHA256Crypt;
 import com.redhat.rhn.domain.config.ConfigChannel;
 import com.redhat.rhn.domain.config.ConfigChannelType;
 import com.redhat.rhn.domain.config.ConfigContent;
@@ -230,4 +232,16 @@ public class ConfigurationFactoryTest extends BaseTestCaseWithUser {
         assertEquals(user.getId(), cr2.getChangedById());
         assertEquals(user.getLogin(), cr2.getChangedBy().getLogin());
     }
+
+    public void testChecksumFromStream() throws Exception {
+        byte[] data = TestUtils.randomString(200000).getBytes("UTF-8");
+        ByteArrayInputStream stream = new ByteArrayInputStream(data);
+
+        assertEquals(SHA256Crypt.sha256Hex(data),
+                ConfigurationFactory.checksumFromStream(stream, (long) data.length, "sha256"));
+        // the stream is reset and can be read again
+        assertEquals(MD5Crypt.md5Hex(data),
+                ConfigurationFactory.checksumFromStream(stream, (long) data.length, "md5"));
+        assertEquals(data.length, stream.available());
+    }
 }
@@ -43,6 +43,7 @@ import com.redhat.rhn.manager.errata.cache.ErrataCacheManager;
 import com.suse.utils.Opt;
 
 import org.apache.commons.collections.IteratorUtils;
+import org.apache.commons.lang3.tuple.Pair;
 import org.apache.log4j.Logger;
 import org.hibernate.HibernateException;
 import org.hibernate.Session;
@@ -1140,5 +1141,100 @@ public class ErrataFactory extends HibernateFactory {
         return clone;
     }
 
+    /**
+     * List the given errata with their clone in the org, if any, so that the errata to clone
+     * can be sorted out with one query.
+     * @param eids the errata ids
+     * @param org the org to look up the clones in
+     * @return maps with id, org_id, advisory, advisory_name, from_errata_id (the original
+     * if the erratum is itself a clone) and clone_id (the first clone in the org, if any)
+     */
+    public static List<Map<String, Object>> listCloneCandidates(Collection<Long> eids, Org org) {
+        SelectMode mode = ModeFactory.getMode("Errata_queries", "clone_candidates");
+        Map<String, Object> params = new HashMap<String, Object>();
+        params.put("org_id", org.getId());
+        return mode.execute(params, new ArrayList<>(eids));
+    }
+
+    /**
+     * Get all advisories that start with a clone prefix (two characters and a dash).
+     * Useful when cloning many errata at once.
+     * @return Set of advisories
+     */
+    public static Set<String> listCloneAdvisories() {
+        SelectMode mode = ModeFactory.getMode("Errata_queries", "clone_prefixed_advisories");
+        List<Map<String, Object>> results = mode.execute();
+        Set<String> ret = new HashSet<String>();
+        for (Map<String, Object> result : results) {
+            ret.add((String) result.get("advisory"));
+        }
+        return ret;
+    }
+
+    /**
+     * Get all advisory names that start with a clone prefix (two characters and a dash).
+     * Useful when cloning many errata at once.
+     * @return Set of advisory names
+     */
+    public static Set<String> listCloneAdvisoryNames() {
+        SelectMode mode = ModeFactory.getMode("Errata_queries", "clone_prefixed_advisory_names");
+        List<Map<String, Object>> results = mode.execute();
+        Set<String> ret = new HashSet<String>();
+        for (Map<String, Object> result : results) {
+            ret.add((String) result.get("advisory_name"));
+        }
+        return ret;
+    }
+
+    /**
+     * Clone many errata in the db. Does the same as
+     * {@link #cloneErratum(Long, String, String, Long)}, but with one batched statement for the
+     * errata and one statement per 500 errata for their bugs, keywords, packages, CVEs and files.
+     * @param namesByOriginal unique advisory and name of the clone by erratum id to clone from
+     * @param orgId org id to clone into
+     * @return the ids of the cloned errata by erratum id they were cloned from
+     */
+    public static Map<Long, Long> cloneErrata(Map<Long, Pair<String, String>> namesByOriginal, Long orgId) {
+        Map<Long, Long> clones = new HashMap<Long, Long>();
+        if (namesByOriginal.isEmpty()) {
+            return clones;
+        }
+
+        SelectMode select = ModeFactory.getMode("Errata_queries", "next_errata_ids");
+        Map<String, Object> params = new HashMap<String, Object>();
+        params.put("count", namesByOriginal.size());
+        List<Map<String, Object>> ids = select.execute(params);
+        Iterator<Map<String, Object>> idIterator = ids.iterator();
+
+        List<Map<String, Object>> cloneParams = new ArrayList<Map<String, Object>>();
+        List<Map<String, Object>> originalParams = new ArrayList<Map<String, Object>>();
+        for (Map.Entry<Long, Pair<String, String>> entry : namesByOriginal.entrySet()) {
+            Long cloneId = (Long) idIterator.next().get("id");
+            clones.put(entry.getKey(), cloneId);
+
+            params = new HashMap<String, Object>();
+            params.put("id", cloneId);
+            params.put("eid", entry.getKey());
+            params.put("advisory", entry.getValue().getLeft());
+            params.put("name", entry.getValue().getRight());
+            params.put("org_id", orgId);
+            cloneParams.add(params);
+
+            params = new HashMap<String, Object>();
+            params.put("original_id", entry.getKey());
+            params.put("clone_id", cloneId);
+            originalParams.add(params);
+        }
+        ModeFactory.getWriteMode("Errata_queries", "clone_erratum_with_id").executeUpdates(cloneParams);
+        ModeFactory.getWriteMode("Errata_queries", "set_original").executeUpdates(originalParams);
+
+        List<Long> cloneIds = new ArrayList<Long>(clones.values());
+        for (String mode : List.of("clone_bugs_of_clones", "clone_keywords_of_clones",
+                "clone_packages_of_clones", "clone_cves_of_clones", "clone_files_of_clones")) {
+            ModeFactory.getWriteMode("Errata_queries", mode).executeUpdate(new HashMap<String, Object>(), cloneIds);
+        }
+        return clones;
+    }
+
 }
 
@@ -30,7 +30,9 @@ import org.apache.log4j.Logger;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.stream.Collectors;
@@ -118,7 +120,7 @@ public class UserNotificationFactory extends HibernateFactory {
             forEach(user -> UserNotificationFactory.store(new UserNotification(user, notificationMessageIn)));
 
         // Update Notification WebSocket Sessions right now
-        Notification.spreadUpdate();
+        Notification.spreadUpdate(users.stream().map(User::getId).collect(Collectors.toSet()));
     }
 
     /**
@@ -145,9 +147,6 @@ public class UserNotificationFactory extends HibernateFactory {
                     allUsers.filter(user -> !Collections.disjoint(user.getRoles(), rolesIn)).collect(Collectors.toSet())
             );
         }
-
-        // Update Notification WebSocket Sessions right now
-        Notification.spreadUpdate();
     }
 
     /**
@@ -222,6 +221,31 @@ public class UserNotificationFactory extends HibernateFactory {
         return getSession().createQuery(count).getSingleResult();
     }
 
+    /**
+     * Get the count of unread messages of several users with a single query
+     *
+     * @param userIdsIn the user ids
+     * @return the unread messages size count by user id, users without unread messages are not included
+     */
+    public static Map<Long, Long> unreadUserNotificationsSizes(Collection<Long> userIdsIn) {
+        Map<Long, Long> sizes = new HashMap<>();
+        if (userIdsIn.isEmpty()) {
+            return sizes;
+        }
+        CriteriaBuilder builder = getSession().getCriteriaBuilder();
+        CriteriaQuery<Object[]> criteria = builder.createQuery(Object[].class);
+        Root<UserNotification> root = criteria.from(UserNotification.class);
+        criteria.multiselect(root.get("userId"), builder.count(root))
+                .where(
+                        root.get("userId").in(userIdsIn),
+                        builder.isFalse(root.get("read")))
+                .groupBy(root.get("userId"));
+
+        getSession().createQuery(criteria).getResultList()
+                .forEach(row -> sizes.put((Long) row[0], (Long) row[1]));
+        return sizes;
+    }
+
     /**
      * Lookup for a single {@link UserNotification} by its id
      *
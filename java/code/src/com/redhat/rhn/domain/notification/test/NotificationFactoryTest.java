@@ -23,12 +23,16 @@ import com.redhat.rhn.domain.notification.UserNotification;
 import com.redhat.rhn.domain.notification.UserNotificationFactory;
 import com.redhat.rhn.domain.notification.types.OnboardingFailed;
 import com.redhat.rhn.domain.role.RoleFactory;
+import com.redhat.rhn.domain.user.User;
 import com.redhat.rhn.testing.BaseTestCaseWithUser;
+import com.redhat.rhn.testing.UserTestUtils;
 
 import java.time.Instant;
 import java.util.Collections;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 
 public class NotificationFactoryTest extends BaseTestCaseWithUser {
@@ -78,6 +82,23 @@ public class NotificationFactoryTest extends BaseTestCaseWithUser {
         assertEquals(1, UserNotificationFactory.listAllByUser(user).size());
     }
 
+    public final void testUnreadNotificationsSizesForUsers() {
+        User otherUser = UserTestUtils.createUser("otheruser", user.getOrg().getId());
+        User userWithout = UserTestUtils.createUser("userwithout", user.getOrg().getId());
+
+        NotificationMessage msg1 = UserNotificationFactory.createNotificationMessage(new OnboardingFailed("minion1"));
+        UserNotificationFactory.storeForUsers(msg1, Set.of(user, otherUser));
+        NotificationMessage msg2 = UserNotificationFactory.createNotificationMessage(new OnboardingFailed("minion2"));
+        UserNotificationFactory.storeForUsers(msg2, Set.of(user, otherUser));
+        UserNotificationFactory.updateStatus(UserNotificationFactory.listUnreadByUser(otherUser).get(0), true);
+
+        Map<Long, Long> sizes = UserNotificationFactory.unreadUserNotificationsSizes(
+                List.of(user.getId(), otherUser.getId(), userWithout.getId()));
+
+        assertEquals(Map.of(user.getId(), 2L, otherUser.getId(), 1L), sizes);
+        assertTrue(UserNotificationFactory.unreadUserNotificationsSizes(Collections.emptyList()).isEmpty());
+    }
+
     public final void testDeleteNotificationMessagesBefore() {
         // Clean up all notifications that might be present
         if (UserNotificationFactory.listAllNotificationMessages().size() > 0) {
@@ -18,18 +18,30 @@ import com.redhat.rhn.common.db.datasource.CallableMode;
 import com.redhat.rhn.common.db.datasource.ModeFactory;
 import com.redhat.rhn.common.hibernate.HibernateFactory;
 
+import com.suse.utils.Lists;
+
+import org.apache.commons.lang3.StringUtils;
 import org.hibernate.Session;
 
 import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
 
 /**
  * PackageEvrFactory
  */
 public class PackageEvrFactory {
 
+    private static final int LOOKUP_BATCH_SIZE = 1000;
+
     /**
      * Private Constructor
      */
@@ -88,6 +100,61 @@ public class PackageEvrFactory {
         return lookupPackageEvrById(id);
     }
 
+    /**
+     * Lookup PackageEvr objects for many EVRs at once, creating the missing ones.
+     * @param evrs transient PackageEvr objects holding epoch, version, release and type
+     * @return the persistent PackageEvr objects by the given transient ones
+     */
+    public static Map<PackageEvr, PackageEvr> lookupOrCreatePackageEvrs(Collection<PackageEvr> evrs) {
+        Map<PackageEvr, Long> idsByEvr = lookupOrCreatePackageEvrIds(evrs);
+
+        Map<Long, PackageEvr> evrsById = new HashMap<>();
+        for (List<Long> batch : Lists.partition(new ArrayList<>(new HashSet<>(idsByEvr.values())),
+                LOOKUP_BATCH_SIZE)) {
+            List<PackageEvr> found = HibernateFactory.getSession().getNamedQuery("PackageEvr.findByIds")
+                    .setParameterList("ids", batch)
+                    .list();
+            found.forEach(evr -> evrsById.put(evr.getId(), evr));
+        }
+        return idsByEvr.entrySet().stream()
+                .collect(Collectors.toMap(Map.Entry::getKey, e -> evrsById.get(e.getValue())));
+    }
+
+    /**
+     * Lookup the ids of many EVRs at once, creating the missing ones. This issues one
+     * statement per {@value #LOOKUP_BATCH_SIZE} EVRs instead of one per EVR.
+     * @param evrs transient PackageEvr objects holding epoch, version, release and type
+     * @return the EVR ids by the given transient PackageEvr objects
+     */
+    public static Map<PackageEvr, Long> lookupOrCreatePackageEvrIds(Collection<PackageEvr> evrs) {
+        Session session = HibernateFactory.getSession();
+        Map<PackageEvr, Long> idsByEvr = new HashMap<>();
+
+        // sorted like the package names, so that concurrent callers lock the EVR rows in the same order
+        Map<String, List<PackageEvr>> evrsByType = evrs.stream().distinct()
+                .sorted(Comparator.comparing((PackageEvr evr) -> StringUtils.defaultString(evr.getEpoch()))
+                        .thenComparing(PackageEvr::getVersion)
+                        .thenComparing(PackageEvr::getRelease))
+                .collect(Collectors.groupingBy(PackageEvr::getType, TreeMap::new, Collectors.toList()));
+        for (Map.Entry<String, List<PackageEvr>> typeEntry : evrsByType.entrySet()) {
+            for (List<PackageEvr> batch : Lists.partition(typeEntry.getValue(), LOOKUP_BATCH_SIZE)) {
+                List<Object[]> rows = session.getNamedQuery("PackageEvr.lookupOrCreateIds")
+                        .setParameterList("epochs", batch.stream()
+                                .map(evr -> StringUtils.defaultString(evr.getEpoch()))
+                                .collect(Collectors.toList()))
+                        .setParameterList("versions", batch.stream()
+                                .map(PackageEvr::getVersion).collect(Collectors.toList()))
+                        .setParameterList("releases", batch.stream()
+                                .map(PackageEvr::getRelease).collect(Collectors.toList()))
+                        .setParameter("type", typeEntry.getKey())
+                        .list();
+                // positions returned by the query are 1 based
+                rows.forEach(row -> idsByEvr.put(batch.get((Integer) row[0] - 1), (Long) row[1]));
+            }
+        }
+        return idsByEvr;
+    }
+
     /**
      * Lookup a PackageEvr by its id
      * @param id the id to search for
@@ -29,10 +29,15 @@ import com.redhat.rhn.frontend.action.channel.PackageSearchAction;
 import com.redhat.rhn.frontend.dto.BooleanWrapper;
 import com.redhat.rhn.frontend.dto.PackageOverview;
 import com.redhat.rhn.manager.user.UserManager;
+
+import com.suse.utils.Lists;
+
 import org.apache.log4j.Logger;
 import org.hibernate.Session;
 
 import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -41,6 +46,8 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
 
 import javax.persistence.criteria.CriteriaBuilder;
 import javax.persistence.criteria.CriteriaQuery;
@@ -60,6 +67,11 @@ public class PackageFactory extends HibernateFactory {
     public static final String ARCH_TYPE_TAR = "tar";
 
     private static final Map<String, Set<String>> PACKAGE_CAPABILITY_MAP;
+
+    // package archs are only changed by schema upgrades, so label to id mappings never get stale
+    private static final Map<String, Long> PACKAGE_ARCH_IDS = new ConcurrentHashMap<>();
+
+    private static final int LOOKUP_BATCH_SIZE = 1000;
     static {
         Map<String, Set<String>> map = new HashMap<>();
         Set<String> rpmCaps = new HashSet<String>();
@@ -195,10 +207,19 @@ public class PackageFactory extends HibernateFactory {
      * @return the PackageArch whose label matches the given label.
      */
     public static PackageArch lookupPackageArchByLabel(String label) {
+        Long id = PACKAGE_ARCH_IDS.get(label);
+        if (id != null) {
+            // PackageArch is in the second level cache, this does not hit the database
+            return HibernateFactory.getSession().get(PackageArch.class, id);
+        }
         Map<String, Object> params = new HashMap<String, Object>();
         params.put("label", label);
-        return (PackageArch) singleton.lookupObjectByNamedQuery("PackageArch.findByLabel",
+        PackageArch arch = (PackageArch) singleton.lookupObjectByNamedQuery("PackageArch.findByLabel",
                 params, true);
+        if (arch != null) {
+            PACKAGE_ARCH_IDS.put(label, arch.getId());
+        }
+        return arch;
     }
 
     /**
@@ -236,6 +257,43 @@ public class PackageFactory extends HibernateFactory {
         return lookupPackageName(id);
     }
 
+    /**
+     * Lookup PackageName objects for many names at once, creating the missing ones.
+     * @param names the package names
+     * @return the PackageName objects by name
+     */
+    public static Map<String, PackageName> lookupOrCreatePackageNames(Collection<String> names) {
+        Map<String, PackageName> result = new HashMap<>();
+        Map<String, Long> ids = lookupOrCreatePackageNameIds(names);
+        for (List<Long> batch : Lists.partition(new ArrayList<>(new HashSet<>(ids.values())), LOOKUP_BATCH_SIZE)) {
+            List<PackageName> packageNames = HibernateFactory.getSession()
+                    .getNamedQuery("PackageName.findByIds")
+                    .setParameterList("ids", batch)
+                    .list();
+            packageNames.forEach(pn -> result.put(pn.getName(), pn));
+        }
+        return result;
+    }
+
+    /**
+     * Lookup the ids of many package names at once, creating the missing ones. This
+     * issues one statement per {@value #LOOKUP_BATCH_SIZE} names instead of one per name.
+     * @param names the package names
+     * @return the package name ids by name
+     */
+    public static Map<String, Long> lookupOrCreatePackageNameIds(Collection<String> names) {
+        List<String> sortedNames = names.stream().distinct().sorted().collect(Collectors.toList());
+        Map<String, Long> result = new HashMap<>();
+        for (List<String> batch : Lists.partition(sortedNames, LOOKUP_BATCH_SIZE)) {
+            List<Object[]> rows = HibernateFactory.getSession()
+                    .getNamedQuery("PackageName.lookupOrCreateIds")
+                    .setParameterList("names", batch)
+                    .list();
+            rows.forEach(row -> result.put((String) row[0], (Long) row[1]));
+        }
+        return result;
+    }
+
     /**
      * Lookup the ID of a package name, if it exists, otherwise INSERT one (in a separate transaction)
      * @param name the package name
@@ -18,6 +18,12 @@ import com.redhat.rhn.domain.rhnpackage.PackageEvr;
 import com.redhat.rhn.domain.rhnpackage.PackageEvrFactory;
 import com.redhat.rhn.domain.rhnpackage.PackageType;
 import com.redhat.rhn.testing.RhnBaseTestCase;
+import com.redhat.rhn.testing.TestUtils;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 
 /**
  * PackageEvrTest
@@ -40,6 +46,39 @@ public class PackageEvrFactoryTest extends RhnBaseTestCase {
        assertEquals(evr.getEpoch(), evr2.getEpoch());
     }
 
+    /**
+     * Tests the bulk lookup of EVRs with existing and missing ones, duplicates and more than one batch.
+     * @throws Exception Exception
+     */
+    public void testLookupOrCreatePackageEvrs() throws Exception {
+        PackageEvr existing = createTestPackageEvr();
+        String version = TestUtils.randomString();
+
+        List<PackageEvr> evrs = new ArrayList<>();
+        evrs.add(new PackageEvr(existing.getEpoch(), existing.getVersion(), existing.getRelease(),
+                existing.getType()));
+        for (int i = 0; i < 1500; i++) {
+            evrs.add(new PackageEvr(null, version, String.valueOf(i), PackageType.RPM));
+        }
+        evrs.add(new PackageEvr(null, version, "0", PackageType.RPM));
+
+        Map<PackageEvr, Long> ids = PackageEvrFactory.lookupOrCreatePackageEvrIds(evrs);
+        assertEquals(1501, ids.size());
+        assertEquals(1501, new HashSet<>(ids.values()).size());
+        assertEquals(existing.getId(), ids.get(evrs.get(0)));
+
+        PackageEvr created = PackageEvrFactory.lookupPackageEvrById(
+                ids.get(new PackageEvr(null, version, "1499", PackageType.RPM)));
+        assertNull(created.getEpoch());
+        assertEquals(version, created.getVersion());
+        assertEquals("1499", created.getRelease());
+
+        // a second lookup finds the created EVRs
+        Map<PackageEvr, PackageEvr> persistent = PackageEvrFactory.lookupOrCreatePackageEvrs(evrs);
+        assertEquals(1501, persistent.size());
+        persistent.forEach((evr, found) -> assertEquals(ids.get(evr), found.getId()));
+    }
+
     /**
      * Test method to create a test PackageEvr
      * @param epoch the epoch
@@ -24,6 +24,7 @@ import com.redhat.rhn.domain.rhnpackage.PackageCapability;
 import com.redhat.rhn.domain.rhnpackage.PackageConflicts;
 import com.redhat.rhn.domain.rhnpackage.PackageEnhances;
 import com.redhat.rhn.domain.rhnpackage.PackageFactory;
+import com.redhat.rhn.domain.rhnpackage.PackageName;
 import com.redhat.rhn.domain.rhnpackage.PackageObsoletes;
 import com.redhat.rhn.domain.rhnpackage.PackagePreDepends;
 import com.redhat.rhn.domain.rhnpackage.PackageProvides;
@@ -45,7 +46,9 @@ import com.redhat.rhn.testing.TestUtils;
 import com.redhat.rhn.testing.UserTestUtils;
 
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 
@@ -71,6 +74,35 @@ public class PackageFactoryTest extends BaseTestCaseWithUser {
         // Sat mode since there is only one Org.
     }
 
+    /**
+     * Tests the bulk lookup of package names with existing and missing ones, duplicates and more
+     * than one batch.
+     * @throws Exception something bad happened
+     */
+    public void testLookupOrCreatePackageNames() throws Exception {
+        PackageName existing = PackageNameTest.createTestPackageName();
+        String prefix = "00JavaTest" + TestUtils.randomString();
+
+        List<String> names = new ArrayList<>();
+        names.add(existing.getName());
+        for (int i = 0; i < 1500; i++) {
+            names.add(prefix + i);
+        }
+        names.add(prefix + 0);
+        names.add(existing.getName());
+
+        Map<String, Long> ids = PackageFactory.lookupOrCreatePackageNameIds(names);
+        assertEquals(1501, ids.size());
+        assertEquals(1501, new HashSet<>(ids.values()).size());
+        assertEquals(existing.getId(), ids.get(existing.getName()));
+        assertEquals(prefix + 1499, PackageFactory.lookupPackageName(ids.get(prefix + 1499)).getName());
+
+        // a second lookup finds the created names
+        Map<String, PackageName> packageNames = PackageFactory.lookupOrCreatePackageNames(names);
+        assertEquals(1501, packageNames.size());
+        packageNames.forEach((name, packageName) -> assertEquals(ids.get(name), packageName.getId()));
+    }
+
     public void testLookupPackageArchByLabel() {
         assertNull(PackageFactory.lookupPackageArchByLabel("biteme-arch"));
         assertNotNull(PackageFactory.lookupPackageArchByLabel("i386"));
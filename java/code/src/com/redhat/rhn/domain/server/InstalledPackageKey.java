@@ -0,0 +1,98 @@
+/**
+ * Copyright (c) 2021 SUSE LLC
+ *
+ * This software is licensed to you under the GNU General Public License,
+ * version 2 (GPLv2). There is NO WARRANTY for this software, express or
+ * implied, including the implied warranties of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. You should have received a copy of GPLv2
+ * along with this software; if not, see
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.txt.
+ *
+ * Red Hat trademarks are not licensed under GPLv2. No permission is
+ * granted to use or replicate Red Hat trademarks that are incorporated
+ * in this software or its documentation.
+ */
+package com.redhat.rhn.domain.server;
+
+import org.apache.commons.lang3.builder.EqualsBuilder;
+import org.apache.commons.lang3.builder.HashCodeBuilder;
+
+/**
+ * Identifies a row of rhnServerPackage for a given server by its name, evr and
+ * arch ids, without loading the corresponding {@link InstalledPackage} entity.
+ */
+public class InstalledPackageKey {
+
+    private final Long nameId;
+    private final Long evrId;
+    private final Long archId;
+
+    /**
+     * Constructor
+     * @param nameIdIn the package name id
+     * @param evrIdIn the package evr id
+     * @param archIdIn the package arch id, can be null
+     */
+    public InstalledPackageKey(Long nameIdIn, Long evrIdIn, Long archIdIn) {
+        nameId = nameIdIn;
+        evrId = evrIdIn;
+        archId = archIdIn;
+    }
+
+    /**
+     * @return the package name id
+     */
+    public Long getNameId() {
+        return nameId;
+    }
+
+    /**
+     * @return the package evr id
+     */
+    public Long getEvrId() {
+        return evrId;
+    }
+
+    /**
+     * @return the package arch id, can be null
+     */
+    public Long getArchId() {
+        return archId;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean equals(Object other) {
+        if (!(other instanceof InstalledPackageKey)) {
+            return false;
+        }
+        InstalledPackageKey otherKey = (InstalledPackageKey) other;
+        return new EqualsBuilder()
+                .append(nameId, otherKey.nameId)
+                .append(evrId, otherKey.evrId)
+                .append(archId, otherKey.archId)
+                .isEquals();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int hashCode() {
+        return new HashCodeBuilder()
+                .append(nameId)
+                .append(evrId)
+                .append(archId)
+                .toHashCode();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString() {
+        return "InstalledPackageKey[name=" + nameId + ", evr=" + evrId + ", arch=" + archId + "]";
+    }
+}
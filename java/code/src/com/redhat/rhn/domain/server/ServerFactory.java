@@ -40,6 +40,7 @@ import com.redhat.rhn.manager.rhnset.RhnSetDecl;
 import com.redhat.rhn.manager.system.UpdateBaseChannelCommand;
 
 import com.suse.manager.model.maintenance.MaintenanceSchedule;
+import com.suse.utils.Lists;
 
 import org.apache.commons.lang3.StringUtils;
 import org.apache.log4j.Logger;
@@ -50,6 +51,7 @@ import org.hibernate.criterion.MatchMode;
 import org.hibernate.criterion.Projections;
 import org.hibernate.criterion.Restrictions;
 import org.hibernate.criterion.Subqueries;
+import org.hibernate.query.Query;
 
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -63,6 +65,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 import javax.persistence.criteria.CriteriaBuilder;
@@ -81,6 +84,8 @@ public class ServerFactory extends HibernateFactory {
 
     public static final ServerFactory SINGLETON = new ServerFactory();
 
+    private static final int PACKAGE_BATCH_SIZE = 1000;
+
     private ServerFactory() {
         super();
     }
@@ -1432,4 +1437,61 @@ public class ServerFactory extends HibernateFactory {
                 .setParameter("systemIds", systemIds)
                 .executeUpdate();
     }
+
+    /**
+     * Lists the keys of the packages installed on a server, without loading the
+     * {@link InstalledPackage} entities.
+     *
+     * @param server the server
+     * @return the keys of the installed packages
+     */
+    public static Set<InstalledPackageKey> listInstalledPackageKeys(Server server) {
+        List<Object[]> rows = getSession().getNamedQuery("InstalledPackage.listKeysByServer")
+                .setParameter("sid", server.getId())
+                .list();
+        return rows.stream()
+                .map(row -> new InstalledPackageKey((Long) row[0], (Long) row[1], (Long) row[2]))
+                .collect(Collectors.toSet());
+    }
+
+    /**
+     * Applies a delta to the packages installed on a server with bulk statements. The
+     * server's package collection is not updated, callers must make sure it is not
+     * initialized in the current session.
+     *
+     * @param server the server
+     * @param removed the keys of the packages to remove
+     * @param added the install times of the packages to add, by package key
+     */
+    public static void updateInstalledPackages(Server server, Collection<InstalledPackageKey> removed,
+            Map<InstalledPackageKey, Date> added) {
+        Session session = getSession();
+        for (List<InstalledPackageKey> batch : Lists.partition(new ArrayList<>(removed), PACKAGE_BATCH_SIZE)) {
+            bindPackageKeys(session.getNamedQuery("InstalledPackage.deleteByKeys"), batch, k -> k)
+                    .setParameter("sid", server.getId())
+                    .executeUpdate();
+        }
+        for (List<Map.Entry<InstalledPackageKey, Date>> batch :
+                Lists.partition(new ArrayList<>(added.entrySet()), PACKAGE_BATCH_SIZE)) {
+            bindPackageKeys(session.getNamedQuery("InstalledPackage.insertByKeys"), batch, Map.Entry::getKey)
+                    .setParameterList("install_times", batch.stream()
+                            .map(e -> e.getValue().getTime() / 1000)
+                            .collect(Collectors.toList()))
+                    .setParameter("sid", server.getId())
+                    .executeUpdate();
+        }
+    }
+
+    private static <T> Query bindPackageKeys(Query query,
+            List<T> batch, Function<T, InstalledPackageKey> keyFunction) {
+        // arrays of ids can not hold typed nulls, -1 stands for a missing arch
+        return query
+                .setParameterList("name_ids", batch.stream()
+                        .map(t -> keyFunction.apply(t).getNameId()).collect(Collectors.toList()))
+                .setParameterList("evr_ids", batch.stream()
+                        .map(t -> keyFunction.apply(t).getEvrId()).collect(Collectors.toList()))
+                .setParameterList("arch_ids", batch.stream()
+                        .map(t -> Optional.ofNullable(keyFunction.apply(t).getArchId()).orElse(-1L))
+                        .collect(Collectors.toList()));
+    }
 }
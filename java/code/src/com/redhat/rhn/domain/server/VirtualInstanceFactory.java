@@ -17,13 +17,18 @@ package com.redhat.rhn.domain.server;
 import com.redhat.rhn.common.hibernate.HibernateFactory;
 import com.redhat.rhn.domain.org.Org;
 
+import com.google.common.collect.Lists;
+
 import org.apache.log4j.Logger;
 import org.hibernate.Session;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 
@@ -36,6 +41,8 @@ public class VirtualInstanceFactory extends HibernateFactory {
 
     private static VirtualInstanceFactory instance = new VirtualInstanceFactory();
 
+    private static final int LOOKUP_BATCH_SIZE = 1000;
+
     /**
      * Logger for this class
      */
@@ -357,6 +364,25 @@ public class VirtualInstanceFactory extends HibernateFactory {
             .list();
     }
 
+    /**
+     * Returns the VirtualInstances with the given uuids, issuing one query per
+     * {@value #LOOKUP_BATCH_SIZE} uuids.
+     * @param uuids - uuids of the vms
+     * @return the VirtualInstances by uuid, with an empty list for the uuids not found
+     */
+    public Map<String, List<VirtualInstance>> lookupVirtualInstancesByUuids(Collection<String> uuids) {
+        Map<String, List<VirtualInstance>> result = new HashMap<>();
+        uuids.forEach(uuid -> result.put(uuid, new ArrayList<>()));
+        for (List<String> batch : Lists.partition(new ArrayList<>(result.keySet()), LOOKUP_BATCH_SIZE)) {
+            List<VirtualInstance> virtualInstances = getSession()
+                    .getNamedQuery("VirtualInstance.lookupVirtualInstancesByUuids")
+                    .setParameterList("uuids", batch)
+                    .list();
+            virtualInstances.forEach(vi -> result.get(vi.getUuid()).add(vi));
+        }
+        return result;
+    }
+
     /**
      * Returns a VirtualInstance that is linked to the host system with given id.
      * @param hostId - id of the host system
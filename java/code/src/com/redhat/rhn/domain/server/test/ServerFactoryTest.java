@@ -49,6 +49,7 @@ import com.redhat.rhn.domain.server.Dmi;
 import com.redhat.rhn.domain.server.EntitlementServerGroup;
 import com.redhat.rhn.domain.server.ErrataInfo;
 import com.redhat.rhn.domain.server.InstalledPackage;
+import com.redhat.rhn.domain.server.InstalledPackageKey;
 import com.redhat.rhn.domain.server.ManagedServerGroup;
 import com.redhat.rhn.domain.server.MinionServer;
 import com.redhat.rhn.domain.server.MinionSummary;
@@ -1503,4 +1504,28 @@ public class ServerFactoryTest extends BaseTestCaseWithUser {
         assertEquals(schedule, HibernateFactory.reload(sys1).getMaintenanceScheduleOpt().get());
         assertEquals(schedule, HibernateFactory.reload(sys2).getMaintenanceScheduleOpt().get());
     }
+
+    public void testUpdateInstalledPackages() throws Exception {
+        Server server = ServerFactoryTest.createTestServer(user, true);
+        PackageName name1 = PackageNameTest.createTestPackageName("testPackage1-" + TestUtils.randomString());
+        PackageName name2 = PackageNameTest.createTestPackageName("testPackage2-" + TestUtils.randomString());
+        PackageEvr evr = PackageEvrFactoryTest.createTestPackageEvr("1", "1.0.0", "1", server.getPackageType());
+        PackageArch arch = (PackageArch) TestUtils.lookupFromCacheById(100L, "PackageArch.findById");
+
+        InstalledPackageKey key1 = new InstalledPackageKey(name1.getId(), evr.getId(), arch.getId());
+        InstalledPackageKey key2 = new InstalledPackageKey(name2.getId(), evr.getId(), null);
+        Map<InstalledPackageKey, Date> added = new HashMap<>();
+        added.put(key1, new Date());
+        added.put(key2, new Date());
+        ServerFactory.updateInstalledPackages(server, Collections.emptyList(), added);
+        assertEquals(Set.of(key1, key2), ServerFactory.listInstalledPackageKeys(server));
+
+        ServerFactory.updateInstalledPackages(server, List.of(key2), Collections.emptyMap());
+        assertEquals(Set.of(key1), ServerFactory.listInstalledPackageKeys(server));
+
+        HibernateFactory.getSession().clear();
+        server = ServerFactory.lookupById(server.getId());
+        assertEquals(1, server.getPackages().size());
+        assertEquals(name1, server.getPackages().iterator().next().getName());
+    }
 }
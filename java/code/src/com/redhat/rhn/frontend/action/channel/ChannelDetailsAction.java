@@ -26,6 +26,7 @@ import com.redhat.rhn.manager.channel.ChannelManager;
 import com.redhat.rhn.manager.system.SystemManager;
 import com.redhat.rhn.manager.user.UserManager;
 
+import com.suse.manager.webui.services.pillar.MinionGeneralPillarGenerator;
 import com.suse.manager.webui.services.pillar.MinionPillarManager;
 
 import com.redhat.rhn.domain.server.ServerFactory;
@@ -36,7 +37,6 @@ import org.apache.struts.action.ActionForward;
 import org.apache.struts.action.ActionMapping;
 import org.apache.struts.action.DynaActionForm;
 
-import java.util.Collections;
 import java.util.Map;
 
 import javax.servlet.http.HttpServletRequest;
@@ -86,8 +86,7 @@ public class ChannelDetailsAction extends RhnAction {
             params.put("cid", cid);
             fwd = "success";
             ServerFactory.listMinionsByChannel(cid).stream().forEach(ms -> {
-                MinionPillarManager.INSTANCE.generatePillar(ms, false,
-                        Collections.emptySet());
+                MinionPillarManager.INSTANCE.generatePillar(ms, MinionGeneralPillarGenerator.class);
             });
         }
 
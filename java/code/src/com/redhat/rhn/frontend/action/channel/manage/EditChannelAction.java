@@ -46,6 +46,7 @@ import com.redhat.rhn.manager.download.DownloadManager;
 import com.redhat.rhn.manager.system.SystemManager;
 import com.redhat.rhn.manager.user.UserManager;
 
+import com.suse.manager.webui.services.pillar.MinionGeneralPillarGenerator;
 import com.suse.manager.webui.services.pillar.MinionPillarManager;
 
 import org.apache.commons.lang3.BooleanUtils;
@@ -60,7 +61,6 @@ import org.apache.struts.action.DynaActionForm;
 import org.stringtree.json.JSONWriter;
 
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -417,8 +417,7 @@ public class EditChannelAction extends RhnAction implements Listable<OrgTrust> {
                     ("all".equals(sharing)), loggedInUser.getOrg());
             updated = (Channel) ChannelFactory.reload(updated);
             ServerFactory.listMinionsByChannel(updated.getId()).stream().forEach(ms -> {
-                MinionPillarManager.INSTANCE.generatePillar(ms, false,
-                        Collections.emptySet());
+                MinionPillarManager.INSTANCE.generatePillar(ms, MinionGeneralPillarGenerator.class);
             });
 
         }
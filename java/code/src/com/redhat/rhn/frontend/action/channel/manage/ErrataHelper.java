@@ -29,7 +29,13 @@ import com.redhat.rhn.domain.org.Org;
 import com.redhat.rhn.domain.user.User;
 import com.redhat.rhn.frontend.dto.ErrataOverview;
 
+import org.apache.commons.lang3.tuple.Pair;
+
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 /**
@@ -77,6 +83,37 @@ public class ErrataHelper {
         return clone.getId();
     }
 
+    /**
+     * Clones many errata like {@link #cloneErrataFaster(Long, Org)} does for one, with the
+     * existing advisories fetched once and the clones inserted with set-based statements.
+     * @param originals the original errata, as returned by
+     * {@link ErrataFactory#listCloneCandidates(java.util.Collection, Org)}
+     * @param org Org to clone into
+     * @return Ids of the cloned errata by id of the original erratum
+     */
+    public static Map<Long, Long> cloneErrataFaster(List<Map<String, Object>> originals, Org org) {
+        if (originals.isEmpty()) {
+            return new HashMap<>();
+        }
+        Set<String> advisories = ErrataFactory.listCloneAdvisories();
+        Set<String> advisoryNames = ErrataFactory.listCloneAdvisoryNames();
+
+        Map<Long, Pair<String, String>> namesByOriginal = new LinkedHashMap<>();
+        for (Map<String, Object> original : originals) {
+            boolean isCloned = original.get("from_errata_id") != null;
+            String advisorySuffix = getSuffix((String) original.get("advisory"), isCloned);
+            String nameSuffix = getSuffix((String) original.get("advisory_name"), isCloned);
+            String prefix = findNextPrefix(advisorySuffix, nameSuffix, advisories, advisoryNames);
+
+            // the clones are inserted at the end, make the following errata see these names
+            advisories.add(prefix + advisorySuffix);
+            advisoryNames.add(prefix + nameSuffix);
+            namesByOriginal.put((Long) original.get("id"),
+                    Pair.of(prefix + advisorySuffix, prefix + nameSuffix));
+        }
+        return ErrataFactory.cloneErrata(namesByOriginal, org.getId());
+    }
+
 
     /**
      * Clones an errata
@@ -172,7 +209,11 @@ public class ErrataHelper {
     private static String findNextPrefix(String advisoryLike, String nameLike) {
         Set<String> advisories = ErrataFactory.listAdvisoriesEndingWith(advisoryLike);
         Set<String> advisoryNames = ErrataFactory.listAdvisoryNamesEndingWith(nameLike);
+        return findNextPrefix(advisoryLike, nameLike, advisories, advisoryNames);
+    }
 
+    private static String findNextPrefix(String advisoryLike, String nameLike, Set<String> advisories,
+            Set<String> advisoryNames) {
         boolean unusedNameFound = false;
         String prefix = DEFAULT_ERRATA_CLONE_PREFIX;
 
@@ -15,12 +15,13 @@
 package com.redhat.rhn.frontend.action.errata;
 
 import com.redhat.rhn.common.db.datasource.DataResult;
+import com.redhat.rhn.common.db.datasource.PageRequest;
 import com.redhat.rhn.domain.user.User;
 import com.redhat.rhn.frontend.struts.RequestContext;
 import com.redhat.rhn.frontend.struts.RhnAction;
 import com.redhat.rhn.frontend.struts.RhnHelper;
 import com.redhat.rhn.frontend.taglibs.list.helper.ListHelper;
-import com.redhat.rhn.frontend.taglibs.list.helper.Listable;
+import com.redhat.rhn.frontend.taglibs.list.helper.PageableListable;
 import com.redhat.rhn.manager.errata.ErrataManager;
 
 import org.apache.struts.action.ActionForm;
@@ -37,7 +38,7 @@ import javax.servlet.http.HttpServletResponse;
  * the {@link #getErrataFilter()} method to indicate what data to return.
  *
  */
-public abstract class ErrataListBaseAction extends RhnAction implements Listable {
+public abstract class ErrataListBaseAction extends RhnAction implements PageableListable {
 
     /**
      * Indicates the specific erratum returned by a particular subclass.
@@ -82,6 +83,27 @@ public abstract class ErrataListBaseAction extends RhnAction implements Listable
         return result;
     }
 
+    /** {@inheritDoc} */
+    public DataResult getPage(RequestContext context, PageRequest page) {
+        User user = context.getCurrentUser();
+        // the list sorts the update date by its Date object, the query sorts the column itself
+        if ("updateDateObj".equals(page.getSortAttribute())) {
+            page.setSort("updateDate", page.isAscending());
+        }
+
+        switch (getErrataFilter()) {
+            case ALL:
+                return ErrataManager.allErrata(user, page);
+
+            case RELEVANT:
+                return ErrataManager.relevantErrata(user, page);
+
+            default:
+                throw new IllegalStateException("Subclass did not return a valid errata " +
+                    "filter");
+        }
+    }
+
     /**
      * Method to distinguish security errata actions
      * @return whether it is an action of Security Errata
@@ -14,11 +14,13 @@
  */
 package com.redhat.rhn.frontend.action.systems.sdc;
 
+import com.redhat.rhn.common.db.datasource.DataResult;
+import com.redhat.rhn.common.db.datasource.PageRequest;
 import com.redhat.rhn.frontend.struts.RequestContext;
 import com.redhat.rhn.frontend.struts.RhnAction;
 import com.redhat.rhn.frontend.struts.RhnHelper;
 import com.redhat.rhn.frontend.taglibs.list.helper.ListHelper;
-import com.redhat.rhn.frontend.taglibs.list.helper.Listable;
+import com.redhat.rhn.frontend.taglibs.list.helper.PageableListable;
 import com.redhat.rhn.manager.system.SystemManager;
 
 import org.apache.struts.action.ActionForm;
@@ -35,7 +37,7 @@ import javax.servlet.http.HttpServletResponse;
  * SnapshotIndexAction
  */
 public class SnapshotIndexAction extends RhnAction
-        implements Listable<Map<String, Object>> {
+        implements PageableListable<Map<String, Object>> {
 
     /**
      * {@inheritDoc}
@@ -62,4 +64,11 @@ public class SnapshotIndexAction extends RhnAction
         Long sid = context.getRequiredParam("sid");
         return SystemManager.systemSnapshots(sid, null);
     }
+
+    /** {@inheritDoc} */
+    @Override
+    public DataResult<Map<String, Object>> getPage(RequestContext context, PageRequest page) {
+        Long sid = context.getRequiredParam("sid");
+        return SystemManager.systemSnapshotsPage(sid, page);
+    }
 }
@@ -0,0 +1,102 @@
+/**
+ * Copyright (c) 2021 SUSE LLC
+ *
+ * This software is licensed to you under the GNU General Public License,
+ * version 2 (GPLv2). There is NO WARRANTY for this software, express or
+ * implied, including the implied warranties of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. You should have received a copy of GPLv2
+ * along with this software; if not, see
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.txt.
+ *
+ * Red Hat trademarks are not licensed under GPLv2. No permission is
+ * granted to use or replicate Red Hat trademarks that are incorporated
+ * in this software or its documentation.
+ */
+package com.redhat.rhn.frontend.action.systems.sdc.test;
+
+import com.redhat.rhn.common.hibernate.HibernateFactory;
+import com.redhat.rhn.domain.server.Server;
+import com.redhat.rhn.domain.server.ServerSnapshot;
+import com.redhat.rhn.domain.server.test.ServerFactoryTest;
+import com.redhat.rhn.frontend.struts.RequestContext;
+import com.redhat.rhn.frontend.taglibs.list.ListTagHelper;
+import com.redhat.rhn.frontend.taglibs.list.ListTagUtil;
+import com.redhat.rhn.frontend.taglibs.list.PagedDataSetLoader;
+import com.redhat.rhn.frontend.taglibs.list.TagHelper;
+import com.redhat.rhn.frontend.taglibs.list.helper.ListHelper;
+import com.redhat.rhn.testing.RhnMockStrutsTestCase;
+import com.redhat.rhn.testing.TestUtils;
+
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * SnapshotIndexActionTest
+ */
+public class SnapshotIndexActionTest extends RhnMockStrutsTestCase {
+
+    private String uniqueName;
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void setUp() throws Exception {
+        super.setUp();
+        Server server = ServerFactoryTest.createTestServer(user, true);
+        createSnapshot(server, "b", "2021-01-02 00:00:00");
+        createSnapshot(server, "c", "2021-01-01 00:00:00");
+        createSnapshot(server, "a", "2021-01-03 00:00:00");
+
+        uniqueName = TagHelper.generateUniqueName(ListHelper.LIST);
+        addRequestParameter(RequestContext.SID, server.getId().toString());
+        setRequestPathInfo("/systems/details/history/snapshots/Index");
+    }
+
+    /**
+     * Tests that the snapshots are only fetched by page when the list is rendered, in the
+     * default order of the list.
+     */
+    public void testDefaultSort() {
+        actionPerform();
+        assertNull(request.getAttribute(ListHelper.DATA_SET));
+        assertEquals(List.of("a", "b", "c"), reasons());
+    }
+
+    /**
+     * Tests that the sort parameters of the request override the default order of the list.
+     */
+    public void testRequestSort() {
+        addRequestParameter(ListTagUtil.makeSortByLabel(uniqueName), "reason");
+        addRequestParameter(ListTagUtil.makeSortDirLabel(uniqueName), RequestContext.SORT_DESC);
+        actionPerform();
+        assertEquals(List.of("c", "b", "a"), reasons());
+    }
+
+    // Loads the page like the list tag of the page does, returns the reasons of the snapshots
+    // bound to the request, in list order
+    private List<String> reasons() {
+        PagedDataSetLoader loader = ListTagHelper.getPagedDataSetLoader(request, uniqueName);
+        assertNotNull(loader);
+        List<?> page = loader.load(ListTagHelper.getPageRequest(request, uniqueName, "created",
+                RequestContext.SORT_DESC));
+        assertSame(page, request.getAttribute(ListHelper.DATA_SET));
+        return page.stream().map(row -> (String) ((Map<?, ?>) row).get("reason")).collect(Collectors.toList());
+    }
+
+    // Creates a snapshot of the server taken at the given time
+    private static void createSnapshot(Server server, String reason, String created) throws Exception {
+        ServerSnapshot snap = new ServerSnapshot();
+        snap.setServer(server);
+        snap.setOrg(server.getOrg());
+        snap.setReason(reason);
+        TestUtils.saveAndFlush(snap);
+        HibernateFactory.getSession()
+                .createNativeQuery("UPDATE rhnSnapshot SET created = TO_TIMESTAMP(:created, 'YYYY-MM-DD HH24:MI:SS')" +
+                        " WHERE id = :id")
+                .setParameter("created", created)
+                .setParameter("id", snap.getId())
+                .executeUpdate();
+    }
+}
@@ -19,6 +19,7 @@ package com.redhat.rhn.frontend.dto;
  * ActionMessage
  */
 public class ActionMessage {
+    private Long userId;
     private String type;
     private String status;
     private int count;
@@ -30,6 +31,20 @@ public class ActionMessage {
         return "[type=" + type + ",status=" + status + ",count=" + count +
                ",advisory=" + advisory + ",synopsis=" + synopsis + "]";
     }
+    /**
+     * @return Returns the id of the user the action is reported to.
+     */
+    public Long getUserId() {
+        return userId;
+    }
+
+    /**
+     * @param userIdIn The user id to set.
+     */
+    public void setUserId(Long userIdIn) {
+        userId = userIdIn;
+    }
+
     /**
      * @return Returns the advisory.
      */
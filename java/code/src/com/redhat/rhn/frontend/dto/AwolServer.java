@@ -21,10 +21,25 @@ import java.util.Date;
  */
 public class AwolServer {
 
+    private Long userId;
     private Long id;
     private String name;
     private Date checkin;
 
+    /**
+     * @return Returns the id of the user the server is reported to.
+     */
+    public Long getUserId() {
+        return userId;
+    }
+
+    /**
+     * @param userIdIn The user id to set.
+     */
+    public void setUserId(Long userIdIn) {
+        userId = userIdIn;
+    }
+
     /**
      * @return Returns the checkin.
      */
@@ -14,20 +14,19 @@
  */
 package com.redhat.rhn.frontend.events;
 
-import com.redhat.rhn.common.hibernate.HibernateFactory;
 import com.redhat.rhn.common.messaging.EventMessage;
 import com.redhat.rhn.common.messaging.MessageAction;
 import com.redhat.rhn.domain.server.Server;
 import com.redhat.rhn.domain.server.ServerFactory;
-import com.redhat.rhn.domain.user.User;
 import com.redhat.rhn.frontend.action.channel.ssm.ChannelActionDAO;
-import com.redhat.rhn.manager.ssm.SsmOperationManager;
+import com.redhat.rhn.manager.ssm.SsmOperationRunner;
 import com.redhat.rhn.manager.system.UpdateBaseChannelCommand;
 
-import org.apache.commons.logging.Log;
-import org.apache.commons.logging.LogFactory;
-
-import java.util.Collection;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
 
 /**
  * Handles performing subscription changes for servers in the SSM.
@@ -35,53 +34,45 @@ import java.util.Collection;
  * @see com.redhat.rhn.frontend.events.SsmChangeChannelSubscriptionsEvent
  */
 public class SsmChangeBaseChannelSubscriptionsAction implements MessageAction {
-    /** Logger instance. */
-    private static Log log = LogFactory.getLog(
-            SsmChangeBaseChannelSubscriptionsAction.class);
+    private final SsmOperationRunner runner;
+
+    /**
+     * Creates the action running the subscription changes on the SSM worker pool.
+     */
+    public SsmChangeBaseChannelSubscriptionsAction() {
+        this(SsmOperationRunner.INSTANCE);
+    }
+
+    /**
+     * Creates the action.
+     * @param runnerIn the runner of the subscription changes
+     */
+    public SsmChangeBaseChannelSubscriptionsAction(SsmOperationRunner runnerIn) {
+        runner = runnerIn;
+    }
 
     /** {@inheritDoc} */
     public void execute(EventMessage msg) {
         SsmChangeChannelSubscriptionsEvent event = (SsmChangeChannelSubscriptionsEvent) msg;
 
-        User user = event.getUser();
-        Collection<ChannelActionDAO> changes = event.getChanges();
+        Map<Long, List<ChannelActionDAO>> changesByServer = event.getChanges().stream()
+                .collect(Collectors.groupingBy(ChannelActionDAO::getId, LinkedHashMap::new,
+                        Collectors.toList()));
 
-        /* Anything after the operation is created should be in a try..finally to
-           attempt to prevent a hanging, perpetually in progress operation. This is
-           an added safety once a taskomatic task is created to automatically time out
-           long requests.
-         */
-        try {
-            for (ChannelActionDAO server : changes) {
-                Server s = ServerFactory.lookupById(server.getId());
-                try {
-                    for (Long cid : server.getSubscribeChannelIds()) {
-                        UpdateBaseChannelCommand ubcc = new UpdateBaseChannelCommand(user,
-                                s, cid);
-                        // don't care about the return value
-                        ubcc.store();
+        // a failure means the user didn't have entitlements / permission to change the channel
+        // subscription anymore: the server is not changed and gets a note on the operation
+        runner.submit(event.getOpId(), event.getUserId(), new ArrayList<>(changesByServer.keySet()),
+                (user, chunk) -> {
+                    for (Server s : ServerFactory.lookupByIdsAndUser(chunk, user)) {
+                        for (ChannelActionDAO server : changesByServer.get(s.getId())) {
+                            for (Long cid : server.getSubscribeChannelIds()) {
+                                UpdateBaseChannelCommand ubcc = new UpdateBaseChannelCommand(user,
+                                        s, cid);
+                                // don't care about the return value
+                                ubcc.store();
+                            }
+                        }
                     }
-                    // commit after each server to keep this from blocking other operations
-                    HibernateFactory.commitTransaction();
-                }
-                catch (Exception e) {
-                    // Exception just means user didn't have entitlements / permission
-                    // to change channel subscription. Something changed since the event
-                    // was scheduled. Can't pass the message back to the user at this
-                    // point, let's not change anything and move along.
-                    HibernateFactory.rollbackTransaction();
-                }
-
-                HibernateFactory.closeSession();
-                HibernateFactory.getSession();
-            }
-        }
-        catch (Exception e) {
-            log.error("Error changing channel subscriptions " + event, e);
-        }
-        finally {
-            // Complete the action
-            SsmOperationManager.completeOperation(user, event.getOpId());
-        }
+                });
     }
 }
@@ -16,15 +16,18 @@ package com.redhat.rhn.frontend.events;
 
 import com.redhat.rhn.common.messaging.EventMessage;
 import com.redhat.rhn.common.messaging.MessageAction;
-import com.redhat.rhn.domain.user.User;
+import com.redhat.rhn.common.messaging.MessageQueue;
 import com.redhat.rhn.frontend.action.channel.ssm.ChannelActionDAO;
 import com.redhat.rhn.manager.ssm.SsmManager;
-import com.redhat.rhn.manager.ssm.SsmOperationManager;
+import com.redhat.rhn.manager.ssm.SsmOperationRunner;
 
-import org.apache.commons.logging.Log;
-import org.apache.commons.logging.LogFactory;
+import com.suse.manager.reactor.messaging.ChannelsChangedEventMessage;
 
-import java.util.Collection;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
 
 /**
  * Handles performing subscription changes for servers in the SSM.
@@ -32,30 +35,43 @@ import java.util.Collection;
  * @see com.redhat.rhn.frontend.events.SsmChangeChannelSubscriptionsEvent
  */
 public class SsmChangeChannelSubscriptionsAction implements MessageAction {
-    /** Logger instance. */
-    private static Log log = LogFactory.getLog(SsmChangeChannelSubscriptionsAction.class);
+    private final SsmOperationRunner runner;
+
+    /**
+     * Creates the action running the subscription changes on the SSM worker pool.
+     */
+    public SsmChangeChannelSubscriptionsAction() {
+        this(SsmOperationRunner.INSTANCE);
+    }
+
+    /**
+     * Creates the action.
+     * @param runnerIn the runner of the subscription changes
+     */
+    public SsmChangeChannelSubscriptionsAction(SsmOperationRunner runnerIn) {
+        runner = runnerIn;
+    }
 
     /** {@inheritDoc} */
     public void execute(EventMessage msg) {
         SsmChangeChannelSubscriptionsEvent event = (SsmChangeChannelSubscriptionsEvent) msg;
 
-        User user = event.getUser();
-        Collection<ChannelActionDAO> changes = event.getChanges();
-
-        /* Anything after the operation is created should be in a try..finally to
-           attempt to prevent a hanging, perpetually in progress operation. This is
-           an added safety once a taskomatic task is created to automatically time out
-           long requests.
-         */
-        try {
-            SsmManager.performChannelActions(user, changes);
-        }
-        catch (Exception e) {
-            log.error("Error changing channel subscriptions " + event, e);
-        }
-        finally {
-            // Complete the action
-            SsmOperationManager.completeOperation(user, event.getOpId());
-        }
+        Map<Long, List<ChannelActionDAO>> changesByServer = event.getChanges().stream()
+                .collect(Collectors.groupingBy(ChannelActionDAO::getId, LinkedHashMap::new,
+                        Collectors.toList()));
+
+        // the messages are published once the chunk is committed, so that the systems of a chunk
+        // rolled back and retried one by one are not notified twice
+        runner.submit(event.getOpId(), event.getUserId(), new ArrayList<>(changesByServer.keySet()),
+                (user, chunk) -> {
+                    List<ChannelsChangedEventMessage> messages = SsmManager.performChannelActions(user,
+                            chunk.stream()
+                                    .flatMap(sid -> changesByServer.get(sid).stream())
+                                    .collect(Collectors.toList()))
+                            .stream()
+                            .map(sid -> new ChannelsChangedEventMessage(sid, user.getId()))
+                            .collect(Collectors.toList());
+                    runner.afterCommit(() -> messages.forEach(MessageQueue::publish));
+                });
     }
 }
@@ -14,17 +14,14 @@
  */
 package com.redhat.rhn.frontend.events;
 
-import com.redhat.rhn.common.hibernate.HibernateFactory;
 import com.redhat.rhn.common.messaging.EventMessage;
 import com.redhat.rhn.common.messaging.MessageAction;
 import com.redhat.rhn.domain.user.User;
 import com.redhat.rhn.domain.user.UserFactory;
 import com.redhat.rhn.manager.ssm.SsmOperationManager;
+import com.redhat.rhn.manager.ssm.SsmOperationRunner;
 import com.redhat.rhn.manager.system.SystemManager;
 
-import org.apache.commons.logging.Log;
-import org.apache.commons.logging.LogFactory;
-
 import java.util.List;
 
 /**
@@ -35,8 +32,22 @@ import java.util.List;
 public class SsmDeleteServersAction implements MessageAction {
     public static final String OPERATION_NAME = "ssm.server.delete.operationname";
 
-    /** Logger instance. */
-    private static Log log = LogFactory.getLog(SsmDeleteServersAction.class);
+    private final SsmOperationRunner runner;
+
+    /**
+     * Creates the action running the deletions on the SSM worker pool.
+     */
+    public SsmDeleteServersAction() {
+        this(SsmOperationRunner.INSTANCE);
+    }
+
+    /**
+     * Creates the action.
+     * @param runnerIn the runner of the deletions
+     */
+    public SsmDeleteServersAction(SsmOperationRunner runnerIn) {
+        runner = runnerIn;
+    }
 
     /** {@inheritDoc} */
     public void execute(EventMessage msg) {
@@ -49,35 +60,12 @@ public class SsmDeleteServersAction implements MessageAction {
 
         SsmOperationManager.associateServersWithOperation(operationId,
                                                         user.getId(), sids);
-        HibernateFactory.commitTransaction();
-        try {
-            for (Long sid : sids) {
-                try {
-                    SystemManager.deleteServerAndCleanup(user,
-                            sid,
-                            event.getServerCleanupType()
-                    );
-                    // commit after each deletion to prevent deadlocks with
-                    // system registration
-                    HibernateFactory.commitTransaction();
-                }
-                catch (Exception e) {
-                    // Should never happen, but let's roll back the transaction
-                    // and continue
-                    HibernateFactory.rollbackTransaction();
-                }
 
-                HibernateFactory.closeSession();
-                HibernateFactory.getSession();
+        // delete one server per transaction to prevent deadlocks with system registration
+        runner.submit(operationId, user.getId(), sids, 1, (chunkUser, chunk) -> {
+            for (Long sid : chunk) {
+                SystemManager.deleteServerAndCleanup(chunkUser, sid, event.getServerCleanupType());
             }
-        }
-        catch (Exception e) {
-            log.error("Error deleting servers " + event, e);
-        }
-        finally {
-            // Complete the action
-            SsmOperationManager.completeOperation(user, operationId);
-        }
-
+        });
     }
 }
@@ -24,10 +24,10 @@ import com.redhat.rhn.frontend.dto.SystemOverview;
 import com.redhat.rhn.manager.kickstart.cobbler.CobblerPowerCommand;
 import com.redhat.rhn.manager.kickstart.cobbler.CobblerPowerCommand.Operation;
 import com.redhat.rhn.manager.ssm.SsmOperationManager;
+import com.redhat.rhn.manager.ssm.SsmOperationRunner;
 import com.redhat.rhn.manager.system.SystemManager;
 
 import org.apache.log4j.Logger;
-import org.cobbler.XmlRpcException;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -40,6 +40,23 @@ public class SsmPowerManagementAction implements MessageAction {
     /** Logger instance */
     private static Logger log = Logger.getLogger(SsmPowerManagementAction.class);
 
+    private final SsmOperationRunner runner;
+
+    /**
+     * Creates the action running the power management operations on the SSM worker pool.
+     */
+    public SsmPowerManagementAction() {
+        this(SsmOperationRunner.INSTANCE);
+    }
+
+    /**
+     * Creates the action.
+     * @param runnerIn the runner of the power management operations
+     */
+    public SsmPowerManagementAction(SsmOperationRunner runnerIn) {
+        runner = runnerIn;
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -58,18 +75,20 @@ public class SsmPowerManagementAction implements MessageAction {
             "cobbler.powermanagement." + operation.toString().toLowerCase(), null);
         SsmOperationManager.associateServersWithOperation(operationId, userId, sids);
 
-        try {
-            for (Long sid : sids) {
+        // Cobbler errors are handled per server, so that the runner never rolls back and reruns
+        // a chunk: that would send the power commands of the chunk to Cobbler a second time
+        runner.submit(operationId, userId, sids, (chunkUser, chunk) -> {
+            for (Server server : SystemManager.lookupByServerIdsAndUser(chunk, chunkUser.getId())) {
                 log.debug("Running operation " + operation.toString() + " on server " +
-                        sid);
-                Server server = SystemManager.lookupByIdAndUser(sid, user);
+                        server.getId());
 
                 ValidatorError error = null;
                 try {
-                    error = new CobblerPowerCommand(user, server, operation).store();
+                    error = new CobblerPowerCommand(chunkUser, server, operation).store();
                 }
-                catch (XmlRpcException e) {
-                    log.error(e);
+                catch (RuntimeException e) {
+                    log.error("Error running operation " + operation.toString() + " on server " +
+                            server.getId(), e);
                     error = new ValidatorError(
                         "ssm.provisioning.powermanagement.cobbler_error");
                 }
@@ -78,12 +97,6 @@ public class SsmPowerManagementAction implements MessageAction {
                         server.getId(), error.getKey());
                 }
             }
-        }
-        catch (Exception e) {
-            log.error("Error in power management operations " + event, e);
-        }
-        finally {
-            SsmOperationManager.completeOperation(user, operationId);
-        }
+        });
     }
 }
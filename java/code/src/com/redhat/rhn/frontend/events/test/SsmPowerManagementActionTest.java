@@ -24,6 +24,7 @@ import com.redhat.rhn.manager.kickstart.cobbler.CobblerPowerCommand.Operation;
 import com.redhat.rhn.manager.kickstart.cobbler.CobblerPowerSettingsUpdateCommand;
 import com.redhat.rhn.manager.kickstart.cobbler.CobblerSystemCreateCommand;
 import com.redhat.rhn.manager.kickstart.cobbler.CobblerXMLRPCHelper;
+import com.redhat.rhn.manager.ssm.test.SsmOperationRunnerTestUtils;
 import com.redhat.rhn.testing.BaseTestCaseWithUser;
 
 import org.cobbler.CobblerConnection;
@@ -69,7 +70,8 @@ public class SsmPowerManagementActionTest extends BaseTestCaseWithUser {
      * @throws Exception if things go wrong
      */
     public void testAction() throws Exception {
-        SsmPowerManagementAction action = new SsmPowerManagementAction();
+        SsmPowerManagementAction action =
+            new SsmPowerManagementAction(SsmOperationRunnerTestUtils.createTestRunner(2));
         action.execute(new SsmPowerManagementEvent(user.getId(), systemOverviews,
             Operation.PowerOn));
 
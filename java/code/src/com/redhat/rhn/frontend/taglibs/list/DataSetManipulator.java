@@ -31,6 +31,7 @@ import javax.servlet.jsp.PageContext;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.log4j.Logger;
 
+import com.redhat.rhn.common.db.datasource.DataResult;
 import com.redhat.rhn.common.localization.LocalizationService;
 import com.redhat.rhn.common.util.DynamicComparator;
 import com.redhat.rhn.common.util.MethodUtil;
@@ -64,6 +65,8 @@ public class DataSetManipulator {
     private boolean ascending = true;
     private final int unfilteredDataSize;
     private final boolean parentIsAnElement;
+    private final boolean paged;
+    private int pageOffset;
     private String defaultSortAttribute;
 
     public static final String ICON_FIRST = "fa fa-angle-double-left";
@@ -82,13 +85,38 @@ public class DataSetManipulator {
      */
     public DataSetManipulator(int pageSizeIn, List datasetIn, HttpServletRequest requestIn,
             String listNameIn, boolean parentIsElement) {
+        this(pageSizeIn, datasetIn, requestIn, listNameIn, parentIsElement, false);
+    }
+
+    /**
+     * Constructor
+     * @param pageSizeIn page size of the list
+     * @param datasetIn dataset to be displayed
+     * @param requestIn HttpServletRequest of the caller
+     * @param listNameIn name of the list
+     * @param parentIsElement true of the parent value in the list should be
+     * considered as an element this is useful for tree like data
+     * @param pagedIn true if the dataset is a DataResult holding only the current
+     * page, already filtered and sorted by the query
+     */
+    public DataSetManipulator(int pageSizeIn, List datasetIn, HttpServletRequest requestIn,
+            String listNameIn, boolean parentIsElement, boolean pagedIn) {
         pageSize = pageSizeIn;
         dataset = datasetIn;
         request = requestIn;
         uniqueName = listNameIn;
-        totalDataSetSize = dataset.size();
-        unfilteredDataSize = dataset.size();
         parentIsAnElement = parentIsElement;
+        paged = pagedIn && datasetIn instanceof DataResult;
+        if (paged) {
+            DataResult page = (DataResult) datasetIn;
+            pageOffset = Math.max(page.getStart() - 1, 0);
+            totalDataSetSize = page.getTotalSize();
+            unfilteredDataSize = page.getUnfilteredSize();
+        }
+        else {
+            totalDataSetSize = dataset.size();
+            unfilteredDataSize = dataset.size();
+        }
     }
 
     /**
@@ -114,6 +142,9 @@ public class DataSetManipulator {
         filterClass.setAttribute("value", f.getClass().getCanonicalName());
         ListTagUtil.write(context, filterClass.render());
 
+        if (paged) {
+            return;
+        }
         dataset = ListFilterHelper.filter(dataset, f, filterBy, filterValue);
         totalDataSetSize = dataset.size();
     }
@@ -122,6 +153,9 @@ public class DataSetManipulator {
      * Sorts the dataset in place
      */
     public void sort() {
+        if (paged) {
+            return;
+        }
         String sortAttr = getActiveSortAttribute();
         if (StringUtils.isEmpty(sortAttr)) {
             return;
@@ -151,7 +185,10 @@ public class DataSetManipulator {
      */
     public List getPage() {
         List retval = new LinkedList();
-        if (pageSize > 0) {
+        if (paged) {
+            retval.addAll(dataset);
+        }
+        else if (pageSize > 0) {
             int startOffset = getCurrentPageNumber() * pageSize;
             if (startOffset > dataset.size()) {
                 startOffset = dataset.size() - 1;
@@ -248,10 +285,10 @@ public class DataSetManipulator {
      * @return answer to that burning question
      */
     public boolean isLastPage() {
-        int maxPage = (dataset.size() / pageSize) - 1;
+        int maxPage = (totalDataSetSize / pageSize) - 1;
         // Add a page for overflow, since the dataset is not
         // evenly divisible by the pagesize
-        if (dataset.size() % pageSize > 0) {
+        if (totalDataSetSize % pageSize > 0) {
             maxPage++;
         }
         return getCurrentPageNumber() == maxPage;
@@ -374,6 +411,10 @@ public class DataSetManipulator {
      */
     public Set<Character> getAlphaBarIndex() {
         Set<Character> chars = new HashSet<Character>();
+        if (paged) {
+            // only the current page is known
+            return chars;
+        }
         int i = 0;
         for (Object inputRow : dataset) {
             String value = getAlphaValue(inputRow);
@@ -407,7 +448,7 @@ public class DataSetManipulator {
      */
     public int findAlphaPosition() {
         AlphaBarHelper helper = AlphaBarHelper.getInstance();
-        if (helper.isSelected(uniqueName, request)) {
+        if (!paged && helper.isSelected(uniqueName, request)) {
             if (alphaPosition > -1) {
                 return alphaPosition;
             }
@@ -530,6 +571,9 @@ public class DataSetManipulator {
         if (getTotalDataSetSize() == 0) {
             return 0;
         }
+        if (paged) {
+            return pageOffset + 1;
+        }
 
         int startOffset = getCurrentPageNumber() * pageSize;
 
@@ -551,6 +595,11 @@ public class DataSetManipulator {
      * @return int
      */
     private int getPageEndIndex() {
+        if (paged) {
+            List data = expand(dataset);
+            return pageOffset + (parentIsAnElement ? data.size() :
+                data.size() - dataset.size());
+        }
         int startOffset = getCurrentPageNumber() * pageSize;
         if (startOffset < 0) {
             startOffset = 0;
@@ -571,6 +620,9 @@ public class DataSetManipulator {
     }
 
     private int getExpandedDataSize() {
+        if (paged) {
+            return totalDataSetSize;
+        }
         if (!parentIsAnElement) {
             return expand(dataset).size() - dataset.size();
         }
@@ -583,6 +635,10 @@ public class DataSetManipulator {
      */
     private int getCurrentPageNumber() {
 
+        if (paged) {
+            return pageSize > 0 ? pageOffset / pageSize : 0;
+        }
+
         if (AlphaBarHelper.getInstance().isSelected(uniqueName, request)) {
             int pos = findAlphaPosition();
             pageNumber = pos / pageSize;
@@ -32,14 +32,12 @@ import org.apache.commons.lang3.StringEscapeUtils;
 import org.apache.commons.lang3.StringUtils;
 
 import com.redhat.rhn.common.localization.LocalizationService;
-import com.redhat.rhn.domain.user.User;
 import com.redhat.rhn.frontend.context.Context;
 import com.redhat.rhn.frontend.html.HtmlTag;
 import com.redhat.rhn.frontend.struts.RequestContext;
 import com.redhat.rhn.frontend.taglibs.RhnListTagFunctions;
 import com.redhat.rhn.frontend.taglibs.list.decorators.ExpansionDecorator;
 import com.redhat.rhn.frontend.taglibs.list.decorators.ListDecorator;
-import com.redhat.rhn.frontend.taglibs.list.decorators.PageSizeDecorator;
 import com.redhat.rhn.frontend.taglibs.list.helper.ListHelper;
 import com.redhat.rhn.frontend.taglibs.list.row.RowRenderer;
 
@@ -750,6 +748,7 @@ public class ListTag extends BodyTagSupport {
 
         String listId = (getStyleId() != null) ? getStyleId() : getUniqueName();
 
+        loadPagedDataSet();
         setupManipulator();
         manip.sort();
         pageData = manip.getPage();
@@ -856,12 +855,27 @@ public class ListTag extends BodyTagSupport {
         setPageSize();
         manip = new DataSetManipulator(pageSize, pageData,
                 (HttpServletRequest) pageContext.getRequest(),
-                getUniqueName(), isParentAnElement());
+                getUniqueName(), isParentAnElement(),
+                ListTagHelper.isPagedDataSet(pageContext.getRequest(), getUniqueName()));
         ListTagUtil.setCurrentCommand(pageContext, getUniqueName(),
                     ListCommand.ENUMERATE);
         return BodyTagSupport.EVAL_BODY_INCLUDE;
     }
 
+    private void loadPagedDataSet() {
+        HttpServletRequest request = (HttpServletRequest) pageContext.getRequest();
+        PagedDataSetLoader loader = ListTagHelper.getPagedDataSetLoader(request,
+                getUniqueName());
+        if (loader == null) {
+            return;
+        }
+        // the default sort set by the columns is known once they are enumerated
+        pageData = loader.load(ListTagHelper.getPageRequest(request, getUniqueName(),
+                defaultSortAttr, defaultSortDir));
+        manip = new DataSetManipulator(pageSize, pageData, request, getUniqueName(),
+                isParentAnElement(), true);
+    }
+
     private void setupManipulator() throws JspException {
         manip.setAlphaColumn(alphaBarColumn);
         manip.filter(filter, pageContext);
@@ -1044,34 +1058,8 @@ public class ListTag extends BodyTagSupport {
     }
 
     private void setPageSize() {
-        int tmp = -1;
-        RequestContext rctx = new RequestContext(
-                (HttpServletRequest) pageContext.getRequest());
-        User user = rctx.getCurrentUser();
-        if (user != null) {
-            tmp = user.getPageSize();
-            if (tmp > 0) {
-                pageSize = tmp;
-            }
-        }
-        if (pageSize < 1) {
-            pageSize = 10;
-        }
-
-
-        HttpServletRequest httpRequest = (HttpServletRequest)
-            pageContext.getRequest();
-
-        if (PageSizeDecorator.pageWidgetSelected(httpRequest, getUniqueName())) {
-            int size = PageSizeDecorator.getSelectedPageSize(httpRequest,
-                                                        getUniqueName());
-            List<Integer> pageSizes = PageSizeDecorator.getPageSizes();
-            if (size < 1 || size > pageSizes.get(pageSizes.size() - 1)) {
-                return;
-            }
-            pageSize = size;
-
-        }
+        pageSize = ListTagHelper.getPageSize(
+                (HttpServletRequest) pageContext.getRequest(), getUniqueName());
     }
 
     private void verifyEnvironment() throws JspException {
@@ -14,12 +14,18 @@
  */
 package com.redhat.rhn.frontend.taglibs.list;
 
+import java.util.List;
+
 import javax.servlet.ServletRequest;
 import javax.servlet.http.HttpServletRequest;
 
 import org.apache.commons.lang3.StringEscapeUtils;
+import org.apache.commons.lang3.StringUtils;
 
+import com.redhat.rhn.common.db.datasource.PageRequest;
 import com.redhat.rhn.domain.Identifiable;
+import com.redhat.rhn.domain.user.User;
+import com.redhat.rhn.frontend.struts.RequestContext;
 import com.redhat.rhn.frontend.struts.Selectable;
 import com.redhat.rhn.frontend.taglibs.list.decorators.PageSizeDecorator;
 import com.redhat.rhn.manager.rhnset.RhnSetDecl;
@@ -235,6 +241,106 @@ public class ListTagHelper {
                 ListTagUtil.makeParentIsAnElementLabel(uniqueName)));
     }
 
+    /**
+     * Returns the page size of the named list: the one selected with the page size
+     * widget, the user's preference or 10 otherwise.
+     * @param request the request to look in
+     * @param uniqueName the unique (hashed) name for the list
+     * @return the page size
+     */
+    public static int getPageSize(HttpServletRequest request, String uniqueName) {
+        int pageSize = 10;
+        User user = new RequestContext(request).getCurrentUser();
+        if (user != null && user.getPageSize() > 0) {
+            pageSize = user.getPageSize();
+        }
+
+        if (PageSizeDecorator.pageWidgetSelected(request, uniqueName)) {
+            int size = PageSizeDecorator.getSelectedPageSize(request, uniqueName);
+            List<Integer> pageSizes = PageSizeDecorator.getPageSizes();
+            if (size > 0 && size <= pageSizes.get(pageSizes.size() - 1)) {
+                pageSize = size;
+            }
+        }
+        return pageSize;
+    }
+
+    /**
+     * Builds the page request (offset, size, sorting and filtering) for the named
+     * list out of the pagination, sort and filter parameters of the request.
+     * Without a sort parameter the list is sorted by its default sort attribute,
+     * like {@link DataSetManipulator#sort()} does for in-memory datasets.
+     * Alphabar selection is not supported.
+     * @param request the request to look in
+     * @param uniqueName the unique (hashed) name for the list
+     * @param defaultSortAttr the default sort attribute of the list, or null
+     * @param defaultSortDir the default sort direction of the list, or null
+     * for ascending
+     * @return the page request
+     */
+    public static PageRequest getPageRequest(HttpServletRequest request,
+            String uniqueName, String defaultSortAttr, String defaultSortDir) {
+        int pageSize = getPageSize(request, uniqueName);
+        int pageNumber = 0;
+        boolean lastPage = false;
+
+        String param = DataSetManipulator.getPaginationParam(request, uniqueName);
+        String value = param == null ? null : request.getParameter(param);
+        if ("last".equalsIgnoreCase(value)) {
+            lastPage = true;
+        }
+        else if (value != null && !"first".equalsIgnoreCase(value)) {
+            try {
+                pageNumber = Math.max(Integer.parseInt(value), 0);
+            }
+            catch (NumberFormatException e) {
+                pageNumber = 0;
+            }
+        }
+
+        PageRequest page = new PageRequest(pageNumber * pageSize, pageSize);
+        page.setLastPage(lastPage);
+
+        String sortBy = StringUtils.defaultIfEmpty(
+                request.getParameter(ListTagUtil.makeSortByLabel(uniqueName)), defaultSortAttr);
+        String sortDir = request.getParameter(ListTagUtil.makeSortDirLabel(uniqueName));
+        if (!RequestContext.SORT_ASC.equals(sortDir) && !RequestContext.SORT_DESC.equals(sortDir)) {
+            sortDir = defaultSortDir;
+        }
+        page.setSort(sortBy, !RequestContext.SORT_DESC.equals(sortDir));
+
+        String filterValue = getFilterValue(request, uniqueName);
+        if (!StringUtils.isBlank(filterValue)) {
+            page.setFilter(request.getParameter(ListTagUtil.makeFilterByLabel(uniqueName)),
+                    StringEscapeUtils.unescapeHtml4(filterValue));
+        }
+        return page;
+    }
+
+    /**
+     * Returns true if the dataset bound for the named list already contains only
+     * the current page, i.e. filtering, sorting and paging were done by the query.
+     * @param request the request to look in
+     * @param uniqueName the unique (hashed) name for the list
+     * @return true if the dataset is already paged
+     */
+    public static boolean isPagedDataSet(ServletRequest request, String uniqueName) {
+        return getPagedDataSetLoader(request, uniqueName) != null;
+    }
+
+    /**
+     * Returns the loader of the current page bound for the named list, if its
+     * dataset is filtered, sorted and paged by the query.
+     * @param request the request to look in
+     * @param uniqueName the unique (hashed) name for the list
+     * @return the loader, or null if the dataset is not paged
+     */
+    public static PagedDataSetLoader getPagedDataSetLoader(ServletRequest request,
+            String uniqueName) {
+        Object loader = request.getAttribute(ListTagUtil.makePagedDataSetLabel(uniqueName));
+        return loader instanceof PagedDataSetLoader ? (PagedDataSetLoader) loader : null;
+    }
+
     /**
      * Returns the object id given an object
      * deals with selectable/identifiable objects
@@ -313,6 +313,15 @@ public class ListTagUtil {
     }
 
 
+    /**
+     * provides the request attribute holding the loader of a dataset paged by its query
+     * @param listName the list name
+     * @return the key for the paged dataset loader attribute
+     */
+    public static String makePagedDataSetLabel(String listName) {
+        return "list_" + listName + "_paged";
+    }
+
     /**
      * provides the filter name (the name value for the go button on the filter box)
      * @param listName the list name
@@ -0,0 +1,35 @@
+/**
+ * Copyright (c) 2021 SUSE LLC
+ *
+ * This software is licensed to you under the GNU General Public License,
+ * version 2 (GPLv2). There is NO WARRANTY for this software, express or
+ * implied, including the implied warranties of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. You should have received a copy of GPLv2
+ * along with this software; if not, see
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.txt.
+ *
+ * Red Hat trademarks are not licensed under GPLv2. No permission is
+ * granted to use or replicate Red Hat trademarks that are incorporated
+ * in this software or its documentation.
+ */
+package com.redhat.rhn.frontend.taglibs.list;
+
+import com.redhat.rhn.common.db.datasource.PageRequest;
+
+import java.util.List;
+
+/**
+ * Loads the page of a dataset that is filtered, sorted and paged by its query.
+ * It is bound to the request instead of the dataset, and the list tag calls it
+ * when it renders the list, since the default sort of the list is only known
+ * once its columns are enumerated.
+ */
+public interface PagedDataSetLoader {
+
+    /**
+     * Loads the requested page and binds it as the dataset of the list.
+     * @param page the page, sort and filter requested by the list tag
+     * @return the rows of the page
+     */
+    List load(PageRequest page);
+}
@@ -17,8 +17,11 @@ package com.redhat.rhn.frontend.taglibs.list.helper;
 
 import com.redhat.rhn.common.db.datasource.DataResult;
 import com.redhat.rhn.common.db.datasource.Elaborator;
+import com.redhat.rhn.common.db.datasource.PageRequest;
 import com.redhat.rhn.frontend.struts.RequestContext;
 import com.redhat.rhn.frontend.taglibs.list.ListTagHelper;
+import com.redhat.rhn.frontend.taglibs.list.ListTagUtil;
+import com.redhat.rhn.frontend.taglibs.list.PagedDataSetLoader;
 import com.redhat.rhn.frontend.taglibs.list.TagHelper;
 
 import org.apache.commons.collections.map.HashedMap;
@@ -60,6 +63,10 @@ import javax.servlet.http.HttpServletRequest;
  *      }
  *   }
  * }</pre>
+ * If the action implements {@link PageableListable} instead, only the current
+ * page is fetched and the list tag skips its in-memory filtering, sorting and
+ * paging. The page is fetched when the list tag is rendered, so that the default
+ * sort of the list tag applies.
  * @author paji
  */
 public class ListHelper {
@@ -103,9 +110,34 @@ public class ListHelper {
      *
      */
     private void setupDataSet() {
-        List dataSet = listable.getResult(context);
         HttpServletRequest request = context.getRequest();
         request.setAttribute(ListTagHelper.PARENT_URL, getParentUrl());
+        if (listable instanceof PageableListable) {
+            request.setAttribute(ListTagUtil.makePagedDataSetLabel(getUniqueName()),
+                    (PagedDataSetLoader) this::bindPage);
+        }
+        else {
+            bindDataSet(listable.getResult(context));
+        }
+    }
+
+    /**
+     * Fetches a page of a {@link PageableListable} and binds it as the dataset.
+     * @param page the page, sort and filter requested by the list tag
+     * @return the rows of the page
+     */
+    private List bindPage(PageRequest page) {
+        List dataSet = ((PageableListable) listable).getPage(context, page);
+        bindDataSet(dataSet);
+        return dataSet;
+    }
+
+    /**
+     * Binds the dataset and its elaborator to the request.
+     * @param dataSet the dataset
+     */
+    private void bindDataSet(List dataSet) {
+        HttpServletRequest request = context.getRequest();
         request.setAttribute(getDataSetName(), dataSet);
         if (!StringUtils.isBlank(getListName()) && dataSet instanceof DataResult) {
             DataResult data = (DataResult) dataSet;
@@ -123,6 +155,11 @@ public class ListHelper {
         List data =  (List) context.getRequest().getAttribute(getDataSetName());
         if (data == null) {
             setupDataSet();
+            if (listable instanceof PageableListable) {
+                // the list tag is not rendered yet, so its default sort is not known
+                bindPage(ListTagHelper.getPageRequest(context.getRequest(), getUniqueName(),
+                        null, null));
+            }
         }
         return (List) context.getRequest().getAttribute(getDataSetName());
     }
@@ -0,0 +1,48 @@
+/**
+ * Copyright (c) 2021 SUSE LLC
+ *
+ * This software is licensed to you under the GNU General Public License,
+ * version 2 (GPLv2). There is NO WARRANTY for this software, express or
+ * implied, including the implied warranties of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. You should have received a copy of GPLv2
+ * along with this software; if not, see
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.txt.
+ *
+ * Red Hat trademarks are not licensed under GPLv2. No permission is
+ * granted to use or replicate Red Hat trademarks that are incorporated
+ * in this software or its documentation.
+ */
+
+package com.redhat.rhn.frontend.taglibs.list.helper;
+
+import com.redhat.rhn.common.db.datasource.DataResult;
+import com.redhat.rhn.common.db.datasource.PageRequest;
+import com.redhat.rhn.frontend.struts.RequestContext;
+
+/**
+ * A {@link Listable} whose data source is able to filter, sort and page in the
+ * database. {@link ListHelper} then only asks for the page being rendered, so
+ * the cost of a page does not depend on the size of the whole list.
+ * <p>
+ * Implementations usually pass the page request to
+ * {@link com.redhat.rhn.common.db.datasource.SelectMode#executePage}. The
+ * alphabar is not supported for pageable lists, and expandable rows are only
+ * counted within the current page.
+ * <p>
+ * {@link Listable#getResult(RequestContext)} is still used where the complete
+ * list is needed, e.g. for "select all" and CSV export.
+ * @param <T> Type of objects to be listed.
+ */
+public interface PageableListable<T> extends Listable<T> {
+
+    /**
+     * Returns the requested page of the data to display on the web page.
+     *
+     * @param context the request context; will not be <code>null</code>
+     * @param page the page, sort and filter requested by the list tag
+     * @return a DataResult holding only the rows of the page; its total size is
+     *         the number of rows matching the filter and its start is the one
+     *         based index of the first row
+     */
+    DataResult<T> getPage(RequestContext context, PageRequest page);
+}
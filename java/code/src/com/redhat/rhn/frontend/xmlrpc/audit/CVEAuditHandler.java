@@ -14,9 +14,12 @@
  */
 package com.redhat.rhn.frontend.xmlrpc.audit;
 
+import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.EnumSet;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import com.redhat.rhn.FaultException;
 import com.redhat.rhn.domain.user.User;
@@ -90,21 +93,7 @@ public class CVEAuditHandler extends BaseHandler {
     public List<CVEAuditServer> listSystemsByPatchStatus(User loggedInUser,
             String cveIdentifier, List<String> patchStatusLabels) throws FaultException {
 
-        // Convert list of strings to patch status objects
-        EnumSet<PatchStatus> patchStatuses = EnumSet.noneOf(PatchStatus.class);
-        if (patchStatusLabels == null) {
-            patchStatuses = EnumSet.allOf(PatchStatus.class);
-        }
-        else {
-            for (String label : patchStatusLabels) {
-                try {
-                    patchStatuses.add(PatchStatus.valueOf(label));
-                }
-                catch (IllegalArgumentException e) {
-                    throw new MethodInvalidParamException(e);
-                }
-            }
-        }
+        EnumSet<PatchStatus> patchStatuses = toPatchStatuses(patchStatusLabels);
 
         try {
             List<CVEAuditServer> result = CVEAuditManager.listSystemsByPatchStatus(
@@ -119,6 +108,67 @@ public class CVEAuditHandler extends BaseHandler {
         }
     }
 
+    /**
+     * List visible systems with their patch status regarding multiple CVE
+     * identifiers at once. Filter the results by passing in a list of patch
+     * status labels. Please note that the query code relies on data that is
+     * pre-generated by the 'cve-server-channels' taskomatic job.
+     * @param loggedInUser The current user
+     * @param cveIdentifiers the CVE numbers to search for
+     * @param patchStatusLabels patch status labels to filter, will only return
+     *            results with those patch statuses
+     * @return a list of CVE numbers with their systems and patch status
+     * @throws FaultException if any of the CVE numbers is not known
+     *
+     * @xmlrpc.doc List visible systems with their patch status regarding multiple CVE
+     * identifiers at once. Filter the results by passing in a list of patch status labels.
+     * Please note that the query code relies on data that is pre-generated by the
+     * 'cve-server-channels' taskomatic job.
+     * @xmlrpc.param #session_key()
+     * @xmlrpc.param #array_single("string", "cveIdentifier")
+     * @xmlrpc.param #array_single("string", "patchStatusLabel")
+     *  #options()
+     *      #item_desc ("AFFECTED_PATCH_INAPPLICABLE",
+     *          "Affected, patch available in unassigned channel")
+     *      #item_desc ("AFFECTED_PATCH_APPLICABLE",
+     *          "Affected, patch available in assigned channel")
+     *      #item_desc ("NOT_AFFECTED", "Not affected")
+     *      #item_desc ("PATCHED", "Patched")
+     *  #options_end()
+     * @xmlrpc.returntype
+     *  #array_begin()
+     *      #struct_begin("CVE audit result")
+     *          #prop("string", "cve_identifier")
+     *          #prop_array_begin("systems")
+     *              $CVEAuditServerSerializer
+     *          #prop_array_end()
+     *      #struct_end()
+     *  #array_end()
+     */
+    public List<Map<String, Object>> listSystemsByPatchStatusForCves(User loggedInUser,
+            List<String> cveIdentifiers, List<String> patchStatusLabels) throws FaultException {
+        EnumSet<PatchStatus> patchStatuses = toPatchStatuses(patchStatusLabels);
+
+        try {
+            Map<String, List<CVEAuditServer>> results = CVEAuditManager.listSystemsByPatchStatus(
+                    loggedInUser, cveIdentifiers, patchStatuses);
+
+            List<Map<String, Object>> ret = new ArrayList<>();
+            results.forEach((cveIdentifier, systems) -> {
+                systems.sort(Comparator.comparingInt(s -> s.getPatchStatus().getRank()));
+
+                Map<String, Object> entry = new HashMap<>();
+                entry.put("cve_identifier", cveIdentifier);
+                entry.put("systems", systems);
+                ret.add(entry);
+            });
+            return ret;
+        }
+        catch (UnknownCVEIdentifierException e) {
+            throw new UnknownCVEIdentifierFaultException();
+        }
+    }
+
     /**
      * List visible images with their patch status regarding a given CVE
      * identifier.
@@ -173,6 +223,22 @@ public class CVEAuditHandler extends BaseHandler {
     public List<CVEAuditImage> listImagesByPatchStatus(User loggedInUser,
             String cveIdentifier, List<String> patchStatusLabels) throws FaultException {
 
+        EnumSet<PatchStatus> patchStatuses = toPatchStatuses(patchStatusLabels);
+
+        try {
+            List<CVEAuditImage> result = CVEAuditManager.listImagesByPatchStatus(
+                    loggedInUser, cveIdentifier, patchStatuses);
+
+            result.sort(Comparator.comparingInt(i -> i.getPatchStatus().getRank()));
+
+            return result;
+        }
+        catch (UnknownCVEIdentifierException e) {
+            throw new UnknownCVEIdentifierFaultException();
+        }
+    }
+
+    private static EnumSet<PatchStatus> toPatchStatuses(List<String> patchStatusLabels) {
         // Convert list of strings to patch status objects
         EnumSet<PatchStatus> patchStatuses = EnumSet.noneOf(PatchStatus.class);
         if (patchStatusLabels == null) {
@@ -188,17 +254,6 @@ public class CVEAuditHandler extends BaseHandler {
                 }
             }
         }
-
-        try {
-            List<CVEAuditImage> result = CVEAuditManager.listImagesByPatchStatus(
-                    loggedInUser, cveIdentifier, patchStatuses);
-
-            result.sort(Comparator.comparingInt(i -> i.getPatchStatus().getRank()));
-
-            return result;
-        }
-        catch (UnknownCVEIdentifierException e) {
-            throw new UnknownCVEIdentifierFaultException();
-        }
+        return patchStatuses;
     }
 }
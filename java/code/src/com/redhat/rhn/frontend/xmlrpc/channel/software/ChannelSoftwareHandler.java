@@ -89,6 +89,7 @@ import com.redhat.rhn.taskomatic.TaskomaticApi;
 import com.redhat.rhn.taskomatic.task.TaskConstants;
 import com.redhat.rhn.taskomatic.task.errata.ErrataCacheWorker;
 
+import com.suse.manager.webui.services.pillar.MinionGeneralPillarGenerator;
 import com.suse.manager.webui.services.pillar.MinionPillarManager;
 
 import org.apache.commons.lang3.BooleanUtils;
@@ -739,7 +740,7 @@ public class ChannelSoftwareHandler extends BaseHandler {
 
         ucc.update(channelId.longValue());
         ServerFactory.listMinionsByChannel(channelId).stream().forEach(ms -> {
-            MinionPillarManager.INSTANCE.generatePillar(ms, false, Collections.emptySet());
+            MinionPillarManager.INSTANCE.generatePillar(ms, MinionGeneralPillarGenerator.class);
         });
         return 1;
     }
@@ -1145,7 +1145,22 @@ public class ActionManager extends BaseManager {
      */
     public static PackageAction schedulePackageRefresh(Org schedulerOrg, Server server)
         throws TaskomaticApiException {
-        checkSaltOrManagementEntitlement(server.getId());
+        return schedulePackageRefresh(schedulerOrg, Collections.singletonList(server));
+    }
+
+    /**
+     * Schedule one package list refresh action for many servers of the same organization,
+     * without a user.
+     *
+     * @param schedulerOrg the organization the servers belong to
+     * @param servers the servers
+     * @return the scheduled PackageRefreshListAction
+     * @throws TaskomaticApiException if there was a Taskomatic error
+     * (typically: Taskomatic is down)
+     */
+    public static PackageAction schedulePackageRefresh(Org schedulerOrg, Collection<? extends Server> servers)
+        throws TaskomaticApiException {
+        servers.forEach(server -> checkSaltOrManagementEntitlement(server.getId()));
 
         Action action = ActionFactory.createAction(
                 ActionFactory.TYPE_PACKAGES_REFRESH_LIST);
@@ -1154,12 +1169,14 @@ public class ActionManager extends BaseManager {
         action.setSchedulerUser(null);
         action.setEarliestAction(new Date());
 
-        ServerAction sa = new ServerAction();
-        sa.setStatus(ActionFactory.STATUS_QUEUED);
-        sa.setRemainingTries(REMAINING_TRIES);
-        sa.setServerWithCheck(server);
-        action.addServerAction(sa);
-        sa.setParentActionWithCheck(action);
+        for (Server server : servers) {
+            ServerAction sa = new ServerAction();
+            sa.setStatus(ActionFactory.STATUS_QUEUED);
+            sa.setRemainingTries(REMAINING_TRIES);
+            sa.setServerWithCheck(server);
+            action.addServerAction(sa);
+            sa.setParentActionWithCheck(action);
+        }
 
         ActionFactory.save(action);
         taskomaticApi.scheduleActionExecution(action);
@@ -1483,7 +1500,20 @@ public class ActionManager extends BaseManager {
      */
     public static void scheduleForExecution(Action action, Set<Long> serverIds) {
         maintenanceManager.canActionBeScheduled(serverIds, action);
+        addServersToAction(action, serverIds);
+    }
 
+    /**
+     * Adds servers to an action (adding rows to rhnServerAction) in bulk, with one query per
+     * {@link com.redhat.rhn.common.db.datasource.CachedStatement#BATCH_SIZE} servers.
+     * Unlike {@link #scheduleForExecution(Action, Set)}, the maintenance schedules of the
+     * systems are not checked: callers filter the systems first, e.g. with
+     * {@link MaintenanceManager#systemIdsAllowingAction(Collection, Action)}.
+     *
+     * @param action the action, already stored
+     * @param serverIds server IDs
+     */
+    public static void addServersToAction(Action action, Collection<Long> serverIds) {
         Map<String, Object> params = new HashMap<String, Object>();
         params.put("status_id", ActionFactory.STATUS_QUEUED.getId());
         params.put("tries", REMAINING_TRIES);
@@ -37,20 +37,25 @@ import com.redhat.rhn.frontend.dto.EssentialChannelDto;
 import com.redhat.rhn.frontend.dto.SUSEProductDto;
 import com.redhat.rhn.frontend.dto.SystemOverview;
 import com.redhat.rhn.manager.distupgrade.DistUpgradeManager;
+import com.redhat.rhn.manager.errata.ErrataManager;
 
 import org.apache.log4j.Logger;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Function;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -71,18 +76,27 @@ public class CVEAuditManager {
     /** The log. */
     private static Logger log = Logger.getLogger(CVEAuditManager.class);
 
-    // Internal methods caches
-    /** The SUSE product channel cache. */
-    private static Map<Long, List<Channel>> suseProductChannelCache =
-            new HashMap<>();
+    /** Task queue name for recomputing the relevant channels of a server. */
+    public static final String SERVER_CHANNELS_TASK = "update_server_cve_channels";
+
+    /** Task queue name for recomputing the relevant channels of an image. */
+    public static final String IMAGE_CHANNELS_TASK = "update_image_cve_channels";
+
+    // Internal methods caches, shared by the task queue workers
+    /** The SUSE product channel cache, keyed by SUSE product ID and base channel ID. */
+    private static Map<List<Long>, List<Channel>> suseProductChannelCache =
+            new ConcurrentHashMap<>();
 
     /** The target product cache. */
     private static Map<Long, List<SUSEProductDto>> targetProductCache =
-            new HashMap<>();
+            new ConcurrentHashMap<>();
 
     /** The source product cache. */
     private static Map<Long, List<SUSEProductDto>> sourceProductCache =
-            new HashMap<>();
+            new ConcurrentHashMap<>();
+
+    /** Version of the channel and product data the caches were filled from. */
+    private static Map<String, Object> cacheVersion;
 
     private static final String KERNEL_DEFAULT_NAME = "kernel-default";
 
@@ -106,6 +120,43 @@ public class CVEAuditManager {
         m.executeUpdate(new HashMap<String, Long>());
     }
 
+    /**
+     * Lock the suseCVEServerChannel and suseCVEImageChannel tables until the end of the
+     * transaction. Concurrent per-server and per-image updates of the tables wait for
+     * the lock, so they are applied after a full rebuild instead of being overwritten or
+     * duplicated by it.
+     */
+    public static void lockRelevantChannels() {
+        WriteMode m = ModeFactory.getWriteMode("cve_audit_queries", "lock_relevant_channels");
+        m.executeUpdate(new HashMap<String, Long>());
+    }
+
+    /**
+     * Delete the relevant channels of one server from the suseCVEServerChannel table.
+     *
+     * @param serverId the server ID
+     */
+    public static void deleteRelevantServerChannels(Long serverId) {
+        WriteMode m = ModeFactory.getWriteMode("cve_audit_queries",
+                "delete_relevant_server_channels_for_server");
+        Map<String, Long> params = new HashMap<>();
+        params.put("sid", serverId);
+        m.executeUpdate(params);
+    }
+
+    /**
+     * Delete the relevant channels of one image from the suseCVEImageChannel table.
+     *
+     * @param imageId the image ID
+     */
+    public static void deleteRelevantImageChannels(Long imageId) {
+        WriteMode m = ModeFactory.getWriteMode("cve_audit_queries",
+                "delete_relevant_image_channels_for_image");
+        Map<String, Long> params = new HashMap<>();
+        params.put("iid", imageId);
+        m.executeUpdate(params);
+    }
+
     /**
      * Insert a set of relevant channels into the suseCVEImageChannel table.
      *
@@ -214,7 +265,8 @@ public class CVEAuditManager {
     public static List<Channel> findSUSEProductChannels(long suseProductID,
             long baseChannelId) {
         // Look it up in the cache
-        List<Channel> result = suseProductChannelCache.get(suseProductID);
+        List<Long> cacheKey = List.of(suseProductID, baseChannelId);
+        List<Channel> result = suseProductChannelCache.get(cacheKey);
         if (result != null) {
             if (log.isDebugEnabled()) {
                 log.debug("Product channels retrieved from cache for " + suseProductID);
@@ -242,7 +294,7 @@ public class CVEAuditManager {
         }
 
         // Put it in the cache before returning
-        suseProductChannelCache.put(suseProductID, result);
+        suseProductChannelCache.put(cacheKey, result);
         return result;
     }
 
@@ -435,13 +487,12 @@ public class CVEAuditManager {
      * Populate channels for CVE Audit
      */
     public static void populateCVEChannels() {
-        // Empty the table first
+        // Empty the table first, blocking per-target updates until this transaction ends
+        lockRelevantChannels();
         deleteRelevantChannels();
 
         // Empty caches
-        suseProductChannelCache.clear();
-        sourceProductCache.clear();
-        targetProductCache.clear();
+        clearCaches(getCacheVersion());
 
         // Get a list of *all* servers
         List<Server> servers = ServerFactory.list(false, false);
@@ -469,6 +520,95 @@ public class CVEAuditManager {
 
     }
 
+    /**
+     * Recompute the relevant channels of a single server, replacing its rows in the
+     * suseCVEServerChannel table.
+     *
+     * @param server the server
+     */
+    public static void populateCVEChannels(Server server) {
+        refreshCaches();
+        List<RankedChannel> channels = populateCVEChannels(
+                new ServerAuditTarget(server, new CachingSUSEProductFactory()));
+        deleteRelevantServerChannels(server.getId());
+        insertRelevantServerChannels(Collections.singletonMap(server, channels));
+    }
+
+    /**
+     * Recompute the relevant channels of a single image, replacing its rows in the
+     * suseCVEImageChannel table.
+     *
+     * @param imageInfo the image
+     */
+    public static void populateCVEChannels(ImageInfo imageInfo) {
+        refreshCaches();
+        List<RankedChannel> channels = populateCVEChannels(
+                new ImageAuditTarget(imageInfo, new CachingSUSEProductFactory()));
+        deleteRelevantImageChannels(imageInfo.getId());
+        insertRelevantImageChannels(Collections.singletonMap(imageInfo, channels));
+    }
+
+    /**
+     * Empty the product and channel caches if channels, product channels or upgrade
+     * paths changed since they were filled.
+     */
+    public static void refreshCaches() {
+        Map<String, Object> version = getCacheVersion();
+        synchronized (CVEAuditManager.class) {
+            if (!version.equals(cacheVersion)) {
+                clearCaches(version);
+            }
+        }
+    }
+
+    // Empties the caches and records the version of the data they will be filled from
+    private static synchronized void clearCaches(Map<String, Object> version) {
+        suseProductChannelCache.clear();
+        sourceProductCache.clear();
+        targetProductCache.clear();
+        cacheVersion = version;
+    }
+
+    // Returns the row counts and last modification times of the cached tables
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> getCacheVersion() {
+        SelectMode m = ModeFactory.getMode("cve_audit_queries", "product_channels_version");
+        DataResult<Map<String, Object>> results = m.execute(new HashMap<String, Long>());
+        return new HashMap<>(results.get(0));
+    }
+
+    /**
+     * Queue the recomputation of the relevant channels of a server, e.g. after its
+     * channel subscriptions or installed products changed. The task is picked up by the
+     * errata cache queue of taskomatic.
+     *
+     * @param server the server
+     */
+    public static void insertCVEChannelsTask(Server server) {
+        ErrataManager.insertTask(server.getOrg().getId(), SERVER_CHANNELS_TASK, server.getId());
+    }
+
+    /**
+     * Queue the recomputation of the relevant channels of several servers with one
+     * batched insert.
+     *
+     * @param servers the servers
+     */
+    public static void insertCVEChannelsTasks(Collection<? extends Server> servers) {
+        ErrataManager.insertServerTasks(SERVER_CHANNELS_TASK, servers);
+    }
+
+    /**
+     * Queue the recomputation of the relevant channels of an image, e.g. after its
+     * installed products changed. The task is picked up by the errata cache queue of
+     * taskomatic.
+     *
+     * @param imageInfo the image
+     */
+    public static void insertCVEChannelsTask(ImageInfo imageInfo) {
+        ErrataManager.insertTask(imageInfo.getOrg().getId(), IMAGE_CHANNELS_TASK, imageInfo.getId());
+    }
+
     /**
      * Looks at installed products on the server and their previous and future
      * SP migrations, adding channels to relevantChannels when they are found.
@@ -814,36 +954,36 @@ public class CVEAuditManager {
         DataResult<Map<String, Object>> results = m.execute(params);
 
         return StreamSupport.stream(results.spliterator(), false)
-                .map(row -> {
-                    /*
-                        We check "package_version" to determine if we have an EVR
-                        If the package is for an affected system, we should have at least the version and the release.
-                        Otherwise, all values will be null (no EVR present)
-                        (See: cve_audit_queries#list_systems_by_patch_status)
-                    */
-                    Optional<PackageEvr> packageEvr = Optional.ofNullable((String) row.get("package_version"))
-                            .map(pv -> new PackageEvr((String) row.get("package_epoch"), pv,
-                                    (String) row.get("package_release"), (String) row.get("package_type")));
-
-                    return new CVEPatchStatus(
-                            (long) row.get("system_id"),
-                            (String) row.get("system_name"),
-                            Optional.ofNullable((Long)row.get("errata_id")),
-                            (String) row.get("errata_advisory"),
-                            Optional.ofNullable((Long)row.get("package_id")),
-                            Optional.ofNullable((String)row.get("package_name")),
-                            packageEvr,
-                            getBooleanValue(row, "package_installed"),
-                            Optional.ofNullable((Long)row.get("channel_id")),
-                            (String) row.get("channel_name"),
-                            (String) row.get("channel_label"),
-                            getBooleanValue(row, "channel_assigned"),
-                            Optional.ofNullable((Long)row.get("channel_rank"))
-                    );
-                });
-
+                .map(CVEAuditManager::toSystemPatchStatus);
     }
 
+    private static CVEPatchStatus toSystemPatchStatus(Map<String, Object> row) {
+        /*
+            We check "package_version" to determine if we have an EVR
+            If the package is for an affected system, we should have at least the version and the release.
+            Otherwise, all values will be null (no EVR present)
+            (See: cve_audit_queries#list_systems_by_patch_status)
+        */
+        Optional<PackageEvr> packageEvr = Optional.ofNullable((String) row.get("package_version"))
+                .map(pv -> new PackageEvr((String) row.get("package_epoch"), pv,
+                        (String) row.get("package_release"), (String) row.get("package_type")));
+
+        return new CVEPatchStatus(
+                (long) row.get("system_id"),
+                (String) row.get("system_name"),
+                Optional.ofNullable((Long)row.get("errata_id")),
+                (String) row.get("errata_advisory"),
+                Optional.ofNullable((Long)row.get("package_id")),
+                Optional.ofNullable((String)row.get("package_name")),
+                packageEvr,
+                getBooleanValue(row, "package_installed"),
+                Optional.ofNullable((Long)row.get("channel_id")),
+                (String) row.get("channel_name"),
+                (String) row.get("channel_label"),
+                getBooleanValue(row, "channel_assigned"),
+                Optional.ofNullable((Long)row.get("channel_rank"))
+        );
+    }
 
     /**
      * List visible systems with their patch status regarding a given CVE identifier.
@@ -875,6 +1015,80 @@ public class CVEAuditManager {
                 )).collect(Collectors.toList());
     }
 
+    /**
+     * List visible systems with their patch status regarding multiple CVE identifiers at once.
+     *
+     * The affected and patched systems of all the CVEs are fetched with a single query, while
+     * the visible systems are fetched only once and reported as not affected for every CVE they
+     * do not show up in.
+     *
+     * @param user the calling user
+     * @param cveIdentifiers the CVE identifiers to lookup
+     * @param patchStatuses the patch statuses
+     * @return system records with patch status, keyed by CVE identifier
+     * @throws UnknownCVEIdentifierException if any of the CVE numbers is not known
+     */
+    @SuppressWarnings("unchecked")
+    public static Map<String, List<CVEAuditServer>> listSystemsByPatchStatus(User user,
+            Collection<String> cveIdentifiers, EnumSet<PatchStatus> patchStatuses)
+            throws UnknownCVEIdentifierException {
+        List<String> cves = new ArrayList<>(new LinkedHashSet<>(cveIdentifiers));
+        if (cves.isEmpty()) {
+            return new LinkedHashMap<>();
+        }
+
+        SelectMode knownMode = ModeFactory.getMode("cve_audit_queries", "list_known_cve_identifiers");
+        DataResult<Map<String, Object>> known = knownMode.execute(cves);
+        if (known.size() < cves.size()) {
+            throw new UnknownCVEIdentifierException();
+        }
+
+        Map<String, Object> params = new HashMap<>();
+        params.put("user_id", user.getId());
+        SelectMode m = ModeFactory.getMode("cve_audit_queries", "list_affected_and_patched_systems_by_cves");
+        DataResult<Map<String, Object>> rows = m.execute(params, cves);
+
+        Map<String, List<CVEPatchStatus>> resultsByCve = new HashMap<>();
+        for (Map<String, Object> row : rows) {
+            resultsByCve.computeIfAbsent((String) row.get("cve_identifier"), k -> new ArrayList<>())
+                    .add(toSystemPatchStatus(row));
+        }
+
+        DataResult<Map<String, Object>> visibleSystems = null;
+        if (patchStatuses.contains(PatchStatus.NOT_AFFECTED)) {
+            visibleSystems = ModeFactory.getMode("cve_audit_queries", "list_visible_systems").execute(params);
+        }
+
+        Map<String, List<CVEAuditServer>> ret = new LinkedHashMap<>();
+        for (String cve : cves) {
+            List<CVEPatchStatus> results = resultsByCve.getOrDefault(cve, Collections.emptyList());
+            List<CVEAuditServer> servers = listSystemsByPatchStatus(results, patchStatuses)
+                    .stream()
+                    .map(system -> new CVEAuditServer(
+                            system.getId(),
+                            system.getSystemName(),
+                            system.getPatchStatus(),
+                            system.getChannels(),
+                            system.getErratas()
+                    )).collect(Collectors.toCollection(ArrayList::new));
+
+            if (visibleSystems != null) {
+                Set<Long> affectedIds = results.stream()
+                        .map(CVEPatchStatus::getSystemId)
+                        .collect(Collectors.toSet());
+                for (Map<String, Object> system : visibleSystems) {
+                    Long systemId = (Long) system.get("system_id");
+                    if (!affectedIds.contains(systemId)) {
+                        servers.add(new CVEAuditServer(systemId, (String) system.get("system_name"),
+                                PatchStatus.NOT_AFFECTED, Collections.emptySet(), Collections.emptySet()));
+                    }
+                }
+            }
+            ret.put(cve, servers);
+        }
+        return ret;
+    }
+
     /**
      * List visible images with their patch status regarding a given CVE identifier.
      *
@@ -930,7 +1144,7 @@ public class CVEAuditManager {
     public static List<CVEAuditSystemBuilder> listSystemsByPatchStatus(List<CVEPatchStatus> results,
             EnumSet<PatchStatus> patchStatuses) throws UnknownCVEIdentifierException {
 
-        List<CVEAuditSystemBuilder> ret = new LinkedList<>();
+        List<CVEAuditSystemBuilder> ret = new ArrayList<>();
 
         // Group the results by system
         Map<Long, List<CVEPatchStatus>> resultsBySystem =
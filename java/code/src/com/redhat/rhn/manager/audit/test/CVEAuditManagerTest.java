@@ -201,6 +201,34 @@ public class CVEAuditManagerTest extends RhnBaseTestCase {
         assertTrue(productIDs.contains(channelProduct2.getId()));
     }
 
+    /**
+     * Verify that the cached product channels of a SUSE product are kept per base channel:
+     * {@link CVEAuditManager#findSUSEProductChannels(long, long)}
+     * @throws Exception if anything goes wrong
+     */
+    public void testFindSUSEProductChannelsPerBaseChannel() throws Exception {
+        ChannelFamily channelFamily = createTestChannelFamily();
+        SUSEProduct product = createTestSUSEProduct(channelFamily);
+        ChannelProduct channelProduct = createTestChannelProduct();
+        Channel baseChannel1 = createTestVendorBaseChannel(channelFamily, channelProduct);
+        Channel childChannel1 = createTestVendorChildChannel(baseChannel1, channelProduct);
+        Channel baseChannel2 = createTestVendorBaseChannel(channelFamily, channelProduct);
+        Channel childChannel2 = createTestVendorChildChannel(baseChannel2, channelProduct);
+        createTestSUSEProductChannel(baseChannel1, product, true);
+        createTestSUSEProductChannel(childChannel1, product, true);
+        createTestSUSEProductChannel(baseChannel2, product, true);
+        createTestSUSEProductChannel(childChannel2, product, true);
+
+        List<Channel> channels1 = CVEAuditManager.findSUSEProductChannels(product.getId(), baseChannel1.getId());
+        List<Channel> channels2 = CVEAuditManager.findSUSEProductChannels(product.getId(), baseChannel2.getId());
+        assertEquals(2, channels1.size());
+        assertTrue(channels1.contains(baseChannel1));
+        assertTrue(channels1.contains(childChannel1));
+        assertEquals(2, channels2.size());
+        assertTrue(channels2.contains(baseChannel2));
+        assertTrue(channels2.contains(childChannel2));
+    }
+
     /**
      * Verify that bnc#841240 is fixed:
      * Do not throw exceptions if a product channel is not synced
@@ -381,6 +409,74 @@ public class CVEAuditManagerTest extends RhnBaseTestCase {
         assertContains(relevantChannels, new ServerChannelIdPair(server.getId(), childChannelPrevSP.getId(), 100000));
     }
 
+    /**
+     * Test the recomputation of the relevant channels of a single server:
+     * {@link CVEAuditManager#populateCVEChannels(Server)}
+     * @throws Exception if anything goes wrong
+     */
+    public void testPopulateCVEChannelsForServer() throws Exception {
+        ChannelFamily channelFamily = createTestChannelFamily();
+        SUSEProduct product = createTestSUSEProduct(channelFamily);
+        ChannelProduct channelProduct = createTestChannelProduct();
+        Channel baseChannel = createTestVendorBaseChannel(channelFamily, channelProduct);
+        Channel childChannel1 = createTestVendorChildChannel(baseChannel, channelProduct);
+        Channel childChannel2 = createTestVendorChildChannel(baseChannel, channelProduct);
+        createTestSUSEProductChannel(baseChannel, product, true);
+        createTestSUSEProductChannel(childChannel1, product, true);
+        createTestSUSEProductChannel(childChannel2, product, true);
+
+        User user = createTestUser();
+        Server server = createTestServer(user, new ArrayList<Channel>(Arrays.asList(baseChannel)));
+        Server otherServer = createTestServer(user, new ArrayList<Channel>(Arrays.asList(baseChannel)));
+        installSUSEProductOnServer(product, server);
+
+        CVEAuditManager.populateCVEChannels();
+        assertEquals(3, getRelevantChannels(server.getId()).size());
+        assertEquals(3, getRelevantChannels(otherServer.getId()).size());
+
+        // Subscribe a child channel: only the changed server is recomputed
+        server.addChannel(childChannel1);
+        TestUtils.saveAndFlush(server);
+        CVEAuditManager.populateCVEChannels(server);
+
+        List<ServerChannelIdPair> relevantChannels = getRelevantChannels(server.getId());
+        assertEquals(3, relevantChannels.size());
+        assertContains(relevantChannels, new ServerChannelIdPair(server.getId(), childChannel1.getId(), 0));
+        assertContains(relevantChannels, new ServerChannelIdPair(server.getId(), childChannel2.getId(), 1));
+        assertEquals(3, getRelevantChannels(otherServer.getId()).size());
+    }
+
+    /**
+     * Test that the recomputation of a single server does not use cached product channels
+     * after the product channels changed: {@link CVEAuditManager#refreshCaches()}
+     * @throws Exception if anything goes wrong
+     */
+    public void testPopulateCVEChannelsForServerAfterProductChange() throws Exception {
+        ChannelFamily channelFamily = createTestChannelFamily();
+        SUSEProduct product = createTestSUSEProduct(channelFamily);
+        ChannelProduct channelProduct = createTestChannelProduct();
+        Channel baseChannel = createTestVendorBaseChannel(channelFamily, channelProduct);
+        Channel childChannel1 = createTestVendorChildChannel(baseChannel, channelProduct);
+        createTestSUSEProductChannel(baseChannel, product, true);
+        createTestSUSEProductChannel(childChannel1, product, true);
+
+        User user = createTestUser();
+        Server server = createTestServer(user, new ArrayList<Channel>(Arrays.asList(baseChannel)));
+        installSUSEProductOnServer(product, server);
+
+        CVEAuditManager.populateCVEChannels();
+        assertEquals(2, getRelevantChannels(server.getId()).size());
+
+        // A new channel of the product is synced after the caches were filled
+        Channel childChannel2 = createTestVendorChildChannel(baseChannel, channelProduct);
+        createTestSUSEProductChannel(childChannel2, product, true);
+        CVEAuditManager.populateCVEChannels(server);
+
+        List<ServerChannelIdPair> relevantChannels = getRelevantChannels(server.getId());
+        assertEquals(3, relevantChannels.size());
+        assertContains(relevantChannels, new ServerChannelIdPair(server.getId(), childChannel2.getId(), 1));
+    }
+
     /**
      * {@link CVEAuditManager#findProductChannels(List, Long)}.
      * @throws Exception if anything goes wrong
@@ -462,6 +558,65 @@ public class CVEAuditManagerTest extends RhnBaseTestCase {
         assertSystemNotFound(server, results);
     }
 
+    /**
+     * Runs listSystemsByPatchStatus for multiple CVE identifiers at once.
+     * @throws Exception if anything goes wrong
+     */
+    public void testListSystemsByPatchStatusMultipleCves() throws Exception {
+        // Two CVEs fixed by different errata in the same channel
+        String patchedCveName = TestUtils.randomString().substring(0, 13);
+        String affectedCveName = TestUtils.randomString().substring(0, 13);
+        User user = createTestUser();
+        Errata patchedErrata = createTestErrata(user, Collections.singleton(createTestCve(patchedCveName)));
+        Errata affectedErrata = createTestErrata(user, Collections.singleton(createTestCve(affectedCveName)));
+        Channel channel = createTestChannel(user, patchedErrata);
+        channel.addErrata(affectedErrata);
+        TestUtils.saveAndFlush(channel);
+        Set<Channel> channels = new HashSet<Channel>();
+        channels.add(channel);
+
+        // The first package is patched, the second one is not
+        Package unpatched1 = createTestPackage(user, channel, "noarch");
+        Package patched1 = createLaterTestPackage(user, patchedErrata, channel, unpatched1);
+        Package unpatched2 = createTestPackage(user, channel, "noarch");
+        createLaterTestPackage(user, affectedErrata, channel, unpatched2);
+        Server server = createTestServer(user, channels);
+        createTestInstalledPackage(patched1, server);
+        createTestInstalledPackage(unpatched2, server);
+        Server otherServer = createTestServer(user, channels);
+        CVEAuditManager.populateCVEChannels();
+
+        EnumSet<PatchStatus> filter = EnumSet.allOf(PatchStatus.class);
+        Map<String, List<CVEAuditServer>> results = CVEAuditManager.listSystemsByPatchStatus(user,
+                Arrays.asList(patchedCveName, affectedCveName), filter);
+        assertEquals(2, results.size());
+        assertSystemPatchStatus(server, PatchStatus.PATCHED, results.get(patchedCveName));
+        assertSystemPatchStatus(server, PatchStatus.AFFECTED_PATCH_APPLICABLE, results.get(affectedCveName));
+        assertSystemPatchStatus(otherServer, PatchStatus.NOT_AFFECTED, results.get(patchedCveName));
+        assertSystemPatchStatus(otherServer, PatchStatus.NOT_AFFECTED, results.get(affectedCveName));
+
+        // Results match the ones of the single CVE lookup
+        assertEquals(CVEAuditManager.listSystemsByPatchStatus(user, affectedCveName, filter).size(),
+                results.get(affectedCveName).size());
+
+        // Not affected systems are filtered
+        filter = EnumSet.complementOf(EnumSet.of(PatchStatus.NOT_AFFECTED));
+        results = CVEAuditManager.listSystemsByPatchStatus(user,
+                Arrays.asList(patchedCveName, affectedCveName), filter);
+        assertSystemNotFound(otherServer, results.get(patchedCveName));
+        assertSystemPatchStatus(server, PatchStatus.PATCHED, results.get(patchedCveName));
+
+        // Unknown CVEs are reported
+        try {
+            CVEAuditManager.listSystemsByPatchStatus(user,
+                    Arrays.asList(patchedCveName, TestUtils.randomString().substring(0, 13)), filter);
+            fail("UnknownCVEIdentifierException expected");
+        }
+        catch (UnknownCVEIdentifierException e) {
+            // expected
+        }
+    }
+
     /**
      * Runs listSystemsByPatchStatus on a server with patch status PATCHED and
      * tests result filtering.
@@ -83,6 +83,7 @@ import com.redhat.rhn.taskomatic.TaskomaticApi;
 import com.redhat.rhn.taskomatic.TaskomaticApiException;
 import com.redhat.rhn.taskomatic.task.TaskConstants;
 
+import com.suse.manager.webui.services.pillar.MinionGeneralPillarGenerator;
 import com.suse.manager.webui.services.pillar.MinionPillarManager;
 import com.suse.utils.Opt;
 import org.apache.commons.lang3.StringUtils;
@@ -629,7 +630,7 @@ public class ChannelManager extends BaseManager {
         Optional<Long> actionId = Optional.empty();
         if (minions.size() > 0) {
             for (MinionServer ms: minions) {
-                MinionPillarManager.INSTANCE.generatePillar(ms, false, Collections.emptySet());
+                MinionPillarManager.INSTANCE.generatePillar(ms, MinionGeneralPillarGenerator.class);
             }
             actionId = Optional.of(ActionManager.scheduleChannelState(user, minions).getId());
         }
@@ -14,10 +14,8 @@
  */
 package com.redhat.rhn.manager.configuration.file;
 
-import com.redhat.rhn.common.util.MD5Crypt;
 import com.redhat.rhn.common.validator.ValidatorResult;
 import com.redhat.rhn.domain.common.Checksum;
-import com.redhat.rhn.domain.common.ChecksumFactory;
 import com.redhat.rhn.domain.config.ConfigFileType;
 import com.redhat.rhn.domain.config.ConfigRevision;
 import com.redhat.rhn.domain.config.ConfigurationFactory;
@@ -141,9 +139,13 @@ public class BinaryFileData extends ConfigFileData {
         if (!super.matchesRevision(cRevision)) {
             return Boolean.FALSE;
         }
-        byte[] bContent = ConfigurationFactory.bytesFromStream(getContents(),
-                getContentSize());
-        Checksum checksum = ChecksumFactory.safeCreate(MD5Crypt.md5Hex(bContent), "md5");
-        return checksum.equals(cRevision.getConfigContent().getChecksum());
+        Checksum revisionChecksum = cRevision.getConfigContent().getChecksum();
+        if (revisionChecksum == null) {
+            return Boolean.FALSE;
+        }
+        // hash the contents in chunks with the algorithm of the revision checksum
+        String checksum = ConfigurationFactory.checksumFromStream(getContents(), getContentSize(),
+                revisionChecksum.getChecksumType().getLabel());
+        return checksum.equals(revisionChecksum.getChecksum());
     }
 }
@@ -26,6 +26,7 @@ import com.redhat.rhn.common.conf.Config;
 import com.redhat.rhn.common.conf.ConfigDefaults;
 import com.redhat.rhn.common.db.datasource.DataResult;
 import com.redhat.rhn.common.db.datasource.ModeFactory;
+import com.redhat.rhn.common.db.datasource.PageRequest;
 import com.redhat.rhn.common.db.datasource.SelectMode;
 import com.redhat.rhn.common.db.datasource.WriteMode;
 import com.redhat.rhn.common.hibernate.HibernateFactory;
@@ -81,6 +82,7 @@ import com.redhat.rhn.taskomatic.task.TaskConstants;
 import com.suse.manager.utils.MinionServerUtils;
 
 import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.tuple.Pair;
 import org.apache.log4j.Logger;
 
 import java.io.File;
@@ -93,12 +95,14 @@ import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.function.Function;
+import java.util.function.ToIntFunction;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -325,6 +329,23 @@ public class ErrataManager extends BaseManager {
         return makeDataResult(params, elabParams, null, m);
     }
 
+    /**
+     * Returns a page of all of the errata, filtered, sorted and paged by the query.
+     * @param user Currently logged in user.
+     * @param page the page to return
+     * @return the errata of the page.
+     */
+    public static DataResult allErrata(User user, PageRequest page) {
+        SelectMode m = ModeFactory.getMode("Errata_queries", "all_errata");
+        Map<String, Object> params = new HashMap<String, Object>();
+        params.put("org_id", user.getOrg().getId());
+        Map<String, Object> elabParams = new HashMap<String, Object>();
+        elabParams.put("user_id", user.getId());
+        DataResult dr = m.executePage(params, page);
+        dr.setElaborationParams(elabParams);
+        return dr;
+    }
+
     /**
      * Returns all of the errata of specified advisory type.
      * @param user Currently logged in user.
@@ -448,6 +469,24 @@ public class ErrataManager extends BaseManager {
         return makeDataResult(params, elabParams, null, m);
     }
 
+    /**
+     * Returns a page of the relevant errata, filtered, sorted and paged by the query.
+     * @param user Currently logged in user.
+     * @param page the page to return
+     * @return the relevant errata of the page.
+     */
+    public static DataResult relevantErrata(User user, PageRequest page) {
+        SelectMode m = ModeFactory.getMode("Errata_queries",
+                                           "relevant_errata");
+        Map<String, Object> params = new HashMap<String, Object>();
+        params.put("user_id", user.getId());
+        Map<String, Object> elabParams = new HashMap<String, Object>();
+        elabParams.put("user_id", user.getId());
+        DataResult dr = m.executePage(params, page);
+        dr.setElaborationParams(elabParams);
+        return dr;
+    }
+
     /**
      * Returns the relevant errata.
      * @param user Currently logged in user.
@@ -1552,6 +1591,23 @@ public class ErrataManager extends BaseManager {
         addErrataNotification(errataId, channelId, dateIn);
     }
 
+    /**
+     * Replaces any existing notifications pending for some errata and a channel with
+     * new ones for the specified channel
+     * @param errataIds the errata IDs
+     * @param channelId affected channel ID
+     * @param dateIn The notify date
+     */
+    public static void replaceChannelNotifications(List<Long> errataIds, long channelId, Date dateIn) {
+        Map<String, Object> params = new HashMap<String, Object>();
+        params.put("cid", channelId);
+        ModeFactory.getWriteMode("Errata_queries", "clear_errata_channel_notifications")
+                .executeUpdate(params, errataIds);
+        params.put("datetime", new java.sql.Date(dateIn.getTime()));
+        ModeFactory.getWriteMode("Errata_queries", "insert_errata_notifications")
+                .executeUpdate(params, errataIds);
+    }
+
     /**
      * List queued errata notifications
      * @param e the errata
@@ -1710,10 +1766,10 @@ public class ErrataManager extends BaseManager {
         // if required, check that all specified errata ids are applicable
         // throw Exception if that's not the case
         if (!onlyRelevant) {
-            boolean allRelevant = errataIds.isEmpty() ||
-                    (errataIds.stream()
-                    .allMatch(eid -> serverApplicableErrataMap.values().stream()
-                    .allMatch(eids -> eids.contains(eid))) &&
+            Set<Long> requestedErrata = new HashSet<>(errataIds);
+            boolean allRelevant = requestedErrata.isEmpty() ||
+                    (serverApplicableErrataMap.values().stream()
+                    .allMatch(eids -> new HashSet<>(eids).containsAll(requestedErrata)) &&
                     !serverApplicableErrataMap.isEmpty());
 
             if (!allRelevant) {
@@ -1762,20 +1818,28 @@ public class ErrataManager extends BaseManager {
             .map(Server::getId)
             .collect(toSet());
 
-        List<Long> nonZypperTradClients = ServerFactory.findNonZypperTradClientsIds(serverMap.keySet());
+        Set<Long> nonZypperTradClients = new HashSet<>(
+                ServerFactory.findNonZypperTradClientsIds(serverMap.keySet()));
 
         Set<Long> otherServers = serverMap.keySet().stream()
             .filter(sid -> !minions.contains(sid))
             .filter(sid -> !nonZypperTradClients.contains(sid))
             .collect(toSet());
 
+        // the action chain entries of each server get consecutive sort orders, starting after
+        // the existing entries, so that the servers run their errata actions in parallel
+        int firstSortOrder = actionChain == null ? 0 : ActionChainFactory.getNextSortOrderValue(actionChain);
+        Map<Long, Integer> serverSortOrders = new HashMap<>();
+        ToIntFunction<Server> nextSortOrder = server ->
+                serverSortOrders.merge(server.getId(), firstSortOrder, (current, first) -> current + 1);
+
         // 1- compute actions for traditional clients running yum
         // those get one Action per system, per errata (yum is known to have problems)
-        Stream<ErrataAction> nonZypperTradClientActions = nonZypperTradClients.stream()
+        Stream<Pair<ErrataAction, List<Long>>> nonZypperTradClientActions = nonZypperTradClients.stream()
             .flatMap(sid -> serverErrataMap.get(sid).stream()
                 .sorted((a, b) -> updateStackMap.get(b).compareTo(updateStackMap.get(a)))
                 .map(eid -> createErrataActionForNonZypperTradClient(user,
-                    errataMap.get(eid), earliest, actionChain, serverMap.get(sid),
+                    errataMap.get(eid), earliest, actionChain, nextSortOrder, serverMap.get(sid),
                     updateStackMap.get(eid))
                 )
             );
@@ -1817,30 +1881,28 @@ public class ErrataManager extends BaseManager {
                 groupServersByErrataSet(minionErrataMap);
 
         // 2.4- compute the actions
-        Stream<ErrataAction> updateStackActions = computeActions(user, earliest,
-                actionChain, errataMap, updateStackMap, serverMap, updateStackTargets);
-        Stream<ErrataAction> nonUpdateStackActions = computeActions(user, earliest,
-                actionChain, errataMap, updateStackMap, serverMap, nonUpdateStackTargets);
-        Stream<ErrataAction> minionActions = computeActions(user, earliest,
-                actionChain, errataMap, updateStackMap, serverMap, minionTargets);
+        Stream<Pair<ErrataAction, List<Long>>> updateStackActions = computeActions(user, earliest,
+                actionChain, nextSortOrder, errataMap, updateStackMap, serverMap, updateStackTargets);
+        Stream<Pair<ErrataAction, List<Long>>> nonUpdateStackActions = computeActions(user, earliest,
+                actionChain, nextSortOrder, errataMap, updateStackMap, serverMap, nonUpdateStackTargets);
+        Stream<Pair<ErrataAction, List<Long>>> minionActions = computeActions(user, earliest,
+                actionChain, nextSortOrder, errataMap, updateStackMap, serverMap, minionTargets);
         // store all actions and return ids
         List<Long> actionIds = new ArrayList<>();
-        List<ErrataAction> traditionalErrataActions =
+        List<Pair<ErrataAction, List<Long>>> traditionalErrataActions =
             concat(nonZypperTradClientActions,
             concat(updateStackActions,
             nonUpdateStackActions))
             .collect(toList());
         traditionalErrataActions.stream().forEach(ea-> {
-            ea.setDetails(new ActionPackageDetails(ea, allowVendorChange));
-            Action action = ActionManager.storeAction(ea);
+            Action action = storeErrataAction(ea.getLeft(), ea.getRight(), allowVendorChange);
             actionIds.add(action.getId());
         });
 
-        List<ErrataAction> minionErrataActions = minionActions.collect(toList());
+        List<Pair<ErrataAction, List<Long>>> minionErrataActions = minionActions.collect(toList());
         List<Action> minionTaskoActions = new ArrayList<>();
         minionErrataActions.stream().forEach(ea-> {
-           ea.setDetails(new ActionPackageDetails(ea, allowVendorChange));
-           Action action = ActionManager.storeAction(ea);
+           Action action = storeErrataAction(ea.getLeft(), ea.getRight(), allowVendorChange);
            minionTaskoActions.add(action);
            actionIds.add(action.getId());
         });
@@ -1853,19 +1915,39 @@ public class ErrataManager extends BaseManager {
         return actionIds;
     }
 
+    /**
+     * Stores an errata action and adds the servers to it with bulk inserts.
+     * @param errataAction the errata action
+     * @param serverIds the ids of the servers to run the action on, empty if they are queued in an action chain
+     * @param allowVendorChange true if vendor change allowed
+     * @return the stored action
+     */
+    private static Action storeErrataAction(ErrataAction errataAction, List<Long> serverIds,
+            boolean allowVendorChange) {
+        errataAction.setDetails(new ActionPackageDetails(errataAction, allowVendorChange));
+        Action action = ActionManager.storeAction(errataAction);
+        if (!serverIds.isEmpty()) {
+            ActionManager.scheduleForExecution(action, new HashSet<>(serverIds));
+            // the server actions were inserted behind the back of Hibernate
+            HibernateFactory.getSession().refresh(action);
+        }
+        return action;
+    }
+
     /**
      * Computes Action objects
      * @param user the user scheduling Actions
      * @param earliest the earliest execution date
      * @param actionChain an action chain, if any
+     * @param nextSortOrder gives the next sort order of a server in the action chain, if any
      * @param errataMap map from errata ids to errata
      * @param updateStackMap map from errata ids to update stack booleans
      * @param serverMap map from server ids to servers
      * @param targets map from lists of server ids to lists of errata ids
-     * @return a stream of actions
+     * @return a stream of actions, with the ids of the servers to add to them
      */
-    public static Stream<ErrataAction> computeActions(User user, Date earliest,
-            ActionChain actionChain, Map<Long, Errata> errataMap,
+    public static Stream<Pair<ErrataAction, List<Long>>> computeActions(User user, Date earliest,
+            ActionChain actionChain, ToIntFunction<Server> nextSortOrder, Map<Long, Errata> errataMap,
             Map<Long, Boolean> updateStackMap, Map<Long, Server> serverMap,
             Map<List<Long>, List<Long>> targets) {
         return targets.entrySet().stream()
@@ -1885,7 +1967,7 @@ public class ErrataManager extends BaseManager {
                 boolean updateStackAction = errataMap.keySet().stream()
                     .anyMatch(updateStackMap::get);
 
-                return createErrataActions(user, erratas, earliest, actionChain,
+                return createErrataActions(user, erratas, earliest, actionChain, nextSortOrder,
                         servers, updateStackAction);
             });
      }
@@ -1923,12 +2005,13 @@ public class ErrataManager extends BaseManager {
      * @param errata the list of errata
      * @param earliest the earliest date of execution
      * @param actionChain the action chain to add the actions to or null
+     * @param nextSortOrder gives the next sort order of a server in the action chain, if any
      * @param servers the list of servers
      * @param updateStack set to true if this is an update stack update
-     * @return list of errata actions
+     * @return list of errata actions, with the ids of the servers to add to them
      */
-    private static Stream<ErrataAction> createErrataActions(User user, List<Errata> errata,
-            Date earliest, ActionChain actionChain, List<Server> servers,
+    private static Stream<Pair<ErrataAction, List<Long>>> createErrataActions(User user, List<Errata> errata,
+            Date earliest, ActionChain actionChain, ToIntFunction<Server> nextSortOrder, List<Server> servers,
             boolean updateStack) {
 
         // for action chains, return one Action per system
@@ -1948,11 +2031,10 @@ public class ErrataManager extends BaseManager {
 
                     errataUpdate.setName(getErrataName(errata, updateStack));
 
-                    int sortOrder = ActionChainFactory.getNextSortOrderValue(actionChain);
                     ActionChainFactory.queueActionChainEntry(errataUpdate, actionChain,
-                            server, sortOrder);
+                            server, nextSortOrder.applyAsInt(server));
 
-                    return errataUpdate;
+                    return Pair.of(errataUpdate, Collections.<Long>emptyList());
                 });
         }
 
@@ -1969,9 +2051,7 @@ public class ErrataManager extends BaseManager {
 
         errataUpdate.setName(getErrataName(errata, updateStack));
 
-        servers.stream().forEach(s -> ActionManager.addServerToAction(s, errataUpdate));
-
-        return Stream.of(errataUpdate);
+        return Stream.of(Pair.of(errataUpdate, servers.stream().map(Server::getId).collect(toList())));
     }
 
     /**
@@ -1981,7 +2061,7 @@ public class ErrataManager extends BaseManager {
      * @param updateStack set to true if this is an update stack update
      * @return the errata name
      */
-    private static String getErrataName(List<Errata> errata, boolean updateStack) {
+    public static String getErrataName(List<Errata> errata, boolean updateStack) {
         if (!updateStack) {
             Object[] args = new Object[3];
             args[0] = errata.get(0).getAdvisory();
@@ -2008,12 +2088,13 @@ public class ErrataManager extends BaseManager {
      * @param erratum the erratum
      * @param earliest the earliest date of execution
      * @param actionChain the action chain to add the actions to or null
+     * @param nextSortOrder gives the next sort order of a server in the action chain, if any
      * @param server the server
      * @param updateStack set to true if this is an update stack update
-     * @return list of errata actions
+     * @return the errata action, with the ids of the servers to add to it
      */
-    private static ErrataAction createErrataActionForNonZypperTradClient(User user,
-            Errata erratum, Date earliest, ActionChain actionChain, Server server,
+    private static Pair<ErrataAction, List<Long>> createErrataActionForNonZypperTradClient(User user,
+            Errata erratum, Date earliest, ActionChain actionChain, ToIntFunction<Server> nextSortOrder, Server server,
             boolean updateStack) {
         ErrataAction errataUpdate = (ErrataAction) ActionManager.createErrataAction(
                 user, erratum);
@@ -2021,14 +2102,11 @@ public class ErrataManager extends BaseManager {
             errataUpdate.setEarliestAction(earliest);
         }
         if (actionChain == null) {
-            ActionManager.addServerToAction(server, errataUpdate);
+            return Pair.of(errataUpdate, List.of(server.getId()));
         }
-        else {
-            int sortOrder = ActionChainFactory.getNextSortOrderValue(actionChain);
-            ActionChainFactory.queueActionChainEntry(errataUpdate, actionChain,
-                    server, sortOrder);
-        }
-        return errataUpdate;
+        ActionChainFactory.queueActionChainEntry(errataUpdate, actionChain,
+                server, nextSortOrder.applyAsInt(server));
+        return Pair.of(errataUpdate, Collections.<Long>emptyList());
     }
 
     /**
@@ -2059,14 +2137,17 @@ public class ErrataManager extends BaseManager {
      * @param server the server
      */
     public static void insertErrataCacheTask(Server server) {
-        WriteMode mode = ModeFactory.getWriteMode(TaskConstants.MODE_NAME,
-                "insert_into_task_queue");
-        Map<String, Object> params = new HashMap<String, Object>();
-        params.put("org_id", server.getOrg().getId());
-        params.put("task_name", "update_server_errata_cache");
-        params.put("task_data", server.getId());
-        params.put("earliest", new Timestamp(System.currentTimeMillis()));
-        mode.executeUpdate(params);
+        insertTask(server.getOrg().getId(), "update_server_errata_cache", server.getId());
+    }
+
+    /**
+     * Insert errata cache tasks for the given servers with one batched statement. The tasks
+     * will be picked up by taskomatic on the next run (runs every minute per default).
+     *
+     * @param servers the servers
+     */
+    public static void insertErrataCacheTasks(Collection<? extends Server> servers) {
+        insertServerTasks("update_server_errata_cache", servers);
     }
 
     /**
@@ -2076,14 +2157,52 @@ public class ErrataManager extends BaseManager {
      * @param image the image
      */
     public static void insertErrataCacheTask(ImageInfo image) {
+        insertTask(image.getOrg().getId(), "update_image_errata_cache", image.getId());
+    }
+
+    /**
+     * Insert a task into the task queue, will be picked up by taskomatic on the next run
+     * (runs every minute per default).
+     *
+     * @param orgId the id of the org of the task
+     * @param taskName the name of the task
+     * @param taskData the id of the object the task is run on
+     */
+    public static void insertTask(Long orgId, String taskName, Long taskData) {
         WriteMode mode = ModeFactory.getWriteMode(TaskConstants.MODE_NAME,
                 "insert_into_task_queue");
+        mode.executeUpdate(getTaskParams(orgId, taskName, taskData,
+                new Timestamp(System.currentTimeMillis())));
+    }
+
+    /**
+     * Insert a task into the task queue for each of the given servers with one batched
+     * statement. The tasks will be picked up by taskomatic on the next run (runs every
+     * minute per default).
+     *
+     * @param taskName the name of the tasks
+     * @param servers the servers the tasks are run on
+     */
+    public static void insertServerTasks(String taskName, Collection<? extends Server> servers) {
+        if (servers.isEmpty()) {
+            return;
+        }
+        WriteMode mode = ModeFactory.getWriteMode(TaskConstants.MODE_NAME,
+                "insert_into_task_queue");
+        Timestamp earliest = new Timestamp(System.currentTimeMillis());
+        mode.executeUpdates(servers.stream()
+                .map(server -> getTaskParams(server.getOrg().getId(), taskName, server.getId(), earliest))
+                .collect(toList()));
+    }
+
+    private static Map<String, Object> getTaskParams(Long orgId, String taskName, Long taskData,
+            Timestamp earliest) {
         Map<String, Object> params = new HashMap<String, Object>();
-        params.put("org_id", image.getOrg().getId());
-        params.put("task_name", "update_image_errata_cache");
-        params.put("task_data", image.getId());
-        params.put("earliest", new Timestamp(System.currentTimeMillis()));
-        mode.executeUpdate(params);
+        params.put("org_id", orgId);
+        params.put("task_name", taskName);
+        params.put("task_data", taskData);
+        params.put("earliest", earliest);
+        return params;
     }
 
     /**
@@ -2105,27 +2224,25 @@ public class ErrataManager extends BaseManager {
         ChannelFactory.lock(channel);
 
         HibernateFactory.doWithoutAutoFlushing(() -> {
-            for (Long eid : list) {
-                Errata errata = ErrataFactory.lookupById(eid);
+            Set<Long> errataToAdd = new LinkedHashSet<Long>();
+            List<Map<String, Object>> originals = new ArrayList<Map<String, Object>>();
+            for (Map<String, Object> candidate : ErrataFactory.listCloneCandidates(list, user.getOrg())) {
                 // we merge custom errata directly (non Redhat and cloned)
-                if (errata.getOrg() != null) {
-                    ErrataCacheManager.addErrataRefreshing(cids, eid);
+                if (candidate.get("org_id") != null) {
+                    errataToAdd.add((Long) candidate.get("id"));
+                }
+                else if (candidate.get("clone_id") != null) {
+                    log.debug("Re-publishing clone");
+                    errataToAdd.add((Long) candidate.get("clone_id"));
                 }
                 else {
-                    List<Errata> clones = ErrataFactory.lookupErrataByOriginal(user.getOrg(), errata);
-                    if (clones.size() == 0) {
-                        log.debug("Cloning errata");
-                        var clonedId = ErrataHelper.cloneErrataFaster(eid, user.getOrg());
-                        ErrataCacheManager.addErrataRefreshing(cids, clonedId);
-                    }
-                    else {
-                        log.debug("Re-publishing clone");
-                        Errata firstClone = clones.get(0);
-
-                        ErrataCacheManager.addErrataRefreshing(cids, firstClone.getId());
-                    }
+                    originals.add(candidate);
                 }
             }
+            log.debug("Cloning " + originals.size() + " errata");
+            errataToAdd.addAll(ErrataHelper.cloneErrataFaster(originals, user.getOrg()).values());
+
+            ErrataCacheManager.addErrataRefreshing(cids, errataToAdd);
         });
 
         // Trigger channel repodata re-generation
@@ -17,6 +17,7 @@ package com.redhat.rhn.manager.errata.cache;
 import com.redhat.rhn.common.db.datasource.CallableMode;
 import com.redhat.rhn.common.db.datasource.DataResult;
 import com.redhat.rhn.common.db.datasource.ModeFactory;
+import com.redhat.rhn.common.db.datasource.SelectMode;
 import com.redhat.rhn.common.db.datasource.WriteMode;
 import com.redhat.rhn.common.hibernate.HibernateFactory;
 import com.redhat.rhn.common.messaging.MessageQueue;
@@ -30,9 +31,11 @@ import com.redhat.rhn.manager.errata.ErrataManager;
 
 import org.apache.log4j.Logger;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -103,6 +106,62 @@ public class ErrataCacheManager extends HibernateFactory {
                 "all_serverids_for_org", params);
     }
 
+    /**
+     * Groups the given servers by the set of channels they are subscribed to. Servers in the same
+     * group have the same candidate packages and errata, so their needed cache can be computed
+     * together by {@link #updateNeededCacheForServers(List)}.
+     * @param serverIds the server ids
+     * @param maxGroupSize maximum number of servers in a group, bigger groups are split
+     * @return the groups of server ids
+     */
+    public static List<List<Long>> groupServersByChannels(Collection<Long> serverIds, int maxGroupSize) {
+        SelectMode m = ModeFactory.getMode("ErrataCache_queries", "channels_for_servers");
+        DataResult<Map<String, Object>> rows = m.execute(new ArrayList<>(serverIds));
+
+        // rows are ordered by server, so the channels of a server are consecutive
+        Map<Long, List<Long>> channelsByServer = new LinkedHashMap<>();
+        for (Map<String, Object> row : rows) {
+            List<Long> channels = channelsByServer.computeIfAbsent((Long) row.get("server_id"),
+                    id -> new ArrayList<>());
+            if (row.get("channel_id") != null) {
+                channels.add((Long) row.get("channel_id"));
+            }
+        }
+
+        Map<List<Long>, List<Long>> serversByChannels = new LinkedHashMap<>();
+        channelsByServer.forEach((sid, channels) ->
+                serversByChannels.computeIfAbsent(channels, c -> new ArrayList<>()).add(sid));
+
+        List<List<Long>> groups = new ArrayList<>();
+        for (List<Long> servers : serversByChannels.values()) {
+            for (int i = 0; i < servers.size(); i += maxGroupSize) {
+                groups.add(servers.subList(i, Math.min(i + maxGroupSize, servers.size())));
+            }
+        }
+        return groups;
+    }
+
+    /**
+     * Recomputes the needed cache of servers subscribed to the same channels with set based
+     * queries, as returned by {@link #groupServersByChannels(Collection, int)}. This gives the
+     * same result as calling <code>rhn_server.update_needed_cache</code> for each server, also
+     * when the subscriptions of a server changed since the group was built.
+     * @param serverIds ids of servers, usually all subscribed to the same channels
+     * @return number of inserted cache entries
+     */
+    public static int updateNeededCacheForServers(List<Long> serverIds) {
+        if (serverIds.isEmpty()) {
+            return 0;
+        }
+        WriteMode delete = ModeFactory.getWriteMode("ErrataCache_queries",
+                "delete_needed_cache_for_servers");
+        delete.executeUpdate(new HashMap<String, Object>(), serverIds);
+
+        WriteMode insert = ModeFactory.getWriteMode("ErrataCache_queries",
+                "insert_needed_cache_for_servers");
+        return insert.executeUpdate(new HashMap<String, Object>(), serverIds);
+    }
+
     /**
      * Returns packages needing updates for the given server id.
      * @param sid Server Id.
@@ -279,6 +338,42 @@ public class ErrataCacheManager extends HibernateFactory {
         }
     }
 
+    /**
+     * Adds specified errata to a set of channels, inserting appropriate cache entries and replacing channel
+     * notifications. Does the same as {@link #addErrataRefreshing(Collection, Long)} for each erratum, with
+     * the statements run once per channel for all the errata.
+     * @param channelIdsToUpdate - channel IDs (Long) that need their errata
+     * caches updated
+     * @param errataIds IDs of the errata to update the cache for. Assumes the errata are published
+     */
+    public static void addErrataRefreshing(Collection<Long> channelIdsToUpdate, Collection<Long> errataIds) {
+        if (errataIds.isEmpty()) {
+            return;
+        }
+        List<Long> eids = new ArrayList<Long>(errataIds);
+        for (Long cid : channelIdsToUpdate) {
+            ChannelFactory.addErrataToChannel(eids, cid);
+            insertCacheForChannelErrata(cid, eids);
+            ErrataManager.replaceChannelNotifications(eids, cid, new Date());
+        }
+    }
+
+    /**
+     * Insert the new cache entries for the packages of some errata that are in a channel
+     * @param cid the channel the errata were added to
+     * @param eids the errata
+     */
+    public static void insertCacheForChannelErrata(Long cid, List<Long> eids) {
+        Map<String, Object> params = new HashMap<String, Object>();
+        params.put("channel_id", cid);
+        WriteMode m = ModeFactory.getWriteMode("ErrataCache_queries",
+                "insert_new_cache_entries_by_channel_errata");
+        int count = m.executeUpdate(params, eids);
+        if (log.isDebugEnabled()) {
+            log.debug("insertCacheForChannelErrata : " + "cache entries inserted: " + count);
+        }
+    }
+
 
     /**
      * Asynchronusly updates the errata caches for the channels passed in.
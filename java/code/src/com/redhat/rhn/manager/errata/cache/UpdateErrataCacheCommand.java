@@ -24,8 +24,13 @@ import com.redhat.rhn.domain.errata.ErrataFactory;
 import com.redhat.rhn.domain.org.Org;
 import com.redhat.rhn.domain.org.OrgFactory;
 import com.redhat.rhn.manager.BaseTransactionCommand;
+
+import com.suse.manager.metrics.ErrataCacheMetrics;
+
 import org.apache.log4j.Logger;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
@@ -38,6 +43,9 @@ public class UpdateErrataCacheCommand extends BaseTransactionCommand {
     private static Logger log = Logger
     .getLogger(UpdateErrataCacheCommand.class);
 
+    /** Maximum number of servers whose cache is computed in one go */
+    public static final int MAX_GROUP_SIZE = 500;
+
     /**
      * Default constructor
      */
@@ -78,16 +86,12 @@ public class UpdateErrataCacheCommand extends BaseTransactionCommand {
             log.debug("allservers returned [" + dr.size() + "]");
         }
 
+        List<Long> serverIds = new ArrayList<>();
         for (Iterator itr = dr.iterator(); itr.hasNext();) {
             Map item = (Map) itr.next();
-            Long sid = (Long) item.get("id");
-            if (log.isDebugEnabled() && sid != null) {
-                log.debug("Working on server [" + sid.toString() + "]");
-            }
-            Long serverId = sid.longValue();
-            processServer(serverId);
-            handleTransaction();
+            serverIds.add((Long) item.get("id"));
         }
+        updateErrataCacheForServers(serverIds, true);
 
         if (log.isDebugEnabled()) {
             log.debug("Deleting ErrataCache Queue");
@@ -117,6 +121,49 @@ public class UpdateErrataCacheCommand extends BaseTransactionCommand {
         log.info("Finished errata cache for server [" + serverId + "]");
     }
 
+    /**
+     * Updates the errata cache for the given servers. Servers subscribed to the same channels are
+     * grouped and the cache of each group is computed with set based queries instead of once per
+     * server.
+     * @param serverIds ids of the servers which need to get updated
+     * @param commit commit the database transaction after each group
+     */
+    public void updateErrataCacheForServers(Collection<Long> serverIds, boolean commit) {
+        if (serverIds.isEmpty()) {
+            return;
+        }
+        List<List<Long>> groups = ErrataCacheManager.groupServersByChannels(serverIds, MAX_GROUP_SIZE);
+        log.info("Updating errata cache for " + serverIds.size() + " servers in " + groups.size() +
+                " groups");
+        ErrataCacheMetrics.INSTANCE.serversQueued(serverIds.size());
+        for (List<Long> group : groups) {
+            updateErrataCacheForServerGroup(group, commit);
+        }
+        log.info("Finished errata cache for " + serverIds.size() + " servers");
+    }
+
+    /**
+     * Updates the errata cache for a group of servers subscribed to the same channels.
+     * @param serverIds ids of the servers, as grouped by
+     * {@link ErrataCacheManager#groupServersByChannels(Collection, int)}
+     * @param commit commit the database transaction when complete
+     */
+    public void updateErrataCacheForServerGroup(List<Long> serverIds, boolean commit) {
+        try {
+            ErrataCacheManager.updateNeededCacheForServers(serverIds);
+        }
+        catch (Exception e) {
+            log.error("Problem updating cache for servers " + serverIds, e);
+            HibernateFactory.rollbackTransaction();
+        }
+        finally {
+            if (commit) {
+                handleTransaction();
+            }
+            ErrataCacheMetrics.INSTANCE.groupProcessed(serverIds.size());
+        }
+    }
+
     /**
      * Updates the errata cache for the given image.
      * @param imageId Image id which needs to get updated.
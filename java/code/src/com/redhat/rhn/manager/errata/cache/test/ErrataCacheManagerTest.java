@@ -18,6 +18,7 @@ import com.redhat.rhn.common.db.datasource.DataResult;
 import com.redhat.rhn.common.db.datasource.ModeFactory;
 import com.redhat.rhn.common.db.datasource.WriteMode;
 import com.redhat.rhn.common.hibernate.HibernateFactory;
+import com.redhat.rhn.domain.channel.Channel;
 import com.redhat.rhn.domain.errata.Errata;
 import com.redhat.rhn.domain.errata.test.ErrataFactoryTest;
 import com.redhat.rhn.domain.org.Org;
@@ -35,15 +36,21 @@ import com.redhat.rhn.domain.user.User;
 import com.redhat.rhn.domain.user.UserFactory;
 import com.redhat.rhn.frontend.dto.ErrataCacheDto;
 import com.redhat.rhn.manager.errata.cache.ErrataCacheManager;
+import com.redhat.rhn.testing.ErrataTestUtils;
 import com.redhat.rhn.testing.RhnBaseTestCase;
 import com.redhat.rhn.testing.TestUtils;
 import com.redhat.rhn.testing.UserTestUtils;
 
 import java.sql.ResultSet;
 import java.sql.Statement;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 /**
  * ErrataFactoryTest
@@ -327,6 +334,137 @@ public class ErrataCacheManagerTest extends RhnBaseTestCase {
         }
     }
 
+    public void testUpdateNeededCacheForServers() throws Exception {
+        Long oid = UserTestUtils.createOrg("testOrg" + this.getClass().getSimpleName());
+        User user = UserTestUtils.createUser("testUser", oid);
+        Errata e = ErrataFactoryTest.createTestErrata(oid);
+        Channel channel = ErrataTestUtils.createTestChannel(user, e);
+        Package unpatched = ErrataTestUtils.createTestPackage(user, channel, "noarch");
+        Package patched = ErrataTestUtils.createLaterTestPackage(user, e, channel, unpatched);
+
+        Server server1 = ErrataTestUtils.createTestServer(user, Collections.singleton(channel));
+        ErrataTestUtils.createTestInstalledPackage(unpatched, server1);
+        Server server2 = ErrataTestUtils.createTestServer(user, Collections.singleton(channel));
+        ErrataTestUtils.createTestInstalledPackage(unpatched, server2);
+        Server server3 = ErrataTestUtils.createTestServer(user, Collections.emptySet());
+        ErrataTestUtils.createTestInstalledPackage(unpatched, server3);
+        HibernateFactory.getSession().flush();
+
+        List<Long> sids = Arrays.asList(server1.getId(), server2.getId(), server3.getId());
+        List<List<Long>> groups = ErrataCacheManager.groupServersByChannels(sids, 10);
+        assertEquals(2, groups.size());
+        assertTrue(groups.contains(Arrays.asList(server1.getId(), server2.getId())));
+        assertTrue(groups.contains(Collections.singletonList(server3.getId())));
+        assertEquals(3, ErrataCacheManager.groupServersByChannels(sids, 1).size());
+
+        // stale entries are replaced
+        ErrataCacheManager.insertNeededErrataCache(server3.getId(), e.getId(), patched.getId());
+        for (List<Long> group : groups) {
+            ErrataCacheManager.updateNeededCacheForServers(group);
+        }
+
+        for (Server server : Arrays.asList(server1, server2)) {
+            DataResult dr = ErrataCacheManager.packagesNeedingUpdates(server.getId());
+            assertEquals(1, dr.size());
+            ErrataCacheDto ecd = (ErrataCacheDto) dr.get(0);
+            assertEquals(patched.getId(), ecd.getPackageId());
+            assertEquals(e.getId(), ecd.getErrataId());
+        }
+        assertTrue(ErrataCacheManager.packagesNeedingUpdates(server3.getId()).isEmpty());
+    }
+
+    /**
+     * Compares the set based recomputation with rhn_server.update_needed_cache for a server
+     * subscribed to two channels, which both contain an update without erratum.
+     * @throws Exception if anything goes wrong
+     */
+    public void testUpdateNeededCacheForServersLikeStoredProcedure() throws Exception {
+        Long oid = UserTestUtils.createOrg("testOrg" + this.getClass().getSimpleName());
+        User user = UserTestUtils.createUser("testUser", oid);
+        Errata e = ErrataFactoryTest.createTestErrata(oid);
+        Channel channel1 = ErrataTestUtils.createTestChannel(user, e);
+        Channel channel2 = ErrataTestUtils.createTestChannel(user);
+        Package unpatched = ErrataTestUtils.createTestPackage(user, channel1, "noarch");
+        Package withoutErrata = ErrataTestUtils.createLaterTestPackage(user, null, channel1, unpatched);
+        Map<String, Long> params = new HashMap<String, Long>();
+        params.put("cid", channel2.getId());
+        ModeFactory.getWriteMode("Channel_queries", "add_channel_packages")
+                .executeUpdate(params, Collections.singletonList(withoutErrata.getId()));
+        Package patched = ErrataTestUtils.createLaterTestPackage(user, e, channel1, unpatched,
+                unpatched.getPackageEvr().getEpoch(), unpatched.getPackageEvr().getVersion(),
+                (Integer.parseInt(unpatched.getPackageEvr().getRelease()) + 2) + "");
+
+        Server server = ErrataTestUtils.createTestServer(user, Arrays.asList(channel1, channel2));
+        ErrataTestUtils.createTestInstalledPackage(unpatched, server);
+        HibernateFactory.getSession().flush();
+
+        ErrataCacheManager.updateNeededCacheForServers(Collections.singletonList(server.getId()));
+        Set<List<Object>> actual = neededCache(server);
+
+        Map<String, Object> inParams = new HashMap<String, Object>();
+        inParams.put("server_id", server.getId());
+        ModeFactory.getCallableMode("System_queries", "update_needed_cache")
+                .execute(inParams, new HashMap<String, Integer>());
+        Set<List<Object>> expected = neededCache(server);
+
+        assertEquals(expected, actual);
+        // the update without erratum is needed once, without channel
+        assertEquals(2, actual.size());
+        assertTrue(actual.contains(Arrays.asList(null, withoutErrata.getId(), null)));
+        assertTrue(actual.contains(Arrays.asList(e.getId(), patched.getId(), channel1.getId())));
+    }
+
+    public void testUpdateNeededCacheForServersWithDifferentChannels() throws Exception {
+        Long oid = UserTestUtils.createOrg("testOrg" + this.getClass().getSimpleName());
+        User user = UserTestUtils.createUser("testUser", oid);
+        Errata e = ErrataFactoryTest.createTestErrata(oid);
+        Channel channel1 = ErrataTestUtils.createTestChannel(user, e);
+        Channel channel2 = ErrataTestUtils.createTestChannel(user);
+        Package unpatched = ErrataTestUtils.createTestPackage(user, channel1, "noarch");
+        Package withoutErrata = ErrataTestUtils.createLaterTestPackage(user, null, channel2, unpatched);
+        Package patched = ErrataTestUtils.createLaterTestPackage(user, e, channel1, unpatched,
+                unpatched.getPackageEvr().getEpoch(), unpatched.getPackageEvr().getVersion(),
+                (Integer.parseInt(unpatched.getPackageEvr().getRelease()) + 2) + "");
+
+        // the servers were grouped together, but their subscriptions changed since
+        Server server1 = ErrataTestUtils.createTestServer(user, Collections.singletonList(channel1));
+        Server server2 = ErrataTestUtils.createTestServer(user, Collections.singletonList(channel2));
+        ErrataTestUtils.createTestInstalledPackage(unpatched, server1);
+        ErrataTestUtils.createTestInstalledPackage(unpatched, server2);
+        HibernateFactory.getSession().flush();
+
+        ErrataCacheManager.updateNeededCacheForServers(Arrays.asList(server1.getId(), server2.getId()));
+        Set<List<Object>> actual1 = neededCache(server1);
+        Set<List<Object>> actual2 = neededCache(server2);
+
+        // each server only gets the updates of its own channels
+        assertEquals(Collections.singleton(Arrays.asList(e.getId(), patched.getId(), channel1.getId())), actual1);
+        assertEquals(Collections.singleton(Arrays.asList(null, withoutErrata.getId(), null)), actual2);
+
+        for (Server server : Arrays.asList(server1, server2)) {
+            Map<String, Object> inParams = new HashMap<String, Object>();
+            inParams.put("server_id", server.getId());
+            ModeFactory.getCallableMode("System_queries", "update_needed_cache")
+                    .execute(inParams, new HashMap<String, Integer>());
+        }
+        assertEquals(neededCache(server1), actual1);
+        assertEquals(neededCache(server2), actual2);
+    }
+
+    // Returns the errata, package and channel ids of the needed cache entries of a server
+    private static Set<List<Object>> neededCache(Server server) {
+        List<Object[]> rows = HibernateFactory.getSession()
+                .createNativeQuery("SELECT errata_id, package_id, channel_id FROM rhnServerNeededCache " +
+                        "WHERE server_id = :sid")
+                .setParameter("sid", server.getId())
+                .list();
+        return rows.stream()
+                .map(row -> Arrays.stream(row)
+                        .map(id -> id == null ? null : ((Number) id).longValue())
+                        .collect(Collectors.<Object>toList()))
+                .collect(Collectors.toSet());
+    }
+
     public void testAllServerIdsForOrg() throws Exception {
         // create a lot of stuff to test this simple insert.
         Long oid = UserTestUtils.createOrg("testOrg" + this.getClass().getSimpleName());
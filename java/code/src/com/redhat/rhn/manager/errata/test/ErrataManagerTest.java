@@ -22,6 +22,7 @@ import static com.redhat.rhn.testing.ErrataTestUtils.createTestServer;
 
 import com.redhat.rhn.common.db.datasource.DataResult;
 import com.redhat.rhn.common.db.datasource.ModeFactory;
+import com.redhat.rhn.common.db.datasource.PageRequest;
 import com.redhat.rhn.common.db.datasource.WriteMode;
 import com.redhat.rhn.common.hibernate.HibernateFactory;
 import com.redhat.rhn.common.hibernate.LookupException;
@@ -31,6 +32,7 @@ import com.redhat.rhn.domain.action.ActionChainFactory;
 import com.redhat.rhn.domain.action.ActionFactory;
 import com.redhat.rhn.domain.action.errata.ErrataAction;
 import com.redhat.rhn.domain.channel.Channel;
+import com.redhat.rhn.domain.channel.ChannelFactory;
 import com.redhat.rhn.domain.channel.test.ChannelFactoryTest;
 import com.redhat.rhn.domain.errata.Errata;
 import com.redhat.rhn.domain.errata.ErrataFactory;
@@ -50,6 +52,7 @@ import com.redhat.rhn.domain.server.test.MinionServerFactoryTest;
 import com.redhat.rhn.domain.session.WebSession;
 import com.redhat.rhn.domain.session.WebSessionFactory;
 import com.redhat.rhn.domain.user.User;
+import com.redhat.rhn.frontend.action.channel.manage.ErrataHelper;
 import com.redhat.rhn.frontend.dto.ErrataOverview;
 import com.redhat.rhn.frontend.listview.PageControl;
 import com.redhat.rhn.frontend.xmlrpc.system.test.SystemHandlerTest;
@@ -228,6 +231,28 @@ public class ErrataManagerTest extends JMockBaseTestCaseWithUser {
         assertTrue(errata.size() >= 1);
     }
 
+    public void testRelevantErrataPage() throws Exception {
+        User user = UserTestUtils.findNewUser("testUser",
+                "testOrg" + this.getClass().getSimpleName());
+        ErrataCacheManagerTest.createServerNeededCache(user,
+                ErrataFactory.ERRATA_TYPE_BUG);
+        DataResult<ErrataOverview> all = ErrataManager.relevantErrata(user);
+
+        PageRequest page = new PageRequest(0, 1);
+        page.setSort("id", false);
+        DataResult<ErrataOverview> errata = ErrataManager.relevantErrata(user, page);
+        assertEquals(1, errata.size());
+        assertEquals(all.size(), errata.getTotalSize());
+        Long last = all.stream().map(ErrataOverview::getId).max(Long::compareTo).get();
+        assertEquals(last, errata.get(0).getId());
+
+        page.setFilter("advisorySynopsis", "no such synopsis");
+        errata = ErrataManager.relevantErrata(user, page);
+        assertTrue(errata.isEmpty());
+        assertEquals(0, errata.getTotalSize());
+        assertEquals(all.size(), errata.getUnfilteredSize());
+    }
+
     public void testRelevantErrataByTypeList() throws Exception {
         User user = UserTestUtils.findNewUser("testUser",
                 "testOrg" + this.getClass().getSimpleName());
@@ -398,6 +423,35 @@ public class ErrataManagerTest extends JMockBaseTestCaseWithUser {
         assertTrue(new HashSet<Long>(eids).size() == eids.size());
     }
 
+    public void testCloneErrata() throws Exception {
+        Channel channel = ChannelFactoryTest.createTestChannel(user);
+        Errata custom = ErrataFactoryTest.createTestErrata(user.getOrg().getId());
+        Errata vendor = ErrataFactoryTest.createTestErrata(null);
+        Errata alreadyCloned = ErrataFactoryTest.createTestErrata(null);
+        Long packageId = vendor.getPackages().iterator().next().getId();
+        Long existingCloneId = ErrataHelper.cloneErrataFaster(alreadyCloned.getId(), user.getOrg());
+
+        ErrataManager.cloneErrata(channel.getId(),
+                List.of(custom.getId(), vendor.getId(), alreadyCloned.getId()), false, user);
+        HibernateFactory.getSession().flush();
+        HibernateFactory.getSession().clear();
+
+        List<Errata> clones = ErrataFactory.lookupErrataByOriginal(user.getOrg(), vendor);
+        assertEquals(1, clones.size());
+        Errata clone = clones.get(0);
+        assertEquals("CL-" + vendor.getAdvisory(), clone.getAdvisory());
+        assertEquals(1, clone.getPackages().size());
+        assertEquals(packageId, clone.getPackages().iterator().next().getId());
+        assertTrue(clone.hasKeyword("keyword"));
+        assertEquals(1, clone.getFiles().size());
+        assertEquals(1, ErrataManager.listErrataNotifications(clone).size());
+        assertEquals(1, ErrataFactory.lookupErrataByOriginal(user.getOrg(), alreadyCloned).size());
+
+        channel = ChannelFactory.lookupById(channel.getId());
+        Set<Long> channelErrata = channel.getErratas().stream().map(Errata::getId).collect(Collectors.toSet());
+        assertEquals(Set.of(custom.getId(), clone.getId(), existingCloneId), channelErrata);
+    }
+
     /**
      * Tests applyErrata(), note that the onlyRelevant flag is always set in
      * this case. {@link SystemHandlerTest#testApplyIrrelevantErrata} covers the
@@ -1486,6 +1540,15 @@ public class ErrataManagerTest extends JMockBaseTestCaseWithUser {
                 server2ScheduledErrata.contains(errata1.getId()));
         assertTrue("Server 2 Scheduled Erratas contain relevant erratas",
                 server2ScheduledErrata.contains(errata2.getId()));
+
+        for (Server server : List.of(server1, server2)) {
+            List<Integer> sortOrders = actionChain.getEntries().stream()
+                .filter(e -> e.getServer().equals(server))
+                .map(e -> e.getSortOrder())
+                .sorted()
+                .collect(Collectors.toList());
+            assertEquals("each server runs its errata one after the other", List.of(0, 1), sortOrders);
+        }
     }
 
     /**
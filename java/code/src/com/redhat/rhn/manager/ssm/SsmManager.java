@@ -17,7 +17,6 @@ package com.redhat.rhn.manager.ssm;
 import com.redhat.rhn.common.db.datasource.CallableMode;
 import com.redhat.rhn.common.db.datasource.DataResult;
 import com.redhat.rhn.common.db.datasource.ModeFactory;
-import com.redhat.rhn.common.messaging.MessageQueue;
 import com.redhat.rhn.domain.action.Action;
 import com.redhat.rhn.domain.action.ActionChain;
 import com.redhat.rhn.domain.channel.Channel;
@@ -76,12 +75,14 @@ public class SsmManager {
     }
 
     /**
-     * Performs channel actions
+     * Performs channel actions. The caller publishes a {@link ChannelsChangedEventMessage}
+     * for each returned server once the transaction is committed.
      *
      * @param user user performing the action creations
      * @param sysMapping a collection of ChannelActionDAOs
+     * @return the ids of the servers whose channels were changed
      */
-    public static void performChannelActions(User user,
+    public static Set<Long> performChannelActions(User user,
             Collection<ChannelActionDAO> sysMapping) {
         Set<Long> serverChannelsChanged = new HashSet<>();
 
@@ -95,9 +96,7 @@ public class SsmManager {
                 serverChannelsChanged.add(system.getId());
             }
         }
-        for (Long sid : serverChannelsChanged) {
-            MessageQueue.publish(new ChannelsChangedEventMessage(sid, user.getId()));
-        }
+        return serverChannelsChanged;
     }
 
 
@@ -0,0 +1,259 @@
+/**
+ * Copyright (c) 2021 SUSE LLC
+ *
+ * This software is licensed to you under the GNU General Public License,
+ * version 2 (GPLv2). There is NO WARRANTY for this software, express or
+ * implied, including the implied warranties of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. You should have received a copy of GPLv2
+ * along with this software; if not, see
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.txt.
+ *
+ * Red Hat trademarks are not licensed under GPLv2. No permission is
+ * granted to use or replicate Red Hat trademarks that are incorporated
+ * in this software or its documentation.
+ */
+package com.redhat.rhn.manager.ssm;
+
+import com.redhat.rhn.common.conf.Config;
+import com.redhat.rhn.common.conf.ConfigDefaults;
+import com.redhat.rhn.common.hibernate.HibernateFactory;
+import com.redhat.rhn.domain.user.User;
+import com.redhat.rhn.domain.user.UserFactory;
+
+import com.google.common.collect.Lists;
+import com.suse.manager.metrics.PrometheusExporter;
+import org.apache.commons.lang3.concurrent.BasicThreadFactory;
+import org.apache.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs the per-system part of SSM operations on a dedicated pool of worker threads, so that large
+ * selections neither block the message queue nor hold database locks for the whole operation.
+ *
+ * The systems of an operation are processed in chunks, each in its own transaction. When a chunk fails,
+ * its transaction is rolled back and its systems are retried one by one: a failing system gets a note
+ * on the operation and the processing resumes with the next systems. The operation is completed once
+ * all of its systems were processed. Its progress is logged after each chunk.
+ */
+public class SsmOperationRunner {
+
+    private static final Logger LOG = Logger.getLogger(SsmOperationRunner.class);
+
+    /** Note added to the systems on which the operation failed */
+    public static final String FAILED_NOTE = "ssm.operation.server.failed";
+
+    private static final int DEFAULT_THREAD_POOL_SIZE = 2;
+    private static final int DEFAULT_CHUNK_SIZE = 100;
+
+    /** The instance running the operations on the SSM worker pool */
+    public static final SsmOperationRunner INSTANCE = new SsmOperationRunner(createThreadPool(),
+            Config.get().getInt(ConfigDefaults.SSM_CHUNK_SIZE, DEFAULT_CHUNK_SIZE));
+
+    /**
+     * Processes a chunk of the systems of an SSM operation.
+     */
+    @FunctionalInterface
+    public interface ChunkProcessor {
+
+        /**
+         * Processes a chunk of systems in the current transaction.
+         *
+         * @param user the user running the operation, loaded in the current session
+         * @param serverIds the ids of the systems of the chunk
+         */
+        void process(User user, List<Long> serverIds);
+    }
+
+    // Progress of a running SSM operation
+    private static class Progress {
+
+        private final int total;
+        private final AtomicInteger processed = new AtomicInteger();
+        private final AtomicInteger failed = new AtomicInteger();
+
+        private Progress(int totalIn) {
+            total = totalIn;
+        }
+
+        @Override
+        public String toString() {
+            return processed.get() + "/" + total + " systems processed, " + failed.get() + " failed";
+        }
+    }
+
+    private final Executor executor;
+    private final int chunkSize;
+    // the actions to run once the chunk processed by the current thread is committed
+    private final ThreadLocal<List<Runnable>> afterCommitActions = new ThreadLocal<>();
+
+    /**
+     * Creates a runner.
+     *
+     * @param executorIn the executor running the operations
+     * @param chunkSizeIn the maximum number of systems processed in one transaction
+     */
+    public SsmOperationRunner(Executor executorIn, int chunkSizeIn) {
+        executor = executorIn;
+        chunkSize = chunkSizeIn;
+    }
+
+    private static ThreadPoolExecutor createThreadPool() {
+        int size = Config.get().getInt(ConfigDefaults.SSM_THREAD_POOL_SIZE, DEFAULT_THREAD_POOL_SIZE);
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(size, size, 0, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>());
+        pool.setThreadFactory(new BasicThreadFactory.Builder().namingPattern("ssm-operation-thread-%d")
+                .daemon(true).build());
+        PrometheusExporter.INSTANCE.registerThreadPool(pool, "ssm_operations");
+        return pool;
+    }
+
+    /**
+     * Commits the current transaction, so that the operation and its systems are visible to the workers,
+     * and queues the operation to be run on its systems in chunks of the configured size.
+     *
+     * @param operationId the id of the SSM operation, completed once all the systems were processed
+     * @param userId the id of the user running the operation
+     * @param serverIds the ids of the systems of the operation
+     * @param processor the operation run on each chunk
+     */
+    public void submit(long operationId, long userId, List<Long> serverIds, ChunkProcessor processor) {
+        submit(operationId, userId, serverIds, chunkSize, processor);
+    }
+
+    /**
+     * Commits the current transaction, so that the operation and its systems are visible to the workers,
+     * and queues the operation to be run on its systems in chunks of the given size.
+     *
+     * @param operationId the id of the SSM operation, completed once all the systems were processed
+     * @param userId the id of the user running the operation
+     * @param serverIds the ids of the systems of the operation
+     * @param size the maximum number of systems processed in one transaction
+     * @param processor the operation run on each chunk
+     */
+    public void submit(long operationId, long userId, List<Long> serverIds, int size,
+            ChunkProcessor processor) {
+        commit();
+        executor.execute(() -> run(operationId, userId, serverIds, size, processor));
+    }
+
+    /**
+     * Runs an action once the chunk being processed is committed, e.g. to publish the messages about
+     * its changes. The action is dropped if the chunk is rolled back.
+     *
+     * @param action the action to run after the commit
+     * @throws IllegalStateException if no chunk is processed by the current thread
+     */
+    public void afterCommit(Runnable action) {
+        List<Runnable> actions = afterCommitActions.get();
+        if (actions == null) {
+            throw new IllegalStateException("No SSM operation chunk is being processed");
+        }
+        actions.add(action);
+    }
+
+    private void run(long operationId, long userId, List<Long> serverIds, int size, ChunkProcessor processor) {
+        Progress progress = new Progress(serverIds.size());
+        try {
+            for (List<Long> chunk : Lists.partition(serverIds, size)) {
+                if (runChunk(userId, chunk, processor)) {
+                    progress.processed.addAndGet(chunk.size());
+                }
+                else if (chunk.size() == 1) {
+                    failed(operationId, chunk.get(0), progress);
+                }
+                else {
+                    LOG.warn("SSM operation " + operationId + " failed on a chunk of " + chunk.size() +
+                            " systems, retrying them one by one");
+                    for (Long serverId : chunk) {
+                        if (runChunk(userId, Collections.singletonList(serverId), processor)) {
+                            progress.processed.incrementAndGet();
+                        }
+                        else {
+                            failed(operationId, serverId, progress);
+                        }
+                    }
+                }
+                LOG.info("SSM operation " + operationId + ": " + progress);
+            }
+        }
+        finally {
+            runInTransaction(() -> SsmOperationManager.completeOperation(UserFactory.lookupById(userId),
+                    operationId));
+        }
+    }
+
+    private boolean runChunk(long userId, List<Long> chunk, ChunkProcessor processor) {
+        List<Runnable> actions = new ArrayList<>();
+        afterCommitActions.set(actions);
+        boolean committed;
+        try {
+            committed = runInTransaction(() -> processor.process(UserFactory.lookupById(userId), chunk));
+        }
+        finally {
+            afterCommitActions.remove();
+        }
+        if (committed) {
+            for (Runnable action : actions) {
+                try {
+                    action.run();
+                }
+                catch (RuntimeException e) {
+                    LOG.error("Error running an action after committing an SSM operation chunk", e);
+                }
+            }
+        }
+        return committed;
+    }
+
+    private void failed(long operationId, Long serverId, Progress progress) {
+        progress.processed.incrementAndGet();
+        progress.failed.incrementAndGet();
+        runInTransaction(() -> SsmOperationManager.addNoteToOperationOnServer(operationId, serverId,
+                FAILED_NOTE));
+    }
+
+    private boolean runInTransaction(Runnable runnable) {
+        try {
+            runnable.run();
+            commit();
+            return true;
+        }
+        catch (Exception e) {
+            LOG.error("Error running SSM operation", e);
+            rollback();
+            return false;
+        }
+    }
+
+    /**
+     * Commits the current transaction and closes its session.
+     */
+    protected void commit() {
+        try {
+            HibernateFactory.commitTransaction();
+        }
+        finally {
+            HibernateFactory.closeSession();
+        }
+    }
+
+    /**
+     * Rolls back the current transaction and closes its session.
+     */
+    protected void rollback() {
+        try {
+            HibernateFactory.rollbackTransaction();
+        }
+        finally {
+            HibernateFactory.closeSession();
+        }
+    }
+}
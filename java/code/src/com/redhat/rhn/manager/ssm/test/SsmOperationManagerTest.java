@@ -26,11 +26,14 @@ import com.redhat.rhn.frontend.dto.ServerOperationDataDto;
 import com.redhat.rhn.manager.rhnset.RhnSetDecl;
 import com.redhat.rhn.manager.rhnset.RhnSetManager;
 import com.redhat.rhn.manager.ssm.SsmOperationManager;
+import com.redhat.rhn.manager.ssm.SsmOperationRunner;
 import com.redhat.rhn.manager.ssm.SsmOperationStatus;
 import com.redhat.rhn.testing.RhnBaseTestCase;
 import com.redhat.rhn.testing.UserTestUtils;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Set;
 
 /**
@@ -303,6 +306,53 @@ public class SsmOperationManagerTest extends RhnBaseTestCase {
         assertEquals(EXPECTED_NOTE, serverData.getNote());
     }
 
+    public void testRunOperationInChunks() throws Exception {
+        Server server1 = ServerFactoryTest.createTestServer(ssmUser, true);
+        Server server2 = ServerFactoryTest.createTestServer(ssmUser, true);
+        Server server3 = ServerFactoryTest.createTestServer(ssmUser, true);
+        List<Long> sids = Arrays.asList(server1.getId(), server3.getId(), server2.getId());
+
+        long operationId = SsmOperationManager.createOperation(ssmUser, "Test operation", null);
+        SsmOperationManager.associateServersWithOperation(operationId, ssmUser.getId(), sids);
+
+        SsmOperationRunner runner = SsmOperationRunnerTestUtils.createTestRunner(2);
+        List<List<Long>> chunks = new ArrayList<>();
+        List<List<Long>> committedChunks = new ArrayList<>();
+        runner.submit(operationId, ssmUser.getId(), sids, (user, chunk) -> {
+            chunks.add(chunk);
+            assertEquals(ssmUser.getId(), user.getId());
+            runner.afterCommit(() -> committedChunks.add(chunk));
+            if (chunk.contains(server3.getId())) {
+                throw new RuntimeException("failing system");
+            }
+        });
+
+        // the failing chunk is retried system by system, then the next chunk is processed
+        assertEquals(Arrays.asList(
+                Arrays.asList(server1.getId(), server3.getId()),
+                Arrays.asList(server1.getId()),
+                Arrays.asList(server3.getId()),
+                Arrays.asList(server2.getId())), chunks);
+        // the actions registered by the rolled back chunks are dropped
+        assertEquals(Arrays.asList(
+                Arrays.asList(server1.getId()),
+                Arrays.asList(server2.getId())), committedChunks);
+
+        DataResult<ServerOperationDataDto> result =
+                SsmOperationManager.findServerDataForOperation(operationId);
+        assertEquals(3, result.size());
+        for (ServerOperationDataDto serverData : result) {
+            if (serverData.getId().equals(server3.getId())) {
+                assertEquals(SsmOperationRunner.FAILED_NOTE, serverData.getNote());
+            }
+            else {
+                assertNull(serverData.getNote());
+            }
+        }
+        assertEquals(SsmOperationStatus.COMPLETED.getText(),
+                SsmOperationManager.findOperationById(ssmUser, operationId).getStatus());
+    }
+
     /**
      * Populates an RhnSet with server IDs.
      *
@@ -0,0 +1,47 @@
+/**
+ * Copyright (c) 2021 SUSE LLC
+ *
+ * This software is licensed to you under the GNU General Public License,
+ * version 2 (GPLv2). There is NO WARRANTY for this software, express or
+ * implied, including the implied warranties of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. You should have received a copy of GPLv2
+ * along with this software; if not, see
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.txt.
+ *
+ * Red Hat trademarks are not licensed under GPLv2. No permission is
+ * granted to use or replicate Red Hat trademarks that are incorporated
+ * in this software or its documentation.
+ */
+package com.redhat.rhn.manager.ssm.test;
+
+import com.redhat.rhn.common.hibernate.HibernateFactory;
+import com.redhat.rhn.manager.ssm.SsmOperationRunner;
+
+/**
+ * Helpers for the tests of SSM operations run by {@link SsmOperationRunner}.
+ */
+public class SsmOperationRunnerTestUtils {
+
+    private SsmOperationRunnerTestUtils() {
+    }
+
+    /**
+     * Creates an SSM operation runner processing the operations immediately in the test transaction.
+     *
+     * @param chunkSize the maximum number of systems processed in one chunk
+     * @return the runner
+     */
+    public static SsmOperationRunner createTestRunner(int chunkSize) {
+        return new SsmOperationRunner(Runnable::run, chunkSize) {
+            @Override
+            protected void commit() {
+                HibernateFactory.getSession().flush();
+            }
+
+            @Override
+            protected void rollback() {
+                HibernateFactory.getSession().clear();
+            }
+        };
+    }
+}
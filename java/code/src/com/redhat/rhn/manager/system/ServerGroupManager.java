@@ -340,7 +340,7 @@ public class ServerGroupManager {
         validateAdminCredentials(loggedInUser);
 
         SystemManager.addServersToServerGroup(servers, sg);
-        updatePillarAfterGroupUpdateForServers(servers);
+        updatePillarAfterGroupUpdateForServersAsync(servers);
     }
 
     /**
@@ -353,6 +353,16 @@ public class ServerGroupManager {
                 .forEach(this.minionGroupMembershipPillarFileManager::updatePillarFile);
     }
 
+    /**
+     * Like {@link #updatePillarAfterGroupUpdateForServers(Collection)}, but the pillar files are written in the
+     * background, as many of them may change at once and nothing relies on them right away.
+     * @param servers a collection of servers
+     */
+    private void updatePillarAfterGroupUpdateForServersAsync(Collection<Server> servers) {
+        servers.stream().map(server -> server.asMinionServer()).flatMap(Opt::stream)
+                .forEach(this.minionGroupMembershipPillarFileManager::updatePillarFileAsync);
+    }
+
     /**
      * Dissociates a bunch of servers from a server group
      * @param sg the server group to process
@@ -376,7 +386,7 @@ public class ServerGroupManager {
     public void removeServers(ServerGroup sg, Collection<Server> servers) {
         if (!servers.isEmpty()) {
             SystemManager.removeServersFromServerGroup(servers, sg);
-            updatePillarAfterGroupUpdateForServers(servers);
+            updatePillarAfterGroupUpdateForServersAsync(servers);
         }
     }
 
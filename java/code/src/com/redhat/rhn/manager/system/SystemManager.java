@@ -27,6 +27,7 @@ import com.redhat.rhn.common.conf.ConfigDefaults;
 import com.redhat.rhn.common.db.datasource.CallableMode;
 import com.redhat.rhn.common.db.datasource.DataResult;
 import com.redhat.rhn.common.db.datasource.ModeFactory;
+import com.redhat.rhn.common.db.datasource.PageRequest;
 import com.redhat.rhn.common.db.datasource.SelectMode;
 import com.redhat.rhn.common.db.datasource.WriteMode;
 import com.redhat.rhn.common.hibernate.HibernateFactory;
@@ -3167,6 +3168,18 @@ public class SystemManager extends BaseManager {
         return makeDataResult(params, elabParams, pc, m);
     }
 
+    /**
+     * @param sid server id
+     * @param page the page of snapshots to return, sorted and paged in the database
+     * @return Returns the requested page of the system snapshots
+     */
+    public static DataResult<Map<String, Object>> systemSnapshotsPage(Long sid, PageRequest page) {
+        SelectMode m = ModeFactory.getMode("General_queries", "system_snapshots");
+        Map<String, Object> params = new HashMap<String, Object>();
+        params.put("sid", sid);
+        return m.executePage(params, page);
+    }
+
     /**
      * @param sid server id
      * @param ssid snapshot id
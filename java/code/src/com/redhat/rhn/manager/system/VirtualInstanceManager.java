@@ -28,9 +28,17 @@ import com.suse.manager.webui.websocket.VirtNotifications;
 
 import org.apache.log4j.Logger;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 /**
@@ -149,43 +157,126 @@ public class VirtualInstanceManager extends BaseManager {
      */
     public static void updateGuestsVirtualInstances(Server server, VirtualInstanceType type,
             Map<String, String> vms, Map<String, Map<String, String>> optionalVmData) {
+        updateGuestsVirtualInstances(server, type, vms, optionalVmData,
+                lookupGuestVirtualInstances(Collections.singleton(server), vms.values()));
+    }
+
+    /**
+     * Goes through all the vms(guests), creates/updates VirtualInstance entries
+     * (Server - guests mapping), looking up the existing VirtualInstances in the given map
+     * which is kept up to date with the changes.
+     * This function expect to always get a full list of guests running on the host
+     *
+     * @param server to be processed
+     * @param type - virtualization type to be set to the guests
+     * @param vms - guests to be mapped to this server
+     * @param optionalVmData - guests optional data
+     * @param instancesByUuid - VirtualInstances by uuid, see {@link #lookupGuestVirtualInstances}.
+     * Uuids missing from the map are looked up in the database.
+     */
+    public static void updateGuestsVirtualInstances(Server server, VirtualInstanceType type,
+            Map<String, String> vms, Map<String, Map<String, String>> optionalVmData,
+            Map<String, List<VirtualInstance>> instancesByUuid) {
         VirtualInstanceFactory vinst = VirtualInstanceFactory.getInstance();
-        List<String> uuidsToRemove = server.getGuests().stream().map(g -> g.getUuid())
-                .collect(Collectors.toList());
+        Set<String> uuidsToRemove = server.getGuests().stream()
+                .map(VirtualInstance::getUuid)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+        VirtualInstanceState unknownState = vinst.getUnknownState();
+        Map<String, VirtualInstanceState> states = new HashMap<>();
         vms.entrySet().stream().forEach(
                 vmEntry -> {
                     String name = vmEntry.getKey();
-                    String guid = vmEntry.getValue().replaceAll("-", "");
-
-                    guid = fixUuidIfSwappedUuidExists(guid);
+                    String guid = fixUuidIfSwappedUuidExists(vmEntry.getValue().replaceAll("-", ""),
+                            instancesByUuid);
                     uuidsToRemove.remove(guid);
                     List<VirtualInstance> virtualInstances =
-                            vinst.lookupVirtualInstanceByUuid(guid);
+                            instancesByUuid.computeIfAbsent(guid, vinst::lookupVirtualInstanceByUuid);
 
                     Map<String, String> vmData = optionalVmData.get(name);
                     VirtualInstanceState st = (vmData != null && vmData.get("vmState") != null) ?
-                            vinst.getState(vmData.get("vmState"))
-                                    .orElse(vinst.getUnknownState()) : vinst.getUnknownState();
+                            states.computeIfAbsent(vmData.get("vmState"),
+                                    label -> vinst.getState(label).orElse(unknownState)) : unknownState;
 
                     if (virtualInstances.isEmpty()) {
-                        addGuestVirtualInstance(guid, name, type, st, server, null);
+                        instancesByUuid.put(guid, new ArrayList<>(Collections.singletonList(
+                                createGuestVirtualInstance(guid, name, type, st, server, null, 0, 0))));
                     }
                     else {
-                        virtualInstances.stream().forEach(virtualInstance ->
-                            updateGuestVirtualInstance(virtualInstance, name, st, server,
-                                    virtualInstance.getGuestSystem()));
+                        instancesByUuid.put(guid, updateGuestVirtualInstances(virtualInstances, name, st, server));
                     }
                 });
 
         for (String uuid : uuidsToRemove) {
             List<VirtualInstance> virtualInstances =
-                    vinst.lookupVirtualInstanceByUuid(uuid);
+                    instancesByUuid.computeIfAbsent(uuid, vinst::lookupVirtualInstanceByUuid);
             virtualInstances.stream().forEach(virtualInstance -> {
                 deleteGuestVirtualInstance(virtualInstance);
             });
+            // registered guests are only unlinked from their host
+            instancesByUuid.put(uuid, virtualInstances.stream()
+                    .filter(VirtualInstance::isRegisteredGuest)
+                    .collect(Collectors.toList()));
         }
     }
 
+    /**
+     * Returns the VirtualInstances needed to update the guests of the given hosts with
+     * {@link #updateGuestsVirtualInstances(Server, VirtualInstanceType, Map, Map, Map)}: the current
+     * guests of the hosts and the instances matching the vms uuids, as reported or swapped.
+     *
+     * @param hosts - the hosts to be processed
+     * @param vmUuids - uuids of the vms reported for the hosts
+     * @return the VirtualInstances by uuid, with an empty list for the uuids without any instance
+     */
+    public static Map<String, List<VirtualInstance>> lookupGuestVirtualInstances(Collection<Server> hosts,
+            Collection<String> vmUuids) {
+        Set<String> uuids = new HashSet<>();
+        hosts.forEach(host -> host.getGuests().stream()
+                .map(VirtualInstance::getUuid)
+                .filter(Objects::nonNull)
+                .forEach(uuids::add));
+        vmUuids.forEach(vmUuid -> {
+            String uuid = vmUuid.replaceAll("-", "");
+            uuids.add(uuid);
+            try {
+                uuids.add(SaltUtils.uuidToLittleEndian(uuid));
+            }
+            catch (IllegalArgumentException e) {
+                // not a standard uuid, see fixUuidIfSwappedUuidExists
+            }
+        });
+        return VirtualInstanceFactory.getInstance().lookupVirtualInstancesByUuids(uuids);
+    }
+
+    // updateGuestVirtualInstance for all the instances of a uuid, without looking them up again
+    private static List<VirtualInstance> updateGuestVirtualInstances(List<VirtualInstance> virtualInstances,
+            String name, VirtualInstanceState state, Server host) {
+        List<VirtualInstance> result = new ArrayList<>();
+        for (int i = 0; i < virtualInstances.size(); i++) {
+            VirtualInstance virtualInstance = virtualInstances.get(i);
+            Server guest = virtualInstance.getGuestSystem();
+            int vCpus = virtualInstance.getNumberOfCPUs() != null ? virtualInstance.getNumberOfCPUs() : 0;
+            long memory = virtualInstance.getTotalMemory() != null ? virtualInstance.getTotalMemory() : 0;
+            // unregistered guests are kept as well when nothing changed, instead of being recreated
+            boolean unchanged = guest == null ?
+                    host.equals(virtualInstance.getHostSystem()) && name.equals(virtualInstance.getName()) &&
+                            state.equals(virtualInstance.getState()) :
+                    !isGuestVirtualInstanceChanged(virtualInstance, name, state, host, guest, vCpus, memory);
+            if (unchanged) {
+                result.add(virtualInstance);
+                continue;
+            }
+            VirtualInstanceFactory.getInstance().deleteVirtualInstanceOnly(virtualInstance);
+            // only recreate the last changed instance if no other one is left, like addGuestVirtualInstance
+            if (result.isEmpty() && i == virtualInstances.size() - 1) {
+                result.add(createGuestVirtualInstance(virtualInstance.getUuid(), name,
+                        virtualInstance.getType(), state, host, guest, vCpus, memory));
+            }
+        }
+        return result;
+    }
+
     /**
      * Remove a virtual instance from the database
      *
@@ -240,39 +331,7 @@ public class VirtualInstanceManager extends BaseManager {
                 .getInstance().lookupVirtualInstanceByUuid(vmGuid);
 
         if (virtualInstances.isEmpty()) {
-            VirtualInstance virtualInstance = new VirtualInstance();
-            virtualInstance.setUuid(vmGuid);
-            virtualInstance.setConfirmed(1L);
-
-            // Do we have a System with machineid matching the GUID that has no
-            // virtual instance?
-            if (guest == null) {
-                ServerFactory.findByMachineId(vmGuid)
-                    .ifPresent(system -> {
-                        if (system.getVirtualInstance() == null) {
-                            virtualInstance.setGuestSystem(system);
-                        }
-                    });
-            }
-            else {
-                virtualInstance.setGuestSystem(guest);
-            }
-
-            virtualInstance.setState(state);
-            virtualInstance.setName(name);
-            virtualInstance.setType(type);
-            virtualInstance.setNumberOfCPUs(vCpus);
-            virtualInstance.setTotalMemory(memory);
-
-            if (host != null) {
-                // will also set the hostSystem for virtualInstance when present
-                host.addGuest(virtualInstance);
-            }
-
-            VirtualInstanceFactory.getInstance()
-                    .saveVirtualInstance(virtualInstance);
-
-            VirtNotifications.spreadRefresh("guest");
+            createGuestVirtualInstance(vmGuid, name, type, state, host, guest, vCpus, memory);
         }
         else {
             log.warn("Preventing creation of a duplicated VirtualInstance " +
@@ -280,6 +339,45 @@ public class VirtualInstanceManager extends BaseManager {
         }
     }
 
+    private static VirtualInstance createGuestVirtualInstance(String vmGuid, String name,
+            VirtualInstanceType type, VirtualInstanceState state,
+            Server host, Server guest, int vCpus, long memory) {
+        VirtualInstance virtualInstance = new VirtualInstance();
+        virtualInstance.setUuid(vmGuid);
+        virtualInstance.setConfirmed(1L);
+
+        // Do we have a System with machineid matching the GUID that has no
+        // virtual instance?
+        if (guest == null) {
+            ServerFactory.findByMachineId(vmGuid)
+                .ifPresent(system -> {
+                    if (system.getVirtualInstance() == null) {
+                        virtualInstance.setGuestSystem(system);
+                    }
+                });
+        }
+        else {
+            virtualInstance.setGuestSystem(guest);
+        }
+
+        virtualInstance.setState(state);
+        virtualInstance.setName(name);
+        virtualInstance.setType(type);
+        virtualInstance.setNumberOfCPUs(vCpus);
+        virtualInstance.setTotalMemory(memory);
+
+        if (host != null) {
+            // will also set the hostSystem for virtualInstance when present
+            host.addGuest(virtualInstance);
+        }
+
+        VirtualInstanceFactory.getInstance()
+                .saveVirtualInstance(virtualInstance);
+
+        VirtNotifications.spreadRefresh("guest");
+        return virtualInstance;
+    }
+
     /**
      * Update mapping of given guest VirtualInstance to given (host) Server.
      * This method removes the old VirtualInstance and creates a new one.
@@ -321,18 +419,24 @@ public class VirtualInstanceManager extends BaseManager {
     public static void updateGuestVirtualInstance(VirtualInstance virtualInstance,
             String name, VirtualInstanceState state, Server host, Server guest,
             int vCpus, long memory) {
+        if (isGuestVirtualInstanceChanged(virtualInstance, name, state, host, guest, vCpus, memory)) {
+            VirtualInstanceFactory.getInstance().deleteVirtualInstanceOnly(virtualInstance);
+            addGuestVirtualInstance(virtualInstance.getUuid(), name,
+                    virtualInstance.getType(), state, host, guest, vCpus, memory);
+        }
+    }
+
+    private static boolean isGuestVirtualInstanceChanged(VirtualInstance virtualInstance,
+            String name, VirtualInstanceState state, Server host, Server guest,
+            int vCpus, long memory) {
         Server oldHost = virtualInstance.getHostSystem();
         Server oldGuest = virtualInstance.getGuestSystem();
-        if (oldHost == null || oldGuest == null ||
+        return oldHost == null || oldGuest == null ||
                 !oldHost.equals(host) || !oldGuest.equals(guest) ||
                 !name.equals(virtualInstance.getName()) ||
                 !virtualInstance.getState().equals(state) ||
                 !virtualInstance.getNumberOfCPUs().equals(vCpus) ||
-                !virtualInstance.getTotalMemory().equals(memory)) {
-            VirtualInstanceFactory.getInstance().deleteVirtualInstanceOnly(virtualInstance);
-            addGuestVirtualInstance(virtualInstance.getUuid(), name,
-                    virtualInstance.getType(), state, host, guest, vCpus, memory);
-        }
+                !virtualInstance.getTotalMemory().equals(memory);
     }
 
     /**
@@ -362,6 +466,19 @@ public class VirtualInstanceManager extends BaseManager {
      * @return Returns same uuid or swapped version if it exists as virtual instance
      */
     public static String fixUuidIfSwappedUuidExists(String uuid) {
+        return fixUuidIfSwappedUuidExists(uuid, new HashMap<>());
+    }
+
+    /**
+     * Return swapped uuid in case it already exists in a virtual instance, looking up the
+     * virtual instances in the given map first.
+     *
+     * @param uuid - virtual instance uuid
+     * @param instancesByUuid - VirtualInstances by uuid, completed with the uuids looked up
+     * @return Returns same uuid or swapped version if it exists as virtual instance
+     */
+    private static String fixUuidIfSwappedUuidExists(String uuid,
+            Map<String, List<VirtualInstance>> instancesByUuid) {
         // The uuid value for the VM might not be read properly as little endian,
         // so we always try to match it with the possible swapped version in case
         // it already exists in the database.
@@ -371,8 +488,8 @@ public class VirtualInstanceManager extends BaseManager {
         // In such cases, we don't check if a swapped version exists.
         try {
             String virtUuidSwapped = SaltUtils.uuidToLittleEndian(uuid);
-            if (!VirtualInstanceFactory.getInstance()
-                    .lookupVirtualInstanceByUuid(virtUuidSwapped).isEmpty()) {
+            if (!instancesByUuid.computeIfAbsent(virtUuidSwapped,
+                    VirtualInstanceFactory.getInstance()::lookupVirtualInstanceByUuid).isEmpty()) {
                 log.warn("Detected swapped UUID for a virtual instance: Coercing [" +
                         uuid + "] -> [" + virtUuidSwapped + "]");
                 return virtUuidSwapped;
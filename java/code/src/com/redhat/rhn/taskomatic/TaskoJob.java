@@ -26,6 +26,8 @@ import com.redhat.rhn.taskomatic.task.RhnJob;
 import com.redhat.rhn.taskomatic.task.RhnQueueJob;
 import com.redhat.rhn.taskomatic.task.TaskHelper;
 
+import com.suse.manager.metrics.TaskomaticMetrics;
+
 import org.apache.log4j.Logger;
 import org.quartz.Job;
 import org.quartz.JobExecutionContext;
@@ -114,12 +116,17 @@ public class TaskoJob implements Job {
         int count = tasks.get(task.getName());
         count++;
         tasks.put(task.getName(), count);
+        TaskomaticMetrics.INSTANCE.taskStarted(task.getName());
     }
 
-    private static synchronized void unmarkTaskRunning(TaskoTask task) {
+    private static synchronized void unmarkTaskRunning(TaskoTask task, String bunch, TaskoRun run,
+            Instant start) {
         int count = tasks.get(task.getName());
         count--;
         tasks.put(task.getName(), count);
+        String status = run == null ? TaskoRun.STATUS_FAILED : run.getStatus();
+        TaskomaticMetrics.INSTANCE.taskFinished(task.getName(), bunch, status, start,
+                TaskoRun.STATUS_FAILED.equals(status));
     }
 
     /**
@@ -138,9 +145,15 @@ public class TaskoJob implements Job {
         }
 
         Instant start = Instant.now();
+        String bunchName = schedule.getBunch().getName();
+        TaskomaticMetrics.INSTANCE.bunchStarted(bunchName, scheduleId,
+                context.getScheduledFireTime() == null ? null : context.getScheduledFireTime().toInstant(),
+                start);
         log.info(schedule.getJobLabel() + ":" + " bunch " + schedule.getBunch().getName() +
                 " STARTED");
 
+        // bunch runs whose tasks were all skipped or rescheduled are not recorded as finished runs
+        boolean anyTaskRan = false;
         for (TaskoTemplate template : schedule.getBunch().getTemplates()) {
             if ((previousRun == null) ||    // first run
                     (template.getStartIf() == null) ||  // do not care
@@ -151,6 +164,7 @@ public class TaskoJob implements Job {
                     if (isTaskRunning(task)) {
                         log.debug(schedule.getJobLabel() + ":" + " task " + task.getName() +
                                 " already running ... LEAVING");
+                        TaskomaticMetrics.INSTANCE.taskSkipped(task.getName());
                         previousRun = null;
                         continue;
                     }
@@ -161,17 +175,21 @@ public class TaskoJob implements Job {
                         int rescheduleSeconds = Config.get().getInt(rescheduleTimeKey,
                                 DEFAULT_RESCHEDULE_TIMES.getOrDefault(rescheduleTimeKey, 10));
                         log.info(schedule.getJobLabel() + " RESCHEDULED in " + rescheduleSeconds + " seconds");
+                        TaskomaticMetrics.INSTANCE.taskRescheduled(task.getName(), scheduleId);
                         TaskoQuartzHelper.rescheduleJob(schedule,
                                 ZonedDateTime.now().plusSeconds(rescheduleSeconds).toInstant());
                         continue;
                     }
                 }
                 markTaskRunning(task);
+                anyTaskRan = true;
+                Instant taskStart = Instant.now();
+                TaskoRun taskRun = null;
 
                 try {
                     log.debug(schedule.getJobLabel() + ":" + " task " + task.getName() +
                             " started");
-                    TaskoRun taskRun = new TaskoRun(schedule.getOrgId(), template, scheduleId);
+                    taskRun = new TaskoRun(schedule.getOrgId(), template, scheduleId);
                     TaskoFactory.save(taskRun);
                     HibernateFactory.commitTransaction();
                     HibernateFactory.closeSession();
@@ -191,6 +209,7 @@ public class TaskoJob implements Job {
                         HibernateFactory.closeSession();
                         // log the exception properly to the rhn_taskomatic_daemon.log log
                         e.printStackTrace();
+                        TaskomaticMetrics.INSTANCE.bunchFinished(bunchName, start);
                         return;
                     }
 
@@ -236,7 +255,7 @@ public class TaskoJob implements Job {
                     previousRun = taskRun;
                 }
                 finally {
-                    unmarkTaskRunning(task);
+                    unmarkTaskRunning(task, bunchName, taskRun, taskStart);
                 }
             }
             else {
@@ -246,6 +265,12 @@ public class TaskoJob implements Job {
             }
         }
         HibernateFactory.closeSession();
+        if (anyTaskRan) {
+            TaskomaticMetrics.INSTANCE.bunchFinished(bunchName, start);
+        }
+        else {
+            TaskomaticMetrics.INSTANCE.bunchIdle(bunchName);
+        }
         log.info(schedule.getJobLabel() + ":" + " bunch " + schedule.getBunch().getName() +
                 " FINISHED");
         log.debug(schedule.getJobLabel() + ":" + " bunch " + schedule.getBunch().getName() +
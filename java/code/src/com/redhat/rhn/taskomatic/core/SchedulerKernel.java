@@ -115,6 +115,9 @@ public class SchedulerKernel {
 
             PrometheusExporter.INSTANCE.startHttpServer();
             PrometheusExporter.INSTANCE.registerScheduler(SchedulerKernel.scheduler, "taskomatic");
+            PrometheusExporter.INSTANCE.registerPillarMetrics();
+            PrometheusExporter.INSTANCE.registerErrataCacheMetrics();
+            PrometheusExporter.INSTANCE.registerReportMailMetrics();
         }
         catch (SchedulerException e) {
             e.printStackTrace();
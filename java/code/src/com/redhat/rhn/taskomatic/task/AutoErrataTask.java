@@ -22,15 +22,32 @@ import com.redhat.rhn.domain.errata.Errata;
 import com.redhat.rhn.domain.errata.ErrataFactory;
 import com.redhat.rhn.domain.org.Org;
 import com.redhat.rhn.domain.org.OrgFactory;
+import com.redhat.rhn.domain.server.MinionIds;
+import com.redhat.rhn.domain.server.MinionServerFactory;
+import com.redhat.rhn.domain.server.ServerFactory;
 import com.redhat.rhn.manager.action.ActionManager;
+import com.redhat.rhn.manager.errata.ErrataManager;
+
+import com.suse.manager.maintenance.MaintenanceManager;
 
 import org.quartz.JobExecutionContext;
 import org.quartz.JobExecutionException;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Queue;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import static java.util.stream.Collectors.partitioningBy;
+import static java.util.stream.Collectors.toList;
+import static java.util.stream.Collectors.toSet;
 
 /**
  * This is what automatically schedules automatic errata update actions.
@@ -44,11 +61,17 @@ import java.util.Queue;
  * ready or something, as now they'll just be scheduled the next time this job runs
  * after the errata cache is done.
  *
+ * Systems of the same org needing the same errata share one action, so that a large errata
+ * import does not create and trigger one action per system and erratum. Systems outside of
+ * their maintenance window are left for a later run.
+ *
  * @version $Rev.$
  */
 
 public class AutoErrataTask extends RhnJavaJob {
 
+    private static MaintenanceManager maintenanceManager = new MaintenanceManager();
+
     private Queue<Action> actionsToSchedule = new LinkedList<>();
 
     /**
@@ -69,31 +92,97 @@ public class AutoErrataTask extends RhnJavaJob {
             log.debug("=== Scheduling " + results.size() + " auto errata updates");
         }
 
+        // errata ids to apply by server id, by org id
+        Map<Long, Map<Long, List<Long>>> orgServerErrata = new LinkedHashMap<>();
         for (Map<String, Long> result : results) {
-            Long errataId = result.get("errata_id");
-            Long serverId = result.get("server_id");
-            Long orgId = result.get("org_id");
+            orgServerErrata.computeIfAbsent(result.get("org_id"), oid -> new LinkedHashMap<>())
+                    .computeIfAbsent(result.get("server_id"), sid -> new ArrayList<>())
+                    .add(result.get("errata_id"));
+        }
+
+        Map<Long, Errata> errataMap = new HashMap<>();
+        for (Map.Entry<Long, Map<Long, List<Long>>> orgEntry : orgServerErrata.entrySet()) {
+            Long orgId = orgEntry.getKey();
+            List<Long> errataIds = null;
             try {
-                Errata errata = ErrataFactory.lookupErrataById(errataId);
                 Org org = OrgFactory.lookupById(orgId);
-                ErrataAction errataAction = ActionManager.
-                        createErrataAction(org, errata);
-                ActionManager.addServerToAction(serverId, errataAction);
-                ActionManager.storeAction(errataAction);
-                actionsToSchedule.add(errataAction);
+                orgEntry.getValue().values().stream().flatMap(List::stream).forEach(eid ->
+                        errataMap.computeIfAbsent(eid, ErrataFactory::lookupErrataById));
+
+                for (Map.Entry<List<Long>, List<Long>> target :
+                        groupServersByErrata(orgEntry.getValue(), errataMap).entrySet()) {
+                    errataIds = target.getKey();
+                    List<Errata> errata = errataIds.stream().map(errataMap::get).collect(toList());
+                    ErrataAction errataAction = ActionManager.createErrataAction(org, errata.get(0));
+                    errata.stream().skip(1).forEach(errataAction::addErrata);
+                    boolean updateStack = errata.stream().anyMatch(erratum -> erratum.hasKeyword("restart_suggested"));
+                    if (errata.size() > 1 || updateStack) {
+                        errataAction.setName(ErrataManager.getErrataName(errata, updateStack));
+                    }
+
+                    // systems outside of their maintenance window get the errata in a later run
+                    List<Long> serverIds = maintenanceManager.systemIdsAllowingAction(target.getValue(),
+                            errataAction);
+                    if (serverIds.isEmpty()) {
+                        continue;
+                    }
+                    ActionManager.storeAction(errataAction);
+                    ActionManager.addServersToAction(errataAction, serverIds);
+                    actionsToSchedule.add(errataAction);
+                    if (log.isDebugEnabled()) {
+                        log.debug("Scheduling auto update actions for servers " + serverIds +
+                                " and errata " + errataIds);
+                    }
+                }
             }
             catch (Exception e) {
-                log.error("Errata: " + errataId + ", Org Id: " + orgId + ", Server: " +
-                        serverId, e);
+                log.error("Errata: " + errataIds + ", Org Id: " + orgId, e);
                 throw new JobExecutionException(e);
             }
-            if (log.isDebugEnabled()) {
-                log.debug("Scheduling auto update actions for server " + serverId +
-                        " and erratum " + errataId);
-            }
         }
     }
 
+    /**
+     * Groups the servers of an org by the errata to apply on them, so that a single action is
+     * created for each group. As in {@link ErrataManager#applyErrata}, minions get all their errata
+     * in one action, traditional clients using Zypper get update stack errata and other errata in
+     * separate actions and other traditional clients get one action per erratum.
+     *
+     * @param serverErrata the ids of the errata to apply, by server id
+     * @param errataMap the errata, by id
+     * @return the ids of the target servers, by list of errata ids
+     */
+    private Map<List<Long>, List<Long>> groupServersByErrata(Map<Long, List<Long>> serverErrata,
+            Map<Long, Errata> errataMap) {
+        Set<Long> minions = MinionServerFactory.findMinionIdsByServerIds(new ArrayList<>(serverErrata.keySet()))
+                .stream()
+                .map(MinionIds::getServerId)
+                .collect(toSet());
+        Set<Long> nonZypperTradClients = new HashSet<>(
+                ServerFactory.findNonZypperTradClientsIds(serverErrata.keySet()));
+
+        Map<List<Long>, List<Long>> targets = new LinkedHashMap<>();
+        serverErrata.forEach((sid, errataIds) -> {
+            Collections.sort(errataIds);
+            List<List<Long>> errataLists;
+            if (minions.contains(sid)) {
+                errataLists = Collections.singletonList(errataIds);
+            }
+            else if (nonZypperTradClients.contains(sid)) {
+                errataLists = errataIds.stream().map(Collections::singletonList).collect(toList());
+            }
+            else {
+                Map<Boolean, List<Long>> byUpdateStack = errataIds.stream()
+                        .collect(partitioningBy(eid -> errataMap.get(eid).hasKeyword("restart_suggested")));
+                errataLists = Stream.of(byUpdateStack.get(true), byUpdateStack.get(false))
+                        .filter(eids -> !eids.isEmpty())
+                        .collect(toList());
+            }
+            errataLists.forEach(eids -> targets.computeIfAbsent(eids, k -> new ArrayList<>()).add(sid));
+        });
+        return targets;
+    }
+
     /**
      * The brains of the operation resides in this query. The query logic is:
      * Find all errata-server combinations where:
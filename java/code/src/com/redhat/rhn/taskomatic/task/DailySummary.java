@@ -27,12 +27,15 @@ import com.redhat.rhn.frontend.dto.AwolServer;
 import com.redhat.rhn.frontend.dto.OrgIdWrapper;
 import com.redhat.rhn.frontend.dto.ReportingUser;
 
+import com.suse.manager.metrics.ReportMailMetrics;
 import com.suse.manager.utils.MailHelper;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.time.StopWatch;
 import org.quartz.JobExecutionContext;
 import org.quartz.JobExecutionException;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Iterator;
@@ -40,6 +43,7 @@ import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
+import java.util.stream.Collectors;
 
 /**
  * DailySummary task.
@@ -63,35 +67,50 @@ public class DailySummary extends RhnJavaJob {
         SelectMode m = ModeFactory.getMode(TaskConstants.MODE_NAME,
                 TaskConstants.TASK_QUERY_DAILY_SUMMARY_QUEUE);
         List results = m.execute();
+        if (results.isEmpty()) {
+            return;
+        }
 
+        // the dry run actions are not filtered by user, they are the same for all the orgs
+        List<ActionMessage> dryRunActions = getDryRunActionInfo();
 
         OrgIdWrapper oiw = null;
-        for (Iterator itr = results.iterator(); itr.hasNext();) {
-            try {
-                oiw = (OrgIdWrapper) itr.next();
-                if (log.isDebugEnabled()) {
-                    log.debug("dealing with org: " + oiw.toLong());
-                }
-                queueOrgEmails(oiw.toLong());
-            }
-            catch (Exception e) {
-                log.error(e.getMessage(), e);
-            }
-            finally {
+        try (MailHelper mailer = createMailHelper()) {
+            for (Iterator itr = results.iterator(); itr.hasNext();) {
                 try {
-                    dequeueOrg(oiw.toLong());
+                    oiw = (OrgIdWrapper) itr.next();
                     if (log.isDebugEnabled()) {
-                        log.debug("org " + oiw.toLong() + " removed from queue");
+                        log.debug("dealing with org: " + oiw.toLong());
                     }
+                    queueOrgEmails(oiw.toLong(), dryRunActions, mailer);
+                }
+                catch (Exception e) {
+                    log.error(e.getMessage(), e);
                 }
                 finally {
-                    HibernateFactory.commitTransaction();
-                    HibernateFactory.closeSession();
+                    try {
+                        dequeueOrg(oiw.toLong());
+                        if (log.isDebugEnabled()) {
+                            log.debug("org " + oiw.toLong() + " removed from queue");
+                        }
+                    }
+                    finally {
+                        HibernateFactory.commitTransaction();
+                        HibernateFactory.closeSession();
+                    }
                 }
             }
         }
     }
 
+    /**
+     * Creates the mail helper used to send all the emails of a run.
+     * @return the mail helper
+     */
+    protected MailHelper createMailHelper() {
+        return MailHelper.withSmtpConnection();
+    }
+
     /**
      * DO NOT CALL FROM OUTSIDE THIS CLASS. Removes the orgs from the queue
      * table.
@@ -108,10 +127,14 @@ public class DailySummary extends RhnJavaJob {
 
     /**
      * DO NOT CALL FROM OUTSIDE THIS CLASS. Queues up the Org Emails for
-     * mailing.
+     * mailing. The awol servers and the recent actions of all the users of the
+     * org are queried at once and then split by user.
      * @param orgId Org Id to be processed.
+     * @param dryRunActions recent dry run actions, reported to all the users
+     * @param mailer the mail helper used to send the emails
      */
-    public void queueOrgEmails(Long orgId) {
+    public void queueOrgEmails(Long orgId, List<ActionMessage> dryRunActions,
+            MailHelper mailer) {
         SelectMode m = ModeFactory.getMode(TaskConstants.MODE_NAME,
                 TaskConstants.TASK_QUERY_USERS_WANTING_REPORTS);
         Map<String, Object> params = new HashMap<String, Object>();
@@ -119,30 +142,46 @@ public class DailySummary extends RhnJavaJob {
 
         StopWatch watch = new StopWatch();
         watch.start();
-        List users = m.execute(params);
-        for (Iterator itr = users.iterator(); itr.hasNext();) {
-            ReportingUser ru = (ReportingUser) itr.next();
-            // run_user
-            List awol = getAwolServers(ru.idAsLong());
-            // send email
-            List actions = getActionInfo(ru.idAsLong());
-            if ((awol == null || awol.size() == 0) && (actions == null ||
-                    actions.size() == 0)) {
+        List<ReportingUser> users = m.execute(params);
+        if (users.isEmpty()) {
+            return;
+        }
+        Map<Long, List<AwolServer>> awolByUser = getAwolServers(orgId);
+        Map<Long, List<ActionMessage>> actionsByUser = getActionInfo(orgId);
+        ReportMailMetrics.INSTANCE.queried(ReportMailMetrics.DAILY_SUMMARY, watch.getTime());
+
+        // the parts of the email which do not depend on the user
+        LocalizationService ls = LocalizationService.getInstance();
+        Date now = new Date();
+        String subject = ls.getMessage("dailysummary.email.subject", ls.formatShortDate(now));
+        String date = ls.formatDate(now);
+
+        for (ReportingUser ru : users) {
+            List<AwolServer> awol = awolByUser.getOrDefault(ru.idAsLong(),
+                    Collections.emptyList());
+            List<ActionMessage> actions = new ArrayList<>(
+                    actionsByUser.getOrDefault(ru.idAsLong(), Collections.emptyList()));
+            actions.addAll(dryRunActions);
+            if (awol.isEmpty() && actions.isEmpty()) {
                 log.debug("Skipping ORG " + orgId + " because daily summary info has " +
                         "changed");
                 continue;
             }
 
+            long start = watch.getTime();
             String awolMsg = renderAwolServersMessage(awol);
             String actionMsg = renderActionsMessage(actions);
+            String emailMsg = prepareEmail(ru.getLogin(), ru.getAddress(), date, awolMsg, actionMsg);
+            long rendered = watch.getTime();
+            ReportMailMetrics.INSTANCE.rendered(ReportMailMetrics.DAILY_SUMMARY, rendered - start);
 
-            String emailMsg = prepareEmail(
-                    ru.getLogin(), ru.getAddress(), awolMsg, actionMsg);
-
-            LocalizationService ls = LocalizationService.getInstance();
-            String subject = ls.getMessage(
-                    "dailysummary.email.subject", ls.formatShortDate(new Date()));
-            MailHelper.withSmtp().sendEmail(ru.getAddress(), subject, emailMsg);
+            if (mailer.sendEmail(ru.getAddress(), subject, emailMsg)) {
+                ReportMailMetrics.INSTANCE.mailSent(ReportMailMetrics.DAILY_SUMMARY,
+                        watch.getTime() - rendered);
+            }
+            else {
+                ReportMailMetrics.INSTANCE.mailFailed(ReportMailMetrics.DAILY_SUMMARY);
+            }
         }
         watch.stop();
         if (log.isDebugEnabled()) {
@@ -152,33 +191,47 @@ public class DailySummary extends RhnJavaJob {
     }
 
     /**
-     * DO NOT CALL FROM OUTSIDE THIS CLASS. Returns the list of awol servers.
-     * @param uid User id whose awol servers are sought.
-     * @return the list of recent awol servers.
+     * DO NOT CALL FROM OUTSIDE THIS CLASS. Returns the awol servers of the
+     * users of an org wanting reports.
+     * @param orgId Org id whose awol servers are sought.
+     * @return the recent awol servers by user id.
      */
-    public List getAwolServers(Long uid) {
+    public Map<Long, List<AwolServer>> getAwolServers(Long orgId) {
         SelectMode m = ModeFactory.getMode(TaskConstants.MODE_NAME,
-                TaskConstants.TASK_QUERY_USERS_AWOL_SERVERS);
+                TaskConstants.TASK_QUERY_USERS_AWOL_SERVERS_IN_ORG);
         Map<String, Object> params = new HashMap<String, Object>();
-        params.put("user_id", uid);
+        params.put("org_id", orgId);
         params.put("checkin_threshold",
                 Config.get().getInteger(ConfigDefaults.SYSTEM_CHECKIN_THRESHOLD));
 
-        return m.execute(params);
+        List<AwolServer> servers = m.execute(params);
+        return servers.stream().collect(Collectors.groupingBy(AwolServer::getUserId));
     }
 
     /**
-     * DO NOT CALL FROM OUTSIDE THIS CLASS. Returns the list of recent actions.
-     * @param uid User id whose recent actions are sought.
-     * @return the list of recent actions.
+     * DO NOT CALL FROM OUTSIDE THIS CLASS. Returns the recent actions of the
+     * users of an org wanting reports.
+     * @param orgId Org id whose recent actions are sought.
+     * @return the recent actions by user id.
      */
-    public List getActionInfo(Long uid) {
+    public Map<Long, List<ActionMessage>> getActionInfo(Long orgId) {
         SelectMode m = ModeFactory.getMode(TaskConstants.MODE_NAME,
-                TaskConstants.TASK_QUERY_GET_ACTION_INFO);
+                TaskConstants.TASK_QUERY_GET_ACTION_INFO_IN_ORG);
         Map<String, Object> params = new HashMap<String, Object>();
-        params.put("user_id", uid);
+        params.put("org_id", orgId);
+
+        List<ActionMessage> actions = m.execute(params);
+        return actions.stream().collect(Collectors.groupingBy(ActionMessage::getUserId));
+    }
 
-        return m.execute(params);
+    /**
+     * DO NOT CALL FROM OUTSIDE THIS CLASS. Returns the recent dry run actions.
+     * @return the list of recent dry run actions.
+     */
+    public List<ActionMessage> getDryRunActionInfo() {
+        SelectMode m = ModeFactory.getMode(TaskConstants.MODE_NAME,
+                TaskConstants.TASK_QUERY_GET_DRY_RUN_ACTION_INFO);
+        return m.execute();
     }
 
     /**
@@ -388,17 +441,18 @@ public class DailySummary extends RhnJavaJob {
      * DO NOT CALL FROM OUTSIDE THIS CLASS. Prepares the email message string
      * @param login users login
      * @param email email address
+     * @param date the formatted date of the report
      * @param awolMsg the awol servers msg
      * @param actionMsg the recent actions message
      * @return the email message string
      */
-    public String prepareEmail(
-            String login, String email, String awolMsg, String actionMsg) {
+    public String prepareEmail(String login, String email, String date,
+            String awolMsg, String actionMsg) {
 
         LocalizationService ls = LocalizationService.getInstance();
         String[] args = new String[7];
         args[0] = login;
-        args[1] = ls.formatDate(new Date());
+        args[1] = date;
         args[2] = actionMsg;
         args[3] = awolMsg;
         args[4] = getHostname();
@@ -25,8 +25,10 @@ import com.redhat.rhn.common.messaging.JavaMailException;
 import com.redhat.rhn.domain.errata.Errata;
 import com.redhat.rhn.domain.org.OrgFactory;
 
+import com.suse.manager.metrics.ReportMailMetrics;
 import com.suse.manager.utils.MailHelper;
 import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.time.StopWatch;
 import org.quartz.JobExecutionContext;
 import org.quartz.JobExecutionException;
 
@@ -35,8 +37,10 @@ import java.io.StringWriter;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.stream.Collectors;
 
 /**
  * This is a port of the ErrataEngine taskomatic task
@@ -59,27 +63,21 @@ public class ErrataMailer extends RhnJavaJob {
             if (log.isDebugEnabled()) {
                 log.debug("=== Queued up " + results.size() + " patches");
             }
+            // the channels of each erratum by org: users get one mail per erratum, whatever the
+            // number of channels it was queued for
+            Map<Long, Map<Long, List<Long>>> channelsByErrata = new LinkedHashMap<>();
+            Map<Long, Boolean> emailsEnabledByOrg = new HashMap<>();
             for (Iterator iter = results.iterator(); iter.hasNext();) {
                 Map row = (Map) iter.next();
                 Long errataId = (Long) row.get("errata_id");
                 Long orgId = (Long) row.get("org_id");
                 Long channelId = (Long) row.get("channel_id");
                 markErrataDone(errataId, orgId, channelId);
-                if (OrgFactory.lookupById(orgId).getOrgConfig().isErrataEmailsEnabled()) {
-                    if (log.isDebugEnabled()) {
-                        log.debug("Processing patch " + errataId +
-                                " for org " + orgId);
-                    }
-                    try {
-                        sendEmails(errataId, orgId, channelId);
-                        if (log.isDebugEnabled()) {
-                            log.debug("Finished patch " + errataId +
-                                    " for org " + orgId);
-                        }
-                    }
-                    catch (JavaMailException e) {
-                        log.error("Error sending mail", e);
-                    }
+                if (emailsEnabledByOrg.computeIfAbsent(orgId,
+                        id -> OrgFactory.lookupById(id).getOrgConfig().isErrataEmailsEnabled())) {
+                    channelsByErrata.computeIfAbsent(errataId, id -> new LinkedHashMap<>())
+                            .computeIfAbsent(orgId, id -> new ArrayList<>())
+                            .add(channelId);
                 }
                 else {
                     if (log.isDebugEnabled()) {
@@ -88,9 +86,41 @@ public class ErrataMailer extends RhnJavaJob {
                     }
                 }
             }
+
+            Map<Long, Map> userInfos = new HashMap<>();
+            try (MailHelper mailer = createMailHelper()) {
+                for (Map.Entry<Long, Map<Long, List<Long>>> errataEntry : channelsByErrata.entrySet()) {
+                    Long errataId = errataEntry.getKey();
+                    for (Map.Entry<Long, List<Long>> orgEntry : errataEntry.getValue().entrySet()) {
+                        Long orgId = orgEntry.getKey();
+                        if (log.isDebugEnabled()) {
+                            log.debug("Processing patch " + errataId +
+                                    " for org " + orgId);
+                        }
+                        try {
+                            sendEmails(errataId, orgId, orgEntry.getValue(), userInfos, mailer);
+                            if (log.isDebugEnabled()) {
+                                log.debug("Finished patch " + errataId +
+                                        " for org " + orgId);
+                            }
+                        }
+                        catch (JavaMailException e) {
+                            log.error("Error sending mail", e);
+                        }
+                    }
+                }
+            }
         }
     }
 
+    /**
+     * Creates the mail helper used to send all the emails of a run.
+     * @return the mail helper
+     */
+    protected MailHelper createMailHelper() {
+        return MailHelper.withSmtpConnection();
+    }
+
     protected List getErrataToProcess() {
         SelectMode select = ModeFactory.getMode(TaskConstants.MODE_NAME,
                 TaskConstants.TASK_QUERY_ERRATAMAILER_FIND_ERRATA);
@@ -114,38 +144,71 @@ public class ErrataMailer extends RhnJavaJob {
         }
     }
 
-    private void sendEmails(Long errataId, Long orgId, Long channelId) {
+    private void sendEmails(Long errataId, Long orgId, List<Long> channelIds,
+            Map<Long, Map> userInfos, MailHelper mailer) {
         Errata errata = (Errata) HibernateFactory.getSession().load(Errata.class,
                 errataId);
-        List orgServers = getOrgRelevantServers(errataId, orgId, channelId);
+        StopWatch watch = new StopWatch();
+        watch.start();
+        List orgServers = getOrgRelevantServers(errataId, orgId, channelIds);
 
         if (orgServers == null || orgServers.size() == 0) {
             log.debug("No relevant servers found for patch " + errata.getId() +
-                    " in channel " + channelId + " for org " + orgId +
+                    " in channels " + channelIds + " for org " + orgId +
                     " ... skipping.");
             return;
         }
 
         Map<Long, List> userMap = createUserEmailMap(orgServers);
+        List<Long> unknownUserIds = userMap.keySet().stream()
+                .filter(userId -> !userInfos.containsKey(userId))
+                .collect(Collectors.toList());
+        if (!unknownUserIds.isEmpty()) {
+            for (Object row : getUserInfo(unknownUserIds)) {
+                Map userInfo = (Map) row;
+                userInfos.put((Long) userInfo.get("id"), userInfo);
+            }
+        }
+        ReportMailMetrics.INSTANCE.queried(ReportMailMetrics.ERRATA_MAILER, watch.getTime());
 
         log.info("Found " + userMap.keySet().size() + " user(s) to notify about erratum " +
-                errata.getId() + " in channel " + channelId + " for org " + orgId + ".");
+                errata.getId() + " in channels " + channelIds + " for org " + orgId + ".");
+
+        // the parts of the email which do not depend on the user
+        String host = "https://" + ConfigDefaults.get().getHostname();
+        String summary = getEmailBodySummary(errata, host);
+        StringBuffer subject = new StringBuffer();
+        subject.append(Config.get().getString("web.product_name") + " Patch Alert: ");
+        subject.append(errata.getAdvisory()).append(" - ");
+        subject.append(errata.getSynopsis());
 
         for (Long userId : userMap.keySet()) {
-            Map userInfo = getUserInfo(userId);
+            Map userInfo = userInfos.get(userId);
+            if (userInfo == null) {
+                log.warn("User " + userId + " to notify about erratum " + errata.getId() +
+                        " not found ... skipping.");
+                continue;
+            }
             String email = (String) userInfo.get("email");
             String login = (String) userInfo.get("login");
             List servers = userMap.get(userId);
             log.info("Notification for user " + login + "(" + userId + ") about " +
                     servers.size()  + " relevant server(s).");
-            String emailBody = formatEmail(login, email, errata, servers);
-            StringBuffer subject = new StringBuffer();
-            subject.append(Config.get().getString("web.product_name") + " Patch Alert: ");
-            subject.append(errata.getAdvisory()).append(" - ");
-            subject.append(errata.getSynopsis());
+            long start = watch.getTime();
+            String emailBody = formatEmail(login, email, host, summary, servers);
+            long rendered = watch.getTime();
+            ReportMailMetrics.INSTANCE.rendered(ReportMailMetrics.ERRATA_MAILER, rendered - start);
+
             String rhnHeader = "Autogenerated mail for " + login;
-            MailHelper.withSmtp().addRhnHeader(rhnHeader).sendEmail(email, subject.toString(), emailBody);
+            if (mailer.addRhnHeader(rhnHeader).sendEmail(email, subject.toString(), emailBody)) {
+                ReportMailMetrics.INSTANCE.mailSent(ReportMailMetrics.ERRATA_MAILER,
+                        watch.getTime() - rendered);
+            }
+            else {
+                ReportMailMetrics.INSTANCE.mailFailed(ReportMailMetrics.ERRATA_MAILER);
+            }
         }
+        watch.stop();
     }
 
     private Map createUserEmailMap(List orgServersIn) {
@@ -162,35 +225,30 @@ public class ErrataMailer extends RhnJavaJob {
         return map;
     }
 
-    private Map getUserInfo(Long userId) {
+    private List getUserInfo(List<Long> userIds) {
         SelectMode mode = ModeFactory.getMode(TaskConstants.MODE_NAME,
-                TaskConstants.TASK_QUERY_ERRATAMAILER_GET_USERINFO);
-        Map<String, Object> params = new HashMap<String, Object>();
-        params.put("user_id", userId);
-        return (Map) mode.execute(params).get(0);
+                TaskConstants.TASK_QUERY_ERRATAMAILER_GET_USERINFO_BY_IDS);
+        return mode.execute(userIds);
     }
 
-    protected List getOrgRelevantServers(Long errataId, Long orgId, Long channelId) {
+    protected List getOrgRelevantServers(Long errataId, Long orgId, List<Long> channelIds) {
         SelectMode mode = ModeFactory.getMode(TaskConstants.MODE_NAME,
-                TaskConstants.TASK_QUERY_ERRATAMAILER_GET_RELEVANT_SERVERS);
+                TaskConstants.TASK_QUERY_ERRATAMAILER_GET_RELEVANT_SERVERS_IN_CHANNELS);
         Map<String, Object> params = new HashMap<String, Object>();
         params.put("errata_id", errataId);
         params.put("org_id", orgId);
-        params.put("channel_id", channelId);
-        return mode.execute(params);
+        return mode.execute(params, channelIds);
     }
 
     private String formatEmail(String login,
             String email,
-            Errata errata,
+            String host,
+            String summary,
             List servers) {
         StringBuilder body = new StringBuilder();
 
-        //Build the hostname with protocol. Used to create urls for the email.
-        String host = "https://" + ConfigDefaults.get().getHostname();
-
         //Build the email body
-        body.append(getEmailBodySummary(errata, host));
+        body.append(summary);
         body.append("\n").append("\n");
         body.append(getEmailBodyAffectedSystems(host, servers));
         body.append("\n").append("\n");
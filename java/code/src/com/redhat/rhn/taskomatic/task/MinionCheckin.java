@@ -15,6 +15,8 @@
 package com.redhat.rhn.taskomatic.task;
 
 import com.redhat.rhn.GlobalInstanceHolder;
+import com.redhat.rhn.common.conf.Config;
+import com.redhat.rhn.common.conf.ConfigDefaults;
 import com.redhat.rhn.taskomatic.task.checkin.CheckinCandidatesResolver;
 import com.redhat.rhn.taskomatic.task.checkin.SystemSummary;
 
@@ -22,7 +24,18 @@ import com.suse.manager.webui.services.iface.SaltApi;
 import com.suse.salt.netapi.datatypes.target.MinionList;
 import com.suse.salt.netapi.exception.SaltException;
 
+import org.apache.commons.lang3.concurrent.BasicThreadFactory;
+import org.apache.log4j.Logger;
+
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 import org.quartz.JobExecutionContext;
@@ -30,9 +43,32 @@ import org.quartz.JobExecutionContext;
 
 /**
  * Perform a regular check-in on minions.
+ *
+ * Instead of contacting all the candidates at once, the candidates are split into batches by a hash of their
+ * minion id and the batches are spread over the check-in window, each with a random jitter. This avoids a
+ * burst of Salt calls and of the matching returns in the event stream on large installations. Batches without
+ * candidates are skipped. Minions whose batch was not sent yet are not scheduled again by the following runs,
+ * also when the window is longer than the interval between the runs. The candidates are queried once per run.
  */
 public class MinionCheckin extends RhnJavaJob {
 
+    private static final Logger LOG = Logger.getLogger(MinionCheckin.class);
+
+    private static final int DEFAULT_WINDOW = 2700;
+    private static final int DEFAULT_BATCHES = 45;
+    // several threads, so that a slow Salt API call does not delay the following batches
+    private static final int SCHEDULER_THREADS = 4;
+
+    private static final ScheduledExecutorService SCHEDULER = Executors.newScheduledThreadPool(SCHEDULER_THREADS,
+            new BasicThreadFactory.Builder().namingPattern("minion-checkin-%d").daemon(true).build());
+
+    // Minions whose check-in is scheduled but not sent yet
+    private static final Set<String> PENDING = ConcurrentHashMap.newKeySet();
+
+    static {
+        Runtime.getRuntime().addShutdownHook(new Thread(MinionCheckin::shutdown, "minion-checkin-shutdown"));
+    }
+
     private SaltApi saltApi = GlobalInstanceHolder.SALT_API;
 
     /**
@@ -45,15 +81,79 @@ public class MinionCheckin extends RhnJavaJob {
             log.debug("Perform checkin on regular minions");
         }
 
-        List<String> minionIds = this.findCheckinCandidatesIds();
+        List<String> minionIds = this.findCheckinCandidatesIds().stream()
+                .filter(minionId -> !PENDING.contains(minionId))
+                .collect(Collectors.toList());
+        if (minionIds.isEmpty()) {
+            return;
+        }
+
+        long windowMillis = TimeUnit.SECONDS.toMillis(
+                Config.get().getInt(ConfigDefaults.MINION_CHECKIN_WINDOW, DEFAULT_WINDOW));
+        // the batch of a minion only depends on the configured number of batches and not on the number of
+        // candidates, batches without any candidate are simply not scheduled
+        int batches = Math.max(1, Config.get().getInt(ConfigDefaults.MINION_CHECKIN_BATCHES, DEFAULT_BATCHES));
+        long sliceMillis = windowMillis / batches;
+
+        Map<Integer, List<String>> minionIdsByBatch = minionIds.stream()
+                .collect(Collectors.groupingBy(minionId -> getBatch(minionId, batches), TreeMap::new,
+                        Collectors.toList()));
+        log.info("Scheduling the checkin of " + minionIds.size() + " regular minions in " +
+                minionIdsByBatch.size() + " batches over " + windowMillis / 1000 + " seconds");
+
+        minionIdsByBatch.forEach((batch, batchMinionIds) -> {
+            long jitter = sliceMillis > 0 ? ThreadLocalRandom.current().nextLong(sliceMillis) : 0;
+            PENDING.addAll(batchMinionIds);
+            schedule(() -> checkIn(batchMinionIds), batch * sliceMillis + jitter);
+        });
+    }
+
+    /**
+     * Returns the batch a minion falls in. It only depends on the minion id and on the configured number of
+     * batches, so that the interval between the check-ins of a minion stays stable across the runs.
+     *
+     * @param minionId the minion id
+     * @param batches the number of batches
+     * @return the batch, between 0 and batches - 1
+     */
+    public static int getBatch(String minionId, int batches) {
+        return Math.floorMod(minionId.hashCode(), batches);
+    }
+
+    /**
+     * Schedules the check-in of a batch of minions.
+     *
+     * @param checkIn the check-in of the batch
+     * @param delayMillis the delay before the check-in in milliseconds
+     */
+    protected void schedule(Runnable checkIn, long delayMillis) {
+        SCHEDULER.schedule(checkIn, delayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    // Performs the check-in of a batch of minions
+    private void checkIn(List<String> minionIds) {
         try {
-            if (!minionIds.isEmpty()) {
-                this.saltApi.checkIn(new MinionList(minionIds));
-            }
+            this.saltApi.checkIn(new MinionList(minionIds));
         }
         catch (SaltException e) {
             log.warn(String.format("Unable to perform checkin on regular minions: %s", e.getMessage()));
         }
+        catch (RuntimeException e) {
+            log.error("Unable to perform checkin on regular minions", e);
+        }
+        finally {
+            PENDING.removeAll(minionIds);
+        }
+    }
+
+    // The scheduled batches are only kept in memory: report the minions whose check-in is dropped. As they
+    // did not check in, they are candidates again for the first run after the restart.
+    private static void shutdown() {
+        int count = PENDING.size();
+        if (count > 0) {
+            LOG.warn("Dropping the scheduled checkin of " + count + " regular minions at shutdown, " +
+                    "they are checked in by the next run");
+        }
     }
 
     /**
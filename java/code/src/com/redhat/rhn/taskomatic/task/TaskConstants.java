@@ -107,22 +107,24 @@ public class TaskConstants {
     public static final String TASK_QUERY_DEQUEUE_DAILY_SUMMARY =
         "dequeue_daily_summary";
 
-    public static final String TASK_QUERY_USERS_AWOL_SERVERS =
-        "users_awol_servers";
+    public static final String TASK_QUERY_USERS_AWOL_SERVERS_IN_ORG =
+        "users_awol_servers_in_org";
 
-    public static final String TASK_QUERY_GET_ACTION_INFO = "get_action_info";
+    public static final String TASK_QUERY_GET_ACTION_INFO_IN_ORG = "get_action_info_in_org";
+
+    public static final String TASK_QUERY_GET_DRY_RUN_ACTION_INFO = "get_dry_run_action_info";
 
     public static final String TASK_QUERY_ERRATAMAILER_FIND_ERRATA =
         "erratamailer_find_errata";
 
-    public static final String TASK_QUERY_ERRATAMAILER_GET_RELEVANT_SERVERS =
-        "erratamailer_get_relevant_servers";
+    public static final String TASK_QUERY_ERRATAMAILER_GET_RELEVANT_SERVERS_IN_CHANNELS =
+        "erratamailer_get_relevant_servers_in_channels";
 
     public static final String TASK_QUERY_ERRATAMAILER_MARK_ERRATA_DONE =
         "erratamailer_mark_errata_done";
 
-    public static final String TASK_QUERY_ERRATAMAILER_GET_USERINFO =
-        "erratamailer_get_userinfo";
+    public static final String TASK_QUERY_ERRATAMAILER_GET_USERINFO_BY_IDS =
+        "erratamailer_get_userinfo_by_ids";
 
     public static final String TASK_QUERY_REPOMD_GENERATOR_CHANNEL_PACKAGES =
         "repomdgenerator_channel_packages";
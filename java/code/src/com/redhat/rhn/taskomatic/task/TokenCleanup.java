@@ -21,6 +21,7 @@ import com.redhat.rhn.domain.channel.AccessTokenFactory;
 import com.redhat.rhn.domain.server.MinionServer;
 import com.redhat.rhn.domain.server.MinionServerFactory;
 import com.suse.manager.webui.services.iface.SaltApi;
+import com.suse.manager.webui.services.pillar.MinionGeneralPillarGenerator;
 import com.suse.manager.webui.services.pillar.MinionPillarManager;
 import org.quartz.JobExecutionContext;
 import org.quartz.JobExecutionException;
@@ -52,7 +53,8 @@ public class TokenCleanup extends RhnJavaJob {
                 try {
                     if (AccessTokenFactory.refreshTokens(minionServer, Collections.emptySet())) {
                         // TODO schedule state.apply channels to refresh channels on minion ?
-                        MinionPillarManager.INSTANCE.generatePillar(minionServer, false, Collections.emptySet());
+                        MinionPillarManager.INSTANCE.generatePillar(minionServer,
+                                MinionGeneralPillarGenerator.class);
                         return Stream.of(minionServer);
                     }
                     else {
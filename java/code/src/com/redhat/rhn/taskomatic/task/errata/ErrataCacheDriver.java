@@ -17,15 +17,24 @@ package com.redhat.rhn.taskomatic.task.errata;
 import com.redhat.rhn.common.conf.Config;
 import com.redhat.rhn.domain.task.Task;
 import com.redhat.rhn.domain.task.TaskFactory;
+import com.redhat.rhn.manager.audit.CVEAuditManager;
+import com.redhat.rhn.manager.errata.cache.ErrataCacheManager;
+import com.redhat.rhn.manager.errata.cache.UpdateErrataCacheCommand;
 import com.redhat.rhn.taskomatic.task.threaded.QueueDriver;
 import com.redhat.rhn.taskomatic.task.threaded.QueueWorker;
 
+import com.suse.manager.metrics.ErrataCacheMetrics;
+
 import org.apache.log4j.Logger;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.stream.Collectors;
 
 /**
  * Driver for the threaded errata cache update queue
@@ -44,12 +53,16 @@ public class ErrataCacheDriver implements QueueDriver {
     /**
      * {@inheritDoc}
      */
-    public List<Task> getCandidates() {
-        List<Task> tasks = TaskFactory.getTaskListByNameLike(ErrataCacheWorker.BY_CHANNEL);
-        tasks.addAll(consolidateTasks(
-                TaskFactory.getTaskListByNameLike(ErrataCacheWorker.FOR_SERVER)));
+    public List<Object> getCandidates() {
+        List<Object> tasks = new ArrayList<>(TaskFactory.getTaskListByNameLike(ErrataCacheWorker.BY_CHANNEL));
+        tasks.addAll(groupServerTasks(consolidateTasks(
+                TaskFactory.getTaskListByNameLike(ErrataCacheWorker.FOR_SERVER))));
         tasks.addAll(consolidateTasks(
                 TaskFactory.getTaskListByNameLike(ErrataCacheWorker.FOR_IMAGE)));
+        tasks.addAll(consolidateTasks(
+                TaskFactory.getTaskListByNameLike(CVEAuditManager.SERVER_CHANNELS_TASK)));
+        tasks.addAll(consolidateTasks(
+                TaskFactory.getTaskListByNameLike(CVEAuditManager.IMAGE_CHANNELS_TASK)));
         return tasks;
     }
 
@@ -77,7 +90,11 @@ public class ErrataCacheDriver implements QueueDriver {
     /**
      * {@inheritDoc}
      */
+    @SuppressWarnings("unchecked")
     public QueueWorker makeWorker(Object workItem) {
+        if (workItem instanceof List) {
+            return new ErrataCacheWorker((List<Task>) workItem, logger);
+        }
         Task task = (Task) workItem;
         return new ErrataCacheWorker(task, logger);
     }
@@ -89,6 +106,35 @@ public class ErrataCacheDriver implements QueueDriver {
         // empty
     }
 
+    /**
+     * Group server tasks by the channels of their servers, so that the errata cache of the servers
+     * of each group is computed by a single worker with set based queries.
+     *
+     * @param tasks list of server {@link Task} objects with unique data
+     * @return the lists of tasks of each group
+     */
+    private List<List<Task>> groupServerTasks(List<Task> tasks) {
+        Map<Long, Task> tasksByServer = new HashMap<>();
+        for (Task task : tasks) {
+            tasksByServer.put(task.getData(), task);
+        }
+
+        List<List<Task>> groups = new ArrayList<>();
+        for (List<Long> serverIds : ErrataCacheManager.groupServersByChannels(tasksByServer.keySet(),
+                UpdateErrataCacheCommand.MAX_GROUP_SIZE)) {
+            groups.add(serverIds.stream().map(tasksByServer::remove).collect(Collectors.toList()));
+        }
+        // tasks of servers that do not exist anymore only need to be removed
+        tasksByServer.values().forEach(task -> groups.add(Collections.singletonList(task)));
+
+        if (!tasks.isEmpty()) {
+            logger.info("Updating errata cache for " + tasks.size() + " servers in " + groups.size() +
+                    " groups");
+            ErrataCacheMetrics.INSTANCE.serversQueued(tasks.size());
+        }
+        return groups;
+    }
+
     /**
      * Reduce a given list of tasks to a list with unique data fields. Data is either
      * a system id or a channel id depending on the type of tasks given in.
@@ -17,7 +17,10 @@ package com.redhat.rhn.taskomatic.task.errata;
 import com.redhat.rhn.common.db.datasource.ModeFactory;
 import com.redhat.rhn.common.db.datasource.WriteMode;
 import com.redhat.rhn.common.hibernate.HibernateFactory;
+import com.redhat.rhn.domain.image.ImageInfoFactory;
+import com.redhat.rhn.domain.server.ServerFactory;
 import com.redhat.rhn.domain.task.Task;
+import com.redhat.rhn.manager.audit.CVEAuditManager;
 import com.redhat.rhn.manager.errata.cache.UpdateErrataCacheCommand;
 import com.redhat.rhn.taskomatic.task.threaded.QueueWorker;
 import com.redhat.rhn.taskomatic.task.threaded.TaskQueue;
@@ -25,10 +28,14 @@ import com.redhat.rhn.taskomatic.task.threaded.TaskQueue;
 import org.apache.log4j.Logger;
 
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
 
 /**
- * Performs errata cache recalc for a given server or channel
+ * Performs errata cache recalc for a given server, group of servers or channel, or recomputes the CVE
+ * relevant channels of a server or image
  * @version $Rev $
  */
 public class ErrataCacheWorker implements QueueWorker {
@@ -38,6 +45,7 @@ public class ErrataCacheWorker implements QueueWorker {
     public static final String FOR_IMAGE  = "update_image_errata_cache";
 
     private Task task;
+    private List<Task> serverTasks;
     private Logger logger;
     private TaskQueue parentQueue;
 
@@ -51,15 +59,40 @@ public class ErrataCacheWorker implements QueueWorker {
         logger = parentLogger;
     }
 
+    /**
+     * Constructor for the update of the errata cache of servers subscribed to the same channels
+     * @param serverTasksIn the {@link #FOR_SERVER} tasks of the servers
+     * @param parentLogger logger to use
+     */
+    public ErrataCacheWorker(List<Task> serverTasksIn, Logger parentLogger) {
+        serverTasks = serverTasksIn;
+        logger = parentLogger;
+    }
+
     /**
      * {@inheritDoc}
      */
     public void run() {
         try {
-            removeTask();
+            if (serverTasks != null) {
+                serverTasks.forEach(this::removeTask);
+            }
+            else {
+                removeTask(task);
+            }
             parentQueue.workerStarting();
             UpdateErrataCacheCommand uecc = new UpdateErrataCacheCommand();
-            if (ErrataCacheWorker.FOR_SERVER.equals(task.getName())) {
+            if (serverTasks != null) {
+                List<Long> sids = serverTasks.stream().map(Task::getData).collect(Collectors.toList());
+                if (logger.isDebugEnabled()) {
+                    logger.debug("Updating errata cache for sids " + sids);
+                }
+                uecc.updateErrataCacheForServerGroup(sids, false);
+                if (logger.isDebugEnabled()) {
+                    logger.debug("Finished errata cache for sids " + sids);
+                }
+            }
+            else if (ErrataCacheWorker.FOR_SERVER.equals(task.getName())) {
                 Long sid = task.getData();
                 if (logger.isDebugEnabled()) {
                     logger.debug("Updating errata cache for sid [" + sid + "]");
@@ -89,6 +122,21 @@ public class ErrataCacheWorker implements QueueWorker {
                     logger.debug("Finished errata cache for cid [" + cid + "]");
                 }
             }
+            else if (CVEAuditManager.SERVER_CHANNELS_TASK.equals(task.getName())) {
+                Long sid = task.getData();
+                if (logger.isDebugEnabled()) {
+                    logger.debug("Updating CVE relevant channels for sid [" + sid + "]");
+                }
+                Optional.ofNullable(ServerFactory.lookupById(sid))
+                        .ifPresent(CVEAuditManager::populateCVEChannels);
+            }
+            else if (CVEAuditManager.IMAGE_CHANNELS_TASK.equals(task.getName())) {
+                Long iid = task.getData();
+                if (logger.isDebugEnabled()) {
+                    logger.debug("Updating CVE relevant channels for iid [" + iid + "]");
+                }
+                ImageInfoFactory.lookupById(iid).ifPresent(CVEAuditManager::populateCVEChannels);
+            }
             HibernateFactory.commitTransaction();
         }
         catch (Exception e) {
@@ -110,15 +158,16 @@ public class ErrataCacheWorker implements QueueWorker {
     }
 
     /**
-     * Remove the task related to this worker from the DB via mode query.
+     * Remove a task related to this worker from the DB via mode query.
+     * @param taskToRemove the task
      */
-    private void removeTask() {
+    private void removeTask(Task taskToRemove) {
         WriteMode mode = ModeFactory.getWriteMode("Task_queries", "delete_task");
         Map<String, Object> params = new HashMap<String, Object>();
-        params.put("org_id", task.getOrg().getId());
-        params.put("name", task.getName());
-        params.put("task_data", task.getData());
-        params.put("priority", task.getPriority());
+        params.put("org_id", taskToRemove.getOrg().getId());
+        params.put("name", taskToRemove.getName());
+        params.put("task_data", taskToRemove.getData());
+        params.put("priority", taskToRemove.getPriority());
         mode.executeUpdate(params);
     }
 }
@@ -20,15 +20,18 @@ import com.redhat.rhn.domain.server.virtualhostmanager.VirtualHostManager;
 import com.redhat.rhn.domain.server.virtualhostmanager.VirtualHostManagerFactory;
 import com.redhat.rhn.taskomatic.task.RhnJavaJob;
 import com.suse.manager.gatherer.GathererRunner;
-import com.suse.manager.gatherer.HostJson;
 
 import org.apache.commons.lang3.StringUtils;
 import org.quartz.JobExecutionContext;
 import org.quartz.JobExecutionException;
 
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 /**
  * Taskomatic job for running gatherer on all Virtual Host Managers and
@@ -67,25 +70,33 @@ public class GathererJob extends RhnJavaJob {
                 managers.size()));
 
         try {
-            Map<String, Map<String, HostJson>> results = new GathererRunner().run(managers);
-            if (results == null) {
+            Map<String, VirtualHostManager> managersByLabel = managers.stream()
+                    .collect(Collectors.toMap(VirtualHostManager::getLabel, Function.identity()));
+            Set<String> processed = new HashSet<>();
+            // each Virtual Host Manager is processed as soon as its results are read
+            boolean success = new GathererRunner().run(managers, (label, hosts) -> {
+                VirtualHostManager manager = managersByLabel.get(label);
+                if (manager == null) {
+                    return;
+                }
+                log.debug("Processing " + label);
+                new VirtualHostManagerProcessor(manager, hosts).processMapping();
+                processed.add(label);
+            });
+            if (!success) {
+                // results of a failed gatherer run must not be stored
+                HibernateFactory.rollbackTransaction();
                 return;
             }
             log.debug(String.format("Got %d Virtual Host Managers from gatherer",
-                    results.size()));
+                    processed.size()));
 
             for (VirtualHostManager manager : managers) {
-                String label = manager.getLabel();
-
-                if (!results.containsKey(label)) {
+                if (!processed.contains(manager.getLabel())) {
                     log.warn(String.format("Virtual Host Manager with label '%s' is not " +
                             "contained in the results from gatherer - skipping it.",
-                            label));
-                    continue;
+                            manager.getLabel()));
                 }
-                log.debug("Processing " + label);
-                new VirtualHostManagerProcessor(manager, results.get(label))
-                        .processMapping();
             }
         }
         catch (Throwable t) {
@@ -17,8 +17,11 @@ package com.redhat.rhn.taskomatic.task.gatherer;
 
 import com.redhat.rhn.GlobalInstanceHolder;
 import com.redhat.rhn.domain.server.CPU;
+import com.redhat.rhn.domain.server.CPUArch;
 import com.redhat.rhn.domain.server.Server;
+import com.redhat.rhn.domain.server.ServerArch;
 import com.redhat.rhn.domain.server.ServerFactory;
+import com.redhat.rhn.domain.server.VirtualInstance;
 import com.redhat.rhn.domain.server.VirtualInstanceFactory;
 import com.redhat.rhn.domain.server.VirtualInstanceType;
 import com.redhat.rhn.domain.server.virtualhostmanager.VirtualHostManager;
@@ -33,9 +36,12 @@ import com.suse.manager.gatherer.HostJson;
 import org.apache.log4j.Logger;
 
 import java.util.Date;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.stream.Collectors;
 
 /**
  * Logic for processing Virtual Host Managers based on the gatherer output.
@@ -49,6 +55,10 @@ public class VirtualHostManagerProcessor {
     private final Map<String, HostJson> virtualHosts;
     private Set<Server> serversToDelete;
     private Set<VirtualHostManagerNodeInfo> nodesToDelete;
+    // existing virtual instances by uuid, loaded once for all the hosts
+    private Map<String, List<VirtualInstance>> virtualInstancesByUuid;
+    private final Map<String, ServerArch> serverArchs = new HashMap<>();
+    private final Map<String, CPUArch> cpuArchs = new HashMap<>();
     private Logger log;
     private SystemEntitlementManager systemEntitlementManager = GlobalInstanceHolder.SYSTEM_ENTITLEMENT_MANAGER;
 
@@ -84,6 +94,12 @@ public class VirtualHostManagerProcessor {
         }
         serversToDelete.addAll(virtualHostManager.getServers());
         nodesToDelete.addAll(virtualHostManager.getNodes());
+        virtualInstancesByUuid = VirtualInstanceManager.lookupGuestVirtualInstances(
+                virtualHostManager.getServers(),
+                virtualHosts.values().stream()
+                        .filter(host -> host.getVms() != null)
+                        .flatMap(host -> host.getVms().values().stream())
+                        .collect(Collectors.toList()));
         virtualHosts.entrySet().forEach(
                 virtualHost -> {
                     log.debug("Processing host: " + virtualHost.getKey());
@@ -134,7 +150,7 @@ public class VirtualHostManagerProcessor {
         VirtualInstanceType virtType = extractVirtualInstanceType(host.getType());
         VirtualInstanceManager.updateHostVirtualInstance(server, virtType);
         VirtualInstanceManager.updateGuestsVirtualInstances(server, virtType,
-                host.getVms(), host.getOptionalVmData());
+                host.getVms(), host.getOptionalVmData(), virtualInstancesByUuid);
     }
 
     private VirtualHostManagerNodeInfo updateAndGetNodeInfo(String hostLabel,
@@ -148,7 +164,7 @@ public class VirtualHostManagerProcessor {
     private VirtualHostManagerNodeInfo updateNodeInfo(VirtualHostManagerNodeInfo info,
             String hostLabel, HostJson host) {
         info.setName(hostLabel);
-        info.setNodeArch(ServerFactory.lookupServerArchByName(host.getCpuArch()));
+        info.setNodeArch(lookupServerArch(host.getCpuArch()));
         info.setCpuSockets(host.getTotalCpuSockets());
         info.setCpuCores(host.getTotalCpuCores());
         info.setRam(host.getRamMb());
@@ -265,7 +281,7 @@ public class VirtualHostManagerProcessor {
         // and update server
         server.setModified(new Date());
         server.setRam(host.getRamMb());
-        server.setServerArch(ServerFactory.lookupServerArchByName(host.getCpuArch()));
+        server.setServerArch(lookupServerArch(host.getCpuArch()));
     }
 
     private void updateServerCpu(Server server, HostJson host) {
@@ -274,7 +290,7 @@ public class VirtualHostManagerProcessor {
             cpu = new CPU();
         }
 
-        cpu.setArch(ServerFactory.lookupCPUArchByName(host.getCpuArch()));
+        cpu.setArch(lookupCPUArch(host.getCpuArch()));
         cpu.setMHz(Long.valueOf(Math.round(host.getCpuMhz())).toString());
         cpu.setNrCPU(host.getTotalCpuCores().longValue());
         cpu.setNrsocket(host.getTotalCpuSockets().longValue());
@@ -285,6 +301,14 @@ public class VirtualHostManagerProcessor {
         server.setCpu(cpu);
     }
 
+    private ServerArch lookupServerArch(String name) {
+        return serverArchs.computeIfAbsent(name, ServerFactory::lookupServerArchByName);
+    }
+
+    private CPUArch lookupCPUArch(String name) {
+        return cpuArchs.computeIfAbsent(name, ServerFactory::lookupCPUArchByName);
+    }
+
     private void updateServerNetwork(Server server, String hostId) {
         server.setHostname(hostId);
     }
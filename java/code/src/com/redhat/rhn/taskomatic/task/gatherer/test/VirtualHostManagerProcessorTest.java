@@ -532,6 +532,52 @@ public class VirtualHostManagerProcessorTest extends BaseTestCaseWithUser {
         assertTrue(guestVM2.isEmpty());
     }
 
+    /**
+     * Tests that the VMs of several hosts processed in one run are added, updated and
+     * removed, keeping the unchanged VirtualInstances.
+     */
+    public void testGuestsOfManyHostsReconciled() {
+        HostJson host1 = createMinimalHost("esx_host_1",
+                pairsToMap("vm1", "de5629cb8c5a4de485a8fc8d1b170412", "vm2", "6888aafa999048038bbb26afb9264db1"));
+        HostJson host2 = createMinimalHost("esx_host_2",
+                pairsToMap("vm3", "3b6ab5b4df7c4fc3a0ec9cae1fbd2a5c"));
+        Map<String, HostJson> data = new HashMap<>();
+        data.put("esx_host_1", host1);
+        data.put("esx_host_2", host2);
+
+        new VirtualHostManagerProcessor(virtualHostManager, data).processMapping();
+
+        VirtualInstance vm3 = VirtualInstanceFactory.getInstance()
+                .lookupVirtualInstanceByUuid("3b6ab5b4df7c4fc3a0ec9cae1fbd2a5c").get(0);
+
+        // vm1 renamed, vm2 removed, vm4 added
+        host1.setVms(pairsToMap("vm1 renamed", "de5629cb8c5a4de485a8fc8d1b170412"));
+        host2.setVms(pairsToMap("vm3", "3b6ab5b4df7c4fc3a0ec9cae1fbd2a5c", "vm4", "0f3d4e6a7b8c49d0a1b2c3d4e5f60718"));
+
+        new VirtualHostManagerProcessor(virtualHostManager, data).processMapping();
+
+        Server newHost1 = ServerFactory.lookupForeignSystemByDigitalServerId("101-esx_host_1");
+        Server newHost2 = ServerFactory.lookupForeignSystemByDigitalServerId("101-esx_host_2");
+        List<VirtualInstance> guests = VirtualInstanceFactory.getInstance()
+                .lookupVirtualInstanceByUuid("de5629cb8c5a4de485a8fc8d1b170412");
+        assertEquals(1, guests.size());
+        assertEquals("vm1 renamed", guests.get(0).getName());
+        assertEquals(newHost1, guests.get(0).getHostSystem());
+
+        assertTrue(VirtualInstanceFactory.getInstance()
+                .lookupVirtualInstanceByUuid("6888aafa999048038bbb26afb9264db1").isEmpty());
+
+        guests = VirtualInstanceFactory.getInstance()
+                .lookupVirtualInstanceByUuid("3b6ab5b4df7c4fc3a0ec9cae1fbd2a5c");
+        assertEquals(1, guests.size());
+        assertEquals(vm3.getId(), guests.get(0).getId());
+
+        guests = VirtualInstanceFactory.getInstance()
+                .lookupVirtualInstanceByUuid("0f3d4e6a7b8c49d0a1b2c3d4e5f60718");
+        assertEquals(1, guests.size());
+        assertEquals(newHost2, guests.get(0).getHostSystem());
+    }
+
     /**
      * Tests that the VirtualHostManagerProcessor does not automatically create a new Server entity
      * for a Kubernetes virtual host manager.
@@ -0,0 +1,164 @@
+/**
+ * Copyright (c) 2021 SUSE LLC
+ *
+ * This software is licensed to you under the GNU General Public License,
+ * version 2 (GPLv2). There is NO WARRANTY for this software, express or
+ * implied, including the implied warranties of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. You should have received a copy of GPLv2
+ * along with this software; if not, see
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.txt.
+ *
+ * Red Hat trademarks are not licensed under GPLv2. No permission is
+ * granted to use or replicate Red Hat trademarks that are incorporated
+ * in this software or its documentation.
+ */
+package com.redhat.rhn.taskomatic.task.test;
+
+import static com.redhat.rhn.domain.role.RoleFactory.ORG_ADMIN;
+import static com.suse.manager.model.maintenance.MaintenanceSchedule.ScheduleType.SINGLE;
+import static java.util.Optional.empty;
+
+import com.redhat.rhn.common.hibernate.HibernateFactory;
+import com.redhat.rhn.domain.action.Action;
+import com.redhat.rhn.domain.action.ActionFactory;
+import com.redhat.rhn.domain.action.errata.ErrataAction;
+import com.redhat.rhn.domain.errata.Errata;
+import com.redhat.rhn.domain.errata.test.ErrataFactoryTest;
+import com.redhat.rhn.domain.server.MinionServer;
+import com.redhat.rhn.domain.server.Server;
+import com.redhat.rhn.domain.server.test.MinionServerFactoryTest;
+import com.redhat.rhn.manager.errata.ErrataManager;
+import com.redhat.rhn.taskomatic.task.AutoErrataTask;
+import com.redhat.rhn.testing.BaseTestCaseWithUser;
+import com.redhat.rhn.testing.TestUtils;
+
+import com.suse.manager.maintenance.MaintenanceManager;
+import com.suse.manager.model.maintenance.MaintenanceSchedule;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Tests for {@link AutoErrataTask}.
+ */
+public class AutoErrataTaskTest extends BaseTestCaseWithUser {
+
+    /**
+     * Tests that systems needing the same errata share one action.
+     *
+     * @throws Exception in case of a problem
+     */
+    public void testActionsGroupedByErrata() throws Exception {
+        Errata errata1 = ErrataFactoryTest.createTestErrata(user.getOrg().getId());
+        Errata errata2 = ErrataFactoryTest.createTestErrata(user.getOrg().getId());
+        MinionServer minion1 = MinionServerFactoryTest.createTestMinionServer(user);
+        MinionServer minion2 = MinionServerFactoryTest.createTestMinionServer(user);
+        MinionServer minion3 = MinionServerFactoryTest.createTestMinionServer(user);
+
+        List<Map<String, Long>> candidates = new ArrayList<>();
+        candidates.add(candidate(errata1, minion1));
+        candidates.add(candidate(errata2, minion1));
+        candidates.add(candidate(errata2, minion2));
+        candidates.add(candidate(errata1, minion2));
+        candidates.add(candidate(errata1, minion3));
+
+        AutoErrataTask task = new AutoErrataTask() {
+            @Override
+            protected List<Map<String, Long>> getErrataToProcess() {
+                return candidates;
+            }
+        };
+        task.execute(null);
+        HibernateFactory.getSession().flush();
+        HibernateFactory.getSession().clear();
+
+        List<Action> actions1 = ActionFactory.listActionsForServer(user, minion1);
+        List<Action> actions2 = ActionFactory.listActionsForServer(user, minion2);
+        List<Action> actions3 = ActionFactory.listActionsForServer(user, minion3);
+        assertEquals(1, actions1.size());
+        assertEquals(1, actions2.size());
+        assertEquals(1, actions3.size());
+
+        ErrataAction both = (ErrataAction) actions1.get(0);
+        assertEquals(both.getId(), actions2.get(0).getId());
+        assertEquals(2, both.getErrata().size());
+
+        ErrataAction single = (ErrataAction) actions3.get(0);
+        assertFalse(both.getId().equals(single.getId()));
+        assertEquals(1, single.getErrata().size());
+        assertEquals(errata1.getId(), single.getErrata().iterator().next().getId());
+    }
+
+    /**
+     * Tests that systems outside of their maintenance window are not added to the actions.
+     *
+     * @throws Exception in case of a problem
+     */
+    public void testSystemsOutsideMaintenanceWindowSkipped() throws Exception {
+        user.addPermanentRole(ORG_ADMIN);
+        Errata errata1 = ErrataFactoryTest.createTestErrata(user.getOrg().getId());
+        Errata errata2 = ErrataFactoryTest.createTestErrata(user.getOrg().getId());
+        MinionServer minion1 = MinionServerFactoryTest.createTestMinionServer(user);
+        MinionServer minion2 = MinionServerFactoryTest.createTestMinionServer(user);
+        MinionServer minion3 = MinionServerFactoryTest.createTestMinionServer(user);
+
+        // a schedule without calendar has no maintenance window
+        MaintenanceManager mm = new MaintenanceManager();
+        MaintenanceSchedule schedule = mm.createSchedule(user, "test-schedule", SINGLE, empty());
+        mm.assignScheduleToSystems(user, schedule, Set.of(minion1.getId(), minion3.getId()), false);
+
+        List<Map<String, Long>> candidates = new ArrayList<>();
+        candidates.add(candidate(errata1, minion1));
+        candidates.add(candidate(errata1, minion2));
+        candidates.add(candidate(errata2, minion3));
+
+        runTask(candidates);
+
+        assertTrue(ActionFactory.listActionsForServer(user, minion1).isEmpty());
+        assertEquals(1, ActionFactory.listActionsForServer(user, minion2).size());
+        assertTrue(ActionFactory.listActionsForServer(user, minion3).isEmpty());
+    }
+
+    /**
+     * Tests that an action containing update stack errata is named like the update stack
+     * actions scheduled by users.
+     *
+     * @throws Exception in case of a problem
+     */
+    public void testUpdateStackActionName() throws Exception {
+        Errata errata1 = ErrataFactoryTest.createTestErrata(user.getOrg().getId());
+        errata1.addKeyword("restart_suggested");
+        TestUtils.saveAndFlush(errata1);
+        MinionServer minion = MinionServerFactoryTest.createTestMinionServer(user);
+
+        runTask(List.of(candidate(errata1, minion)));
+
+        List<Action> actions = ActionFactory.listActionsForServer(user, minion);
+        assertEquals(1, actions.size());
+        assertEquals(ErrataManager.getErrataName(List.of(errata1), true), actions.get(0).getName());
+    }
+
+    // Runs the task on the given candidates and clears the session
+    private static void runTask(List<Map<String, Long>> candidates) throws Exception {
+        AutoErrataTask task = new AutoErrataTask() {
+            @Override
+            protected List<Map<String, Long>> getErrataToProcess() {
+                return candidates;
+            }
+        };
+        task.execute(null);
+        HibernateFactory.getSession().flush();
+        HibernateFactory.getSession().clear();
+    }
+
+    private static Map<String, Long> candidate(Errata errata, Server server) {
+        Map<String, Long> candidate = new HashMap<>();
+        candidate.put("errata_id", errata.getId());
+        candidate.put("server_id", server.getId());
+        candidate.put("org_id", server.getOrg().getId());
+        return candidate;
+    }
+}
@@ -16,11 +16,32 @@ package com.redhat.rhn.taskomatic.task.test;
 
 import com.redhat.rhn.common.db.datasource.ModeFactory;
 import com.redhat.rhn.common.db.datasource.WriteMode;
+import com.redhat.rhn.common.hibernate.HibernateFactory;
+import com.redhat.rhn.common.messaging.test.MockMail;
+import com.redhat.rhn.domain.action.Action;
+import com.redhat.rhn.domain.action.ActionFactory;
+import com.redhat.rhn.domain.action.server.test.ServerActionTest;
+import com.redhat.rhn.domain.action.test.ActionFactoryTest;
+import com.redhat.rhn.domain.server.Server;
+import com.redhat.rhn.domain.server.test.ServerFactoryTest;
+import com.redhat.rhn.domain.user.User;
+import com.redhat.rhn.domain.user.UserFactory;
+import com.redhat.rhn.frontend.dto.ActionMessage;
+import com.redhat.rhn.frontend.dto.AwolServer;
 import com.redhat.rhn.taskomatic.task.DailySummary;
 import com.redhat.rhn.testing.RhnBaseTestCase;
+import com.redhat.rhn.testing.TestUtils;
 import com.redhat.rhn.testing.UserTestUtils;
 
+import com.suse.manager.metrics.ReportMailMetrics;
+import com.suse.manager.utils.MailHelper;
+import org.apache.commons.lang3.time.DateUtils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -70,7 +91,191 @@ public class DailySummaryTest extends RhnBaseTestCase {
     }
 
     public void testQueueOrgEmails() {
-        return;
+        Long oid = UserTestUtils.createOrg("testOrg" + this.getClass().getSimpleName());
+        User user1 = UserTestUtils.createUser("testUser1", oid);
+        User user2 = UserTestUtils.createUser("testUser2", oid);
+        User user3 = UserTestUtils.createUser("testUser3", oid);
+        user3.setEmailNotify(0);
+        UserFactory.save(user3);
+
+        ActionMessage dryRun = new ActionMessage();
+        dryRun.setType("Apply states (Dry Run)");
+        dryRun.setStatus("Completed");
+        dryRun.setCount(2);
+
+        MockMail mail = new MockMail();
+        new DailySummary().queueOrgEmails(oid, Collections.singletonList(dryRun),
+                MailHelper.withMailer(mail));
+
+        // one email for each user wanting reports
+        assertEquals(2, mail.getSendCount());
+        assertTrue(mail.getBody().contains("Apply states (Dry Run)"));
+        assertTrue(mail.getBody().contains(user1.getLogin()) ||
+                mail.getBody().contains(user2.getLogin()));
+    }
+
+    public void testQueueOrgEmailsPerUser() {
+        Long oid = UserTestUtils.createOrg("testOrg" + this.getClass().getSimpleName());
+        User user1 = UserTestUtils.createUser("testUser1", oid);
+        User user2 = UserTestUtils.createUser("testUser2", oid);
+
+        // the rows of the org, as returned by the queries, split by user id
+        Map<Long, List<AwolServer>> awolByUser = new HashMap<>();
+        awolByUser.put(user1.getId(), List.of(awolServer(user1, 1001L, "awol-server-user1")));
+        awolByUser.put(user2.getId(), List.of(awolServer(user2, 1002L, "awol-server-user2")));
+        Map<Long, List<ActionMessage>> actionsByUser = new HashMap<>();
+        actionsByUser.put(user1.getId(), List.of(action(user1, "Package Install")));
+        actionsByUser.put(user2.getId(), List.of(action(user2, "Hardware List Refresh")));
+
+        DailySummary ds = new DailySummary() {
+            @Override
+            public Map<Long, List<AwolServer>> getAwolServers(Long orgId) {
+                return awolByUser;
+            }
+
+            @Override
+            public Map<Long, List<ActionMessage>> getActionInfo(Long orgId) {
+                return actionsByUser;
+            }
+        };
+        List<String> bodies = new ArrayList<>();
+        MockMail mail = new MockMail() {
+            @Override
+            public void send() {
+                super.send();
+                bodies.add(getBody());
+            }
+        };
+        ds.queueOrgEmails(oid, Collections.emptyList(), MailHelper.withMailer(mail));
+
+        assertEquals(2, bodies.size());
+        String body1 = bodies.stream().filter(b -> b.contains(user1.getLogin())).findFirst().get();
+        String body2 = bodies.stream().filter(b -> b.contains(user2.getLogin())).findFirst().get();
+        assertTrue(body1.contains("awol-server-user1"));
+        assertTrue(body1.contains("Package Install"));
+        assertFalse(body1.contains("awol-server-user2"));
+        assertFalse(body1.contains("Hardware List Refresh"));
+        assertTrue(body2.contains("awol-server-user2"));
+        assertTrue(body2.contains("Hardware List Refresh"));
+        assertFalse(body2.contains("awol-server-user1"));
+        assertFalse(body2.contains("Package Install"));
+    }
+
+    public void testQueueOrgEmailsWithOrgQueries() throws Exception {
+        Long oid = UserTestUtils.createOrg("testOrg" + this.getClass().getSimpleName());
+        User user1 = UserTestUtils.createUser("testUser1", oid);
+        User user2 = UserTestUtils.createUser("testUser2", oid);
+
+        // each user can only see their own system
+        Server awolServer = ServerFactoryTest.createTestServer(user1, true);
+        awolServer.getServerInfo().setCheckin(DateUtils.addHours(new Date(), -25));
+        TestUtils.saveAndFlush(awolServer);
+        Server actionServer = ServerFactoryTest.createTestServer(user2, true);
+        Action action = ActionFactoryTest.createAction(user2, ActionFactory.TYPE_HARDWARE_REFRESH_LIST);
+        ServerActionTest.createServerAction(actionServer, action);
+        ActionFactory.save(action);
+        HibernateFactory.getSession().flush();
+        setServerActionModifiedHoursAgo(action, 1);
+
+        DailySummary ds = new DailySummary();
+        Map<Long, List<AwolServer>> awolByUser = ds.getAwolServers(oid);
+        assertEquals(1, awolByUser.get(user1.getId()).size());
+        assertEquals(awolServer.getName(), awolByUser.get(user1.getId()).get(0).getName());
+        assertFalse(awolByUser.containsKey(user2.getId()));
+        Map<Long, List<ActionMessage>> actionsByUser = ds.getActionInfo(oid);
+        assertEquals(1, actionsByUser.get(user2.getId()).size());
+        assertEquals(ActionFactory.TYPE_HARDWARE_REFRESH_LIST.getName(),
+                actionsByUser.get(user2.getId()).get(0).getType());
+        assertFalse(actionsByUser.containsKey(user1.getId()));
+
+        List<String> bodies = new ArrayList<>();
+        MockMail mail = new MockMail() {
+            @Override
+            public void send() {
+                super.send();
+                bodies.add(getBody());
+            }
+        };
+        ds.queueOrgEmails(oid, Collections.emptyList(), MailHelper.withMailer(mail));
+
+        assertEquals(2, bodies.size());
+        String body1 = bodies.stream().filter(b -> b.contains(user1.getLogin())).findFirst().get();
+        String body2 = bodies.stream().filter(b -> b.contains(user2.getLogin())).findFirst().get();
+        assertTrue(body1.contains(awolServer.getName()));
+        assertFalse(body1.contains(ActionFactory.TYPE_HARDWARE_REFRESH_LIST.getName()));
+        assertTrue(body2.contains(ActionFactory.TYPE_HARDWARE_REFRESH_LIST.getName()));
+        assertFalse(body2.contains(awolServer.getName()));
+    }
+
+    // the modification time of the server actions is set to the transaction time by a trigger, but the
+    // actions query only reports the ones modified before the current transaction
+    private static void setServerActionModifiedHoursAgo(Action action, int hours) {
+        Map<String, Object> params = new HashMap<>();
+        params.put("action_id", action.getId());
+        params.put("hours", hours);
+        ModeFactory.getWriteMode("test_queries", "disable_server_action_mod_trigger")
+                .executeUpdate(new HashMap<>());
+        try {
+            ModeFactory.getWriteMode("test_queries", "set_server_action_modified_hours_ago")
+                    .executeUpdate(params);
+        }
+        finally {
+            ModeFactory.getWriteMode("test_queries", "enable_server_action_mod_trigger")
+                    .executeUpdate(new HashMap<>());
+        }
+    }
+
+    public void testQueueOrgEmailsFailedSend() {
+        Long oid = UserTestUtils.createOrg("testOrg" + this.getClass().getSimpleName());
+        UserTestUtils.createUser("testUser1", oid);
+
+        ActionMessage dryRun = new ActionMessage();
+        dryRun.setType("Apply states (Dry Run)");
+        dryRun.setStatus("Completed");
+        dryRun.setCount(1);
+
+        MockMail mail = new MockMail() {
+            @Override
+            public void send() {
+                throw new RuntimeException("SMTP server unavailable");
+            }
+        };
+        double sent = reportMailCount("report_mail_sent_total");
+        double failed = reportMailCount("report_mail_failed_total");
+        new DailySummary().queueOrgEmails(oid, Collections.singletonList(dryRun),
+                MailHelper.withMailer(mail));
+
+        // only successful sends are counted as sent
+        assertEquals(sent, reportMailCount("report_mail_sent_total"));
+        assertEquals(failed + 1, reportMailCount("report_mail_failed_total"));
+    }
+
+    private static AwolServer awolServer(User user, Long id, String name) {
+        AwolServer server = new AwolServer();
+        server.setUserId(user.getId());
+        server.setId(id);
+        server.setName(name);
+        server.setCheckin(new Date());
+        return server;
+    }
+
+    private static ActionMessage action(User user, String type) {
+        ActionMessage action = new ActionMessage();
+        action.setUserId(user.getId());
+        action.setType(type);
+        action.setStatus("Completed");
+        action.setCount(1);
+        return action;
+    }
+
+    private static double reportMailCount(String name) {
+        return ReportMailMetrics.INSTANCE.collect().stream()
+                .flatMap(family -> family.samples.stream())
+                .filter(sample -> sample.name.equals(name) &&
+                        sample.labelValues.equals(List.of(ReportMailMetrics.DAILY_SUMMARY)))
+                .mapToDouble(sample -> sample.value)
+                .findFirst()
+                .orElse(0.0);
     }
 
     public void aTestExcecute() {
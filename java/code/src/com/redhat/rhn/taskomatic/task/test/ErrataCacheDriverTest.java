@@ -23,6 +23,8 @@ import com.redhat.rhn.testing.BaseTestCaseWithUser;
 
 import org.apache.log4j.Logger;
 
+import java.util.List;
+
 /**
  * Tests for ErrataCacheDriver class.
  */
@@ -44,9 +46,15 @@ public class ErrataCacheDriverTest extends BaseTestCaseWithUser {
         ErrataCacheDriver driver = new ErrataCacheDriver();
         driver.setLogger(Logger.getLogger(ErrataCacheDriverTest.class));
         int candidateCount = 0;
-        for (Task task : driver.getCandidates()) {
-            if (task.getData().equals(server.getId())) {
-                candidateCount++;
+        for (Object candidate : driver.getCandidates()) {
+            // server tasks are grouped by the channels of the servers
+            if (!(candidate instanceof List)) {
+                continue;
+            }
+            for (Object task : (List<?>) candidate) {
+                if (((Task) task).getData().equals(server.getId())) {
+                    candidateCount++;
+                }
             }
         }
         assertEquals(1, candidateCount);
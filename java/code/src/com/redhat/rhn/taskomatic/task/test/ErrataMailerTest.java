@@ -14,6 +14,7 @@
  */
 package com.redhat.rhn.taskomatic.task.test;
 
+import com.redhat.rhn.common.messaging.test.MockMail;
 import com.redhat.rhn.domain.channel.Channel;
 import com.redhat.rhn.domain.channel.test.ChannelFactoryTest;
 import com.redhat.rhn.domain.errata.Errata;
@@ -21,6 +22,9 @@ import com.redhat.rhn.domain.errata.test.ErrataFactoryTest;
 import com.redhat.rhn.taskomatic.task.ErrataMailer;
 import com.redhat.rhn.testing.BaseTestCaseWithUser;
 
+import com.suse.manager.utils.MailHelper;
+
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
@@ -36,7 +40,7 @@ public class ErrataMailerTest extends BaseTestCaseWithUser {
         // the queries that get all the users and errata.
         ErrataMailer em = new ErrataMailer() {
             protected List getOrgRelevantServers(Long errataId, Long orgId,
-                    Long channelId) {
+                    List<Long> channelIds) {
                 List retval = new LinkedList();
                 Map row = new HashMap();
                 row.put("server_id", 5000);
@@ -60,4 +64,51 @@ public class ErrataMailerTest extends BaseTestCaseWithUser {
         };
         em.execute(null);
     }
+
+    public void testOneMailPerErrataAndUser() throws Exception {
+        final Errata e = ErrataFactoryTest.createTestErrata(user.getOrg().getId());
+        final Channel c1 = ChannelFactoryTest.createBaseChannel(user);
+        final Channel c2 = ChannelFactoryTest.createBaseChannel(user);
+        final List<List<Long>> queriedChannels = new LinkedList<>();
+        MockMail mail = new MockMail();
+
+        ErrataMailer em = new ErrataMailer() {
+            protected List getOrgRelevantServers(Long errataId, Long orgId,
+                    List<Long> channelIds) {
+                queriedChannels.add(channelIds);
+                List retval = new LinkedList();
+                Map row = new HashMap();
+                row.put("server_id", 5000);
+                row.put("name", "test_client_hostname");
+                row.put("release", "test_release");
+                row.put("arch", "test_arch");
+                row.put("user_id", user.getId());
+                retval.add(row);
+                return retval;
+            }
+
+            protected List getErrataToProcess() {
+                List retval = new LinkedList();
+                for (Channel c : Arrays.asList(c1, c2)) {
+                    Map row = new HashMap();
+                    row.put("channel_id", c.getId());
+                    row.put("errata_id", e.getId());
+                    row.put("org_id", user.getOrg().getId());
+                    retval.add(row);
+                }
+                return retval;
+            }
+
+            protected MailHelper createMailHelper() {
+                return MailHelper.withMailer(mail);
+            }
+        };
+        em.execute(null);
+
+        assertEquals(1, queriedChannels.size());
+        assertEquals(Arrays.asList(c1.getId(), c2.getId()), queriedChannels.get(0));
+        assertEquals(1, mail.getSendCount());
+        assertTrue(mail.getSubject().contains(e.getAdvisory()));
+        assertTrue(mail.getBody().contains("test_client_hostname"));
+    }
 }
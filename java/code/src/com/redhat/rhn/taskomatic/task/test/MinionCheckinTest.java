@@ -24,15 +24,25 @@ import com.redhat.rhn.taskomatic.task.MinionCheckin;
 import com.redhat.rhn.testing.JMockBaseTestCaseWithUser;
 import com.redhat.rhn.testing.TestUtils;
 
+import com.suse.manager.webui.services.iface.SaltApi;
 import com.suse.manager.webui.services.impl.SaltService;
+import com.suse.manager.webui.services.test.TestSaltApi;
+import com.suse.salt.netapi.calls.LocalAsyncResult;
 import com.suse.salt.netapi.datatypes.target.MinionList;
 
 import org.apache.commons.lang3.time.DateUtils;
 import org.jmock.Expectations;
 import org.jmock.imposters.ByteBuddyClassImposteriser;
 
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
 
 /**
  * Tests for {@link MinionCheckin}.
@@ -106,10 +116,179 @@ public class MinionCheckinTest extends JMockBaseTestCaseWithUser {
             oneOf(saltServiceMock).checkIn(with(any(MinionList.class)));
         } });
 
-        MinionCheckin minionCheckinJob = new MinionCheckin();
+        MinionCheckin minionCheckinJob = new MinionCheckin() {
+            @Override
+            protected void schedule(Runnable checkIn, long delayMillis) {
+                checkIn.run();
+            }
+        };
         minionCheckinJob.setSaltApi(saltServiceMock);
 
         minionCheckinJob.execute(null);
     }
 
+    /**
+     * Test execution MinionCheckin job.
+     * Check that the check-ins are spread over the window in batches keyed by the minion id, and that
+     * minions whose check-in is still pending are not scheduled again.
+     *
+     * @throws Exception in case of an error
+     */
+    public void testExecuteSpreadsCheckinsInBatches() throws Exception {
+        int batches = 2;
+        int window = 60;
+        Config.get().setString(ConfigDefaults.MINION_CHECKIN_BATCHES, String.valueOf(batches));
+        Config.get().setString(ConfigDefaults.MINION_CHECKIN_WINDOW, String.valueOf(window));
+        try {
+            executeInBatches(batches, window);
+        }
+        finally {
+            Config.get().remove(ConfigDefaults.MINION_CHECKIN_BATCHES);
+            Config.get().remove(ConfigDefaults.MINION_CHECKIN_WINDOW);
+        }
+    }
+
+    /**
+     * Test execution MinionCheckin job.
+     * Check that the batch of a minion depends on the configured number of batches even when there are fewer
+     * candidates than batches, and that the empty batches are not scheduled.
+     *
+     * @throws Exception in case of an error
+     */
+    public void testExecuteWithMoreBatchesThanCandidates() throws Exception {
+        int batches = 10;
+        int window = 60;
+        Config.get().setString(ConfigDefaults.MINION_CHECKIN_BATCHES, String.valueOf(batches));
+        Config.get().setString(ConfigDefaults.MINION_CHECKIN_WINDOW, String.valueOf(window));
+        try {
+            executeInBatches(batches, window);
+        }
+        finally {
+            Config.get().remove(ConfigDefaults.MINION_CHECKIN_BATCHES);
+            Config.get().remove(ConfigDefaults.MINION_CHECKIN_WINDOW);
+        }
+    }
+
+    /**
+     * Test execution MinionCheckin job.
+     * Check that with a window longer than the hourly minion-checkin-default schedule, the next run only
+     * schedules again the minions whose batch was already sent, and not the ones still pending.
+     *
+     * @throws Exception in case of an error
+     */
+    public void testExecuteWithWindowLongerThanSchedule() throws Exception {
+        int batches = 4;
+        int window = 7200;
+        long scheduleMillis = 3600 * 1000L;
+        Config.get().setString(ConfigDefaults.MINION_CHECKIN_BATCHES, String.valueOf(batches));
+        Config.get().setString(ConfigDefaults.MINION_CHECKIN_WINDOW, String.valueOf(window));
+        try {
+            createInactiveMinions(8);
+
+            AtomicInteger checkedIn = new AtomicInteger();
+            SaltApi saltApi = new TestSaltApi() {
+                @Override
+                public Optional<LocalAsyncResult<String>> checkIn(MinionList targetIn) {
+                    checkedIn.incrementAndGet();
+                    return Optional.empty();
+                }
+            };
+            Map<Runnable, Long> checkIns = new LinkedHashMap<>();
+            MinionCheckin minionCheckinJob = new MinionCheckin() {
+                @Override
+                protected void schedule(Runnable checkIn, long delayMillis) {
+                    checkIns.put(checkIn, delayMillis);
+                }
+            };
+            minionCheckinJob.setSaltApi(saltApi);
+
+            minionCheckinJob.execute(null);
+            assertTrue(checkIns.values().stream().allMatch(delay -> delay < window * 1000L));
+
+            // the batches due before the next run are sent, the later ones are still pending
+            Map<Boolean, List<Runnable>> dueBeforeNextRun = checkIns.entrySet().stream()
+                    .collect(Collectors.partitioningBy(e -> e.getValue() < scheduleMillis,
+                            Collectors.mapping(Map.Entry::getKey, Collectors.toList())));
+            List<Runnable> sent = dueBeforeNextRun.get(true);
+            List<Runnable> pending = dueBeforeNextRun.get(false);
+            sent.forEach(Runnable::run);
+            checkIns.clear();
+
+            // the minions checked in are candidates again as the test does not update their last checkin
+            minionCheckinJob.execute(null);
+            assertEquals(sent.size(), checkIns.size());
+            checkIns.keySet().forEach(Runnable::run);
+            assertEquals(2 * sent.size(), checkedIn.get());
+
+            // the batches of the first run still pending are sent after the second run
+            pending.forEach(Runnable::run);
+            assertEquals(2 * sent.size() + pending.size(), checkedIn.get());
+        }
+        finally {
+            Config.get().remove(ConfigDefaults.MINION_CHECKIN_BATCHES);
+            Config.get().remove(ConfigDefaults.MINION_CHECKIN_WINDOW);
+        }
+    }
+
+    // Creates minions which did not check in for longer than the threshold
+    private List<String> createInactiveMinions(int count) throws Exception {
+        List<String> minionIds = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            MinionServer minion = MinionServerFactoryTest.createTestMinionServer(user);
+            ServerInfo serverInfo = minion.getServerInfo();
+            serverInfo.setCheckin(DateUtils.addHours(new Date(), -this.thresholdMax));
+            minion.setServerInfo(serverInfo);
+            TestUtils.saveAndFlush(minion);
+            minionIds.add(minion.getMinionId());
+        }
+        return minionIds;
+    }
+
+    // Runs the check-in job on inactive minions with the given batches and window configured
+    private void executeInBatches(int batches, int window) throws Exception {
+        List<String> minionIds = createInactiveMinions(4);
+        Set<Integer> expectedBatches = minionIds.stream()
+                .map(minionId -> MinionCheckin.getBatch(minionId, batches))
+                .collect(Collectors.toSet());
+
+        AtomicInteger checkInCalls = new AtomicInteger();
+        SaltApi saltApi = new TestSaltApi() {
+            @Override
+            public Optional<LocalAsyncResult<String>> checkIn(MinionList targetIn) {
+                checkInCalls.incrementAndGet();
+                return Optional.empty();
+            }
+        };
+
+        List<Runnable> checkIns = new ArrayList<>();
+        List<Long> delays = new ArrayList<>();
+        MinionCheckin minionCheckinJob = new MinionCheckin() {
+            @Override
+            protected void schedule(Runnable checkIn, long delayMillis) {
+                checkIns.add(checkIn);
+                delays.add(delayMillis);
+            }
+        };
+        minionCheckinJob.setSaltApi(saltApi);
+
+        minionCheckinJob.execute(null);
+        assertEquals(expectedBatches.size(), checkIns.size());
+        long sliceMillis = window * 1000L / batches;
+        int batch = 0;
+        for (Long delay : delays) {
+            while (!expectedBatches.contains(batch)) {
+                batch++;
+            }
+            assertTrue(delay >= batch * sliceMillis);
+            assertTrue(delay < (batch + 1) * sliceMillis);
+            batch++;
+        }
+
+        // pending minions are not scheduled twice
+        minionCheckinJob.execute(null);
+        assertEquals(expectedBatches.size(), checkIns.size());
+
+        checkIns.forEach(Runnable::run);
+        assertEquals(expectedBatches.size(), checkInCalls.get());
+    }
 }
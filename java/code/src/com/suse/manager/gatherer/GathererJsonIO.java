@@ -27,8 +27,12 @@ import com.google.gson.stream.JsonReader;
 import com.google.gson.stream.JsonWriter;
 import com.suse.manager.model.gatherer.GathererModule;
 
+import java.io.EOFException;
 import java.io.IOException;
+import java.io.Reader;
+import java.lang.reflect.Type;
 import java.util.Map;
+import java.util.function.BiConsumer;
 
 /**
  * Json IO handler to and from virtual-host-gatherer
@@ -74,6 +78,36 @@ public class GathererJsonIO {
                 new TypeToken<Map<String, Map<String, HostJson>>>() { }.getType());
     }
 
+    /**
+     * Read Hosts from virtual-host-gatherer's JSON output as it is produced, one virtual host
+     * manager at a time, so that only the hosts of a single virtual host manager are held in
+     * memory. Nothing is read from an empty output.
+     *
+     * @param reader the reader of the JSON output
+     * @param consumer called with each virtual host manager name and its
+     * (virtual name, {@link HostJson}) pairs, in the order of the output
+     * @throws IOException in case the output cannot be read or is truncated
+     * @throws JsonSyntaxException in case JSON does not have correct syntax
+     */
+    public void readHosts(Reader reader, BiConsumer<String, Map<String, HostJson>> consumer)
+            throws IOException, JsonSyntaxException {
+        Type hostsType = new TypeToken<Map<String, HostJson>>() { }.getType();
+        JsonReader jsonReader = new JsonReader(reader);
+        try {
+            jsonReader.beginObject();
+        }
+        catch (EOFException e) {
+            // empty output
+            return;
+        }
+        while (jsonReader.hasNext()) {
+            String name = jsonReader.nextName();
+            Map<String, HostJson> hosts = gson.fromJson(jsonReader, hostsType);
+            consumer.accept(name, hosts);
+        }
+        jsonReader.endObject();
+    }
+
     /**
      * Write Object to Json
      * @param o an object
@@ -32,11 +32,13 @@ import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.io.PrintWriter;
+import java.io.Reader;
 import java.net.URISyntaxException;
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.function.BiConsumer;
 
 
 /**
@@ -79,6 +81,21 @@ public class GathererRunner {
      * (virtual name, {@link HostJson}) pairs
      */
     public Map<String, Map<String, HostJson>> run(List<VirtualHostManager> vhms) {
+        Map<String, Map<String, HostJson>> hosts = new HashMap<>();
+        return run(vhms, hosts::put) ? hosts : null;
+    }
+
+    /**
+     * Runs virtual-host-gatherer against a set of Virtual Host Managers, handing the
+     * results of each Virtual Host Manager to the consumer while the output is read.
+     * The consumer may have been called even if the run eventually fails.
+     *
+     * @param vhms the virtual host managers
+     * @param consumer called with each virtual host manager name and its
+     * (virtual name, {@link HostJson}) pairs
+     * @return true if the gatherer succeeded
+     */
+    public boolean run(List<VirtualHostManager> vhms, BiConsumer<String, Map<String, HostJson>> consumer) {
         List<String> args = new LinkedList<>();
         args.add(GATHERER_CMD);
         args.add("--infile");
@@ -129,7 +146,6 @@ public class GathererRunner {
             envp[i++] = e.getKey() + "=" + e.getValue();
         }
 
-        Map<String, Map<String, HostJson>> hosts = null;
         Runtime r = Runtime.getRuntime();
         try {
             Process p = r.exec(args.toArray(new String[0]), envp);
@@ -155,24 +171,20 @@ public class GathererRunner {
             });
             errStreamReader.start();
 
-            InputStreamReader irr = new InputStreamReader(p.getInputStream());
             // We need to consume the input stream as it comes to avoid
-            // a deadlock because the buffer size is full.
-            BufferedReader br = new BufferedReader(irr);
-            StringBuilder sb = new StringBuilder();
-            String line;
-            while ((line = br.readLine()) != null) {
-                sb.append(line);
+            // a deadlock because the buffer size is full: parse it right away.
+            try (Reader out = new BufferedReader(new InputStreamReader(p.getInputStream()))) {
+                new GathererJsonIO().readHosts(out, consumer);
             }
-            hosts = new GathererJsonIO().readHosts(sb.toString());
 
             int exitCode = p.waitFor();
             if (exitCode != 0) {
                 logger.error("Error while calling the virtual-host-gatherer, exit code " +
                         exitCode);
                 logger.error("Please check the virtual-host-gatherer logfile.");
-                return null;
+                return false;
             }
+            return true;
         }
         catch (IOException ioe) {
             logger.error("execute(String[])", ioe);
@@ -180,6 +192,6 @@ public class GathererRunner {
         catch (InterruptedException e) {
             logger.error("execute(String[])", e);
         }
-        return hosts;
+        return false;
     }
 }
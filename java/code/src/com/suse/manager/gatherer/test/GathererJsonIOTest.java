@@ -26,8 +26,10 @@ import com.suse.manager.gatherer.GathererJsonIO;
 import com.suse.manager.gatherer.HostJson;
 import com.suse.manager.model.gatherer.GathererModule;
 
+import java.io.StringReader;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
@@ -146,4 +148,26 @@ public class GathererJsonIOTest extends TestCase {
         assertNotNull(h.getOptionalVmData());
         assertEquals("running", h.getOptionalVmData().get("SUSE-Manager-Reference").get("vmState"));
     }
+
+    public void testReadGathererOutputStreamed() throws Exception {
+        String json = FileUtils.readStringFromFile(TestUtils.findTestData(GATHEREROUT).getPath());
+        Map<String, Map<String, HostJson>> expected = new GathererJsonIO().readHosts(json);
+
+        List<String> managers = new ArrayList<>();
+        Map<String, Map<String, HostJson>> hosts = new HashMap<>();
+        new GathererJsonIO().readHosts(new StringReader(json), (manager, managerHosts) -> {
+            managers.add(manager);
+            hosts.put(manager, managerHosts);
+        });
+
+        assertEquals(3, managers.size());
+        assertEquals(expected.keySet(), hosts.keySet());
+        HostJson h = hosts.get("1").get("10.162.186.111");
+        assertEquals(expected.get("1").get("10.162.186.111").getHostIdentifier(), h.getHostIdentifier());
+        assertEquals("564d6d90-459c-2256-8f39-3cb2bd24b7b0", h.getVms().get("vCenter"));
+
+        managers.clear();
+        new GathererJsonIO().readHosts(new StringReader(""), (manager, managerHosts) -> managers.add(manager));
+        assertTrue(managers.isEmpty());
+    }
 }
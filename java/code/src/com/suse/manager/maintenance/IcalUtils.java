@@ -145,6 +145,33 @@ public class IcalUtils {
         return sortedLimited;
     }
 
+    /**
+     * Calculate all maintenance windows overlapping the given time range, based on calendar and optional
+     * filter name (in case we're dealing with MULTI calendar and want to filter only events we're
+     * interested in).
+     *
+     * @param calendar the {@link Calendar}
+     * @param eventName for MULTI calendars: only deal with events with this name, filter out the rest
+     * @param from the start of the time range
+     * @param to the end of the time range
+     * @return the maintenance windows, not sorted
+     */
+    public List<Pair<Instant, Instant>> calculatePeriods(Calendar calendar, Optional<String> eventName,
+            Instant from, Instant to) {
+        ComponentList<CalendarComponent> allEvents = calendar.getComponents(Component.VEVENT);
+
+        Collection<CalendarComponent> filteredEvents = eventName
+                .map(summary -> filterEventsBySummary(allEvents, summary))
+                .orElse(allEvents);
+
+        Period period = new Period(new DateTime(from.toEpochMilli()), new DateTime(to.toEpochMilli()));
+
+        return filteredEvents.stream()
+                .flatMap(c -> c.calculateRecurrenceSet(period).stream())
+                .map(p -> Pair.of(p.getStart().toInstant(), p.getRangeEnd().toInstant()))
+                .collect(toList());
+    }
+
     // given collection of events, filter out those with non-matching SUMMARY
     private Collection<CalendarComponent> filterEventsBySummary(ComponentList<CalendarComponent> events, String name) {
         Predicate<CalendarComponent> summaryPredicate = c -> {
@@ -16,7 +16,6 @@ package com.suse.manager.maintenance;
 
 import static com.redhat.rhn.domain.role.RoleFactory.ORG_ADMIN;
 import static java.util.Optional.empty;
-import static java.util.Optional.of;
 import static java.util.stream.Collectors.joining;
 import static java.util.stream.Collectors.toList;
 import static java.util.stream.Collectors.toSet;
@@ -74,7 +73,6 @@ import java.util.Set;
 import java.util.stream.Collectors;
 
 import net.fortuna.ical4j.model.Calendar;
-import net.fortuna.ical4j.model.component.CalendarComponent;
 
 /**
  * MaintenanceManager
@@ -400,6 +398,7 @@ public class MaintenanceManager {
         List<RescheduleResult> result = new LinkedList<>();
         List<MaintenanceSchedule> schedules = scheduleFactory.listByUserAndCalendar(user, calendar);
         calendarFactory.remove(calendar);
+        MaintenanceWindowCache.INSTANCE.evict(calendar);
         for (MaintenanceSchedule schedule: schedules) {
             schedule.setCalendar(null);
             List<RescheduleStrategy> strategy = new LinkedList<>();
@@ -525,18 +524,7 @@ public class MaintenanceManager {
     public void canActionBeScheduled(Set<Long> systemIds, Action action) {
         Date scheduleDate = action.getEarliestAction();
 
-        // we only take maintenance-mode-only actions and actions that don't have prerequisite
-        // (first actions in action chains) into account
-        if (action.getActionType().isMaintenancemodeOnly() && action.getPrerequisite() == null) {
-            // Special Case: we want to allow channel changing but it calls a state.apply
-            if (action.getActionType().equals(ActionFactory.TYPE_APPLY_STATES)) {
-                ApplyStatesAction applyStatesAction = (ApplyStatesAction) action;
-                if (applyStatesAction.getDetails() != null &&
-                        applyStatesAction.getDetails().getMods().equals(
-                            List.of(ApplyStatesEventMessage.CHANNELS))) {
-                    return;
-                }
-            }
+        if (requiresMaintenanceWindow(action)) {
             Set<MaintenanceSchedule> offendingSchedules = listSystemSchedulesNotMatchingDate(systemIds, scheduleDate);
             if (!offendingSchedules.isEmpty()) {
                 throw new NotInMaintenanceModeException(offendingSchedules, scheduleDate);
@@ -544,6 +532,56 @@ public class MaintenanceManager {
         }
     }
 
+    /**
+     * Filter the systems on which an action can be scheduled at its date.
+     *
+     * Unlike {@link #canActionBeScheduled(Set, Action)}, the systems that have a {@link MaintenanceSchedule}
+     * and are outside of their maintenance windows are dropped instead of failing the whole action.
+     *
+     * @param systemIds the system IDs to check
+     * @param action the action
+     * @return the IDs of the systems on which the action can be scheduled, in the given order
+     */
+    public List<Long> systemIdsAllowingAction(Collection<Long> systemIds, Action action) {
+        if (!requiresMaintenanceWindow(action)) {
+            return new ArrayList<>(systemIds);
+        }
+        Set<Long> systemIdSet = new HashSet<>(systemIds);
+        Set<MaintenanceSchedule> offendingSchedules =
+                listSystemSchedulesNotMatchingDate(systemIdSet, action.getEarliestAction());
+        Set<Long> offendingSystemIds = new HashSet<>(
+                scheduleFactory.listSystemIdsWithSchedules(systemIdSet, offendingSchedules));
+        if (!offendingSystemIds.isEmpty() && log.isDebugEnabled()) {
+            log.debug("Skipping systems outside of their maintenance window for action " + action + ": " +
+                    offendingSystemIds);
+        }
+        return systemIds.stream()
+                .filter(sid -> !offendingSystemIds.contains(sid))
+                .collect(toList());
+    }
+
+    /**
+     * Check if an action can only run in the maintenance windows of the systems.
+     *
+     * We only take maintenance-mode-only actions and actions that don't have prerequisite
+     * (first actions in action chains) into account.
+     *
+     * @param action the action
+     * @return true if the maintenance schedules of the systems need to be checked
+     */
+    private boolean requiresMaintenanceWindow(Action action) {
+        if (!action.getActionType().isMaintenancemodeOnly() || action.getPrerequisite() != null) {
+            return false;
+        }
+        // Special Case: we want to allow channel changing but it calls a state.apply
+        if (action.getActionType().equals(ActionFactory.TYPE_APPLY_STATES)) {
+            ApplyStatesAction applyStatesAction = (ApplyStatesAction) action;
+            return applyStatesAction.getDetails() == null ||
+                    !applyStatesAction.getDetails().getMods().equals(List.of(ApplyStatesEventMessage.CHANNELS));
+        }
+        return true;
+    }
+
     /**
      * List {@link MaintenanceSchedule}s which are assigned to given systems and which do NOT match given date
      * (no maintenance windows in given date).
@@ -554,14 +592,7 @@ public class MaintenanceManager {
      */
     private Set<MaintenanceSchedule> listSystemSchedulesNotMatchingDate(Set<Long> systemIds, Date date) {
         return listSchedulesBySystems(systemIds).stream()
-                .filter(schedule -> {
-                    Collection<CalendarComponent> events = icalUtils.getCalendarEventsAtDate(
-                            date,
-                            schedule.getCalendarOpt().flatMap(c -> icalUtils.parseCalendar(c)),
-                            getScheduleNameForMulti(schedule)
-                    );
-                    return events.isEmpty();
-                })
+                .filter(schedule -> !MaintenanceWindowCache.INSTANCE.isInMaintenanceWindow(schedule, date))
                 .collect(toSet());
     }
 
@@ -602,7 +633,8 @@ public class MaintenanceManager {
         }
         List<Server> servers = ServerFactory.lookupByIdsAndOrg(withMaintenanceActions, user.getOrg());
 
-        Optional<Calendar> calendarOpt = schedule.getCalendarOpt().flatMap(c -> icalUtils.parseCalendar(c));
+        Optional<Calendar> calendarOpt = schedule.getCalendarOpt()
+                .flatMap(c -> MaintenanceWindowCache.INSTANCE.getCalendar(c));
 
         List<ActionStatus> pending = new LinkedList<>();
         pending.add(ActionFactory.STATUS_PICKED_UP);
@@ -630,7 +662,7 @@ public class MaintenanceManager {
             })
             .filter(Opt.fold(calendarOpt,
                     () -> (sa -> true),
-                    c -> (sa -> !isActionInMaintenanceWindow(sa.getParentAction(), schedule, calendarOpt))))
+                    c -> (sa -> !isActionInMaintenanceWindow(sa.getParentAction(), schedule))))
             .collect(Collectors.groupingBy(ServerAction::getParentAction,
                     Collectors.mapping(ServerAction::getServer, toList())));
 
@@ -666,37 +698,17 @@ public class MaintenanceManager {
      *
      * @param action the action to check
      * @param schedule the schedule where the action belong to
-     * @param calendarOpt the parsed calendar (for performance reasons)
      * @return true when the action is inside of a maintenance window, otherwise false
      */
-    public boolean isActionInMaintenanceWindow(Action action, MaintenanceSchedule schedule,
-            Optional<Calendar> calendarOpt) {
-        Collection<CalendarComponent> events = icalUtils.getCalendarEventsAtDate(
-                action.getEarliestAction(),
-                calendarOpt,
-                getScheduleNameForMulti(schedule)
-        );
-
-        if (!events.isEmpty()) {
-            if (log.isDebugEnabled()) {
-                events.stream().forEach(cc -> log.debug(
-                        String.format("Action '%s' inside of maintenance window in '%s': '%s'",
-                                action, schedule.getName(), cc)));
-            }
+    public boolean isActionInMaintenanceWindow(Action action, MaintenanceSchedule schedule) {
+        if (MaintenanceWindowCache.INSTANCE.isInMaintenanceWindow(schedule, action.getEarliestAction())) {
+            log.debug(String.format("Action '%s' inside of maintenance window '%s'", action, schedule.getName()));
             return true;
         }
         log.debug(String.format("Action '%s' outside of maintenance window '%s'", action, schedule.getName()));
         return false;
     }
 
-    private Collection<CalendarComponent> getCalendarForNow(MaintenanceSchedule ms) {
-        return ms.getCalendarOpt()
-                .map(cal -> icalUtils.getCalendarEventsAtDate(
-                        new Date(), icalUtils.parseCalendar(cal),
-                        getScheduleNameForMulti(ms)))
-                .orElse(Collections.emptyList());
-    }
-
     /**
      * Check if system is in maintenance mode
      *
@@ -705,7 +717,7 @@ public class MaintenanceManager {
      */
     public boolean isSystemInMaintenanceMode(MinionServer server) {
         return server.getMaintenanceScheduleOpt()
-                .map(schedule -> !getCalendarForNow(schedule).isEmpty())
+                .map(schedule -> MaintenanceWindowCache.INSTANCE.isInMaintenanceWindow(schedule, new Date()))
                 .orElse(true);
     }
 
@@ -719,7 +731,7 @@ public class MaintenanceManager {
         Set<MaintenanceSchedule> schedulesInMaintMode = minions.stream()
                 .flatMap(minion -> minion.getMaintenanceScheduleOpt().stream())
                 .distinct()
-                .filter(sched -> !getCalendarForNow(sched).isEmpty())
+                .filter(sched -> MaintenanceWindowCache.INSTANCE.isInMaintenanceWindow(sched, new Date()))
                 .collect(Collectors.toSet());
 
         List<Long> minionsInMaintMode = minions.stream()
@@ -828,16 +840,4 @@ public class MaintenanceManager {
             throw new EntityExistsException(String.format("Maintenance Calendar '%s' already exists", label));
         }
     }
-
-    /**
-     * Convenience method: return schedule name if the schedule type is MULTI, return empty otherwise
-     * @param schedule the schedule
-     * @return optional of schedule name
-     */
-    private static Optional<String> getScheduleNameForMulti(MaintenanceSchedule schedule) {
-        if (schedule.getScheduleType() == MaintenanceSchedule.ScheduleType.MULTI) {
-            return of(schedule.getName());
-        }
-        return empty();
-    }
 }
@@ -0,0 +1,196 @@
+/**
+ * Copyright (c) 2021 SUSE LLC
+ *
+ * This software is licensed to you under the GNU General Public License,
+ * version 2 (GPLv2). There is NO WARRANTY for this software, express or
+ * implied, including the implied warranties of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. You should have received a copy of GPLv2
+ * along with this software; if not, see
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.txt.
+ *
+ * Red Hat trademarks are not licensed under GPLv2. No permission is
+ * granted to use or replicate Red Hat trademarks that are incorporated
+ * in this software or its documentation.
+ */
+package com.suse.manager.maintenance;
+
+import com.suse.manager.model.maintenance.MaintenanceCalendar;
+import com.suse.manager.model.maintenance.MaintenanceSchedule;
+
+import org.apache.commons.lang3.tuple.Pair;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+import net.fortuna.ical4j.model.Calendar;
+
+/**
+ * Cache of parsed maintenance calendars and of their maintenance windows.
+ *
+ * For each calendar and event name (for MULTI schedules) the maintenance windows of a time range
+ * around the current date are computed once and kept as sorted, merged intervals, so that checking
+ * whether a date is inside a maintenance window is a binary search instead of parsing the calendar
+ * and evaluating the recurrences again. Dates outside of the range are checked against the calendar.
+ *
+ * Entries are keyed by calendar id and are replaced as soon as the iCal data of the calendar changes.
+ */
+public enum MaintenanceWindowCache {
+    INSTANCE;
+
+    // time range of the precomputed maintenance windows, relative to their computation
+    private static final Duration RANGE_PAST = Duration.ofDays(1);
+    private static final Duration RANGE_FUTURE = Duration.ofDays(365);
+    // precomputed maintenance windows are recomputed after this time, so that the range stays around now
+    private static final Duration MAX_AGE = Duration.ofDays(1);
+
+    private final IcalUtils icalUtils = new IcalUtils();
+    private final Map<Long, CachedCalendar> calendars = new ConcurrentHashMap<>();
+
+    /**
+     * Returns the parsed calendar, parsing it only if it is not cached or if its data changed.
+     *
+     * @param calendar the maintenance calendar
+     * @return the parsed calendar or empty, if there was a problem parsing the calendar
+     */
+    public Optional<Calendar> getCalendar(MaintenanceCalendar calendar) {
+        return getCachedCalendar(calendar).calendar;
+    }
+
+    /**
+     * Checks if the given date is inside a maintenance window of the schedule. Schedules without
+     * calendar have no maintenance windows.
+     *
+     * @param schedule the maintenance schedule
+     * @param date the date to check
+     * @return true if the date is inside a maintenance window
+     */
+    public boolean isInMaintenanceWindow(MaintenanceSchedule schedule, Date date) {
+        Optional<MaintenanceCalendar> calendarOpt = schedule.getCalendarOpt();
+        if (calendarOpt.isEmpty()) {
+            return false;
+        }
+        CachedCalendar cached = getCachedCalendar(calendarOpt.get());
+        if (cached.calendar.isEmpty()) {
+            return false;
+        }
+
+        Optional<String> eventName = getScheduleNameForMulti(schedule);
+        Instant now = Instant.now();
+        Windows windows = cached.windows.compute(eventName, (name, current) ->
+                current != null && current.computed.plus(MAX_AGE).isAfter(now) ?
+                        current : new Windows(cached.calendar.get(), name, now));
+
+        Instant instant = date.toInstant();
+        if (instant.isBefore(windows.from) || !instant.isBefore(windows.to)) {
+            return !icalUtils.getCalendarEventsAtDate(date, cached.calendar, eventName).isEmpty();
+        }
+        return windows.contains(instant.toEpochMilli());
+    }
+
+    /**
+     * Removes a calendar from the cache.
+     *
+     * @param calendar the maintenance calendar
+     */
+    public void evict(MaintenanceCalendar calendar) {
+        if (calendar.getId() != null) {
+            calendars.remove(calendar.getId());
+        }
+    }
+
+    /**
+     * Removes all the calendars from the cache.
+     */
+    public void clear() {
+        calendars.clear();
+    }
+
+    private CachedCalendar getCachedCalendar(MaintenanceCalendar calendar) {
+        if (calendar.getId() == null) {
+            return new CachedCalendar(calendar.getIcal(), icalUtils.parseCalendar(calendar));
+        }
+        return calendars.compute(calendar.getId(), (id, cached) ->
+                cached != null && cached.ical.equals(calendar.getIcal()) ?
+                        cached : new CachedCalendar(calendar.getIcal(), icalUtils.parseCalendar(calendar)));
+    }
+
+    private static Optional<String> getScheduleNameForMulti(MaintenanceSchedule schedule) {
+        if (schedule.getScheduleType() == MaintenanceSchedule.ScheduleType.MULTI) {
+            return Optional.of(schedule.getName());
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * A parsed calendar with its precomputed maintenance windows by event name.
+     */
+    private static class CachedCalendar {
+        private final String ical;
+        private final Optional<Calendar> calendar;
+        private final Map<Optional<String>, Windows> windows = new ConcurrentHashMap<>();
+
+        CachedCalendar(String icalIn, Optional<Calendar> calendarIn) {
+            ical = icalIn;
+            calendar = calendarIn;
+        }
+    }
+
+    /**
+     * The maintenance windows of a time range as sorted, non-overlapping intervals.
+     */
+    private class Windows {
+        private final Instant computed;
+        private final Instant from;
+        private final Instant to;
+        private final long[] starts;
+        private final long[] ends;
+
+        Windows(Calendar calendar, Optional<String> eventName, Instant now) {
+            computed = now;
+            from = now.minus(RANGE_PAST);
+            to = now.plus(RANGE_FUTURE);
+
+            List<Pair<Instant, Instant>> periods = icalUtils.calculatePeriods(calendar, eventName, from, to);
+            periods.sort(Comparator.comparing(Pair::getLeft));
+
+            long[] startsTmp = new long[periods.size()];
+            long[] endsTmp = new long[periods.size()];
+            int count = 0;
+            for (Pair<Instant, Instant> period : periods) {
+                long start = period.getLeft().toEpochMilli();
+                long end = period.getRight().toEpochMilli();
+                if (count > 0 && start <= endsTmp[count - 1]) {
+                    endsTmp[count - 1] = Math.max(endsTmp[count - 1], end);
+                }
+                else {
+                    startsTmp[count] = start;
+                    endsTmp[count] = end;
+                    count++;
+                }
+            }
+            starts = Arrays.copyOf(startsTmp, count);
+            ends = Arrays.copyOf(endsTmp, count);
+        }
+
+        /**
+         * Checks if a maintenance window overlaps the second starting at the given time, which is
+         * how {@link IcalUtils#getCalendarEventsAtDate} matches the events.
+         *
+         * @param time the time in milliseconds since the epoch
+         * @return true if the time is inside a maintenance window
+         */
+        boolean contains(long time) {
+            // index of the last window starting before the end of the second
+            int index = Arrays.binarySearch(starts, time + 1000);
+            index = index >= 0 ? index - 1 : -index - 2;
+            return index >= 0 && ends[index] > time;
+        }
+    }
+}
@@ -36,8 +36,10 @@ import com.redhat.rhn.testing.ServerTestUtils;
 import com.redhat.rhn.testing.TestUtils;
 import com.redhat.rhn.testing.UserTestUtils;
 
+import com.suse.manager.maintenance.IcalUtils;
 import com.suse.manager.maintenance.rescheduling.CancelRescheduleStrategy;
 import com.suse.manager.maintenance.MaintenanceManager;
+import com.suse.manager.maintenance.MaintenanceWindowCache;
 import com.suse.manager.maintenance.rescheduling.RescheduleResult;
 import com.suse.manager.maintenance.rescheduling.RescheduleStrategy;
 import com.suse.manager.model.maintenance.MaintenanceCalendar;
@@ -45,9 +47,10 @@ import com.suse.manager.model.maintenance.MaintenanceSchedule;
 import com.suse.manager.model.maintenance.MaintenanceSchedule.ScheduleType;
 
 import java.io.File;
-import java.io.StringReader;
+import java.time.Instant;
 import java.time.ZonedDateTime;
 import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
 import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
@@ -57,10 +60,6 @@ import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 
-import net.fortuna.ical4j.data.CalendarBuilder;
-import net.fortuna.ical4j.model.Calendar;
-
-
 public class MaintenanceManagerTest extends BaseTestCaseWithUser {
 
     private static final String TESTDATAPATH = "/com/suse/manager/maintenance/test/testdata";
@@ -352,24 +351,16 @@ public class MaintenanceManagerTest extends BaseTestCaseWithUser {
         action.addServerAction(serverAction);
         ActionManager.storeAction(action);
 
-        StringReader sin = new StringReader(FileUtils.readStringFromFile(icalKde.getAbsolutePath()));
-        CalendarBuilder builder = new CalendarBuilder();
-        Calendar calendar = null;
-        calendar = builder.build(sin);
-
-        assertFalse(mm.isActionInMaintenanceWindow(action, ms, Optional.ofNullable(calendar)));
+        assertFalse(mm.isActionInMaintenanceWindow(action, ms));
 
         start = ZonedDateTime.parse("2020-04-20T09:00:00+02:00", DateTimeFormatter.ISO_OFFSET_DATE_TIME);
         action.setEarliestAction(Date.from(start.toInstant()));
         ActionManager.storeAction(action);
-        assertTrue(mm.isActionInMaintenanceWindow(action, ms, Optional.ofNullable(calendar)));
+        assertTrue(mm.isActionInMaintenanceWindow(action, ms));
 
         // icalKde2 has an EXDATE 20200420 set
-        sin = new StringReader(FileUtils.readStringFromFile(icalKde2.getAbsolutePath()));
-        builder = new CalendarBuilder();
-        calendar = null;
-        calendar = builder.build(sin);
-        assertFalse(mm.isActionInMaintenanceWindow(action, ms, Optional.ofNullable(calendar)));
+        mc.setIcal(FileUtils.readStringFromFile(icalKde2.getAbsolutePath()));
+        assertFalse(mm.isActionInMaintenanceWindow(action, ms));
     }
 
     public void testScheduleChangeMultiWithCancel() throws Exception {
@@ -570,6 +561,51 @@ public class MaintenanceManagerTest extends BaseTestCaseWithUser {
         );
     }
 
+    public void testMaintenanceWindowCache() throws Exception {
+        File icalExchange = new File(TestUtils.findTestData(
+                new File(TESTDATAPATH,  EXCHANGE_ICS).getAbsolutePath()).getPath());
+        File icalKde = new File(TestUtils.findTestData(
+                new File(TESTDATAPATH,  KDE_ICS).getAbsolutePath()).getPath());
+        MaintenanceManager mm = new MaintenanceManager();
+        IcalUtils icalUtils = new IcalUtils();
+        MaintenanceWindowCache cache = MaintenanceWindowCache.INSTANCE;
+
+        MaintenanceCalendar mc = mm.createCalendar(user, "testcalendar",
+                FileUtils.readStringFromFile(icalExchange.getAbsolutePath()));
+        MaintenanceSchedule schedule = mm.createSchedule(user, "test-schedule", SINGLE, of(mc));
+
+        // the precomputed maintenance windows match the ones computed from the calendar
+        Instant start = Instant.now().truncatedTo(ChronoUnit.HOURS);
+        boolean anyWindow = false;
+        for (int hour = 0; hour < 24 * 8; hour++) {
+            Date date = Date.from(start.plus(hour, ChronoUnit.HOURS));
+            boolean expected = !icalUtils.getCalendarEventsAtDate(date, icalUtils.parseCalendar(mc),
+                    Optional.empty()).isEmpty();
+            assertEquals("Mismatch at " + date, expected, cache.isInMaintenanceWindow(schedule, date));
+            anyWindow |= expected;
+        }
+        // the exchange calendar has a weekly maintenance window
+        assertTrue(anyWindow);
+
+        // dates outside of the precomputed range are checked against the calendar
+        Date farFuture = Date.from(start.plus(800, ChronoUnit.DAYS));
+        assertEquals(!icalUtils.getCalendarEventsAtDate(farFuture, icalUtils.parseCalendar(mc),
+                Optional.empty()).isEmpty(), cache.isInMaintenanceWindow(schedule, farFuture));
+
+        // a change of the calendar data replaces the cached calendar
+        mc.setIcal(FileUtils.readStringFromFile(icalKde.getAbsolutePath()));
+        for (int hour = 0; hour < 24 * 8; hour++) {
+            Date date = Date.from(start.plus(hour, ChronoUnit.HOURS));
+            boolean expected = !icalUtils.getCalendarEventsAtDate(date, icalUtils.parseCalendar(mc),
+                    Optional.empty()).isEmpty();
+            assertEquals("Mismatch at " + date, expected, cache.isInMaintenanceWindow(schedule, date));
+        }
+
+        // schedules without calendar have no maintenance windows
+        MaintenanceSchedule noCalendar = mm.createSchedule(user, "test-schedule-2", SINGLE, Optional.empty());
+        assertFalse(cache.isInMaintenanceWindow(noCalendar, new Date()));
+    }
+
     private void assertExceptionThrown(Runnable body, Class exceptionClass) {
         try {
             body.run();
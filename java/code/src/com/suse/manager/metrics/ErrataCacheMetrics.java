@@ -0,0 +1,79 @@
+/**
+ * Copyright (c) 2021 SUSE LLC
+ *
+ * This software is licensed to you under the GNU General Public License,
+ * version 2 (GPLv2). There is NO WARRANTY for this software, express or
+ * implied, including the implied warranties of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. You should have received a copy of GPLv2
+ * along with this software; if not, see
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.txt.
+ *
+ * Red Hat trademarks are not licensed under GPLv2. No permission is
+ * granted to use or replicate Red Hat trademarks that are incorporated
+ * in this software or its documentation.
+ */
+package com.suse.manager.metrics;
+
+import io.prometheus.client.Collector;
+import io.prometheus.client.Counter;
+import io.prometheus.client.Gauge;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Metrics of the errata cache recomputation: servers waiting for their cache to be recomputed and
+ * progress of the recomputation of server groups. Exported by {@link PrometheusExporter}.
+ */
+public class ErrataCacheMetrics extends Collector {
+
+    /** The singleton instance */
+    public static final ErrataCacheMetrics INSTANCE = new ErrataCacheMetrics();
+
+    private static final String PREFIX = "errata_cache_";
+
+    private final Gauge pending = Gauge.build()
+            .name(PREFIX + "servers_pending")
+            .help("Number of servers whose errata cache is waiting to be recomputed")
+            .create();
+
+    private final Counter servers = Counter.build()
+            .name(PREFIX + "servers_total")
+            .help("Number of servers whose errata cache was recomputed")
+            .create();
+
+    private final Counter groups = Counter.build()
+            .name(PREFIX + "groups_total")
+            .help("Number of groups of servers with the same channels whose errata cache was recomputed")
+            .create();
+
+    private ErrataCacheMetrics() {
+    }
+
+    /**
+     * Records servers whose errata cache is about to be recomputed.
+     * @param count the number of servers
+     */
+    public void serversQueued(int count) {
+        pending.inc(count);
+    }
+
+    /**
+     * Records the end of the recomputation of a group of servers.
+     * @param count the number of servers in the group
+     */
+    public void groupProcessed(int count) {
+        pending.dec(count);
+        servers.inc(count);
+        groups.inc();
+    }
+
+    @Override
+    public List<MetricFamilySamples> collect() {
+        List<MetricFamilySamples> out = new ArrayList<>();
+        out.addAll(pending.collect());
+        out.addAll(servers.collect());
+        out.addAll(groups.collect());
+        return out;
+    }
+}
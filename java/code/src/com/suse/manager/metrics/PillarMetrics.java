@@ -0,0 +1,96 @@
+/**
+ * Copyright (c) 2021 SUSE LLC
+ *
+ * This software is licensed to you under the GNU General Public License,
+ * version 2 (GPLv2). There is NO WARRANTY for this software, express or
+ * implied, including the implied warranties of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. You should have received a copy of GPLv2
+ * along with this software; if not, see
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.txt.
+ *
+ * Red Hat trademarks are not licensed under GPLv2. No permission is
+ * granted to use or replicate Red Hat trademarks that are incorporated
+ * in this software or its documentation.
+ */
+package com.suse.manager.metrics;
+
+import io.prometheus.client.Collector;
+import io.prometheus.client.Counter;
+import io.prometheus.client.Gauge;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Metrics of the minion pillar file writes: backlog of the asynchronous writes and the writes saved
+ * by coalescing and by skipping unchanged files. Exported by {@link PrometheusExporter}.
+ */
+public class PillarMetrics extends Collector {
+
+    /** The singleton instance */
+    public static final PillarMetrics INSTANCE = new PillarMetrics();
+
+    private static final String PREFIX = "minion_pillar_";
+
+    private final Gauge pending = Gauge.build()
+            .name(PREFIX + "pending_writes")
+            .help("Number of pillar files waiting to be written asynchronously")
+            .create();
+
+    private final Counter coalesced = Counter.build()
+            .name(PREFIX + "coalesced_total")
+            .help("Number of queued pillar writes replaced by a later write of the same file")
+            .create();
+
+    private final Counter written = Counter.build()
+            .name(PREFIX + "written_total")
+            .help("Number of pillar files written or removed")
+            .create();
+
+    private final Counter unchanged = Counter.build()
+            .name(PREFIX + "unchanged_total")
+            .help("Number of pillar writes skipped because the file content did not change")
+            .create();
+
+    private PillarMetrics() {
+    }
+
+    /**
+     * Records the number of pillar files waiting to be written.
+     * @param count the number of pending writes
+     */
+    public void setPending(int count) {
+        pending.set(count);
+    }
+
+    /**
+     * Records a queued write that was replaced before being executed.
+     */
+    public void writeCoalesced() {
+        coalesced.inc();
+    }
+
+    /**
+     * Records a pillar file that was written or removed.
+     */
+    public void fileWritten() {
+        written.inc();
+    }
+
+    /**
+     * Records a pillar write that was skipped.
+     */
+    public void fileUnchanged() {
+        unchanged.inc();
+    }
+
+    @Override
+    public List<MetricFamilySamples> collect() {
+        List<MetricFamilySamples> out = new ArrayList<>();
+        out.addAll(pending.collect());
+        out.addAll(coalesced.collect());
+        out.addAll(written.collect());
+        out.addAll(unchanged.collect());
+        return out;
+    }
+}
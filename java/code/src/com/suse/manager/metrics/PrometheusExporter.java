@@ -61,6 +61,42 @@ public enum PrometheusExporter {
         }
     }
 
+    /**
+     * Registers the Salt event processing metrics for monitoring.
+     */
+    public void registerSaltEventMetrics() {
+        if (ENABLED) {
+            SaltEventMetrics.INSTANCE.register();
+        }
+    }
+
+    /**
+     * Registers the minion pillar write metrics for monitoring.
+     */
+    public void registerPillarMetrics() {
+        if (ENABLED) {
+            PillarMetrics.INSTANCE.register();
+        }
+    }
+
+    /**
+     * Registers the errata cache recomputation metrics for monitoring.
+     */
+    public void registerErrataCacheMetrics() {
+        if (ENABLED) {
+            ErrataCacheMetrics.INSTANCE.register();
+        }
+    }
+
+    /**
+     * Registers the report mail metrics for monitoring.
+     */
+    public void registerReportMailMetrics() {
+        if (ENABLED) {
+            ReportMailMetrics.INSTANCE.register();
+        }
+    }
+
     /**
      * Registers a Scheduler for monitoring.
      * @param scheduler a scheduler
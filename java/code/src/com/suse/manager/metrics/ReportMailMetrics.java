@@ -0,0 +1,122 @@
+/**
+ * Copyright (c) 2021 SUSE LLC
+ *
+ * This software is licensed to you under the GNU General Public License,
+ * version 2 (GPLv2). There is NO WARRANTY for this software, express or
+ * implied, including the implied warranties of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. You should have received a copy of GPLv2
+ * along with this software; if not, see
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.txt.
+ *
+ * Red Hat trademarks are not licensed under GPLv2. No permission is
+ * granted to use or replicate Red Hat trademarks that are incorporated
+ * in this software or its documentation.
+ */
+package com.suse.manager.metrics;
+
+import io.prometheus.client.Collector;
+import io.prometheus.client.Counter;
+import io.prometheus.client.Summary;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Metrics of the report mails sent by the Taskomatic jobs: time spent querying the report data,
+ * rendering and sending the mails, and number of mails sent or failed. Exported by {@link PrometheusExporter}.
+ */
+public class ReportMailMetrics extends Collector {
+
+    /** The singleton instance */
+    public static final ReportMailMetrics INSTANCE = new ReportMailMetrics();
+
+    /** Label of the daily summary report */
+    public static final String DAILY_SUMMARY = "daily_summary";
+
+    /** Label of the errata notification report */
+    public static final String ERRATA_MAILER = "errata_mailer";
+
+    private static final String PREFIX = "report_mail_";
+
+    private static final double MILLIS_PER_SECOND = 1000.0;
+
+    private final Summary queryTime = Summary.build()
+            .name(PREFIX + "query_seconds")
+            .help("Time spent querying the data of the reports")
+            .labelNames("report")
+            .create();
+
+    private final Summary renderTime = Summary.build()
+            .name(PREFIX + "render_seconds")
+            .help("Time spent rendering the report mails")
+            .labelNames("report")
+            .create();
+
+    private final Summary sendTime = Summary.build()
+            .name(PREFIX + "send_seconds")
+            .help("Time spent handing the report mails to the SMTP server")
+            .labelNames("report")
+            .create();
+
+    private final Counter sent = Counter.build()
+            .name(PREFIX + "sent_total")
+            .help("Number of report mails sent")
+            .labelNames("report")
+            .create();
+
+    private final Counter failed = Counter.build()
+            .name(PREFIX + "failed_total")
+            .help("Number of report mails that could not be sent")
+            .labelNames("report")
+            .create();
+
+    private ReportMailMetrics() {
+    }
+
+    /**
+     * Records the time spent querying the data of a report.
+     * @param report the report label
+     * @param millis the elapsed time in milliseconds
+     */
+    public void queried(String report, long millis) {
+        queryTime.labels(report).observe(millis / MILLIS_PER_SECOND);
+    }
+
+    /**
+     * Records the time spent rendering a report mail.
+     * @param report the report label
+     * @param millis the elapsed time in milliseconds
+     */
+    public void rendered(String report, long millis) {
+        renderTime.labels(report).observe(millis / MILLIS_PER_SECOND);
+    }
+
+    /**
+     * Records a report mail that was sent.
+     * @param report the report label
+     * @param millis the time spent sending the mail in milliseconds
+     */
+    public void mailSent(String report, long millis) {
+        sendTime.labels(report).observe(millis / MILLIS_PER_SECOND);
+        sent.labels(report).inc();
+    }
+
+    /**
+     * Records a report mail that could not be sent.
+     * @param report the report label
+     */
+    public void mailFailed(String report) {
+        failed.labels(report).inc();
+    }
+
+    @Override
+    public List<MetricFamilySamples> collect() {
+        List<MetricFamilySamples> out = new ArrayList<>();
+        out.addAll(queryTime.collect());
+        out.addAll(renderTime.collect());
+        out.addAll(sendTime.collect());
+        out.addAll(sent.collect());
+        out.addAll(failed.collect());
+        return out;
+    }
+}
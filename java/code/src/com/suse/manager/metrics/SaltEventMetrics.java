@@ -0,0 +1,95 @@
+/**
+ * Copyright (c) 2021 SUSE LLC
+ *
+ * This software is licensed to you under the GNU General Public License,
+ * version 2 (GPLv2). There is NO WARRANTY for this software, express or
+ * implied, including the implied warranties of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. You should have received a copy of GPLv2
+ * along with this software; if not, see
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.txt.
+ *
+ * Red Hat trademarks are not licensed under GPLv2. No permission is
+ * granted to use or replicate Red Hat trademarks that are incorporated
+ * in this software or its documentation.
+ */
+package com.suse.manager.metrics;
+
+import io.prometheus.client.Collector;
+import io.prometheus.client.Counter;
+import io.prometheus.client.Gauge;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Metrics of the Salt event processing: backlog of the event queues and the work saved by
+ * coalescing and batching minion start events. Exported by {@link PrometheusExporter}.
+ */
+public class SaltEventMetrics extends Collector {
+
+    /** The singleton instance */
+    public static final SaltEventMetrics INSTANCE = new SaltEventMetrics();
+
+    private static final String PREFIX = "salt_events_";
+
+    private final Gauge pending = Gauge.build()
+            .name(PREFIX + "pending")
+            .help("Number of Salt events waiting to be processed")
+            .labelNames("queue")
+            .create();
+
+    private final Counter coalescedStarts = Counter.build()
+            .name(PREFIX + "minion_start_coalesced_total")
+            .help("Number of minion start events skipped because a later one for the same minion was processed")
+            .create();
+
+    private final Counter startupGrainsCalls = Counter.build()
+            .name(PREFIX + "startup_grains_calls_total")
+            .help("Number of Salt calls made to fetch missing startup grains")
+            .create();
+
+    private final Counter startupGrainsMinions = Counter.build()
+            .name(PREFIX + "startup_grains_minions_total")
+            .help("Number of minions whose missing startup grains were fetched")
+            .create();
+
+    private SaltEventMetrics() {
+    }
+
+    /**
+     * Records the number of pending events of each queue.
+     * @param counts the pending event counts, indexed by queue
+     */
+    public void setPending(List<Long> counts) {
+        for (int queue = 0; queue < counts.size(); queue++) {
+            pending.labels(String.valueOf(queue)).set(counts.get(queue));
+        }
+    }
+
+    /**
+     * Records minion start events that were skipped.
+     * @param count the number of skipped events
+     */
+    public void startEventsCoalesced(int count) {
+        coalescedStarts.inc(count);
+    }
+
+    /**
+     * Records a Salt call fetching the startup grains of several minions.
+     * @param minions the number of minions targeted by the call
+     */
+    public void startupGrainsFetched(int minions) {
+        startupGrainsCalls.inc();
+        startupGrainsMinions.inc(minions);
+    }
+
+    @Override
+    public List<MetricFamilySamples> collect() {
+        List<MetricFamilySamples> out = new ArrayList<>();
+        out.addAll(pending.collect());
+        out.addAll(coalescedStarts.collect());
+        out.addAll(startupGrainsCalls.collect());
+        out.addAll(startupGrainsMinions.collect());
+        return out;
+    }
+}
@@ -26,7 +26,8 @@ import static com.suse.manager.metrics.CustomCollectorUtils.counterFor;
 import static com.suse.manager.metrics.CustomCollectorUtils.gaugeFor;
 
 /**
- * Collector for a Taskomatic Scheduler.
+ * Collector for a Taskomatic Scheduler, including the bunch and task execution metrics
+ * recorded in {@link TaskomaticMetrics}.
  */
 public class SchedulerCollector extends Collector {
 
@@ -66,6 +67,7 @@ public class SchedulerCollector extends Collector {
         catch (SchedulerException e) {
             LOG.warn("Unable to collect scheduler info ", e);
         }
+        out.addAll(TaskomaticMetrics.INSTANCE.collect());
         return out;
     }
 }
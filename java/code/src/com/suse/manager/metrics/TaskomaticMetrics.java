@@ -0,0 +1,198 @@
+/**
+ * Copyright (c) 2021 SUSE LLC
+ *
+ * This software is licensed to you under the GNU General Public License,
+ * version 2 (GPLv2). There is NO WARRANTY for this software, express or
+ * implied, including the implied warranties of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. You should have received a copy of GPLv2
+ * along with this software; if not, see
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.txt.
+ *
+ * Red Hat trademarks are not licensed under GPLv2. No permission is
+ * granted to use or replicate Red Hat trademarks that are incorporated
+ * in this software or its documentation.
+ */
+package com.suse.manager.metrics;
+
+import io.prometheus.client.Collector.MetricFamilySamples;
+import io.prometheus.client.Counter;
+import io.prometheus.client.Gauge;
+import io.prometheus.client.Histogram;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Execution metrics of Taskomatic bunches and tasks. Values are always recorded and exported
+ * together with the scheduler metrics by {@link SchedulerCollector}.
+ */
+public enum TaskomaticMetrics {
+    INSTANCE;
+
+    private static final String PREFIX = "taskomatic_";
+
+    private final Histogram bunchQueueWait = Histogram.build()
+            .name(PREFIX + "bunch_queue_wait_seconds")
+            .help("Time between the scheduled and the actual start of a bunch")
+            .labelNames("bunch")
+            .buckets(0.1, 0.5, 1, 5, 10, 30, 60, 300, 900, 3600)
+            .create();
+
+    private final Histogram bunchDuration = Histogram.build()
+            .name(PREFIX + "bunch_duration_seconds")
+            .help("Run time of a bunch")
+            .labelNames("bunch")
+            .buckets(1, 5, 15, 60, 300, 900, 1800, 3600, 7200, 14400)
+            .create();
+
+    private final Counter bunchIdle = Counter.build()
+            .name(PREFIX + "bunch_idle_total")
+            .help("Number of bunch runs in which no task ran, e.g. because all were skipped or rescheduled")
+            .labelNames("bunch")
+            .create();
+
+    private final Histogram taskDuration = Histogram.build()
+            .name(PREFIX + "task_duration_seconds")
+            .help("Run time of a task")
+            .labelNames("task", "bunch", "status")
+            .buckets(1, 5, 15, 60, 300, 900, 1800, 3600, 7200, 14400)
+            .create();
+
+    private final Counter taskFailures = Counter.build()
+            .name(PREFIX + "task_failures_total")
+            .help("Number of failed task runs")
+            .labelNames("task", "bunch")
+            .create();
+
+    private final Counter taskSkipped = Counter.build()
+            .name(PREFIX + "task_skipped_total")
+            .help("Number of task runs skipped because the task was already running")
+            .labelNames("task")
+            .create();
+
+    private final Counter taskRescheduledTotal = Counter.build()
+            .name(PREFIX + "task_rescheduled_total")
+            .help("Number of task runs rescheduled because no task thread was available")
+            .labelNames("task")
+            .create();
+
+    private final Gauge tasksRunning = Gauge.build()
+            .name(PREFIX + "tasks_running")
+            .help("Number of task runs currently executing")
+            .labelNames("task")
+            .create();
+
+    private final Gauge tasksRescheduled = Gauge.build()
+            .name(PREFIX + "tasks_rescheduled")
+            .help("Number of schedules currently waiting for a rescheduled run")
+            .labelNames("task")
+            .create();
+
+    // schedule id -> task name of schedules waiting for their rescheduled run
+    private final Map<Long, String> pendingReschedules = new ConcurrentHashMap<>();
+
+    /**
+     * Records the start of a bunch run.
+     * @param bunch the bunch name
+     * @param scheduleId the schedule id
+     * @param scheduledStart the time quartz was supposed to fire, can be null
+     * @param start the actual start time
+     */
+    public void bunchStarted(String bunch, Long scheduleId, Instant scheduledStart, Instant start) {
+        String rescheduledTask = pendingReschedules.remove(scheduleId);
+        if (rescheduledTask != null) {
+            tasksRescheduled.labels(rescheduledTask).dec();
+        }
+        if (scheduledStart != null) {
+            bunchQueueWait.labels(bunch).observe(seconds(scheduledStart, start));
+        }
+    }
+
+    /**
+     * Records the end of a bunch run.
+     * @param bunch the bunch name
+     * @param start the start time of the run
+     */
+    public void bunchFinished(String bunch, Instant start) {
+        bunchDuration.labels(bunch).observe(seconds(start, Instant.now()));
+    }
+
+    /**
+     * Records the end of a bunch run in which no task ran. Such runs are not counted as finished
+     * runs, so that they do not skew the bunch durations.
+     * @param bunch the bunch name
+     */
+    public void bunchIdle(String bunch) {
+        bunchIdle.labels(bunch).inc();
+    }
+
+    /**
+     * Records the start of a task run.
+     * @param task the task name
+     */
+    public void taskStarted(String task) {
+        tasksRunning.labels(task).inc();
+    }
+
+    /**
+     * Records the end of a task run.
+     * @param task the task name
+     * @param bunch the bunch name
+     * @param status the final status of the run
+     * @param start the start time of the run
+     * @param failed true if the run failed
+     */
+    public void taskFinished(String task, String bunch, String status, Instant start, boolean failed) {
+        tasksRunning.labels(task).dec();
+        taskDuration.labels(task, bunch, status.toLowerCase()).observe(seconds(start, Instant.now()));
+        if (failed) {
+            taskFailures.labels(task, bunch).inc();
+        }
+    }
+
+    /**
+     * Records a task run that was skipped because the task is already running.
+     * @param task the task name
+     */
+    public void taskSkipped(String task) {
+        taskSkipped.labels(task).inc();
+    }
+
+    /**
+     * Records a task run that was rescheduled because no thread was available.
+     * @param task the task name
+     * @param scheduleId the schedule id
+     */
+    public void taskRescheduled(String task, Long scheduleId) {
+        taskRescheduledTotal.labels(task).inc();
+        if (pendingReschedules.put(scheduleId, task) == null) {
+            tasksRescheduled.labels(task).inc();
+        }
+    }
+
+    /**
+     * Returns the samples of all the Taskomatic metrics.
+     * @return the metric samples
+     */
+    public List<MetricFamilySamples> collect() {
+        List<MetricFamilySamples> out = new ArrayList<>();
+        out.addAll(bunchQueueWait.collect());
+        out.addAll(bunchDuration.collect());
+        out.addAll(bunchIdle.collect());
+        out.addAll(taskDuration.collect());
+        out.addAll(taskFailures.collect());
+        out.addAll(taskSkipped.collect());
+        out.addAll(taskRescheduledTotal.collect());
+        out.addAll(tasksRunning.collect());
+        out.addAll(tasksRescheduled.collect());
+        return out;
+    }
+
+    private static double seconds(Instant from, Instant to) {
+        return Math.max(Duration.between(from, to).toMillis(), 0) / 1000.0;
+    }
+}
@@ -0,0 +1,107 @@
+/**
+ * Copyright (c) 2021 SUSE LLC
+ *
+ * This software is licensed to you under the GNU General Public License,
+ * version 2 (GPLv2). There is NO WARRANTY for this software, express or
+ * implied, including the implied warranties of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. You should have received a copy of GPLv2
+ * along with this software; if not, see
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.txt.
+ *
+ * Red Hat trademarks are not licensed under GPLv2. No permission is
+ * granted to use or replicate Red Hat trademarks that are incorporated
+ * in this software or its documentation.
+ */
+package com.suse.manager.metrics.test;
+
+import com.redhat.rhn.testing.TestUtils;
+
+import com.suse.manager.metrics.TaskomaticMetrics;
+
+import java.time.Instant;
+import java.util.Arrays;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests for {@link TaskomaticMetrics}. The metrics are global, so every test uses its own
+ * bunch and task names.
+ */
+public class TaskomaticMetricsTest extends TestCase {
+
+    private static final TaskomaticMetrics METRICS = TaskomaticMetrics.INSTANCE;
+
+    private String bunch;
+    private String task;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        bunch = "bunch-" + TestUtils.randomString();
+        task = "task-" + TestUtils.randomString();
+    }
+
+    public void testBunchStartedAndFinished() {
+        Instant start = Instant.now();
+        METRICS.bunchStarted(bunch, 1L, start.minusSeconds(5), start);
+        METRICS.bunchFinished(bunch, start);
+
+        assertEquals(1.0, value("taskomatic_bunch_queue_wait_seconds_count", bunch));
+        assertTrue(value("taskomatic_bunch_queue_wait_seconds_sum", bunch) >= 5.0);
+        assertEquals(1.0, value("taskomatic_bunch_duration_seconds_count", bunch));
+        assertEquals(0.0, value("taskomatic_bunch_idle_total", bunch));
+    }
+
+    public void testBunchIdle() {
+        Instant start = Instant.now();
+        METRICS.bunchStarted(bunch, 2L, null, start);
+        METRICS.bunchIdle(bunch);
+
+        assertEquals(0.0, value("taskomatic_bunch_queue_wait_seconds_count", bunch));
+        assertEquals(0.0, value("taskomatic_bunch_duration_seconds_count", bunch));
+        assertEquals(1.0, value("taskomatic_bunch_idle_total", bunch));
+    }
+
+    public void testTaskStartedAndFinished() {
+        METRICS.taskStarted(task);
+        METRICS.taskStarted(task);
+        assertEquals(2.0, value("taskomatic_tasks_running", task));
+
+        METRICS.taskFinished(task, bunch, "FINISHED", Instant.now(), false);
+        METRICS.taskFinished(task, bunch, "FAILED", Instant.now(), true);
+        assertEquals(0.0, value("taskomatic_tasks_running", task));
+        assertEquals(1.0, value("taskomatic_task_duration_seconds_count", task, bunch, "finished"));
+        assertEquals(1.0, value("taskomatic_task_duration_seconds_count", task, bunch, "failed"));
+        assertEquals(1.0, value("taskomatic_task_failures_total", task, bunch));
+    }
+
+    public void testTaskSkipped() {
+        METRICS.taskSkipped(task);
+        METRICS.taskSkipped(task);
+        assertEquals(2.0, value("taskomatic_task_skipped_total", task));
+    }
+
+    public void testTaskRescheduled() {
+        Long scheduleId = System.nanoTime();
+        METRICS.taskRescheduled(task, scheduleId);
+        METRICS.taskRescheduled(task, scheduleId);
+        assertEquals(2.0, value("taskomatic_task_rescheduled_total", task));
+        assertEquals(1.0, value("taskomatic_tasks_rescheduled", task));
+
+        // the rescheduled run of the schedule starts
+        METRICS.bunchStarted(bunch, scheduleId, null, Instant.now());
+        assertEquals(2.0, value("taskomatic_task_rescheduled_total", task));
+        assertEquals(0.0, value("taskomatic_tasks_rescheduled", task));
+    }
+
+    // Returns the value of the sample with the given name and label values, 0 if there is none
+    private static double value(String name, String... labelValues) {
+        return METRICS.collect().stream()
+                .flatMap(family -> family.samples.stream())
+                .filter(sample -> sample.name.equals(name) &&
+                        sample.labelValues.equals(Arrays.asList(labelValues)))
+                .mapToDouble(sample -> sample.value)
+                .findFirst()
+                .orElse(0.0);
+    }
+}
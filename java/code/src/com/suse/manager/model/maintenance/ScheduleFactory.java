@@ -15,6 +15,7 @@
 
 package com.suse.manager.model.maintenance;
 
+import static java.util.Collections.emptyList;
 import static java.util.Collections.emptySet;
 import static java.util.stream.Collectors.toSet;
 
@@ -173,6 +174,27 @@ public class ScheduleFactory extends HibernateFactory {
                 .collect(toSet());
     }
 
+    /**
+     * Lists the IDs of the given systems that are assigned to one of the given schedules.
+     *
+     * @param systemIds the IDs of systems
+     * @param schedules the schedules
+     * @return the IDs of the systems assigned to one of the schedules
+     */
+    public List<Long> listSystemIdsWithSchedules(Set<Long> systemIds, Set<MaintenanceSchedule> schedules) {
+        if (systemIds.isEmpty() || schedules.isEmpty()) {
+            return emptyList();
+        }
+
+        return getSession()
+                .createQuery("SELECT s.id FROM Server s " +
+                        "WHERE s.maintenanceSchedule IN (:schedules) " +
+                        "AND s.id IN (:systemIds)", Long.class)
+                .setParameter("schedules", schedules)
+                .setParameter("systemIds", systemIds)
+                .list();
+    }
+
     @Override
     protected Logger getLogger() {
         return log;
@@ -28,6 +28,10 @@ import com.redhat.rhn.frontend.events.TransactionHelper;
 import com.impossibl.postgres.api.jdbc.PGConnection;
 import com.impossibl.postgres.api.jdbc.PGNotificationListener;
 import com.impossibl.postgres.jdbc.PGDataSource;
+import com.suse.manager.metrics.SaltEventMetrics;
+import com.suse.manager.reactor.messaging.JobReturnBatch;
+import com.suse.manager.reactor.messaging.MinionStartBatch;
+import com.suse.salt.netapi.datatypes.Event;
 import com.suse.salt.netapi.event.AbstractEventStream;
 import com.suse.salt.netapi.exception.SaltException;
 import com.suse.salt.netapi.parser.JsonParser;
@@ -37,9 +41,11 @@ import org.apache.log4j.Logger;
 import java.io.IOException;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Set;
 import java.util.Timer;
 import java.util.TimerTask;
 import java.util.concurrent.LinkedBlockingQueue;
@@ -48,7 +54,6 @@ import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 import java.util.stream.LongStream;
-import java.util.stream.Stream;
 
 /**
  * Listen for notifications from the Postgres database (suseSaltEvent) and react on those.
@@ -124,6 +129,7 @@ public class PGEventStream extends AbstractEventStream implements PGNotification
                         // then schedule tasks for them
                         // this can only happen in case we lost notifications somehow
                         List<Long> allJobs = SaltEventFactory.countSaltEvents(THREAD_POOL_SIZE + 1);
+                        SaltEventMetrics.INSTANCE.setPending(allJobs);
 
                         List<Long> queuedJobs = executorServices.stream()
                                 .map(executor -> executor.getTaskCount() - executor.getCompletedTaskCount())
@@ -187,17 +193,41 @@ public class PGEventStream extends AbstractEventStream implements PGNotification
      * @param queue the index of the thread processing the events
      */
     private void processEvents(List<SaltEvent> uncommittedEvents, int queue) {
-        Stream<SaltEvent> events = SaltEventFactory.popSaltEvents(MAX_EVENTS_PER_COMMIT, queue)
-                .sorted(comparing(SaltEvent::getMinionId, nullsLast(naturalOrder())).thenComparing(SaltEvent::getId));
+        List<SaltEvent> events = SaltEventFactory.popSaltEvents(MAX_EVENTS_PER_COMMIT, queue)
+                .sorted(comparing(SaltEvent::getMinionId, nullsLast(naturalOrder())).thenComparing(SaltEvent::getId))
+                .collect(toList());
 
-        events.forEach(event -> {
-            if (LOG.isTraceEnabled()) {
-                LOG.trace("Handling event " + event.getId() + " in worker #" + queue);
-                LOG.trace(event.getData());
-            }
+        // the events are tracked while parsing so that an unparsable event is dropped
+        List<Event> parsedEvents = new ArrayList<>(events.size());
+        for (SaltEvent event : events) {
             uncommittedEvents.add(event);
-            notifyListeners(JsonParser.EVENTS.parse(event.getData()));
-        });
+            parsedEvents.add(JsonParser.EVENTS.parse(event.getData()));
+        }
+        uncommittedEvents.clear();
+
+        // follow-up work of job returns and minion starts is collected and executed once for all the events
+        // of this commit
+        JobReturnBatch.start();
+        try {
+            Set<Event> supersededEvents = MinionStartBatch.start(parsedEvents);
+            for (int i = 0; i < events.size(); i++) {
+                SaltEvent event = events.get(i);
+                if (LOG.isTraceEnabled()) {
+                    LOG.trace("Handling event " + event.getId() + " in worker #" + queue);
+                    LOG.trace(event.getData());
+                }
+                uncommittedEvents.add(event);
+                if (!supersededEvents.contains(parsedEvents.get(i))) {
+                    notifyListeners(parsedEvents.get(i));
+                }
+            }
+            JobReturnBatch.flush();
+            MinionStartBatch.flush();
+        }
+        finally {
+            JobReturnBatch.end();
+            MinionStartBatch.end();
+        }
     }
 
     /**
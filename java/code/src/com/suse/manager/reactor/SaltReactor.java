@@ -23,6 +23,7 @@ import com.redhat.rhn.domain.server.MinionServerFactory;
 import com.redhat.rhn.manager.action.ActionManager;
 import com.redhat.rhn.taskomatic.TaskomaticApiException;
 
+import com.suse.manager.metrics.PrometheusExporter;
 import com.suse.manager.reactor.messaging.AbstractLibvirtEngineMessage;
 import com.suse.manager.reactor.messaging.ApplyStatesEventMessage;
 import com.suse.manager.reactor.messaging.ApplyStatesEventMessageAction;
@@ -152,6 +153,8 @@ public class SaltReactor {
 
         MessageQueue.publish(new RefreshGeneratedSaltFilesEventMessage());
 
+        PrometheusExporter.INSTANCE.registerSaltEventMetrics();
+        PrometheusExporter.INSTANCE.registerPillarMetrics();
         connectToEventStream();
     }
 
@@ -46,6 +46,8 @@ import org.apache.commons.lang3.RandomStringUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.log4j.Logger;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
@@ -258,138 +260,188 @@ public class HardwareMapper {
      * @param udevdb exported contents of udevdb
      */
     public void mapDevices(List<Map<String, Object>> udevdb) {
-        // remove any existing devices in case we're refreshing the hw info
-        for (Device device : server.getDevices()) {
-            ServerFactory.delete(device);
-        }
-        server.getDevices().clear();
+        List<Device> devices = new ArrayList<>();
 
         if (udevdb == null || udevdb.isEmpty()) {
             errors.add("Devices: Salt module 'udevdb.exportdb' returned an empty list");
             LOG.error("Salt module 'udevdb.exportdb' returned an empty list " +
                     "for minion: " + server.getMinionId());
-            return;
+        }
+        else {
+            udevdb.forEach(dbdev -> mapDevice(udevdb, dbdev).ifPresent(devices::add));
+        }
+
+        updateDevices(devices);
+    }
+
+    /**
+     * Replace the devices of the server with the given ones. Devices that did not change
+     * since the last refresh are kept as they are, so that only the differences are
+     * written to the database.
+     *
+     * @param devices the current devices of the server
+     */
+    private void updateDevices(List<Device> devices) {
+        Map<List<Object>, List<Device>> existingByKey = server.getDevices().stream()
+                .collect(Collectors.groupingBy(HardwareMapper::deviceKey));
+
+        List<Device> added = new ArrayList<>();
+        for (Device device : devices) {
+            List<Device> existing = existingByKey.get(deviceKey(device));
+            if (existing != null && !existing.isEmpty()) {
+                existing.remove(0);
+            }
+            else {
+                added.add(device);
+            }
         }
 
-        udevdb.forEach(dbdev -> {
-            String devpath = (String)dbdev.get(SYSFS_PATH); // sysfs path without /sys
-            @SuppressWarnings("unchecked")
-            ValueMap props = new ValueMap((Map<String, Object>) dbdev.get(ENTRIES));
-            String subsys = props.getValueAsString("SUBSYSTEM");
-
-            if ("pci".equals(subsys) || "usb".equals(subsys) ||
-                    "block".equals(subsys) || "ccw".equals(subsys) ||
-                    "scsi".equals(subsys)) {
-
-                Device device = new Device();
-                device.setBus(subsys);
-                device.setDriver(props.getValueAsString("DRIVER"));
-                device.setPcitype(classifyPciType(subsys));
-                device.setDetached(0L);
-                device.setDeviceClass(classifyClass(server.getMinionId(), dbdev));
-                device.setDescription(getDeviceDesc(props));
-
-                if (device.getDeviceClass() == null) {
-                    device.setDeviceClass(Device.CLASS_OTHER);
+        existingByKey.values().stream().flatMap(List::stream).forEach(device -> {
+            server.getDevices().remove(device);
+            ServerFactory.delete(device);
+        });
+        added.forEach(device -> {
+            device.setServer(server);
+            server.getDevices().add(device);
+        });
+
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("Devices of minion " + server.getMinionId() + ": " + added.size() + " added, " +
+                    (server.getDevices().size() - added.size()) + " kept");
+        }
+    }
+
+    private static List<Object> deviceKey(Device device) {
+        return Arrays.asList(device.getDeviceClass(), device.getBus(), device.getDetached(),
+                device.getDevice(), device.getDriver(), device.getDescription(), device.getPcitype(),
+                device.getProp1(), device.getProp2(), device.getProp3(), device.getProp4());
+    }
+
+    /**
+     * Map a single udevdb entry to a device.
+     *
+     * @param udevdb exported contents of udevdb
+     * @param dbdev the udevdb entry
+     * @return the device, or empty if the entry is not reported as a device
+     */
+    private Optional<Device> mapDevice(List<Map<String, Object>> udevdb, Map<String, Object> dbdev) {
+        String devpath = (String)dbdev.get(SYSFS_PATH); // sysfs path without /sys
+        @SuppressWarnings("unchecked")
+        ValueMap props = new ValueMap((Map<String, Object>) dbdev.get(ENTRIES));
+        String subsys = props.getValueAsString("SUBSYSTEM");
+
+        if ("pci".equals(subsys) || "usb".equals(subsys) ||
+                "block".equals(subsys) || "ccw".equals(subsys) ||
+                "scsi".equals(subsys)) {
+
+            Device device = new Device();
+            device.setBus(subsys);
+            device.setDriver(props.getValueAsString("DRIVER"));
+            device.setPcitype(classifyPciType(subsys));
+            device.setDetached(0L);
+            device.setDeviceClass(classifyClass(server.getMinionId(), dbdev));
+            device.setDescription(getDeviceDesc(props));
+
+            if (device.getDeviceClass() == null) {
+                device.setDeviceClass(Device.CLASS_OTHER);
+            }
+            if (StringUtils.isBlank(device.getDriver())) {
+                device.setDriver("unknown");
+            }
+            if (subsys.equals("block")) {
+                if (StringUtils.isNotBlank(props.getValueAsString("ID_BUS"))) {
+                    device.setBus(props.getValueAsString("ID_BUS"));
                 }
-                if (StringUtils.isBlank(device.getDriver())) {
-                    device.setDriver("unknown");
+                // the sysname is the part after the last "/"
+                // see libudev/libudev-device.c, udev_device_set_syspath(...)
+                String name = StringUtils.substringAfterLast(devpath, "/");
+                device.setDevice(name);
+
+                if (props.getValueAsString("DEVTYPE").equals("partition")) {
+                    // do not report partitions, just whole disks
+                    return Optional.empty();
                 }
-                if (subsys.equals("block")) {
-                    if (StringUtils.isNotBlank(props.getValueAsString("ID_BUS"))) {
-                        device.setBus(props.getValueAsString("ID_BUS"));
-                    }
-                    // the sysname is the part after the last "/"
-                    // see libudev/libudev-device.c, udev_device_set_syspath(...)
-                    String name = StringUtils.substringAfterLast(devpath, "/");
-                    device.setDevice(name);
-
-                    if (props.getValueAsString("DEVTYPE").equals("partition")) {
-                        // do not report partitions, just whole disks
-                        return;
-                    }
-                    if (StringUtils.isNotBlank(props.getValueAsString("DM_NAME"))) {
-                        // LVM device
-                        return;
-                    }
-                    if (props.getValueAsString("MAJOR").equals("1")) {
-                        // ram device
-                        return;
-                    }
-                    if (props.getValueAsString("MAJOR").equals("7")) {
-                        // character devices for virtual console terminals
-                        return;
-                    }
-                    // This is interpreted as Physical. But what to do with it?
-                    // result_item['prop1'] = ''
-                    // This is interpreted as Logical. But what to do with it?
-                    // result_item['prop2'] = ''
+                if (StringUtils.isNotBlank(props.getValueAsString("DM_NAME"))) {
+                    // LVM device
+                    return Optional.empty();
                 }
-                else if (subsys.equals("pci")) {
-                    String pciClass = props.getValueAsString("PCI_ID");
-                    if (StringUtils.isNotBlank(pciClass)) {
-                        String[] ids = pciClass.split(":");
-                        device.setProp1(ids.length > 0 ? ids[0] : null);
-                        device.setProp2(ids.length > 1 ? ids[1] : null);
-                    }
-                    String pciSubsys = props.getValueAsString("PCI_SUBSYS_ID");
-                    if (StringUtils.isNotBlank(pciSubsys)) {
-                        String[] ids = pciSubsys.split(":");
-                        device.setProp3(ids.length > 0 ? ids[0] : null);
-                        device.setProp4(ids.length > 1 ? ids[1] : null);
-                    }
+                if (props.getValueAsString("MAJOR").equals("1")) {
+                    // ram device
+                    return Optional.empty();
                 }
-                else if (subsys.equals("usb")) {
-                    String vendorId = props.getValueAsString("ID_VENDOR_ID");
-                    if (StringUtils.isNotBlank(vendorId)) {
-                        device.setProp1(vendorId);
-                    }
-                    String modelId = props.getValueAsString("ID_MODEL_ID");
-                    if (StringUtils.isNotBlank(modelId)) {
-                        device.setProp2(modelId);
-                    }
+                if (props.getValueAsString("MAJOR").equals("7")) {
+                    // character devices for virtual console terminals
+                    return Optional.empty();
                 }
-                else if (subsys.equals("scsi")) {
-                    // skip scsi hosts and targets
-                    if (!props.getValueAsString("DEVTYPE").equals("scsi_device")) {
-                        return;
-                    }
-                    // check if this scsi device is already listed as a block device
-                    if (udevdb.stream().anyMatch(dev ->
-                        Objects.toString(dev.get(SYSFS_PATH), "").startsWith(devpath) &&
-                            Optional.ofNullable(dev.get(ENTRIES))
-                                .filter(Map.class::isInstance)
-                                .map(Map.class::cast)
-                                .filter(m -> "block".equals(m.get("SUBSYSTEM"))
-                                ).isPresent())) {
-                        return;
-                    }
+                // This is interpreted as Physical. But what to do with it?
+                // result_item['prop1'] = ''
+                // This is interpreted as Logical. But what to do with it?
+                // result_item['prop2'] = ''
+            }
+            else if (subsys.equals("pci")) {
+                String pciClass = props.getValueAsString("PCI_ID");
+                if (StringUtils.isNotBlank(pciClass)) {
+                    String[] ids = pciClass.split(":");
+                    device.setProp1(ids.length > 0 ? ids[0] : null);
+                    device.setProp2(ids.length > 1 ? ids[1] : null);
                 }
-
-                if (props.getValueAsString("ID_BUS").equals("scsi")) {
-                    String idpath = props.getValueAsString("ID_PATH");
-                    String dpath = props.getValueAsString("DEVPATH");
-                    Matcher m;
-                    if (StringUtils.isNotBlank(idpath)) {
-                        m = Pattern.compile(".*scsi-(\\d+):(\\d+):(\\d+):(\\d+)")
-                                .matcher(idpath);
-                    }
-                    else {
-                        m = Pattern.compile(".*/(\\d+):(\\d+):(\\d+):(\\d+)/block/")
-                                .matcher(dpath);
-                    }
-                    if (m.matches()) {
-                        device.setProp1(m.group(1)); // DEV_HOST
-                        device.setProp2(m.group(2)); // DEV_ID
-                        device.setProp3(m.group(3)); // DEV_CHANNEL
-                        device.setProp4(m.group(4)); // DEV_LUN
-                    }
+                String pciSubsys = props.getValueAsString("PCI_SUBSYS_ID");
+                if (StringUtils.isNotBlank(pciSubsys)) {
+                    String[] ids = pciSubsys.split(":");
+                    device.setProp3(ids.length > 0 ? ids[0] : null);
+                    device.setProp4(ids.length > 1 ? ids[1] : null);
+                }
+            }
+            else if (subsys.equals("usb")) {
+                String vendorId = props.getValueAsString("ID_VENDOR_ID");
+                if (StringUtils.isNotBlank(vendorId)) {
+                    device.setProp1(vendorId);
+                }
+                String modelId = props.getValueAsString("ID_MODEL_ID");
+                if (StringUtils.isNotBlank(modelId)) {
+                    device.setProp2(modelId);
                 }
+            }
+            else if (subsys.equals("scsi")) {
+                // skip scsi hosts and targets
+                if (!props.getValueAsString("DEVTYPE").equals("scsi_device")) {
+                    return Optional.empty();
+                }
+                // check if this scsi device is already listed as a block device
+                if (udevdb.stream().anyMatch(dev ->
+                    Objects.toString(dev.get(SYSFS_PATH), "").startsWith(devpath) &&
+                        Optional.ofNullable(dev.get(ENTRIES))
+                            .filter(Map.class::isInstance)
+                            .map(Map.class::cast)
+                            .filter(m -> "block".equals(m.get("SUBSYSTEM"))
+                            ).isPresent())) {
+                    return Optional.empty();
+                }
+            }
 
-                device.setServer(server);
-                server.getDevices().add(device);
+            if (props.getValueAsString("ID_BUS").equals("scsi")) {
+                String idpath = props.getValueAsString("ID_PATH");
+                String dpath = props.getValueAsString("DEVPATH");
+                Matcher m;
+                if (StringUtils.isNotBlank(idpath)) {
+                    m = Pattern.compile(".*scsi-(\\d+):(\\d+):(\\d+):(\\d+)")
+                            .matcher(idpath);
+                }
+                else {
+                    m = Pattern.compile(".*/(\\d+):(\\d+):(\\d+):(\\d+)/block/")
+                            .matcher(dpath);
+                }
+                if (m.matches()) {
+                    device.setProp1(m.group(1)); // DEV_HOST
+                    device.setProp2(m.group(2)); // DEV_ID
+                    device.setProp3(m.group(3)); // DEV_CHANNEL
+                    device.setProp4(m.group(4)); // DEV_LUN
+                }
             }
-        });
+
+            return Optional.of(device);
+        }
+        return Optional.empty();
     }
 
     /**
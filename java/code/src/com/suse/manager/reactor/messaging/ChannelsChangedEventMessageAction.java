@@ -26,6 +26,7 @@ import com.redhat.rhn.domain.server.ServerFactory;
 import com.redhat.rhn.domain.user.User;
 import com.redhat.rhn.domain.user.UserFactory;
 import com.redhat.rhn.manager.action.ActionManager;
+import com.redhat.rhn.manager.audit.CVEAuditManager;
 import com.redhat.rhn.manager.errata.ErrataManager;
 import com.redhat.rhn.taskomatic.TaskomaticApi;
 import com.redhat.rhn.taskomatic.TaskomaticApiException;
@@ -78,6 +79,9 @@ public class ChannelsChangedEventMessageAction implements MessageAction {
             log.error("Server with id " + serverId + " not found.");
             return;
         }
+        // Recompute the channels relevant for CVE audit
+        CVEAuditManager.insertCVEChannelsTask(s);
+
         Optional<MinionServer> optMinion = s.asMinionServer();
         optMinion.ifPresent(minion -> {
             // This code acts only on salt minions
@@ -0,0 +1,191 @@
+/**
+ * Copyright (c) 2021 SUSE LLC
+ *
+ * This software is licensed to you under the GNU General Public License,
+ * version 2 (GPLv2). There is NO WARRANTY for this software, express or
+ * implied, including the implied warranties of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. You should have received a copy of GPLv2
+ * along with this software; if not, see
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.txt.
+ *
+ * Red Hat trademarks are not licensed under GPLv2. No permission is
+ * granted to use or replicate Red Hat trademarks that are incorporated
+ * in this software or its documentation.
+ */
+package com.suse.manager.reactor.messaging;
+
+import com.redhat.rhn.domain.org.Org;
+import com.redhat.rhn.domain.server.MinionServer;
+import com.redhat.rhn.domain.server.Server;
+import com.redhat.rhn.domain.server.VirtualInstance;
+import com.redhat.rhn.manager.action.ActionManager;
+import com.redhat.rhn.manager.audit.CVEAuditManager;
+import com.redhat.rhn.manager.errata.ErrataManager;
+import com.redhat.rhn.taskomatic.TaskomaticApiException;
+
+import com.suse.manager.reactor.hardware.CpuArchUtil;
+
+import org.apache.log4j.Logger;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Collects the follow-up work of the job returns handled in one event stream transaction: package
+ * list refreshes, errata cache updates, CVE channel updates and check-in updates. The work is
+ * deduplicated per server and executed once when the batch is flushed instead of once per job
+ * return.
+ *
+ * Outside of a batch (i.e. when no batch was started on the current thread) the work is executed
+ * immediately.
+ */
+public class JobReturnBatch {
+
+    private static final Logger LOG = Logger.getLogger(JobReturnBatch.class);
+
+    private static final ThreadLocal<JobReturnBatch> CURRENT = new ThreadLocal<>();
+
+    private final Map<Long, MinionServer> packageRefreshes = new LinkedHashMap<>();
+    private final Map<Long, Server> errataCacheUpdates = new LinkedHashMap<>();
+    private final Map<Long, Server> cveChannelUpdates = new LinkedHashMap<>();
+    private final Map<Long, MinionServer> checkins = new LinkedHashMap<>();
+
+    private JobReturnBatch() {
+    }
+
+    /**
+     * Starts a batch on the current thread.
+     */
+    public static void start() {
+        CURRENT.set(new JobReturnBatch());
+    }
+
+    /**
+     * Executes the work collected by the batch of the current thread, if any. The batch stays
+     * open and can collect more work.
+     */
+    public static void flush() {
+        JobReturnBatch batch = CURRENT.get();
+        if (batch != null) {
+            batch.execute();
+        }
+    }
+
+    /**
+     * Ends the batch of the current thread, dropping any work that was not flushed.
+     */
+    public static void end() {
+        CURRENT.remove();
+    }
+
+    /**
+     * Schedules a package list refresh for a minion.
+     *
+     * @param minion the minion
+     */
+    public static void schedulePackageRefresh(MinionServer minion) {
+        JobReturnBatch batch = CURRENT.get();
+        if (batch != null) {
+            batch.packageRefreshes.putIfAbsent(minion.getId(), minion);
+        }
+        else {
+            schedulePackageRefreshes(Collections.singletonList(minion));
+        }
+    }
+
+    /**
+     * Inserts an errata cache update task for a server.
+     *
+     * @param server the server
+     */
+    public static void insertErrataCacheTask(Server server) {
+        JobReturnBatch batch = CURRENT.get();
+        if (batch != null) {
+            batch.errataCacheUpdates.putIfAbsent(server.getId(), server);
+        }
+        else {
+            ErrataManager.insertErrataCacheTask(server);
+        }
+    }
+
+    /**
+     * Inserts a task recomputing the CVE relevant channels of a server.
+     *
+     * @param server the server
+     */
+    public static void insertCVEChannelsTask(Server server) {
+        JobReturnBatch batch = CURRENT.get();
+        if (batch != null) {
+            batch.cveChannelUpdates.putIfAbsent(server.getId(), server);
+        }
+        else {
+            CVEAuditManager.insertCVEChannelsTask(server);
+        }
+    }
+
+    /**
+     * Updates the check-in time of a minion.
+     *
+     * @param minion the minion
+     */
+    public static void updateCheckin(MinionServer minion) {
+        JobReturnBatch batch = CURRENT.get();
+        if (batch != null) {
+            batch.checkins.putIfAbsent(minion.getId(), minion);
+        }
+        else {
+            checkin(minion);
+        }
+    }
+
+    private void execute() {
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("Flushing job return batch: " + packageRefreshes.size() + " package refreshes, " +
+                    errataCacheUpdates.size() + " errata cache updates, " + cveChannelUpdates.size() +
+                    " CVE channel updates, " + checkins.size() + " check-ins");
+        }
+        if (!packageRefreshes.isEmpty()) {
+            schedulePackageRefreshes(packageRefreshes.values());
+            packageRefreshes.clear();
+        }
+        if (!errataCacheUpdates.isEmpty()) {
+            ErrataManager.insertErrataCacheTasks(errataCacheUpdates.values());
+            errataCacheUpdates.clear();
+        }
+        if (!cveChannelUpdates.isEmpty()) {
+            CVEAuditManager.insertCVEChannelsTasks(cveChannelUpdates.values());
+            cveChannelUpdates.clear();
+        }
+        checkins.values().forEach(JobReturnBatch::checkin);
+        checkins.clear();
+    }
+
+    private static void schedulePackageRefreshes(Collection<MinionServer> minions) {
+        Map<Org, List<MinionServer>> minionsByOrg = minions.stream()
+                .collect(Collectors.groupingBy(MinionServer::getOrg));
+        minionsByOrg.forEach((org, orgMinions) -> {
+            try {
+                ActionManager.schedulePackageRefresh(org, orgMinions);
+            }
+            catch (TaskomaticApiException e) {
+                LOG.error(e);
+            }
+        });
+    }
+
+    private static void checkin(MinionServer minion) {
+        minion.updateServerInfo();
+        // for s390 update the host as well
+        if (minion.getCpu() != null &&
+                CpuArchUtil.isS390(minion.getCpu().getArch().getLabel())) {
+            VirtualInstance virtInstance = minion.getVirtualInstance();
+            if (virtInstance != null && virtInstance.getHostSystem() != null) {
+                virtInstance.getHostSystem().updateServerInfo();
+            }
+        }
+    }
+}
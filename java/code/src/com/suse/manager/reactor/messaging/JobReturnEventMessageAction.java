@@ -18,17 +18,12 @@ import com.redhat.rhn.common.messaging.EventMessage;
 import com.redhat.rhn.common.messaging.MessageAction;
 import com.redhat.rhn.domain.action.ActionChain;
 import com.redhat.rhn.domain.action.ActionChainFactory;
-import com.redhat.rhn.domain.server.MinionServer;
 import com.redhat.rhn.domain.server.MinionServerFactory;
-import com.redhat.rhn.domain.server.VirtualInstance;
-import com.redhat.rhn.manager.action.ActionManager;
-import com.redhat.rhn.taskomatic.TaskomaticApiException;
 
 import com.google.gson.JsonElement;
 import com.google.gson.JsonParseException;
 import com.google.gson.JsonSyntaxException;
 import com.google.gson.reflect.TypeToken;
-import com.suse.manager.reactor.hardware.CpuArchUtil;
 import com.suse.manager.utils.SaltUtils;
 import com.suse.manager.utils.SaltUtils.PackageChangeOutcome;
 import com.suse.manager.webui.services.SaltActionChainGeneratorService;
@@ -205,20 +200,8 @@ public class JobReturnEventMessageAction implements MessageAction {
                             }));
         }
       // For all jobs: update minion last checkin
-        Optional<MinionServer> minion = MinionServerFactory.findByMinionId(
-                jobReturnEvent.getMinionId());
-        if (minion.isPresent()) {
-            MinionServer m = minion.get();
-            m.updateServerInfo();
-            // for s390 update the host as well
-            if (m.getCpu() != null &&
-                CpuArchUtil.isS390(m.getCpu().getArch().getLabel())) {
-                VirtualInstance virtInstance = m.getVirtualInstance();
-                if (virtInstance != null && virtInstance.getHostSystem() != null) {
-                    virtInstance.getHostSystem().updateServerInfo();
-                }
-            }
-        }
+        MinionServerFactory.findByMinionId(jobReturnEvent.getMinionId())
+                .ifPresent(JobReturnBatch::updateCheckin);
     }
 
 
@@ -261,14 +244,7 @@ public class JobReturnEventMessageAction implements MessageAction {
      * @param minionId ID of the minion for which package refresh should be scheduled
      */
     private void schedulePackageRefresh(String minionId) {
-        MinionServerFactory.findByMinionId(minionId).ifPresent(minionServer -> {
-            try {
-                ActionManager.schedulePackageRefresh(minionServer.getOrg(), minionServer);
-            }
-            catch (TaskomaticApiException e) {
-                LOG.error(e);
-            }
-        });
+        MinionServerFactory.findByMinionId(minionId).ifPresent(JobReturnBatch::schedulePackageRefresh);
     }
 
 
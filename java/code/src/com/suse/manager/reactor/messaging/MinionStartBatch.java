@@ -0,0 +1,180 @@
+/**
+ * Copyright (c) 2021 SUSE LLC
+ *
+ * This software is licensed to you under the GNU General Public License,
+ * version 2 (GPLv2). There is NO WARRANTY for this software, express or
+ * implied, including the implied warranties of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. You should have received a copy of GPLv2
+ * along with this software; if not, see
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.txt.
+ *
+ * Red Hat trademarks are not licensed under GPLv2. No permission is
+ * granted to use or replicate Red Hat trademarks that are incorporated
+ * in this software or its documentation.
+ */
+package com.suse.manager.reactor.messaging;
+
+import com.suse.manager.metrics.SaltEventMetrics;
+import com.suse.manager.webui.services.iface.SaltApi;
+import com.suse.manager.webui.utils.salt.custom.MinionStartupGrains;
+import com.suse.salt.netapi.datatypes.Event;
+import com.suse.salt.netapi.datatypes.target.MinionList;
+import com.suse.salt.netapi.event.MinionStartEvent;
+
+import com.google.gson.reflect.TypeToken;
+
+import org.apache.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Handles the minion start events of one event stream transaction together. This matters when
+ * many minions start at the same time (e.g. after a restart of the Salt master):
+ * <ul>
+ *     <li>repeated start events of the same minion are coalesced, only the last one is handled</li>
+ *     <li>the startup grains missing from the events are fetched with a single Salt call</li>
+ *     <li>the system info of all the started minions is updated with a single Salt call</li>
+ * </ul>
+ *
+ * Outside of a batch (i.e. when no batch was started on the current thread) the work is executed
+ * immediately for each minion.
+ */
+public class MinionStartBatch {
+
+    private static final Logger LOG = Logger.getLogger(MinionStartBatch.class);
+
+    private static final ThreadLocal<MinionStartBatch> CURRENT = new ThreadLocal<>();
+
+    private final Set<String> missingGrains = new LinkedHashSet<>();
+    private final Map<String, MinionStartupGrains> startupGrains = new HashMap<>();
+    private boolean grainsFetched = false;
+    private boolean grainsFailed = false;
+
+    private final Set<String> systemInfoUpdates = new LinkedHashSet<>();
+    private SaltApi saltApi;
+
+    private MinionStartBatch() {
+    }
+
+    /**
+     * Starts a batch on the current thread for the given events.
+     *
+     * @param events the events that are about to be handled
+     * @return the minion start events that are superseded by a later start event of the same minion
+     * and should not be handled
+     */
+    public static Set<Event> start(List<Event> events) {
+        MinionStartBatch batch = new MinionStartBatch();
+        CURRENT.set(batch);
+
+        Map<String, Event> lastStartEvents = new LinkedHashMap<>();
+        Set<Event> superseded = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (Event event : events) {
+            MinionStartEvent.parse(event).ifPresent(startEvent -> {
+                String minionId = (String) startEvent.getData().get("id");
+                Event previous = lastStartEvents.put(minionId, event);
+                if (previous != null) {
+                    superseded.add(previous);
+                }
+                if (startEvent.getStartUpGrains(MinionStartupGrains.class).isPresent()) {
+                    batch.missingGrains.remove(minionId);
+                }
+                else {
+                    batch.missingGrains.add(minionId);
+                }
+            });
+        }
+
+        if (!superseded.isEmpty()) {
+            LOG.debug("Skipping " + superseded.size() + " superseded minion start events");
+            SaltEventMetrics.INSTANCE.startEventsCoalesced(superseded.size());
+        }
+        return superseded;
+    }
+
+    /**
+     * Executes the work collected by the batch of the current thread, if any. A failure is
+     * logged and does not affect the handling of the events of the batch.
+     */
+    public static void flush() {
+        MinionStartBatch batch = CURRENT.get();
+        if (batch != null && !batch.systemInfoUpdates.isEmpty()) {
+            try {
+                batch.saltApi.updateSystemInfo(new MinionList(new ArrayList<>(batch.systemInfoUpdates)));
+            }
+            catch (RuntimeException e) {
+                LOG.error("Unable to update the system info of the started minions " +
+                        batch.systemInfoUpdates, e);
+            }
+            finally {
+                batch.systemInfoUpdates.clear();
+            }
+        }
+    }
+
+    /**
+     * Ends the batch of the current thread, dropping any work that was not flushed.
+     */
+    public static void end() {
+        CURRENT.remove();
+    }
+
+    /**
+     * Returns the grains needed to register a minion. Within a batch, the grains of all the
+     * started minions whose start event did not contain them are fetched with the first call. If
+     * that call fails, the grains are fetched for each minion separately.
+     *
+     * @param minionId the minion id
+     * @param saltApi the Salt API to use
+     * @return the startup grains, empty if the minion did not respond
+     */
+    public static Optional<MinionStartupGrains> getStartupGrains(String minionId, SaltApi saltApi) {
+        MinionStartBatch batch = CURRENT.get();
+        if (batch != null && batch.missingGrains.contains(minionId)) {
+            if (!batch.grainsFetched) {
+                batch.grainsFetched = true;
+                try {
+                    batch.startupGrains.putAll(saltApi.getStartupGrains(
+                            new MinionList(new ArrayList<>(batch.missingGrains))));
+                    SaltEventMetrics.INSTANCE.startupGrainsFetched(batch.missingGrains.size());
+                }
+                catch (RuntimeException e) {
+                    LOG.warn("Unable to fetch the startup grains of " + batch.missingGrains.size() +
+                            " minions at once, fetching them one by one", e);
+                    batch.grainsFailed = true;
+                }
+            }
+            if (!batch.grainsFailed) {
+                return Optional.ofNullable(batch.startupGrains.get(minionId));
+            }
+        }
+        return saltApi.getGrains(minionId, new TypeToken<MinionStartupGrains>() { },
+                "machine_id", "saltboot_initrd", "susemanager");
+    }
+
+    /**
+     * Applies the system info state on a started minion.
+     *
+     * @param minionId the minion id
+     * @param saltApi the Salt API to use
+     */
+    public static void updateSystemInfo(String minionId, SaltApi saltApi) {
+        MinionStartBatch batch = CURRENT.get();
+        if (batch != null) {
+            batch.saltApi = saltApi;
+            batch.systemInfoUpdates.add(minionId);
+        }
+        else {
+            saltApi.updateSystemInfo(new MinionList(minionId));
+        }
+    }
+}
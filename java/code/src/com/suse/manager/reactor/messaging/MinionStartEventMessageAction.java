@@ -20,7 +20,6 @@ import com.redhat.rhn.domain.server.MinionServerFactory;
 
 import com.suse.manager.webui.services.iface.SaltApi;
 import com.suse.manager.webui.services.iface.SystemQuery;
-import com.suse.salt.netapi.datatypes.target.MinionList;
 import org.apache.log4j.Logger;
 
 
@@ -50,8 +49,7 @@ public class MinionStartEventMessageAction implements MessageAction {
         MinionServerFactory.findByMinionId(minionId)
                 .ifPresent(minion -> {
             // Sync grains, modules and beacons, also update uptime and required grains on every minion restart
-            MinionList minionTarget = new MinionList(minionId);
-            saltApi.updateSystemInfo(minionTarget);
+            MinionStartBatch.updateSystemInfo(minionId, saltApi);
         });
     }
 
@@ -120,8 +120,7 @@ public class RegisterMinionEventMessageAction implements MessageAction {
     public void execute(EventMessage msg) {
         RegisterMinionEventMessage registerMinionEventMessage = ((RegisterMinionEventMessage) msg);
         Optional<MinionStartupGrains> startupGrainsOpt = Opt.or(registerMinionEventMessage.getMinionStartupGrains(),
-                () -> saltApi.getGrains(registerMinionEventMessage.getMinionId(),
-                        new TypeToken<MinionStartupGrains>() { }, "machine_id", "saltboot_initrd", "susemanager"));
+                () -> MinionStartBatch.getStartupGrains(registerMinionEventMessage.getMinionId(), saltApi));
         registerMinion(registerMinionEventMessage.getMinionId(), false, empty(), empty(),  startupGrainsOpt);
     }
 
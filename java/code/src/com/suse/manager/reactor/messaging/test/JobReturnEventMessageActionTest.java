@@ -46,6 +46,7 @@ import com.redhat.rhn.domain.image.ImageInfoFactory;
 import com.redhat.rhn.domain.image.ImageProfile;
 import com.redhat.rhn.domain.image.ImageStore;
 import com.redhat.rhn.domain.product.test.SUSEProductTestUtils;
+import com.redhat.rhn.domain.server.Device;
 import com.redhat.rhn.domain.server.InstalledPackage;
 import com.redhat.rhn.domain.server.MinionServer;
 import com.redhat.rhn.domain.server.MinionServerFactory;
@@ -75,6 +76,7 @@ import com.redhat.rhn.testing.TestUtils;
 import com.suse.manager.clusters.ClusterManager;
 import com.suse.manager.model.clusters.Cluster;
 import com.suse.manager.reactor.messaging.ApplyStatesEventMessage;
+import com.suse.manager.reactor.messaging.JobReturnBatch;
 import com.suse.manager.reactor.messaging.JobReturnEventMessage;
 import com.suse.manager.reactor.messaging.JobReturnEventMessageAction;
 import com.suse.manager.reactor.utils.test.RhelUtilsTest;
@@ -1238,6 +1240,25 @@ public class JobReturnEventMessageActionTest extends JMockBaseTestCaseWithUser {
     }
 
 
+    public void testHardwareProfileUpdateKeepsUnchangedDevices() throws Exception {
+        MinionServer minion = testHardwareProfileUpdate("hardware.profileupdate.x86.json",
+                (server) -> assertFalse(server.getDevices().isEmpty()));
+        HibernateFactory.getSession().flush();
+        Set<Long> deviceIds = minion.getDevices().stream().map(Device::getId).collect(Collectors.toSet());
+
+        // Refresh the hardware again with the same data
+        Action action = ActionFactoryTest.createAction(user, ActionFactory.TYPE_HARDWARE_REFRESH_LIST);
+        action.addServerAction(ActionFactoryTest.createServerAction(minion, action));
+        Optional<JobReturnEvent> event = JobReturnEvent.parse(
+                getJobReturnEvent("hardware.profileupdate.x86.json", action.getId()));
+        JobReturnEventMessageAction messageAction = new JobReturnEventMessageAction(saltServerActionService, saltUtils);
+        messageAction.execute(new JobReturnEventMessage(event.get()));
+        HibernateFactory.getSession().flush();
+
+        // The devices were not recreated
+        assertEquals(deviceIds, minion.getDevices().stream().map(Device::getId).collect(Collectors.toSet()));
+    }
+
     private MinionServer testHardwareProfileUpdate(String jsonFile, Consumer<MinionServer> assertions) throws Exception{
         // Prepare test objects: minion server and action
         MinionServer server = MinionServerFactoryTest.createTestMinionServer(user);
@@ -1371,6 +1392,37 @@ public class JobReturnEventMessageActionTest extends JMockBaseTestCaseWithUser {
         context().assertIsSatisfied();
     }
 
+    public void testBatchedPackageRefresh() throws Exception {
+        MinionServer minion1 = MinionServerFactoryTest.createTestMinionServer(user);
+        MinionServer minion2 = MinionServerFactoryTest.createTestMinionServer(user);
+
+        TaskomaticApi taskomaticMock = mock(TaskomaticApi.class);
+        ActionManager.setTaskomaticApi(taskomaticMock);
+        context().checking(new Expectations() { {
+            oneOf(taskomaticMock).scheduleActionExecution(with(any(Action.class)));
+        } });
+
+        JobReturnBatch.start();
+        try {
+            JobReturnBatch.schedulePackageRefresh(minion1);
+            JobReturnBatch.schedulePackageRefresh(minion2);
+            JobReturnBatch.schedulePackageRefresh(minion1);
+            assertTrue(ActionFactory.listServerActionsForServer(minion1).isEmpty());
+
+            JobReturnBatch.flush();
+        }
+        finally {
+            JobReturnBatch.end();
+        }
+
+        List<ServerAction> serverActions = ActionFactory.listServerActionsForServer(minion1);
+        assertEquals(1, serverActions.size());
+        Action refresh = serverActions.get(0).getParentAction();
+        assertEquals(ActionFactory.TYPE_PACKAGES_REFRESH_LIST, refresh.getActionType());
+        assertEquals(2, refresh.getServerActions().size());
+        context().assertIsSatisfied();
+    }
+
     public void testOpenscap() throws Exception {
         TaskomaticApi taskomaticMock = mock(TaskomaticApi.class);
         ActionManager.setTaskomaticApi(taskomaticMock);
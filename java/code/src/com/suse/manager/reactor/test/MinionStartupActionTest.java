@@ -14,17 +14,27 @@
  */
 package com.suse.manager.reactor.test;
 
+import com.google.gson.reflect.TypeToken;
 import com.redhat.rhn.domain.server.MinionServer;
 import com.redhat.rhn.domain.server.test.MinionServerFactoryTest;
 import com.redhat.rhn.testing.JMockBaseTestCaseWithUser;
+import com.suse.manager.reactor.messaging.MinionStartBatch;
 import com.suse.manager.reactor.messaging.MinionStartEventMessage;
 import com.suse.manager.reactor.messaging.MinionStartEventMessageAction;
 import com.suse.manager.webui.services.impl.SaltService;
+import com.suse.salt.netapi.datatypes.Event;
 import com.suse.salt.netapi.datatypes.target.MinionList;
+import com.suse.salt.netapi.parser.JsonParser;
 import org.cobbler.test.MockConnection;
 import org.jmock.Expectations;
 import org.jmock.imposters.ByteBuddyClassImposteriser;
 
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
 /**
  * Tests for {@link MinionStartEventMessageAction}.
  */
@@ -53,4 +63,71 @@ public class MinionStartupActionTest extends JMockBaseTestCaseWithUser {
         MinionStartEventMessageAction action = new MinionStartEventMessageAction(saltServiceMock);
         action.execute(new MinionStartEventMessage(MINION_ID));
     }   
+
+    public void testStartupEventsBatched() throws Exception {
+        MinionServer minion1 = MinionServerFactoryTest.createTestMinionServer(user);
+        MinionServer minion2 = MinionServerFactoryTest.createTestMinionServer(user);
+        List<Event> events = Arrays.asList(startEvent(minion1.getMinionId()), startEvent(minion2.getMinionId()),
+                startEvent(minion1.getMinionId()));
+
+        // Grains and system info are handled with one call for all minions
+        context().checking(new Expectations(){{
+            oneOf(saltServiceMock).getStartupGrains(with(any(MinionList.class)));
+            will(returnValue(Collections.emptyMap()));
+            oneOf(saltServiceMock).updateSystemInfo(with(any(MinionList.class)));
+        }});
+
+        Set<Event> superseded = MinionStartBatch.start(events);
+        try {
+            assertEquals(1, superseded.size());
+            assertTrue(superseded.contains(events.get(0)));
+
+            assertFalse(MinionStartBatch.getStartupGrains(minion1.getMinionId(), saltServiceMock).isPresent());
+            assertFalse(MinionStartBatch.getStartupGrains(minion2.getMinionId(), saltServiceMock).isPresent());
+
+            MinionStartEventMessageAction action = new MinionStartEventMessageAction(saltServiceMock);
+            action.execute(new MinionStartEventMessage(minion1.getMinionId()));
+            action.execute(new MinionStartEventMessage(minion2.getMinionId()));
+            MinionStartBatch.flush();
+        }
+        finally {
+            MinionStartBatch.end();
+        }
+    }
+
+    public void testStartupEventsBatchedFailure() throws Exception {
+        MinionServer minion1 = MinionServerFactoryTest.createTestMinionServer(user);
+        MinionServer minion2 = MinionServerFactoryTest.createTestMinionServer(user);
+        List<Event> events = Arrays.asList(startEvent(minion1.getMinionId()), startEvent(minion2.getMinionId()));
+
+        // A failing batched call falls back to one grains call per minion, a failing flush is not propagated
+        context().checking(new Expectations(){{
+            oneOf(saltServiceMock).getStartupGrains(with(any(MinionList.class)));
+            will(throwException(new RuntimeException("Salt API unavailable")));
+            exactly(2).of(saltServiceMock).getGrains(with(any(String.class)), with(any(TypeToken.class)),
+                    with(any(String[].class)));
+            will(returnValue(Optional.empty()));
+            oneOf(saltServiceMock).updateSystemInfo(with(any(MinionList.class)));
+            will(throwException(new RuntimeException("Salt API unavailable")));
+        }});
+
+        MinionStartBatch.start(events);
+        try {
+            assertFalse(MinionStartBatch.getStartupGrains(minion1.getMinionId(), saltServiceMock).isPresent());
+            assertFalse(MinionStartBatch.getStartupGrains(minion2.getMinionId(), saltServiceMock).isPresent());
+
+            MinionStartEventMessageAction action = new MinionStartEventMessageAction(saltServiceMock);
+            action.execute(new MinionStartEventMessage(minion1.getMinionId()));
+            action.execute(new MinionStartEventMessage(minion2.getMinionId()));
+            MinionStartBatch.flush();
+        }
+        finally {
+            MinionStartBatch.end();
+        }
+    }
+
+    private static Event startEvent(String minionId) {
+        return JsonParser.EVENTS.parse("{\"tag\": \"salt/minion/" + minionId + "/start\", " +
+                "\"data\": {\"id\": \"" + minionId + "\"}}");
+    }
 }
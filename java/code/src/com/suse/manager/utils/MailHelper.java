@@ -28,7 +28,7 @@ import java.net.InetAddress;
 /**
  * Utilities related to e-mail sending.
  */
-public class MailHelper {
+public class MailHelper implements AutoCloseable {
 
     public static final String PRODUCT_PREFIX = Config.get().getString("web.product_name") + " ";
 
@@ -65,9 +65,10 @@ public class MailHelper {
      * @param recipient of the message
      * @param subject of the mail
      * @param body of the mail
+     * @return true if the mail was sent, false if sending failed
      */
-    public void sendEmail(String recipient, String subject, String body) {
-        sendEmail(new String[]{recipient}, subject, body);
+    public boolean sendEmail(String recipient, String subject, String body) {
+        return sendEmail(new String[]{recipient}, subject, body);
     }
 
     /**
@@ -75,8 +76,9 @@ public class MailHelper {
      * @param recipients os the message
      * @param subject of the mail
      * @param body of the mail
+     * @return true if the mail was sent, false if sending failed
      */
-    public void sendEmail(String[] recipients, String subject, String body) {
+    public boolean sendEmail(String[] recipients, String subject, String body) {
         mailer.setRecipients(recipients);
         mailer.setSubject(subject);
         mailer.setBody(body);
@@ -86,9 +88,11 @@ public class MailHelper {
         }
         try {
             mailer.send();
+            return true;
         }
         catch (Exception e) {
             LOG.error("Exception while sending email", e);
+            return false;
         }
     }
 
@@ -121,6 +125,27 @@ public class MailHelper {
         return new MailHelper(new SmtpMail());
     }
 
+    /**
+     * Create a MailHelper instance with SmtpMail keeping its connection to the SMTP server open, so that
+     * it is reused for all the emails sent until the instance is closed
+     * @return an instance of MailHelper class configured to use SmtpMail with a single connection
+     */
+    public static MailHelper withSmtpConnection() {
+        SmtpMail smtpMail = new SmtpMail();
+        smtpMail.openConnection();
+        return new MailHelper(smtpMail);
+    }
+
+    /**
+     * Closes the connection to the SMTP server kept open by an instance created with #withSmtpConnection
+     */
+    @Override
+    public void close() {
+        if (mailer instanceof SmtpMail) {
+            ((SmtpMail) mailer).close();
+        }
+    }
+
     /**
      * Create a MailHelper instance with custom mailer class
      * @param mailer Custom mailer
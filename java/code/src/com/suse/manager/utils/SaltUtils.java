@@ -78,6 +78,7 @@ import com.redhat.rhn.domain.rhnpackage.PackageFactory;
 import com.redhat.rhn.domain.rhnpackage.PackageName;
 import com.redhat.rhn.domain.rhnpackage.PackageType;
 import com.redhat.rhn.domain.server.InstalledPackage;
+import com.redhat.rhn.domain.server.InstalledPackageKey;
 import com.redhat.rhn.domain.server.InstalledProduct;
 import com.redhat.rhn.domain.server.MinionServer;
 import com.redhat.rhn.domain.server.MinionServerFactory;
@@ -86,6 +87,7 @@ import com.redhat.rhn.domain.server.ServerFactory;
 import com.redhat.rhn.domain.user.User;
 import com.redhat.rhn.frontend.action.common.BadParameterException;
 import com.redhat.rhn.manager.action.ActionManager;
+import com.redhat.rhn.manager.audit.CVEAuditManager;
 import com.redhat.rhn.manager.audit.ScapManager;
 import com.redhat.rhn.manager.errata.ErrataManager;
 import com.redhat.rhn.manager.formula.FormulaManager;
@@ -101,6 +103,7 @@ import com.suse.manager.reactor.hardware.CpuArchUtil;
 import com.suse.manager.reactor.hardware.HardwareMapper;
 import com.suse.manager.reactor.messaging.ApplyStatesEventMessage;
 import com.suse.manager.reactor.messaging.ChannelsChangedEventMessage;
+import com.suse.manager.reactor.messaging.JobReturnBatch;
 import com.suse.manager.reactor.utils.RhelUtils;
 import com.suse.manager.reactor.utils.ValueMap;
 import com.suse.manager.webui.services.SaltStateGeneratorService;
@@ -154,6 +157,7 @@ import org.apache.commons.io.FilenameUtils;
 import org.apache.commons.lang3.StringEscapeUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.log4j.Logger;
+import org.hibernate.Hibernate;
 
 import java.io.File;
 import java.io.FileInputStream;
@@ -306,13 +310,13 @@ public class SaltUtils {
                 new TypeToken<Map<String, Change<Xor<String, List<Pkg.Info>>>>>() { }
                 .getType()
             );
-            ErrataManager.insertErrataCacheTask(server);
+            JobReturnBatch.insertErrataCacheTask(server);
             outcome = applyChangesFromStateModule(delta, server);
         }
         else if (function.equals("state.apply")) {
             Map<String, JsonElement> apply = Json.GSON.fromJson(
                 callResult, new TypeToken<Map<String, JsonElement>>() { }.getType());
-            ErrataManager.insertErrataCacheTask(server);
+            JobReturnBatch.insertErrataCacheTask(server);
             outcome = applyChangesFromStateApply(apply, server);
         }
         else {
@@ -1328,6 +1332,7 @@ public class SaltUtils {
         serverAction.setStatus(as);
         ImageInfoFactory.save(imageInfo);
         ErrataManager.insertErrataCacheTask(imageInfo);
+        CVEAuditManager.insertCVEChannelsTask(imageInfo);
     }
 
     /**
@@ -1436,7 +1441,8 @@ public class SaltUtils {
         }
 
         // Trigger update of errata cache for this server
-        ErrataManager.insertErrataCacheTask(server);
+        JobReturnBatch.insertErrataCacheTask(server);
+        JobReturnBatch.insertCVEChannelsTask(server);
 
         if (ConfigDefaults.get().isAutomaticSystemLockForClusterNodesEnabled()) {
             // For special nodes: enable minion blackout (= locking) via pillar
@@ -1474,14 +1480,6 @@ public class SaltUtils {
      */
     private static void updatePackages(MinionServer server,
             PkgProfileUpdateSlsResult result) {
-        Set<InstalledPackage> packages = server.getPackages();
-
-        Map<String, InstalledPackage> oldPackageMap = packages.stream()
-            .collect(Collectors.toMap(
-                    SaltUtils::packageToKey,
-                    Function.identity()
-             ));
-
         Map<String, Map.Entry<String, Pkg.Info>> newPackageMap =
             result.getInfoInstalled().getChanges().getRet()
                 .entrySet().stream()
@@ -1499,6 +1497,31 @@ public class SaltUtils {
                         (first, second) -> resolveDuplicatePackage(first, second)
                 ));
 
+        if (Hibernate.isInitialized(server.getPackages())) {
+            // the package entities are already used in this session, keep them consistent
+            updatePackageEntities(server, newPackageMap);
+        }
+        else {
+            updatePackageRows(server, newPackageMap);
+        }
+    }
+
+    /**
+     * Updates a minion's packages through its {@link InstalledPackage} collection.
+     *
+     * @param server a Server object corresponding to a minion
+     * @param newPackageMap the packages reported by Salt, by package key
+     */
+    private static void updatePackageEntities(MinionServer server,
+            Map<String, Map.Entry<String, Pkg.Info>> newPackageMap) {
+        Set<InstalledPackage> packages = server.getPackages();
+
+        Map<String, InstalledPackage> oldPackageMap = packages.stream()
+            .collect(Collectors.toMap(
+                    SaltUtils::packageToKey,
+                    Function.identity()
+             ));
+
         Collection<InstalledPackage> unchanged = oldPackageMap.entrySet().stream().filter(
             e -> newPackageMap.containsKey(e.getKey())
         ).map(Map.Entry::getValue).collect(Collectors.toList());
@@ -1511,6 +1534,48 @@ public class SaltUtils {
         packages.addAll(createPackagesFromSalt(packagesToAdd, server));
     }
 
+    /**
+     * Updates a minion's packages by comparing name, evr and arch ids with the rows stored
+     * in the database and applying the difference with bulk statements. No
+     * {@link InstalledPackage} entity is loaded.
+     *
+     * @param server a Server object corresponding to a minion
+     * @param newPackageMap the packages reported by Salt, by package key
+     */
+    private static void updatePackageRows(MinionServer server,
+            Map<String, Map.Entry<String, Pkg.Info>> newPackageMap) {
+        Map<String, Long> nameIds = PackageFactory.lookupOrCreatePackageNameIds(
+                newPackageMap.values().stream().map(Map.Entry::getKey).collect(Collectors.toSet()));
+
+        Map<String, PackageEvr> transientEvrsBySaltPackageKey = newPackageMap.entrySet().stream()
+                .collect(Collectors.toMap(Map.Entry::getKey,
+                        e -> {
+                            Pkg.Info pkgInfo = e.getValue().getValue();
+                            return toPackageEvr(pkgInfo.getEpoch(), pkgInfo.getVersion().get(),
+                                    pkgInfo.getRelease(), server.getPackageType());
+                        }));
+        Map<PackageEvr, Long> evrIds = PackageEvrFactory.lookupOrCreatePackageEvrIds(
+                transientEvrsBySaltPackageKey.values());
+
+        Map<InstalledPackageKey, Date> newPackages = new HashMap<>();
+        newPackageMap.forEach((saltKey, nameAndInfo) -> {
+            Pkg.Info pkgInfo = nameAndInfo.getValue();
+            InstalledPackageKey key = new InstalledPackageKey(
+                    nameIds.get(nameAndInfo.getKey()),
+                    evrIds.get(transientEvrsBySaltPackageKey.get(saltKey)),
+                    Optional.ofNullable(lookupPackageArch(pkgInfo, server)).map(PackageArch::getId).orElse(null));
+            newPackages.putIfAbsent(key, new Date(pkgInfo.getInstallDateUnixTime().get() * 1000));
+        });
+
+        Set<InstalledPackageKey> oldPackages = ServerFactory.listInstalledPackageKeys(server);
+        List<InstalledPackageKey> removed = oldPackages.stream()
+                .filter(key -> !newPackages.containsKey(key))
+                .collect(Collectors.toList());
+        newPackages.keySet().removeAll(oldPackages);
+
+        ServerFactory.updateInstalledPackages(server, removed, newPackages);
+    }
+
     private static Map.Entry<String, Info> resolveDuplicatePackage(Map.Entry<String, Info> firstEntry,
             Map.Entry<String, Info> secondEntry) {
         Info first = firstEntry.getValue();
@@ -1541,25 +1606,24 @@ public class SaltUtils {
      */
     private static List<InstalledPackage> createPackagesFromSalt(
             Map<String, Tuple2<String, Pkg.Info>> packageInfoAndNameBySaltPackageKey, Server server) {
-        List<String> names = new ArrayList<>(packageInfoAndNameBySaltPackageKey.values().stream().map(Tuple2::getA)
-                .collect(Collectors.toSet()));
-        Collections.sort(names);
-
-        Map<String, PackageName> packageNames = names.stream().collect(Collectors.toMap(Function.identity(),
-                PackageFactory::lookupOrCreatePackageByName));
-
+        Map<String, PackageName> packageNames = PackageFactory.lookupOrCreatePackageNames(
+                packageInfoAndNameBySaltPackageKey.values().stream().map(Tuple2::getA)
+                        .collect(Collectors.toSet()));
 
-        Map<String, PackageEvr> packageEvrsBySaltPackageKey = packageInfoAndNameBySaltPackageKey.entrySet().stream()
+        Map<String, PackageEvr> transientEvrsBySaltPackageKey = packageInfoAndNameBySaltPackageKey.entrySet()
+                .stream()
                 .collect(Collectors.toMap(Map.Entry::getKey,
                         e -> {
                             Pkg.Info pkgInfo = e.getValue().getB();
-                            return parsePackageEvr(pkgInfo.getEpoch(), pkgInfo.getVersion().get(),
+                            return toPackageEvr(pkgInfo.getEpoch(), pkgInfo.getVersion().get(),
                                     pkgInfo.getRelease(), server.getPackageType());
                         }));
+        Map<PackageEvr, PackageEvr> packageEvrs = PackageEvrFactory.lookupOrCreatePackageEvrs(
+                transientEvrsBySaltPackageKey.values());
 
         return packageInfoAndNameBySaltPackageKey.entrySet().stream().map(e -> createInstalledPackage(
                 packageNames.get(e.getValue().getA()),
-                packageEvrsBySaltPackageKey.get(e.getKey()), e.getValue().getB(), server))
+                packageEvrs.get(transientEvrsBySaltPackageKey.get(e.getKey())), e.getValue().getB(), server))
                 .collect(Collectors.toList());
     }
 
@@ -1580,14 +1644,24 @@ public class SaltUtils {
         pkg.setInstallTime(new Date(pkgInfo.getInstallDateUnixTime().get() * 1000));
         pkg.setName(packageName);
         pkg.setServer(server);
+        pkg.setArch(lookupPackageArch(pkgInfo, server));
+        return pkg;
+    }
 
+    /**
+     * Lookup the {@link PackageArch} of a package reported by Salt.
+     *
+     * @param pkgInfo the package info
+     * @param server the server the package is installed on
+     * @return the package arch or null if unknown
+     */
+    private static PackageArch lookupPackageArch(Pkg.Info pkgInfo, Server server) {
         // Add -deb suffix to architectures for Debian systems
         String pkgArch = pkgInfo.getArchitecture().get();
         if (server.getPackageType() == PackageType.DEB) {
             pkgArch += "-deb";
         }
-        pkg.setArch(PackageFactory.lookupPackageArchByLabel(pkgArch));
-        return pkg;
+        return PackageFactory.lookupPackageArchByLabel(pkgArch);
     }
 
     /**
@@ -1704,11 +1778,16 @@ public class SaltUtils {
 
     private static PackageEvr parsePackageEvr(Optional<String> epoch, String version, Optional<String> release,
                                               PackageType type) {
+        return PackageEvrFactory.lookupOrCreatePackageEvr(toPackageEvr(epoch, version, release, type));
+    }
+
+    private static PackageEvr toPackageEvr(Optional<String> epoch, String version, Optional<String> release,
+                                           PackageType type) {
         switch (type) {
             case DEB:
-                return PackageEvrFactory.lookupOrCreatePackageEvr(PackageEvr.parseDebian(version));
+                return PackageEvr.parseDebian(version);
             case RPM:
-                return PackageEvrFactory.lookupOrCreatePackageEvr(epoch.map(StringUtils::trimToNull).orElse(null),
+                return new PackageEvr(epoch.map(StringUtils::trimToNull).orElse(null),
                         version, release.orElse("0"), PackageType.RPM);
             default:
                 throw new RuntimeException("unreachable");
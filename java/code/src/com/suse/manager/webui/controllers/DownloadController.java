@@ -21,10 +21,9 @@ import com.redhat.rhn.domain.channel.Channel;
 import com.redhat.rhn.domain.channel.ChannelFactory;
 import com.redhat.rhn.domain.channel.Comps;
 import com.redhat.rhn.domain.channel.Modules;
-import com.redhat.rhn.domain.rhnpackage.Package;
 import com.redhat.rhn.domain.rhnpackage.PackageEvr;
-import com.redhat.rhn.domain.rhnpackage.PackageFactory;
 
+import com.suse.manager.webui.utils.DownloadCache;
 import com.suse.manager.webui.utils.TokenBuilder;
 import com.suse.utils.Opt;
 
@@ -338,15 +337,15 @@ public class DownloadController {
 
         String mountPoint = Config.get().getString(ConfigDefaults.MOUNT_POINT);
         PkgInfo pkgInfo = parsePackageFileName(path);
-        Package pkg = PackageFactory.lookupByChannelLabelNevraCs(channel, pkgInfo.getName(),
+        Optional<String> pkgPath = DownloadCache.INSTANCE.lookupPackagePath(channel, pkgInfo.getName(),
                 pkgInfo.getVersion(), pkgInfo.getRelease(), pkgInfo.getEpoch(), pkgInfo.getArch(),
                 pkgInfo.getChecksum());
-        if (pkg == null) {
+        if (pkgPath.isEmpty()) {
             halt(HttpStatus.SC_NOT_FOUND,
                  String.format("%s not found in %s", basename, channel));
         }
 
-        File file = new File(mountPoint, pkg.getPath()).getAbsoluteFile();
+        File file = new File(mountPoint, pkgPath.get()).getAbsoluteFile();
 
         return downloadFile(request, response, file);
     }
@@ -443,14 +442,18 @@ public class DownloadController {
      * @param filename the filename
      */
     private static void validateToken(String token, String channel, String filename) {
-        AccessTokenFactory.lookupByToken(token).ifPresent(obj -> {
-            if (!obj.getValid()) {
-                log.info(String.format("Forbidden: invalid token to access %s", filename));
-                halt(HttpStatus.SC_FORBIDDEN, "This token is not valid");
-            }
-        });
         try {
-            JwtClaims claims = JWT_CONSUMER.processToClaims(token);
+            JwtClaims claims = DownloadCache.INSTANCE.getTokenClaims(token).orElse(null);
+            if (claims == null) {
+                AccessTokenFactory.lookupByToken(token).ifPresent(obj -> {
+                    if (!obj.getValid()) {
+                        log.info(String.format("Forbidden: invalid token to access %s", filename));
+                        halt(HttpStatus.SC_FORBIDDEN, "This token is not valid");
+                    }
+                });
+                claims = JWT_CONSUMER.processToClaims(token);
+                DownloadCache.INSTANCE.putTokenClaims(token, claims);
+            }
 
             if (Opt.fold(Optional.ofNullable(claims.getExpirationTime()),
                     () -> false,
@@ -474,7 +477,7 @@ public class DownloadController {
                 log.info("Forbidden: Token does not specify the organization");
                 halt(HttpStatus.SC_BAD_REQUEST, "Token does not specify the organization");
             }, orgId -> {
-                if (!ChannelFactory.isAccessibleBy(channel, orgId)) {
+                if (!DownloadCache.INSTANCE.isAccessibleBy(channel, orgId)) {
                     log.info(String.format("Forbidden: Token does not provide access to channel %s", channel));
                     halt(HttpStatus.SC_FORBIDDEN, "Token does not provide access to channel " + channel);
                 }
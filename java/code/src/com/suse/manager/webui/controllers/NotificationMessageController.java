@@ -40,6 +40,7 @@ import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 import com.google.gson.reflect.TypeToken;
 
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
@@ -157,7 +158,7 @@ public class NotificationMessageController {
 
         UserNotificationFactory.delete(notifications);
 
-        Notification.spreadUpdate();
+        Notification.spreadUpdate(Collections.singleton(user.getId()));
 
         Map<String, String> data = new HashMap<>();
         data.put("severity", "success");
@@ -193,7 +194,7 @@ public class NotificationMessageController {
             }
         });
 
-        Notification.spreadUpdate();
+        Notification.spreadUpdate(Collections.singleton(user.getId()));
 
         Map<String, String> data = new HashMap<>();
         data.put("severity", "success");
@@ -46,6 +46,7 @@ import com.redhat.rhn.testing.TestUtils;
 
 import com.mockobjects.servlet.MockHttpServletResponse;
 import com.suse.manager.webui.controllers.DownloadController;
+import com.suse.manager.webui.utils.DownloadCache;
 import com.suse.manager.webui.utils.DownloadTokenBuilder;
 import com.suse.manager.webui.utils.SparkTestUtils;
 
@@ -156,6 +157,7 @@ public class DownloadControllerTest extends BaseTestCaseWithUser {
         Config.get().setString(ConfigDefaults.MOUNT_POINT, packageFile.getParent());
 
         DownloadController.setCheckTokens(true);
+        DownloadCache.INSTANCE.clear();
     }
 
     /**
@@ -443,6 +445,35 @@ public class DownloadControllerTest extends BaseTestCaseWithUser {
         }
     }
 
+    /**
+     * Tests that a token invalidated after it was used and cached is not accepted anymore.
+     *
+     * @throws Exception if anything goes wrong
+     */
+    public void testTokenInvalidatedAfterDownload() throws Exception {
+        MinionServer testMinionServer = MinionServerFactoryTest.createTestMinionServer(user);
+        testMinionServer.getChannels().add(channel);
+        AccessTokenFactory.refreshTokens(testMinionServer);
+        AccessToken token = testMinionServer.getAccessTokens().iterator().next();
+
+        Map<String, String> params = new HashMap<>();
+        params.put(token.getToken(), "");
+        assertNotNull(DownloadController.downloadPackage(getMockRequestWithParams(params), response));
+        assertEquals(packageFile.getAbsolutePath(), response.raw().getHeader("X-Sendfile"));
+
+        token.setValid(false);
+        AccessTokenFactory.save(token);
+
+        try {
+            DownloadController.downloadPackage(getMockRequestWithParams(params),
+                    RequestResponseFactory.create(new RhnMockHttpServletResponse()));
+            fail(String.format("%s should halt 403 if the token was invalidated",
+                    DownloadController.class.getSimpleName()));
+        } catch (spark.HaltException e) {
+            assertEquals(403, e.getStatusCode());
+        }
+    }
+
     /**
      * Test a download with a correct channel in the token and the token
      * in a query param.
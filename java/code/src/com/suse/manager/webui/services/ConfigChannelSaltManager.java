@@ -20,22 +20,31 @@ import com.redhat.rhn.domain.config.ConfigFile;
 import com.redhat.rhn.domain.config.ConfigFileType;
 import com.redhat.rhn.domain.config.ConfigInfo;
 import com.redhat.rhn.domain.config.ConfigRevision;
+import com.suse.manager.webui.utils.SaltFileUtils;
 import com.suse.manager.webui.utils.YamlHelper;
 import com.suse.utils.Opt;
-import org.apache.commons.codec.CharEncoding;
 import org.apache.commons.io.FileUtils;
 import org.apache.log4j.Logger;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static com.redhat.rhn.domain.config.ConfigFileState.NORMAL;
 import static com.suse.manager.webui.services.SaltConstants.SALT_FS_PREFIX;
@@ -54,6 +63,9 @@ public class ConfigChannelSaltManager {
     private static ConfigChannelSaltManager instance;
     private static final Logger LOG = Logger.getLogger(ConfigChannelSaltManager.class);
 
+    // locks of the channel directories, so that different channels can be generated concurrently
+    private final Map<Path, Object> channelLocks = new ConcurrentHashMap<>();
+
     /**
      * Gets the instance.
      *
@@ -107,13 +119,14 @@ public class ConfigChannelSaltManager {
      * @param oldChannelLabel - the old label of the channel
      * @throws IOException in case of an IO error
      */
-    public synchronized void generateConfigChannelFiles(ConfigChannel channel,
+    public void generateConfigChannelFiles(ConfigChannel channel,
             Optional<String> oldChannelLabel) {
         try {
             LOG.debug("Generating file structure for configuration channel: " +
                     channel.getLabel() + " (old channel label: " +
                     oldChannelLabel.orElse("<empty>") + ").");
-            doGenerateConfigChannelFiles(channel);
+            withChannelLock(getChannelRelativePath(channel.getOrgId(), channel.getLabel()),
+                    () -> doGenerateConfigChannelFiles(channel));
         }
         catch (IOException e) {
             LOG.error("Error when handling salt file structure for channel: " +
@@ -138,18 +151,40 @@ public class ConfigChannelSaltManager {
      *
      * @param channel the channel
      */
-    public synchronized void removeConfigChannelFiles(ConfigChannel channel) {
+    public void removeConfigChannelFiles(ConfigChannel channel) {
         removeConfigChannelFiles(channel.getOrgId(), channel.getLabel());
     }
 
+    // Runs an action on the files of a channel while holding the lock of the channel directory
+    private void withChannelLock(Path channelPath, ChannelFilesAction action) throws IOException {
+        while (true) {
+            Object lock = channelLocks.computeIfAbsent(channelPath, path -> new Object());
+            synchronized (lock) {
+                // the lock is dropped when the channel files are removed, retry with the new one then
+                if (channelLocks.get(channelPath) == lock) {
+                    action.run();
+                    return;
+                }
+            }
+        }
+    }
+
+    // An action on the files of a channel
+    @FunctionalInterface
+    private interface ChannelFilesAction {
+        void run() throws IOException;
+    }
+
     /**
      * Perform actual disk actions to reflect the configuration channel state on the disk.
+     * Only the files whose contents changed are written. Files that do not belong to the
+     * channel anymore are removed first, so that a path which changed from a file to a
+     * directory, or back, does not get in the way of the new files.
      *
      * @param channel - the config channel
      * @throws IOException in case of an IO error
      */
     private void doGenerateConfigChannelFiles(ConfigChannel channel) throws IOException {
-        // TODO synchronize at file level not on the class instance
         if (!(channel.isNormalChannel() || channel.isStateChannel())) {
             LOG.debug("Trying to generate salt files for incompatible channel type " +
                     "(channel: " + channel + "). Skipping. (Only 'normal' and 'state' " +
@@ -157,90 +192,100 @@ public class ConfigChannelSaltManager {
             return;
         }
         File channelDir = getChannelDir(channel);
-        if (channelDir.exists()) {
-            FileUtils.cleanDirectory(channelDir);
-        }
+        Map<File, byte[]> files = new LinkedHashMap<>();
 
         for (ConfigFile file : ofNullable(channel.getConfigFiles())
                 .orElse(emptySortedSet())) {
-            generateConfigFile(channelDir, file);
+            getConfigFileContents(file).ifPresent(contents ->
+                    files.put(new File(channelDir, file.getConfigFileName().getPath()), contents));
         }
         if (channel.isNormalChannel()) {
-            File stateFile = new File(channelDir, defaultExtension("init.sls"));
-            writeTextFile(configChannelInitSLSContent(channel), channelDir, stateFile);
+            files.put(new File(channelDir, defaultExtension("init.sls")),
+                    configChannelInitSLSContent(channel).getBytes(StandardCharsets.UTF_8));
+        }
+        for (File file : files.keySet()) {
+            assertStateInOrgDir(channelDir, file);
         }
-    }
 
-    private File getChannelDir(ConfigChannel channel) {
-        return Paths.get(baseDirPath).resolve(getChannelRelativePath(channel)).toFile();
+        removeStaleFiles(channelDir, files.keySet().stream()
+                .map(file -> file.toPath().toAbsolutePath().normalize())
+                .collect(Collectors.toSet()));
+        for (Map.Entry<File, byte[]> file : files.entrySet()) {
+            LOG.trace("Generating configuration file: " + file.getKey());
+            SaltFileUtils.writeAtomically(file.getKey().toPath(), file.getValue());
+        }
     }
 
     /**
-     * Generate file for ConfigFile on the disk
-     * @param channelDir - the channel namespace on the disk
-     * @param file the config file
-     * @throws IOException if there is an error when writing on the disk
+     * Removes the files of the channel directory that were not generated and the directories left empty.
+     *
+     * @param channelDir the channel directory
+     * @param generatedFiles the absolute paths of the generated files
+     * @throws IOException if there is an error when deleting the files
      */
-    private void generateConfigFile(File channelDir, ConfigFile file) throws IOException {
-        ConfigRevision latestRev = file.getLatestConfigRevision();
-        if (!(latestRev.isFile() || latestRev.isSls())) {
-            // we only generate files/sls, no symlinks/directories
+    private void removeStaleFiles(File channelDir, Set<Path> generatedFiles) throws IOException {
+        if (!channelDir.exists()) {
             return;
         }
-        LOG.trace("Generating configuration file: " + file.getConfigFileName().getPath());
-        File fileOnDisk = new File(channelDir, file.getConfigFileName().getPath());
-
-        if (latestRev.getConfigContent().isBinary()) {
-            writeBinaryFile(latestRev.getConfigContent().getContents(), channelDir, fileOnDisk);
+        Path channelPath = channelDir.toPath().toAbsolutePath().normalize();
+        List<Path> paths;
+        try (Stream<Path> walk = Files.walk(channelPath)) {
+            // deepest paths first, so that directories are emptied before they are checked
+            paths = walk.sorted(Comparator.reverseOrder()).collect(Collectors.toList());
         }
-        else {
-            writeTextFile(latestRev.getConfigContent().getContentsString(), channelDir, fileOnDisk);
+        for (Path path : paths) {
+            if (path.equals(channelPath)) {
+                continue;
+            }
+            if (Files.isDirectory(path, LinkOption.NOFOLLOW_LINKS)) {
+                try (Stream<Path> entries = Files.list(path)) {
+                    if (entries.findAny().isEmpty()) {
+                        Files.delete(path);
+                    }
+                }
+            }
+            else if (!generatedFiles.contains(path)) {
+                LOG.trace("Removing stale configuration file: " + path);
+                Files.delete(path);
+            }
         }
     }
 
-    /**
-     * Checks that the outFile is inside the channel directory and writes the contents to
-     * it.
-     *
-     * @param content string to be written
-     * @param channelDir the channel directory
-     * @param outFile the output file
-     * @throws IllegalArgumentException if there is an attempt to write file outside channel
-     * directory
-     * @throws IOException if there is an error when writing on the disk
-     */
-    private void writeTextFile(String content, File channelDir, File outFile)
-            throws IOException {
-        assertStateInOrgDir(channelDir, outFile);
-        outFile.getParentFile().mkdirs();
-        FileUtils.writeStringToFile(outFile, content, CharEncoding.UTF_8);
-     }
+    private File getChannelDir(ConfigChannel channel) {
+        return Paths.get(baseDirPath).resolve(getChannelRelativePath(channel)).toFile();
+    }
 
     /**
-     * Checks that the outFile is inside the channel directory and writes the contents to
-     * it.
-     *
-     * @param content byte[] ConfigContent to be written
-     * @param channelDir the channel directory
-     * @param outFile the output file
-     * @throws IllegalArgumentException if there is an attempt to write file outside channel
-     * directory
-     * @throws IOException if there is an error when writing on the disk
+     * Get the contents of the file generated on the disk for a ConfigFile
+     * @param file the config file
+     * @return the contents, empty if no file is generated for the config file
      */
-    private void writeBinaryFile(byte[] content, File channelDir, File outFile)  throws IOException {
-        assertStateInOrgDir(channelDir, outFile);
-        outFile.getParentFile().mkdirs();
-        FileUtils.writeByteArrayToFile(outFile, content);
-
+    private Optional<byte[]> getConfigFileContents(ConfigFile file) {
+        ConfigRevision latestRev = file.getLatestConfigRevision();
+        if (!(latestRev.isFile() || latestRev.isSls())) {
+            // we only generate files/sls, no symlinks/directories
+            return empty();
+        }
+        // the stored bytes are written as they are, text contents are not decoded to a String
+        byte[] contents = latestRev.getConfigContent().getContents();
+        return Optional.of(contents != null ? contents : new byte[0]);
     }
 
     private void removeConfigChannelFiles(Long orgId, String channelLabel) {
         LOG.trace("Deleting unused file structure for configuration channel: " +
                 channelLabel);
         try {
-            File channelDirectory = Paths.get(baseDirPath).resolve(
-                    getChannelRelativePath(orgId, channelLabel)).toFile();
-            FileUtils.deleteDirectory(channelDirectory);
+            Path channelPath = getChannelRelativePath(orgId, channelLabel);
+            File channelDirectory = Paths.get(baseDirPath).resolve(channelPath).toFile();
+            withChannelLock(channelPath, () -> {
+                try {
+                    FileUtils.deleteDirectory(channelDirectory);
+                }
+                finally {
+                    // the channel has no files anymore, do not keep its lock around
+                    channelLocks.remove(channelPath);
+                }
+            });
         }
         catch (IOException e) {
             LOG.error("Error when deleting salt file structure for channel: " +
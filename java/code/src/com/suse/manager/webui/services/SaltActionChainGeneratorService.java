@@ -40,15 +40,17 @@ import com.suse.manager.webui.utils.SaltState;
 import com.suse.manager.webui.utils.SaltStateGenerator;
 import com.suse.manager.webui.utils.SaltSystemReboot;
 import com.suse.manager.webui.utils.SaltTop;
+import org.apache.commons.codec.digest.DigestUtils;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.lang3.tuple.ImmutablePair;
 import org.apache.commons.lang3.tuple.Pair;
 import org.apache.log4j.Logger;
 
-import java.io.BufferedWriter;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.StringWriter;
 import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.DirectoryStream;
 import java.nio.file.attribute.UserPrincipal;
 import java.nio.file.attribute.UserPrincipalLookupService;
@@ -86,6 +88,8 @@ public class SaltActionChainGeneratorService {
     public static final String ACTIONCHAIN_SLS_FOLDER = "actionchains";
 
     private static final String ACTIONCHAIN_SLS_FILE_PREFIX = "actionchain_";
+    private static final String SHARED_CHUNK_INFIX = "_shared_";
+    private static final String ACTION_IDS_VARIABLE = "action_ids";
 
     public static final Pattern ACTION_STATE_PATTERN =
             Pattern.compile(".*\\|-" + ACTION_STATE_ID_PREFIX + "(\\d+)" +
@@ -95,6 +99,10 @@ public class SaltActionChainGeneratorService {
     private static final Pattern SALT_FILE_REF =
             Pattern.compile("(" + SALT_FS_PREFIX + "|topfn:\\s*)([a-zA-Z0-9_\\./]+)");
 
+    private static final Pattern SHARED_CHUNK_INCLUDE =
+            Pattern.compile("include '(" + ACTIONCHAIN_SLS_FOLDER + "/" + ACTIONCHAIN_SLS_FILE_PREFIX + "\\d+" +
+                    SHARED_CHUNK_INFIX + "\\w+\\.sls)'");
+
     private Path suseManagerStatesFilesRoot;
     private boolean skipSetOwner;
 
@@ -130,6 +138,72 @@ public class SaltActionChainGeneratorService {
     public Map<MinionSummary, Integer> createActionChainSLSFiles(ActionChain actionChain, MinionSummary minion,
                                                                 List<SaltState> states,
                                                                 Optional<String> sshExtraFileRefs) {
+        List<String> chunks = renderChunks(actionChain, minion, states, sshExtraFileRefs);
+        Path targetDir = createActionChainsDir();
+        for (int i = 0; i < chunks.size(); i++) {
+            writeChunkSLS(targetDir.resolve(getActionChainSLSFileName(actionChain.getId(), minion, i + 1)),
+                    chunks.get(i));
+        }
+        return Collections.singletonMap(minion, chunks.size());
+    }
+
+    /**
+     * Generates the SLS files of an Action Chain for many minions at once.
+     *
+     * Chunks of regular minions that differ only by their action ids are written once to a shared file
+     * which is a Jinja template of the chunk. The chunk file of each minion, whose name is computed by
+     * the minion, then only sets the action ids of the minion and includes the shared file. Each of these
+     * chunk files has a hard link to the shared file, which is removed with the last one of them.
+     * Salt-ssh minions and chunks referencing other files, e.g. scripts, are always written per minion.
+     *
+     * @param actionChain the chain
+     * @param minionStates the states for each minion
+     * @param sshExtraFileRefs extra files to be added to the state tarball by salt-ssh minions
+     * @return map containing minions and the corresponding number of generated chunks
+     */
+    public Map<MinionSummary, Integer> createActionChainSLSFiles(ActionChain actionChain,
+                                                                Map<MinionSummary, List<SaltState>> minionStates,
+                                                                Optional<String> sshExtraFileRefs) {
+        Path targetDir = createActionChainsDir();
+        Map<MinionSummary, Integer> chunksPerMinion = new LinkedHashMap<>();
+        Map<String, List<MinionChunk>> chunksByTemplate = new LinkedHashMap<>();
+        for (Map.Entry<MinionSummary, List<SaltState>> entry : minionStates.entrySet()) {
+            MinionSummary minion = entry.getKey();
+            List<Long> actionIds = entry.getValue().stream()
+                    .filter(state -> state instanceof ActionSaltState)
+                    .map(state -> ((ActionSaltState) state).getActionId())
+                    .distinct()
+                    .collect(Collectors.toList());
+            List<String> chunks = renderChunks(actionChain, minion, entry.getValue(),
+                    minion.isSshPush() ? sshExtraFileRefs : Optional.empty());
+            for (int i = 0; i < chunks.size(); i++) {
+                Path chunkFile = targetDir.resolve(getActionChainSLSFileName(actionChain.getId(), minion, i + 1));
+                String content = chunks.get(i);
+                if (minion.isSshPush() || !findFileRefs(content).isEmpty()) {
+                    writeChunkSLS(chunkFile, content);
+                }
+                else {
+                    chunksByTemplate.computeIfAbsent(templateActionIds(content, actionChain.getId(), actionIds),
+                            template -> new ArrayList<>()).add(new MinionChunk(chunkFile, content, actionIds));
+                }
+            }
+            chunksPerMinion.put(minion, chunks.size());
+        }
+
+        chunksByTemplate.forEach((template, minionChunks) -> {
+            if (minionChunks.size() == 1) {
+                writeChunkSLS(minionChunks.get(0).getFile(), minionChunks.get(0).getContent());
+            }
+            else {
+                writeSharedChunkSLS(targetDir, actionChain.getId(), template, minionChunks);
+            }
+        });
+        return chunksPerMinion;
+    }
+
+    private List<String> renderChunks(ActionChain actionChain, MinionSummary minion, List<SaltState> states,
+                                      Optional<String> sshExtraFileRefs) {
+        List<String> chunks = new ArrayList<>();
         int chunk = 1;
         List<SaltState> fileStates = new LinkedList<>();
         for (int i = 0; i < states.size(); i++) {
@@ -155,7 +229,7 @@ public class SaltActionChainGeneratorService {
                     fileStates.add(stopIfPreviousFailed(prevRequisiteRef(fileStates)));
                     fileStates.add(forceRestartServiceIfNeeded("force_restart_if_needed",
                             prevRequisiteRef(Collections.singletonList(state))));
-                    saveChunkSLS(fileStates, minion, actionChain.getId(), chunk);
+                    chunks.add(renderChunk(fileStates));
                     fileStates.clear();
                     chunk++;
                     fileStates.add(checkSaltUpgradeChunk(state));
@@ -168,7 +242,7 @@ public class SaltActionChainGeneratorService {
                                         prevRequisiteRef(fileStates), sshExtraFileRefs));
                     }
 
-                    saveChunkSLS(fileStates, minion, actionChain.getId(), chunk);
+                    chunks.add(renderChunk(fileStates));
                     chunk++;
                     fileStates.clear();
                 }
@@ -178,10 +252,9 @@ public class SaltActionChainGeneratorService {
             }
         }
         if (!fileStates.isEmpty()) {
-            saveChunkSLS(fileStates, minion, actionChain.getId(), chunk);
+            chunks.add(renderChunk(fileStates));
         }
-
-        return Collections.singletonMap(minion, chunk);
+        return chunks;
     }
 
     private SaltState forceRestartServiceIfNeeded(String id, Optional<Pair<String, String>> lastRef) {
@@ -418,6 +491,7 @@ public class SaltActionChainGeneratorService {
     }
 
     private void deleteSlsAndRefs(Path targetDir, Path slsFile) {
+        unlinkSharedChunk(targetDir.resolve(slsFile));
         List<Path> toDelete = new LinkedList<>();
         toDelete.add(targetDir.resolve(slsFile));
         // Parse the action chains state files and gather file refs
@@ -444,29 +518,7 @@ public class SaltActionChainGeneratorService {
      */
     public List<String> findFileRefsToDelete(Path targetFilePath) {
         try {
-            String slsContent = FileUtils.readFileToString(targetFilePath.toFile());
-            // first remove line containing ssh_extra_filerefs because it contains
-            // all the files used for an action chain and we want to delete
-            // salt:// refs that belong only to the given file
-            slsContent = slsContent.replaceAll("ssh_extra_filerefs.+", "");
-            Matcher m = SALT_FILE_REF.matcher(slsContent);
-            List<String> res = new LinkedList<>();
-            int start = 0;
-            while (m.find(start)) {
-                String ref = m.group(2);
-                start = m.start() + 1;
-                if (refInList(DEFAULT_TOPS, ref) || refInList(ACTION_STATES_LIST, ref)) {
-                    // skip refs to tops and action states
-                    continue;
-                }
-                if (ref.startsWith(ACTIONCHAIN_SLS_FOLDER + "/" + ACTIONCHAIN_SLS_FILE_PREFIX)) {
-                    // skip actionchain/actionchain_<chainid>_>minionuuid>_<chunk>.sls
-                    continue;
-                }
-
-                res.add(ref);
-            }
-            return res;
+            return findFileRefs(FileUtils.readFileToString(targetFilePath.toFile()));
         }
         catch (IOException e) {
             LOG.error("Could not collect salt:// references from file " + targetFilePath, e);
@@ -474,6 +526,31 @@ public class SaltActionChainGeneratorService {
         }
     }
 
+    private List<String> findFileRefs(String content) {
+        // first remove line containing ssh_extra_filerefs because it contains
+        // all the files used for an action chain and we want to delete
+        // salt:// refs that belong only to the given file
+        String slsContent = content.replaceAll("ssh_extra_filerefs.+", "");
+        Matcher m = SALT_FILE_REF.matcher(slsContent);
+        List<String> res = new LinkedList<>();
+        int start = 0;
+        while (m.find(start)) {
+            String ref = m.group(2);
+            start = m.start() + 1;
+            if (refInList(DEFAULT_TOPS, ref) || refInList(ACTION_STATES_LIST, ref)) {
+                // skip refs to tops and action states
+                continue;
+            }
+            if (ref.startsWith(ACTIONCHAIN_SLS_FOLDER + "/" + ACTIONCHAIN_SLS_FILE_PREFIX)) {
+                // skip actionchain/actionchain_<chainid>_>minionuuid>_<chunk>.sls
+                continue;
+            }
+
+            res.add(ref);
+        }
+        return res;
+    }
+
     private boolean refInList(List<String> refList, String fileRef) {
         return refList.stream().anyMatch(listRef ->
             fileRef.startsWith(listRef)
@@ -494,16 +571,15 @@ public class SaltActionChainGeneratorService {
                 "_" + minionServer.getMachineId() + "_" + Integer.toString(chunk) + ".sls");
     }
 
-    private void saveChunkSLS(List<SaltState> states, MinionSummary minion, long actionChainId, int chunk) {
-        Path targetDir = createActionChainsDir();
-        Path targetFilePath = Paths.get(targetDir.toString(),
-                getActionChainSLSFileName(actionChainId, minion, chunk));
+    private String renderChunk(List<SaltState> states) {
+        StringWriter out = new StringWriter();
+        new SaltStateGenerator(out).generate(states.toArray(new SaltState[states.size()]));
+        return out.toString();
+    }
 
-        try (Writer slsWriter = new FileWriter(targetFilePath.toFile());
-             Writer slsBufWriter = new BufferedWriter(slsWriter)) {
-            com.suse.manager.webui.utils.SaltStateGenerator saltStateGenerator =
-                    new com.suse.manager.webui.utils.SaltStateGenerator(slsBufWriter);
-            saltStateGenerator.generate(states.toArray(new SaltState[states.size()]));
+    private void writeChunkSLS(Path targetFilePath, String content) {
+        try {
+            Files.write(targetFilePath, content.getBytes(StandardCharsets.UTF_8));
         }
         catch (IOException e) {
             LOG.error("Could not write action chain sls " + targetFilePath, e);
@@ -511,6 +587,106 @@ public class SaltActionChainGeneratorService {
         }
     }
 
+    /**
+     * Replace the ids of the actions of a minion in the state ids and in the scheduling of the next chunk
+     * with references to the {@literal action_ids} Jinja variable.
+     * @param content the rendered chunk
+     * @param actionChainId the action chain id
+     * @param actionIds the action ids of the minion, in order
+     * @return the chunk template
+     */
+    private String templateActionIds(String content, long actionChainId, List<Long> actionIds) {
+        Matcher m = Pattern.compile("(" + ACTION_STATE_ID_PREFIX + actionChainId + ACTION_STATE_ID_ACTION_PREFIX +
+                "|next_action_id: )(\\d+)").matcher(content);
+        StringBuffer template = new StringBuffer();
+        while (m.find()) {
+            int index = actionIds.indexOf(Long.parseLong(m.group(2)));
+            m.appendReplacement(template, Matcher.quoteReplacement(index < 0 ? m.group() :
+                    m.group(1) + "{{ " + ACTION_IDS_VARIABLE + "[" + index + "] }}"));
+        }
+        m.appendTail(template);
+        return template.toString();
+    }
+
+    private void writeSharedChunkSLS(Path targetDir, long actionChainId, String template,
+                                     List<MinionChunk> minionChunks) {
+        String sharedFileName = ACTIONCHAIN_SLS_FILE_PREFIX + actionChainId + SHARED_CHUNK_INFIX +
+                DigestUtils.sha256Hex(template) + ".sls";
+        Path sharedFile = targetDir.resolve(sharedFileName);
+        writeChunkSLS(sharedFile, template);
+        for (MinionChunk minionChunk : minionChunks) {
+            writeChunkSLS(minionChunk.getFile(), "{%- set " + ACTION_IDS_VARIABLE + " = " +
+                    minionChunk.getActionIds() + " %}\n" +
+                    "{%- include '" + ACTIONCHAIN_SLS_FOLDER + "/" + sharedFileName + "' %}\n");
+            try {
+                Path link = getSharedChunkLink(minionChunk.getFile());
+                Files.deleteIfExists(link);
+                Files.createLink(link, sharedFile);
+            }
+            catch (IOException e) {
+                LOG.error("Could not link action chain sls " + sharedFile, e);
+                throw new RuntimeException(e);
+            }
+        }
+    }
+
+    private static Path getSharedChunkLink(Path chunkFile) {
+        return chunkFile.resolveSibling("." + chunkFile.getFileName() + ".ref");
+    }
+
+    /**
+     * Remove the link of a chunk file to its shared file, and the shared file if no other chunk file
+     * includes it anymore.
+     * @param slsFile the chunk file
+     */
+    private void unlinkSharedChunk(Path slsFile) {
+        Path link = getSharedChunkLink(slsFile);
+        if (!Files.exists(link)) {
+            return;
+        }
+        try {
+            Matcher m = SHARED_CHUNK_INCLUDE.matcher(FileUtils.readFileToString(slsFile.toFile()));
+            Files.deleteIfExists(link);
+            if (m.find()) {
+                Path sharedFile = suseManagerStatesFilesRoot.resolve(m.group(1));
+                if (Files.exists(sharedFile) && (Integer) Files.getAttribute(sharedFile, "unix:nlink") == 1) {
+                    Files.deleteIfExists(sharedFile);
+                }
+            }
+        }
+        catch (IOException e) {
+            LOG.warn("Error deleting shared action chain file of " + slsFile, e);
+        }
+    }
+
+    /**
+     * A chunk file of a minion, with its rendered content and the action ids of the minion.
+     */
+    private static final class MinionChunk {
+
+        private final Path file;
+        private final String content;
+        private final List<Long> actionIds;
+
+        MinionChunk(Path fileIn, String contentIn, List<Long> actionIdsIn) {
+            this.file = fileIn;
+            this.content = contentIn;
+            this.actionIds = actionIdsIn;
+        }
+
+        Path getFile() {
+            return file;
+        }
+
+        String getContent() {
+            return content;
+        }
+
+        List<Long> getActionIds() {
+            return actionIds;
+        }
+    }
+
     private Path getTargetDir() {
         return Paths.get(suseManagerStatesFilesRoot.toString(), ACTIONCHAIN_SLS_FOLDER);
     }
@@ -945,11 +945,7 @@ public class SaltServerActionService {
         }
 
         // render the action chain sls files
-        for (Map.Entry<MinionSummary, List<SaltState>> entry: statesPerMinion.entrySet()) {
-            saltActionChainGeneratorService
-                    .createActionChainSLSFiles(actionChain, entry.getKey(), entry.getValue(),
-                            entry.getKey().isSshPush() ? extraFilerefs : Optional.empty());
-        }
+        saltActionChainGeneratorService.createActionChainSLSFiles(actionChain, statesPerMinion, extraFilerefs);
 
         // start the execution
         if (!regularMinionIds.isEmpty()) {
@@ -2500,10 +2496,9 @@ public class SaltServerActionService {
 
             Optional<MinionServer> minionServerOpt = MinionServerFactory.findByMinionId(minionId);
             minionServerOpt.ifPresent(minionServer -> {
-                Optional<ServerAction> serverAction = action.get()
-                        .getServerActions()
-                        .stream()
-                        .filter(sa -> sa.getServer().equals(minionServer)).findFirst();
+                // look the server action up directly, actions can target thousands of servers
+                Optional<ServerAction> serverAction = Optional.ofNullable(
+                        ActionFactory.getServerActionForServerAndAction(minionServer, action.get()));
 
 
                 serverAction.ifPresent(sa -> {
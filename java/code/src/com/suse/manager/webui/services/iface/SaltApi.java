@@ -22,6 +22,7 @@ import com.suse.manager.webui.services.impl.SaltService;
 import com.suse.manager.webui.services.impl.runner.MgrK8sRunner;
 import com.suse.manager.webui.services.impl.runner.MgrUtilRunner;
 import com.suse.manager.webui.utils.gson.BootstrapParameters;
+import com.suse.manager.webui.utils.salt.custom.MinionStartupGrains;
 import com.suse.manager.webui.utils.salt.custom.ScheduleMetadata;
 import com.suse.salt.netapi.calls.LocalAsyncResult;
 import com.suse.salt.netapi.calls.LocalCall;
@@ -222,6 +223,14 @@ public interface SaltApi {
     @Deprecated
     <T> Optional<T> getGrains(String minionId, TypeToken<T> type, String... grainNames);
 
+    /**
+     * Get the grains needed for the registration of a list of minions with a single call.
+     *
+     * @param target the target minions
+     * @return the startup grains by minion id, minions that did not respond are not contained
+     */
+    Map<String, MinionStartupGrains> getStartupGrains(MinionList target);
+
     /**
      * Get the grains for a given minion.
      *
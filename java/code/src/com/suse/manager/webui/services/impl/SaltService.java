@@ -41,6 +41,7 @@ import com.suse.manager.webui.services.impl.runner.MgrUtilRunner;
 import com.suse.manager.webui.utils.ElementCallJson;
 import com.suse.manager.webui.utils.gson.BootstrapParameters;
 import com.suse.manager.webui.utils.salt.custom.MgrActionChains;
+import com.suse.manager.webui.utils.salt.custom.MinionStartupGrains;
 import com.suse.manager.webui.utils.salt.custom.ClusterOperationsSlsResult;
 import com.suse.manager.webui.utils.salt.custom.PkgProfileUpdateSlsResult;
 import com.suse.manager.webui.utils.salt.custom.ScheduleMetadata;
@@ -422,6 +423,27 @@ public class SaltService implements SystemQuery, SaltApi {
        return callSync(Grains.item(false, type, grainNames), minionId);
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Map<String, MinionStartupGrains> getStartupGrains(MinionList target) {
+        try {
+            Map<String, Result<MinionStartupGrains>> results = callSync(Grains.item(false,
+                    new TypeToken<MinionStartupGrains>() { }, "machine_id", "saltboot_initrd", "susemanager"),
+                    target);
+            Map<String, MinionStartupGrains> grains = new HashMap<>();
+            results.forEach((minionId, result) -> result.fold(error -> {
+                LOG.warn("Unable to get the startup grains of minion " + minionId + ": " + error);
+                return null;
+            }, g -> grains.put(minionId, g)));
+            return grains;
+        }
+        catch (SaltException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -18,13 +18,6 @@ import static com.suse.manager.webui.services.SaltConstants.SUMA_PILLAR_DATA_PAT
 
 import com.redhat.rhn.domain.server.MinionServer;
 
-import com.suse.manager.webui.utils.SaltPillar;
-import com.suse.manager.webui.utils.SaltStateGenerator;
-
-import org.apache.log4j.Logger;
-
-import java.io.IOException;
-import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 
@@ -33,8 +26,6 @@ import java.nio.file.Paths;
  */
 public class MinionPillarFileManager {
 
-    private static final Logger LOG = Logger.getLogger(MinionPillarManager.class);
-
     private Path pillarDataPath = Paths.get(SUMA_PILLAR_DATA_PATH);
 
     private MinionPillarGenerator minionPillarGenerator;
@@ -53,20 +44,24 @@ public class MinionPillarFileManager {
      * @param minion the minion server
      */
     public void updatePillarFile(MinionServer minion) {
+        Path filePath = this.pillarDataPath.resolve(this.minionPillarGenerator.getFilename(minion.getMinionId()));
         this.minionPillarGenerator.generatePillarData(minion).ifPresentOrElse(
-                (pillar) -> this.saveFileToDisk(pillar, this.minionPillarGenerator.getFilename(minion.getMinionId())),
-                () -> removePillarFile(minion.getMinionId())
+                (pillar) -> MinionPillarFileWriter.INSTANCE.write(filePath, pillar),
+                () -> MinionPillarFileWriter.INSTANCE.remove(filePath)
         );
     }
 
-    private void saveFileToDisk(SaltPillar pillar, String filename) {
-        try {
-            Files.createDirectories(this.pillarDataPath);
-            new SaltStateGenerator(this.pillarDataPath.resolve(filename).toFile()).generate(pillar);
-        }
-        catch (IOException e) {
-            LOG.error(e.getMessage(), e);
-        }
+    /**
+     * Generates the pillar of the passed minion, like {@link #updatePillarFile(MinionServer)}, but writes
+     * the file in the background. To be used only when no Salt call relying on the new pillar follows.
+     * @param minion the minion server
+     */
+    public void updatePillarFileAsync(MinionServer minion) {
+        Path filePath = this.pillarDataPath.resolve(this.minionPillarGenerator.getFilename(minion.getMinionId()));
+        this.minionPillarGenerator.generatePillarData(minion).ifPresentOrElse(
+                (pillar) -> MinionPillarFileWriter.INSTANCE.writeAsync(filePath, pillar),
+                () -> MinionPillarFileWriter.INSTANCE.removeAsync(filePath)
+        );
     }
 
     /**
@@ -74,13 +69,16 @@ public class MinionPillarFileManager {
      * @param minionId the minion Id
      */
     public void removePillarFile(String minionId) {
-        Path filePath = this.pillarDataPath.resolve(this.minionPillarGenerator.getFilename(minionId));
-        try {
-            Files.deleteIfExists(filePath);
-        }
-        catch (IOException e) {
-            LOG.error("Could not remove pillar file " + filePath);
-        }
+        MinionPillarFileWriter.INSTANCE.remove(
+                this.pillarDataPath.resolve(this.minionPillarGenerator.getFilename(minionId)));
+    }
+
+    /**
+     * @param generatorClass the pillar generator class
+     * @return true if the pillar files are generated by a generator of the given class
+     */
+    public boolean isGeneratedBy(Class<? extends MinionPillarGenerator> generatorClass) {
+        return generatorClass.isInstance(this.minionPillarGenerator);
     }
 
     /**
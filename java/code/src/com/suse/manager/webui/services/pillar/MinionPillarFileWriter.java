@@ -0,0 +1,209 @@
+/**
+ * Copyright (c) 2021 SUSE LLC
+ *
+ * This software is licensed to you under the GNU General Public License,
+ * version 2 (GPLv2). There is NO WARRANTY for this software, express or
+ * implied, including the implied warranties of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. You should have received a copy of GPLv2
+ * along with this software; if not, see
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.txt.
+ *
+ * Red Hat trademarks are not licensed under GPLv2. No permission is
+ * granted to use or replicate Red Hat trademarks that are incorporated
+ * in this software or its documentation.
+ */
+package com.suse.manager.webui.services.pillar;
+
+import com.suse.manager.metrics.PillarMetrics;
+import com.suse.manager.webui.utils.SaltFileUtils;
+import com.suse.manager.webui.utils.SaltPillar;
+import com.suse.manager.webui.utils.SaltStateGenerator;
+
+import org.apache.log4j.Logger;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Writes the minion pillar files.
+ *
+ * Files are written to a temporary file first and renamed, so that Salt never reads a partially
+ * written pillar, and are not touched at all when their content did not change.
+ *
+ * Writes can be queued to be executed by a background thread, which is meant for bulk regenerations
+ * that are not followed by a Salt call relying on the new pillar. Queued writes are coalesced by file:
+ * only the latest content requested for a file is written. A write executed immediately replaces the
+ * queued write of the same file, so an older content never overwrites a newer one. The writes still
+ * queued when the JVM shuts down are executed by a shutdown hook.
+ */
+public enum MinionPillarFileWriter {
+    INSTANCE;
+
+    private static final Logger LOG = Logger.getLogger(MinionPillarFileWriter.class);
+
+    // latest content of the queued files, empty for removals, in the order they were first queued
+    private final Map<Path, Optional<String>> pending = new LinkedHashMap<>();
+    // held while a file is written, so that taking a queued write and executing it is atomic
+    private final Object writeLock = new Object();
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "minion-pillar-writer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    MinionPillarFileWriter() {
+        Runtime.getRuntime().addShutdownHook(new Thread(this::shutdown, "minion-pillar-writer-shutdown"));
+    }
+
+    /**
+     * Writes a pillar file immediately.
+     *
+     * @param file the pillar file
+     * @param pillar the pillar data
+     */
+    public void write(Path file, SaltPillar pillar) {
+        writeNow(file, Optional.of(render(pillar)));
+    }
+
+    /**
+     * Removes a pillar file immediately.
+     *
+     * @param file the pillar file
+     */
+    public void remove(Path file) {
+        writeNow(file, Optional.empty());
+    }
+
+    /**
+     * Queues the write of a pillar file. The pillar is rendered by the calling thread, so that it
+     * reflects the state of its transaction.
+     *
+     * @param file the pillar file
+     * @param pillar the pillar data
+     */
+    public void writeAsync(Path file, SaltPillar pillar) {
+        enqueue(file, Optional.of(render(pillar)));
+    }
+
+    /**
+     * Queues the removal of a pillar file.
+     *
+     * @param file the pillar file
+     */
+    public void removeAsync(Path file) {
+        enqueue(file, Optional.empty());
+    }
+
+    /**
+     * Waits until all the writes queued before this call are executed.
+     */
+    public void flush() {
+        try {
+            executor.submit(() -> { }).get();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        catch (ExecutionException e) {
+            LOG.error("Unable to wait for the pillar writes", e);
+        }
+    }
+
+    /**
+     * @return the number of queued writes
+     */
+    public int getPendingCount() {
+        synchronized (pending) {
+            return pending.size();
+        }
+    }
+
+    private void enqueue(Path file, Optional<String> content) {
+        synchronized (pending) {
+            if (pending.put(file, content) != null) {
+                PillarMetrics.INSTANCE.writeCoalesced();
+            }
+            PillarMetrics.INSTANCE.setPending(pending.size());
+        }
+        executor.execute(this::drain);
+    }
+
+    // Executes the writes still queued, the executor thread is a daemon and does not finish them
+    private void shutdown() {
+        int count = getPendingCount();
+        if (count > 0) {
+            LOG.info("Writing " + count + " queued pillar files before shutdown");
+            drain();
+        }
+    }
+
+    private void drain() {
+        while (true) {
+            synchronized (writeLock) {
+                Map.Entry<Path, Optional<String>> next;
+                synchronized (pending) {
+                    Iterator<Map.Entry<Path, Optional<String>>> it = pending.entrySet().iterator();
+                    if (!it.hasNext()) {
+                        return;
+                    }
+                    next = it.next();
+                    it.remove();
+                    PillarMetrics.INSTANCE.setPending(pending.size());
+                }
+                doWrite(next.getKey(), next.getValue());
+            }
+        }
+    }
+
+    private void writeNow(Path file, Optional<String> content) {
+        synchronized (writeLock) {
+            synchronized (pending) {
+                if (pending.remove(file) != null) {
+                    PillarMetrics.INSTANCE.writeCoalesced();
+                    PillarMetrics.INSTANCE.setPending(pending.size());
+                }
+            }
+            doWrite(file, content);
+        }
+    }
+
+    private static String render(SaltPillar pillar) {
+        StringWriter out = new StringWriter();
+        new SaltStateGenerator(out).generate(pillar);
+        return out.toString();
+    }
+
+    private static void doWrite(Path file, Optional<String> content) {
+        try {
+            if (content.isEmpty()) {
+                if (Files.deleteIfExists(file)) {
+                    PillarMetrics.INSTANCE.fileWritten();
+                }
+                else {
+                    PillarMetrics.INSTANCE.fileUnchanged();
+                }
+                return;
+            }
+
+            if (SaltFileUtils.writeAtomically(file, content.get().getBytes(StandardCharsets.UTF_8))) {
+                PillarMetrics.INSTANCE.fileWritten();
+            }
+            else {
+                PillarMetrics.INSTANCE.fileUnchanged();
+            }
+        }
+        catch (IOException e) {
+            LOG.error("Could not write pillar file " + file, e);
+        }
+    }
+}
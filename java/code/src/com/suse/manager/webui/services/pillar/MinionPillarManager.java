@@ -73,6 +73,20 @@ public class MinionPillarManager {
         this.pillarFileManagers.stream().forEach(m -> m.updatePillarFile(minion));
     }
 
+    /**
+     * Generates only the pillar of the given generator for the passed minion, e.g. when only the data
+     * used by this generator changed.
+     * @param minion the minion server
+     * @param generatorClass the class of the generator whose pillar should be regenerated
+     */
+    public void generatePillar(MinionServer minion, Class<? extends MinionPillarGenerator> generatorClass) {
+        LOG.debug("Generating " + generatorClass.getSimpleName() + " pillar file for minion: " +
+                minion.getMinionId());
+        this.pillarFileManagers.stream()
+                .filter(m -> m.isGeneratedBy(generatorClass))
+                .forEach(m -> m.updatePillarFile(minion));
+    }
+
     /**
      * Removes the corresponding pillar files for the passed minion
      * @param minionId the minion Id
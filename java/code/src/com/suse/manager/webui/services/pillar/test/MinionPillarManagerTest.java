@@ -30,6 +30,9 @@ import com.redhat.rhn.testing.ChannelTestUtils;
 import com.redhat.rhn.testing.ServerTestUtils;
 import com.redhat.rhn.testing.TestUtils;
 
+import com.suse.manager.webui.services.pillar.MinionGeneralPillarGenerator;
+import com.suse.manager.webui.services.pillar.MinionGroupMembershipPillarGenerator;
+import com.suse.manager.webui.services.pillar.MinionPillarFileWriter;
 import com.suse.manager.webui.services.pillar.MinionPillarManager;
 import org.apache.commons.codec.digest.DigestUtils;
 import org.yaml.snakeyaml.Yaml;
@@ -37,9 +40,11 @@ import org.yaml.snakeyaml.Yaml;
 import java.io.FileInputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
 import java.util.Arrays;
 import java.util.Map;
 import java.util.Set;
+import java.util.stream.Stream;
 
 import static com.suse.manager.webui.services.SaltConstants.PILLAR_DATA_FILE_PREFIX;
 import static com.suse.manager.webui.services.SaltConstants.PILLAR_DATA_FILE_EXT;
@@ -251,4 +256,40 @@ public class MinionPillarManagerTest extends BaseTestCaseWithUser {
         assertEquals(proxyHostname, channelFromFile.get("host"));
     }
 
+    public void testPillarFileWrites() throws Exception {
+        MinionServer minion = MinionServerFactoryTest.createTestMinionServer(user);
+        minionPillarManager.generatePillar(minion);
+
+        Path generalFile = tmpPillarRoot.resolve(
+                MinionGeneralPillarGenerator.INSTANCE.getFilename(minion.getMinionId()));
+        Path groupsFile = tmpPillarRoot.resolve(
+                MinionGroupMembershipPillarGenerator.INSTANCE.getFilename(minion.getMinionId()));
+        assertTrue(Files.exists(generalFile));
+        assertTrue(Files.exists(groupsFile));
+
+        // unchanged files are not written again
+        FileTime old = FileTime.fromMillis(0);
+        Files.setLastModifiedTime(generalFile, old);
+        minionPillarManager.generatePillar(minion);
+        assertEquals(old, Files.getLastModifiedTime(generalFile));
+
+        // only the pillar of the given generator is regenerated
+        Files.delete(generalFile);
+        Files.delete(groupsFile);
+        minionPillarManager.generatePillar(minion, MinionGroupMembershipPillarGenerator.class);
+        assertFalse(Files.exists(generalFile));
+        assertTrue(Files.exists(groupsFile));
+
+        // queued writes of the same file are coalesced and executed in the background
+        Files.delete(groupsFile);
+        minionGroupMembershipPillarFileManager.updatePillarFileAsync(minion);
+        minionGroupMembershipPillarFileManager.updatePillarFileAsync(minion);
+        MinionPillarFileWriter.INSTANCE.flush();
+        assertEquals(0, MinionPillarFileWriter.INSTANCE.getPendingCount());
+        assertTrue(Files.exists(groupsFile));
+        try (Stream<Path> files = Files.list(tmpPillarRoot)) {
+            assertTrue(files.noneMatch(file -> file.getFileName().toString().endsWith(".tmp")));
+        }
+    }
+
 }
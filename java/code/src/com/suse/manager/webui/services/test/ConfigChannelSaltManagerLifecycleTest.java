@@ -181,6 +181,59 @@ public class ConfigChannelSaltManagerLifecycleTest extends BaseTestCaseWithUser
         assertFalse(configFileOnDisk.exists());
     }
 
+    public void testIncrementalGeneration() throws Exception {
+        ConfigChannel channel = ConfigChannelSaltManagerTestUtils.createTestChannel(user);
+        ConfigRevision unchangedRevision = ConfigChannelSaltManagerTestUtils.addFileToChannel(channel);
+        ConfigRevision changedRevision = ConfigChannelSaltManagerTestUtils.addFileToChannel(channel);
+        ConfigurationManager.getInstance().save(channel, empty());
+
+        File unchangedFile = getGeneratedFile(channel,
+                unchangedRevision.getConfigFile().getConfigFileName().getPath());
+        File changedFile = getGeneratedFile(channel,
+                changedRevision.getConfigFile().getConfigFileName().getPath());
+        assertTrue(unchangedFile.exists());
+        assertTrue(changedFile.exists());
+        // mark the files, so that rewriting them can be detected
+        assertTrue(unchangedFile.setLastModified(1000L));
+        assertTrue(changedFile.setLastModified(1000L));
+
+        File staleFile = getGeneratedFile(channel, "stale/file.txt");
+        FileUtils.writeStringToFile(staleFile, "stale", "UTF-8");
+
+        changedRevision.getConfigContent().setContents("changed".getBytes("UTF-8"));
+        manager.generateConfigChannelFiles(channel);
+
+        // unchanged files are not rewritten, changed ones are
+        assertEquals(1000L, unchangedFile.lastModified());
+        assertEquals("changed", FileUtils.readFileToString(changedFile, "UTF-8"));
+        // files and directories not belonging to the channel are removed
+        assertFalse(staleFile.exists());
+        assertFalse(staleFile.getParentFile().exists());
+        initSlsAssertions(getGeneratedFile(channel, "init.sls"));
+    }
+
+    public void testGenerationReplacesConflictingPaths() throws Exception {
+        ConfigChannel channel = ConfigChannelSaltManagerTestUtils.createTestChannel(user);
+        ConfigRevision revision = ConfigChannelSaltManagerTestUtils.addFileToChannel(channel);
+        ConfigurationManager.getInstance().save(channel, empty());
+        File configFile = getGeneratedFile(channel, revision.getConfigFile().getConfigFileName().getPath());
+
+        // the path of the file was a directory before
+        FileUtils.forceDelete(configFile);
+        FileUtils.writeStringToFile(new File(configFile, "stale.txt"), "stale", "UTF-8");
+        manager.generateConfigChannelFiles(channel);
+        assertTrue(configFile.isFile());
+        assertEquals("aoeuäö€üáóéúř", FileUtils.readFileToString(configFile, "UTF-8"));
+
+        // the parent directory of the file was a file before
+        FileUtils.forceDelete(configFile.getParentFile());
+        FileUtils.writeStringToFile(configFile.getParentFile(), "stale", "UTF-8");
+        manager.generateConfigChannelFiles(channel);
+        assertTrue(configFile.isFile());
+        assertEquals("aoeuäö€üáóéúř", FileUtils.readFileToString(configFile, "UTF-8"));
+        initSlsAssertions(getGeneratedFile(channel, "init.sls"));
+    }
+
     private File getGeneratedFile(ConfigChannel channel, String filePathInChannel) {
         return Paths.get(tmpSaltRoot.toAbsolutePath().toString(),
                 manager.getOrgNamespace(channel.getOrgId()),
@@ -42,9 +42,12 @@ import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.TreeMap;
+import java.util.stream.Stream;
 
 public class SaltActionChainGeneratorServiceTest extends BaseTestCaseWithUser {
 
@@ -530,5 +533,78 @@ public class SaltActionChainGeneratorServiceTest extends BaseTestCaseWithUser {
         assertTrue(channels.exists());
     }
 
+    public void testCreateSharedActionChainSLSFiles() throws Exception {
+        ActionChain actionChain = ActionChainFactory.createActionChain(TestUtils.randomString(), user);
+        MinionServer minion1 = MinionServerFactoryTest.createTestMinionServer(user);
+        MinionServer minion2 = MinionServerFactoryTest.createTestMinionServer(user);
+        MinionSummary minionSummary1 = new MinionSummary(minion1);
+        MinionSummary minionSummary2 = new MinionSummary(minion2);
+
+        Map<MinionSummary, List<SaltState>> minionStates = new LinkedHashMap<>();
+        for (MinionSummary minion : Arrays.asList(minionSummary1, minionSummary2)) {
+            long firstActionId = minion == minionSummary1 ? 1 : 3;
+            List<SaltState> states = new ArrayList<>();
+            states.add(new SaltSystemReboot(
+                    ACTION_STATE_ID_PREFIX + actionChain.getId() + "_action_" + firstActionId,
+                    firstActionId,
+                    1
+            ));
+            states.add(new SaltModuleRun(
+                    ACTION_STATE_ID_PREFIX + actionChain.getId() + "_action_" + (firstActionId + 1),
+                    "state.apply",
+                    firstActionId + 1,
+                    singletonMap("mods", "packages.pkginstall"),
+                    null
+            ));
+            minionStates.put(minion, states);
+        }
 
+        Path stateFilesRoot = Files.createTempDirectory("actionchaingentest");
+        SaltActionChainGeneratorService service = new SaltActionChainGeneratorService();
+        service.setSuseManagerStatesFilesRoot(stateFilesRoot);
+        service.setSkipSetOwner(true);
+        Map<MinionSummary, Integer> chunks =
+                service.createActionChainSLSFiles(actionChain, minionStates, Optional.empty());
+        assertEquals(2, chunks.get(minionSummary1).intValue());
+        assertEquals(2, chunks.get(minionSummary2).intValue());
+
+        Path actionChainsDir = stateFilesRoot.resolve(ACTIONCHAIN_SLS_FOLDER);
+        Path minion1Chunk1 = actionChainsDir.resolve(
+                service.getActionChainSLSFileName(actionChain.getId(), minionSummary1, 1));
+        Path minion2Chunk1 = actionChainsDir.resolve(
+                service.getActionChainSLSFileName(actionChain.getId(), minionSummary2, 1));
+        String include = FileUtils.readFileToString(minion2Chunk1.toFile())
+                .replaceAll("(?s).*include '([^']+)'.*", "$1");
+        assertEquals("{%- set action_ids = [1, 2] %}\n{%- include '" + include + "' %}\n",
+                FileUtils.readFileToString(minion1Chunk1.toFile()));
+        assertEquals("{%- set action_ids = [3, 4] %}\n{%- include '" + include + "' %}\n",
+                FileUtils.readFileToString(minion2Chunk1.toFile()));
+
+        Path shared = stateFilesRoot.resolve(include);
+        assertEquals(("mgr_actionchain_131_action_{{ action_ids[0] }}_chunk_1:\n" +
+                        "    mgrcompat.module_run:\n" +
+                        "    -   name: system.reboot\n" +
+                        "    -   at_time: 1\n" +
+                        "schedule_next_chunk:\n" +
+                        "    mgrcompat.module_run:\n" +
+                        "    -   name: mgractionchains.next\n" +
+                        "    -   actionchain_id: 131\n" +
+                        "    -   chunk: 2\n" +
+                        "    -   next_action_id: {{ action_ids[1] }}\n" +
+                        "    -   require:\n" +
+                        "        -   mgrcompat: mgr_actionchain_131_action_{{ action_ids[0] }}_chunk_1\n")
+                        .replaceAll("131", actionChain.getId() + ""),
+                FileUtils.readFileToString(shared.toFile()));
+
+        service.removeActionChainSLSFilesForMinion(minion1, Optional.of(actionChain.getId()));
+        assertFalse(Files.exists(minion1Chunk1));
+        assertTrue(Files.exists(shared));
+
+        service.removeActionChainSLSFilesForMinion(minion2, Optional.of(actionChain.getId()));
+        assertFalse(Files.exists(minion2Chunk1));
+        assertFalse(Files.exists(shared));
+        try (Stream<Path> files = Files.list(actionChainsDir)) {
+            assertEquals(0, files.count());
+        }
+    }
 }
@@ -9,6 +9,7 @@ import com.suse.manager.webui.services.impl.SaltService;
 import com.suse.manager.webui.services.impl.runner.MgrK8sRunner;
 import com.suse.manager.webui.services.impl.runner.MgrUtilRunner;
 import com.suse.manager.webui.utils.gson.BootstrapParameters;
+import com.suse.manager.webui.utils.salt.custom.MinionStartupGrains;
 import com.suse.manager.webui.utils.salt.custom.ScheduleMetadata;
 import com.suse.salt.netapi.calls.LocalAsyncResult;
 import com.suse.salt.netapi.calls.LocalCall;
@@ -139,6 +140,11 @@ public class TestSaltApi implements SaltApi {
         throw new UnsupportedOperationException();
     }
 
+    @Override
+    public Map<String, MinionStartupGrains> getStartupGrains(MinionList target) {
+        throw new UnsupportedOperationException();
+    }
+
     @Override
     public Optional<Map<String, Object>> getGrains(String minionId) {
         throw new UnsupportedOperationException();
@@ -0,0 +1,213 @@
+/**
+ * Copyright (c) 2021 SUSE LLC
+ *
+ * This software is licensed to you under the GNU General Public License,
+ * version 2 (GPLv2). There is NO WARRANTY for this software, express or
+ * implied, including the implied warranties of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. You should have received a copy of GPLv2
+ * along with this software; if not, see
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.txt.
+ *
+ * Red Hat trademarks are not licensed under GPLv2. No permission is
+ * granted to use or replicate Red Hat trademarks that are incorporated
+ * in this software or its documentation.
+ */
+package com.suse.manager.webui.utils;
+
+import com.redhat.rhn.common.conf.Config;
+import com.redhat.rhn.common.conf.ConfigDefaults;
+import com.redhat.rhn.domain.channel.ChannelFactory;
+import com.redhat.rhn.domain.rhnpackage.Package;
+import com.redhat.rhn.domain.rhnpackage.PackageFactory;
+
+import org.jose4j.jwt.JwtClaims;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Bounded, time limited cache of the lookups done for every file downloaded by a client: the
+ * verified claims of the download tokens, the accessibility of channels by organizations and the
+ * paths of the packages in channels.
+ *
+ * Token claims are dropped when the token is invalidated or deleted through
+ * {@link com.redhat.rhn.domain.channel.AccessTokenFactory} and, for changes done by other
+ * processes, after {@link #TOKEN_TTL}. Package paths are dropped as soon as a change of the last
+ * modification time of their channel is seen, which is checked every {@link #CHANNEL_TTL}. Packages
+ * that are not found are never cached. The number of cached tokens is bounded by
+ * {@code java.download_cache_max_tokens}.
+ */
+public enum DownloadCache {
+    INSTANCE;
+
+    /** Time after which token claims are verified again */
+    public static final Duration TOKEN_TTL = Duration.ofMinutes(1);
+    /** Time after which channel modifications and accessibility are checked again */
+    public static final Duration CHANNEL_TTL = Duration.ofSeconds(30);
+
+    // every client uses one token per assigned channel
+    private static final int DEFAULT_MAX_TOKENS = 100000;
+    private static final int MAX_CHANNELS = 1000;
+    private static final int MAX_PACKAGES = 50000;
+
+    private final Map<String, CachedClaims> tokens = lruMap(
+            Config.get().getInt(ConfigDefaults.DOWNLOAD_CACHE_MAX_TOKENS, DEFAULT_MAX_TOKENS));
+    private final Map<String, ChannelState> channels = lruMap(MAX_CHANNELS);
+    private final Map<List<String>, CachedPath> packages = lruMap(MAX_PACKAGES);
+
+    /**
+     * Returns the cached claims of a token that was already verified.
+     *
+     * @param token the token
+     * @return the claims, empty if the token is not cached or its entry expired
+     */
+    public Optional<JwtClaims> getTokenClaims(String token) {
+        CachedClaims cached = tokens.get(token);
+        if (cached == null || cached.expiresAt < System.currentTimeMillis()) {
+            return Optional.empty();
+        }
+        return Optional.of(cached.claims);
+    }
+
+    /**
+     * Caches the claims of a verified token.
+     *
+     * @param token the token
+     * @param claims the claims of the token
+     */
+    public void putTokenClaims(String token, JwtClaims claims) {
+        tokens.put(token, new CachedClaims(claims, System.currentTimeMillis() + TOKEN_TTL.toMillis()));
+    }
+
+    /**
+     * Removes a token from the cache, e.g. because it was invalidated.
+     *
+     * @param token the token
+     */
+    public void evictToken(String token) {
+        if (token != null) {
+            tokens.remove(token);
+        }
+    }
+
+    /**
+     * Checks if a channel is accessible by an organization.
+     *
+     * @param channelLabel the channel label
+     * @param orgId the organization id
+     * @return true if it is accessible
+     * @see ChannelFactory#isAccessibleBy(String, Long)
+     */
+    public boolean isAccessibleBy(String channelLabel, Long orgId) {
+        return getChannelState(channelLabel).accessibleByOrg
+                .computeIfAbsent(orgId, id -> ChannelFactory.isAccessibleBy(channelLabel, id));
+    }
+
+    /**
+     * Returns the path of a package in a channel, relative to the mount point.
+     *
+     * @param channelLabel the channel label
+     * @param name the package name
+     * @param version the package version
+     * @param release the package release
+     * @param epoch the package epoch
+     * @param arch the package architecture label
+     * @param checksum the package checksum, can be null
+     * @return the path of the package, empty if it is not in the channel
+     * @see PackageFactory#lookupByChannelLabelNevraCs
+     */
+    public Optional<String> lookupPackagePath(String channelLabel, String name, String version, String release,
+            String epoch, String arch, String checksum) {
+        ChannelState channel = getChannelState(channelLabel);
+        List<String> key = Arrays.asList(channelLabel, name, version, release, epoch, arch, checksum);
+        CachedPath cached = packages.get(key);
+        if (cached != null && cached.channelModified.equals(channel.lastModified)) {
+            return Optional.of(cached.path);
+        }
+
+        Package pkg = PackageFactory.lookupByChannelLabelNevraCs(channelLabel, name, version, release, epoch,
+                arch, checksum);
+        if (pkg == null || pkg.getPath() == null) {
+            return Optional.empty();
+        }
+        packages.put(key, new CachedPath(pkg.getPath(), channel.lastModified));
+        return Optional.of(pkg.getPath());
+    }
+
+    /**
+     * Removes all the entries from the cache.
+     */
+    public void clear() {
+        tokens.clear();
+        channels.clear();
+        packages.clear();
+    }
+
+    private ChannelState getChannelState(String channelLabel) {
+        long now = System.currentTimeMillis();
+        ChannelState state = channels.get(channelLabel);
+        if (state == null || state.checkedAt + CHANNEL_TTL.toMillis() < now) {
+            Optional<Long> lastModified = ChannelFactory.lookupLastModifiedByLabel(channelLabel)
+                    .map(Date::getTime);
+            state = new ChannelState(lastModified, now);
+            channels.put(channelLabel, state);
+        }
+        return state;
+    }
+
+    private static <K, V> Map<K, V> lruMap(int maxSize) {
+        return Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+                return size() > maxSize;
+            }
+        });
+    }
+
+    /**
+     * Verified claims of a token.
+     */
+    private static class CachedClaims {
+        private final JwtClaims claims;
+        private final long expiresAt;
+
+        CachedClaims(JwtClaims claimsIn, long expiresAtIn) {
+            claims = claimsIn;
+            expiresAt = expiresAtIn;
+        }
+    }
+
+    /**
+     * Last modification time and accessibility by organization of a channel, as seen at a given time.
+     */
+    private static class ChannelState {
+        private final Optional<Long> lastModified;
+        private final long checkedAt;
+        private final Map<Long, Boolean> accessibleByOrg = new ConcurrentHashMap<>();
+
+        ChannelState(Optional<Long> lastModifiedIn, long checkedAtIn) {
+            lastModified = lastModifiedIn;
+            checkedAt = checkedAtIn;
+        }
+    }
+
+    /**
+     * Path of a package together with the last modification time of its channel at lookup time.
+     */
+    private static class CachedPath {
+        private final String path;
+        private final Optional<Long> channelModified;
+
+        CachedPath(String pathIn, Optional<Long> channelModifiedIn) {
+            path = pathIn;
+            channelModified = channelModifiedIn;
+        }
+    }
+}
@@ -16,11 +16,24 @@ package com.suse.manager.webui.utils;
 
 import org.apache.commons.lang3.StringUtils;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.Arrays;
+
 /**
  * Utilities for working with Salt .sls files.
  */
 public class SaltFileUtils {
 
+    private static final String FILE_PERMISSIONS = "rw-r--r--";
+
+    private static final int COMPARE_BUFFER_SIZE = 64 * 1024;
+
     private SaltFileUtils() { }
 
     /**
@@ -49,4 +62,60 @@ public class SaltFileUtils {
     public static String defaultExtension(String stateName) {
         return SaltFileUtils.hasExtension(stateName) ? stateName : stateName + ".sls";
     }
+
+    /**
+     * Write a file read by Salt. The contents are written to a temporary file first, which
+     * is then renamed, so that Salt never reads a partially written file. The file is not
+     * touched at all if it already has the given contents.
+     *
+     * @param file the file
+     * @param content the contents
+     * @return true if the file was written, false if it already had the given contents
+     * @throws IOException if there is an error when writing on the disk
+     */
+    public static boolean writeAtomically(Path file, byte[] content) throws IOException {
+        if (hasContent(file, content)) {
+            return false;
+        }
+        Files.createDirectories(file.getParent());
+        Path tmpFile = Files.createTempFile(file.getParent(), "." + file.getFileName(), ".tmp");
+        try {
+            // temporary files are created readable by the owner only, Salt needs to read the file
+            Files.setPosixFilePermissions(tmpFile, PosixFilePermissions.fromString(FILE_PERMISSIONS));
+            Files.write(tmpFile, content);
+            Files.move(tmpFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+        finally {
+            Files.deleteIfExists(tmpFile);
+        }
+        return true;
+    }
+
+    /**
+     * Check if a file on the disk already has the given contents. The file is compared in
+     * chunks, without reading it in memory at once.
+     *
+     * @param file the file
+     * @param content the contents
+     * @return true if the file exists and has the given contents
+     * @throws IOException if there is an error when reading the file
+     */
+    public static boolean hasContent(Path file, byte[] content) throws IOException {
+        if (!Files.isRegularFile(file, LinkOption.NOFOLLOW_LINKS) || Files.size(file) != content.length) {
+            return false;
+        }
+        try (InputStream in = Files.newInputStream(file)) {
+            byte[] buffer = new byte[COMPARE_BUFFER_SIZE];
+            int offset = 0;
+            int read;
+            while ((read = in.read(buffer)) > 0) {
+                if (offset + read > content.length ||
+                        !Arrays.equals(buffer, 0, read, content, offset, offset + read)) {
+                    return false;
+                }
+                offset += read;
+            }
+            return offset == content.length;
+        }
+    }
 }
@@ -0,0 +1,82 @@
+/**
+ * Copyright (c) 2021 SUSE LLC
+ *
+ * This software is licensed to you under the GNU General Public License,
+ * version 2 (GPLv2). There is NO WARRANTY for this software, express or
+ * implied, including the implied warranties of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. You should have received a copy of GPLv2
+ * along with this software; if not, see
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.txt.
+ *
+ * Red Hat trademarks are not licensed under GPLv2. No permission is
+ * granted to use or replicate Red Hat trademarks that are incorporated
+ * in this software or its documentation.
+ */
+
+package com.suse.manager.webui.utils.test;
+
+import com.suse.manager.webui.utils.SaltFileUtils;
+
+import org.apache.commons.io.FileUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.stream.Stream;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests for {@link SaltFileUtils}.
+ */
+public class SaltFileUtilsTest extends TestCase {
+
+    private Path dir;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        dir = Files.createTempDirectory("saltfileutils");
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        FileUtils.deleteDirectory(dir.toFile());
+        super.tearDown();
+    }
+
+    /**
+     * Tests that a file is written readable by Salt, without leaving temporary files behind,
+     * and is not touched again when its content did not change.
+     *
+     * @throws Exception if anything goes wrong
+     */
+    public void testWriteAtomically() throws Exception {
+        Path file = dir.resolve("sub").resolve("file.sls");
+        byte[] content = "key: value\n".getBytes(StandardCharsets.UTF_8);
+
+        assertTrue(SaltFileUtils.writeAtomically(file, content));
+        assertEquals("rw-r--r--", PosixFilePermissions.toString(Files.getPosixFilePermissions(file)));
+        assertTrue(SaltFileUtils.hasContent(file, content));
+        try (Stream<Path> files = Files.list(file.getParent())) {
+            assertEquals(1, files.count());
+        }
+
+        assertFalse(SaltFileUtils.writeAtomically(file, content));
+
+        byte[] newContent = "key: other value\n".getBytes(StandardCharsets.UTF_8);
+        assertFalse(SaltFileUtils.hasContent(file, newContent));
+        assertTrue(SaltFileUtils.writeAtomically(file, newContent));
+        assertTrue(SaltFileUtils.hasContent(file, newContent));
+    }
+
+    /**
+     * Tests that a missing file has no content.
+     *
+     * @throws Exception if anything goes wrong
+     */
+    public void testHasContentMissingFile() throws Exception {
+        assertFalse(SaltFileUtils.hasContent(dir.resolve("missing.sls"), new byte[0]));
+    }
+}
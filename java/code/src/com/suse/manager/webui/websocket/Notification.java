@@ -17,6 +17,7 @@ package com.suse.manager.webui.websocket;
 import com.redhat.rhn.common.hibernate.HibernateFactory;
 import com.redhat.rhn.domain.notification.UserNotificationFactory;
 
+import org.apache.commons.lang3.concurrent.BasicThreadFactory;
 import org.apache.log4j.Logger;
 
 import javax.websocket.OnOpen;
@@ -28,15 +29,21 @@ import javax.websocket.EndpointConfig;
 import javax.websocket.server.ServerEndpoint;
 import java.io.EOFException;
 import java.io.IOException;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.Optional;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
 
 /**
  * WebSocket EndPoint for showing notifications real-time in web UI.
@@ -51,6 +58,12 @@ public class Notification {
     private static final Object LOCK = new Object();
     private static Map<Session, Long> wsSessions = new HashMap<>();
     private static Set<Session> brokenSessions = new HashSet<>();
+    // unread notifications count last sent to the sessions of each user
+    private static Map<Long, Long> sentCounts = new HashMap<>();
+
+    // messages are sent outside of the callers' threads, so that slow clients do not block them
+    private static final ExecutorService SENDER = Executors.newSingleThreadExecutor(
+            new BasicThreadFactory.Builder().namingPattern("notification-sender-%d").daemon(true).build());
 
     /**
      * Callback executed when the WebSocket is opened.
@@ -68,8 +81,8 @@ public class Notification {
 
                         // update the notification counter to the unread messages
                         try {
-                            sendMessage(session,
-                                    String.valueOf(UserNotificationFactory.unreadUserNotificationsSize(userId)));
+                            sendInitialCount(userId, session,
+                                    UserNotificationFactory.unreadUserNotificationsSize(userId));
                         }
                         finally {
                             HibernateFactory.closeSession();
@@ -150,19 +163,69 @@ public class Notification {
     }
 
     /**
-     * A static method to notify all {@link Session}s attached to WebSocket from the outside
-     * Must be synchronized. Sending messages concurrently from separate threads
-     * will result in IllegalStateException.
+     * A static method to notify all {@link Session}s attached to WebSocket from the outside.
+     * The unread notifications count of all the connected users is computed with a single query
+     * and sent asynchronously only to the users whose count changed since the last update.
      */
     public static void spreadUpdate() {
+        sendChangedCounts(getSessionsByUser(userId -> true));
+    }
+
+    /**
+     * Notify the {@link Session}s of the given users if their unread notifications count changed.
+     * The count is computed in the calling thread, so that changes not committed yet are considered.
+     *
+     * @param userIds the ids of the users whose notifications changed
+     */
+    public static void spreadUpdate(Collection<Long> userIds) {
+        sendChangedCounts(getSessionsByUser(userIds::contains));
+    }
+
+    private static Map<Long, List<Session>> getSessionsByUser(Predicate<Long> userFilter) {
         synchronized (LOCK) {
-            // if there are unread messages, notify it to all attached WebSocket sessions
-            wsSessions.forEach((session, user) -> {
-                sendMessage(session, String.valueOf(UserNotificationFactory.unreadUserNotificationsSize(user)));
-            });
+            return wsSessions.entrySet().stream()
+                    .filter(e -> userFilter.test(e.getValue()))
+                    .collect(Collectors.groupingBy(Map.Entry::getValue,
+                            Collectors.mapping(Map.Entry::getKey, Collectors.toList())));
         }
     }
 
+    private static void sendChangedCounts(Map<Long, List<Session>> sessionsByUser) {
+        if (sessionsByUser.isEmpty()) {
+            return;
+        }
+        Map<Long, Long> counts = UserNotificationFactory.unreadUserNotificationsSizes(sessionsByUser.keySet());
+        sessionsByUser.forEach((userId, sessions) -> {
+            long count = counts.getOrDefault(userId, 0L);
+            Long previous;
+            synchronized (LOCK) {
+                previous = sentCounts.put(userId, count);
+            }
+            if (previous == null || previous != count) {
+                String message = String.valueOf(count);
+                SENDER.execute(() -> sessions.forEach(session -> sendMessage(session, message)));
+            }
+        });
+    }
+
+    // sends the count to a new session and records it as sent to the user, so that the next updates
+    // are compared to it. The other sessions of the user are updated if their count is outdated.
+    private static void sendInitialCount(long userId, Session session, long count) {
+        Long previous;
+        synchronized (LOCK) {
+            previous = sentCounts.put(userId, count);
+        }
+        String message = String.valueOf(count);
+        if (previous != null && previous != count) {
+            List<Session> others = getSessionsByUser(id -> id == userId)
+                    .getOrDefault(userId, Collections.emptyList());
+            SENDER.execute(() -> others.stream()
+                    .filter(other -> other != session)
+                    .forEach(other -> sendMessage(other, message)));
+        }
+        sendMessage(session, message);
+    }
+
     /**
      * A static method to clean up all invalid sessions
      */
@@ -189,6 +252,9 @@ public class Notification {
                 }
             });
             brokenSessions.clear();
+
+            // forget the counts of the users without sessions
+            sentCounts.keySet().retainAll(wsSessions.values());
         }
     }
 
@@ -103,4 +103,24 @@ public class Lists {
             }
         };
     }
+
+    /**
+     * Splits a list into consecutive sublists of the given size, the last one possibly
+     * being smaller. The sublists are views of the input list.
+     *
+     * @param list input list
+     * @param size maximum size of each sublist
+     * @param <T> list element type
+     * @return the sublists
+     */
+    public static <T> List<List<T>> partition(List<T> list, int size) {
+        if (size < 1) {
+            throw new IllegalArgumentException("size must be > 0");
+        }
+        List<List<T>> result = new ArrayList<>((list.size() + size - 1) / size);
+        for (int i = 0; i < list.size(); i += size) {
+            result.add(list.subList(i, Math.min(i + size, list.size())));
+        }
+        return result;
+    }
 }
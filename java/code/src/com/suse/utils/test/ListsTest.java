@@ -70,4 +70,12 @@ public class ListsTest extends TestCase {
        );
        assertEquals(lists, combinations);
    }
+
+   public void testPartition() {
+       List<Integer> list = Arrays.asList(1, 2, 3, 4, 5);
+       assertEquals(Arrays.asList(Arrays.asList(1, 2), Arrays.asList(3, 4), Arrays.asList(5)),
+               Lists.partition(list, 2));
+       assertEquals(Arrays.asList(list), Lists.partition(list, 5));
+       assertTrue(Lists.partition(Collections.emptyList(), 3).isEmpty());
+   }
 }
@@ -25,10 +25,11 @@
     <rl:decorator name="PageSizeDecorator" />
     <rl:decorator name="ElaborationDecorator" />
 
-    <rl:column headerkey="system.history.snapshot.reason">
+    <rl:column headerkey="system.history.snapshot.reason" sortattr="reason">
       <a href="/rhn/systems/details/history/snapshots/Rollback.do?sid=${param.sid}&amp;ss_id=${current.id}">${current.reason}</a>
     </rl:column>
-    <rl:column headerkey="system.history.snapshot.timetaken">
+    <rl:column headerkey="system.history.snapshot.timetaken" sortattr="created"
+               defaultsort="desc">
       ${current.created}
     </rl:column>
     <rl:column headerkey="system.history.snapshot.tags">
@@ -33,3 +33,7 @@ CREATE UNIQUE INDEX rhn_server_info_sid_unq
     
     ;
 
+CREATE INDEX rhn_server_info_checkin_idx
+    ON rhnServerInfo (checkin)
+    ;
+
@@ -0,0 +1,2 @@
+CREATE INDEX IF NOT EXISTS rhn_server_info_checkin_idx
+    ON rhnServerInfo (checkin);